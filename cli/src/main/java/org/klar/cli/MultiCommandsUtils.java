@@ -2,35 +2,240 @@ package org.klar.cli;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
 import org.klar.cli.error.KcInvalidFileType;
 import org.klar.cli.error.diagnostic.KcDiagnosticCode;
 import org.klar.cli.utils.BuildCache;
 import org.klar.core.IR.IntentResolution;
+import org.klar.core.IR.IrLowering;
+import org.klar.core.IR.IrProgram;
+import org.klar.core.IR.OptimizationLevel;
+import org.klar.core.IR.PassManager;
+import org.klar.core.diagnostics.DiagnosticCode;
+import org.klar.core.diagnostics.DiagnosticCollector;
 import org.klar.core.errors.KException;
+import org.klar.core.errors.SemanticException;
+import org.klar.core.errors.SourceLocation;
 import org.klar.core.errors.SourceManager;
 import org.klar.core.lexer.Lexer;
+import org.klar.core.lexer.SymbolInterner;
 import org.klar.core.lexer.Token;
+import org.klar.core.modules.KliFormat;
+import org.klar.core.modules.ModuleGraph;
+import org.klar.core.modules.ModuleInterface;
+import org.klar.core.modules.ModuleResolver;
+import org.klar.core.modules.ModuleSummary;
+import org.klar.core.parser.ParallelParser;
 import org.klar.core.parser.Parser;
+import org.klar.core.parser.ast.ImportDeclarationNode;
 import org.klar.core.parser.ast.ProgramNode;
+import org.klar.core.parser.ast.StatementNode;
+import org.klar.core.parser.ast.flat.FlatAst;
+import org.klar.core.parser.ast.flat.FlatNodeKind;
+import org.klar.core.parser.ast.flat.KlastFormat;
 import org.klar.core.semantics.TypeChecker;
+import org.klar.core.semantics.TypedProgram;
 import org.klar.core.transpilers.JavaTranspiler;
 
 public class MultiCommandsUtils implements Runnable {
 
+    /**
+     * Builds an interned identifier survives without being used, see
+     * {@link SymbolInterner#advanceEpoch(int)}.
+     */
+    private static final int INTERNED_BUILDS_RETAINED = 1;
+
     private final File file;
     private final String caller;
     private final boolean clean;
+    private final int maxErrors;
+    private final OptimizationLevel optimization;
+    private final PassManager passes;
+    private final boolean inspectPasses;
+    private final boolean timePasses;
 
     public MultiCommandsUtils(File file, String caller, boolean clean) {
+        this(file, caller, clean, DiagnosticCollector.DEFAULT_MAX_ERRORS);
+    }
+
+    /**
+     * @param maxErrors Number of errors after which checking a module stops;
+     *                  values below 1 count as 1.
+     * @since 0.15
+     */
+    public MultiCommandsUtils(File file, String caller, boolean clean, int maxErrors) {
+        this(file, caller, clean, maxErrors, OptimizationLevel.O0, List.of(), false);
+    }
+
+    /**
+     * @param optimization Level to build at; above {@code O0} modules go
+     *                     through the IR and its passes.
+     * @param printAfter   Passes after which to print the IR of each module
+     *                     built.
+     * @param timePasses   Whether to print how long each pass took.
+     * @throws IllegalArgumentException if a pass in {@code printAfter} does
+     *                                  not run at {@code optimization}
+     * @since 0.15
+     */
+    public MultiCommandsUtils(File file, String caller, boolean clean, int maxErrors,
+            OptimizationLevel optimization, List<String> printAfter, boolean timePasses) {
         this.file = file;
         this.caller = caller;
         this.clean = clean;
+        this.maxErrors = Math.max(1, maxErrors);
+        this.optimization = optimization;
+        this.passes = PassManager.forLevel(optimization);
+        this.timePasses = timePasses;
+
+        if (!printAfter.isEmpty() && optimization == OptimizationLevel.O0) {
+            throw new IllegalArgumentException("--print-after needs -O1 or higher; -O0 does not build the IR");
+        }
+        for (String pass : printAfter) {
+            passes.printAfter(pass);
+        }
+        this.inspectPasses = !printAfter.isEmpty() || timePasses;
+    }
+
+    /**
+     * One module of the build: the entry file or a file it imports, directly
+     * or transitively.
+     * <p>
+     * A module whose source is unchanged is loaded from its {@code .kli} file,
+     * or else has its summary and imports read from its cached {@code .klast}
+     * tree; it is only parsed if it has to be rebuilt, or to report an error at
+     * one of its imports. Syntax errors are kept with the partial tree and reported
+     * together with the semantic errors when the module is built.
+     * </p>
+     */
+    private static final class ModuleUnit {
+        final String name;
+        final String className;
+        final Path path;
+        final String source;
+        final byte[] sourceHash;
+        final Path cacheDir;
+        final ModuleSummary summary;
+        final List<String> importNames;
+        final int maxErrors;
+
+        private SourceManager sourceManager;
+        private DiagnosticCollector diagnostics;
+        private ProgramNode program;
+        private List<ImportDeclarationNode> imports;
+        /** Cached tree read when the module was loaded, until it is parsed. */
+        private FlatAst cachedAst;
+
+        volatile boolean rebuilt;
+        volatile boolean failed;
+
+        ModuleUnit(String name, String className, Path path, String source, byte[] sourceHash, Path cacheDir,
+                ModuleInterface cached, int maxErrors) throws Exception {
+            this.name = name;
+            this.maxErrors = maxErrors;
+            this.className = className;
+            this.path = path;
+            this.source = source;
+            this.sourceHash = sourceHash;
+            this.cacheDir = cacheDir;
+
+            if (cached != null) {
+                this.summary = cached.summary();
+                this.importNames = cached.imports();
+            } else {
+                cachedAst = KlastFormat.read(astFile(), sourceHash);
+                List<String> names = new ArrayList<>();
+                if (cachedAst != null) {
+                    // Declarations are read from the cached tree without rebuilding it
+                    this.summary = ModuleSummary.of(name, className, cachedAst);
+                    for (int node = cachedAst.firstChild(cachedAst.root()); node != FlatAst.NONE;
+                            node = cachedAst.nextSibling(node)) {
+                        if (cachedAst.kind(node) == FlatNodeKind.IMPORT) {
+                            names.add(ModuleResolver.qualifiedName(cachedAst, node));
+                        }
+                    }
+                } else {
+                    parse();
+                    this.summary = ModuleSummary.of(name, className, program);
+                    for (ImportDeclarationNode i : imports) {
+                        names.add(ModuleResolver.qualifiedName(i));
+                    }
+                }
+                this.importNames = List.copyOf(names);
+            }
+        }
+
+        /**
+         * Reuses the cached AST of the module, or lexes and parses it.
+         */
+        synchronized ProgramNode parse() throws Exception {
+            if (program != null) {
+                return program;
+            }
+
+            sourceManager = new SourceManager(source);
+            diagnostics = new DiagnosticCollector(maxErrors);
+            FlatAst flat = cachedAst != null ? cachedAst : KlastFormat.read(astFile(), sourceHash);
+            cachedAst = null;
+
+            if (flat != null) {
+                program = flat.program();
+            } else {
+                Lexer lexer = new Lexer(source, path.toString(), sourceManager, SymbolInterner.shared());
+                List<Token> tokens = lexer.tokenizeSourceCode();
+
+                // Modules with many declarations are parsed in parallel, others sequentially
+                ParallelParser parser = new ParallelParser(tokens, path, sourceManager,
+                        Parser.DEFAULT_MAX_NESTING_DEPTH, ForkJoinPool.commonPool(), diagnostics);
+                program = parser.parsePartialProgram();
+
+                // Syntax errors are not cached, so neither is a tree with error nodes
+                if (!diagnostics.hasErrors()) {
+                    KlastFormat.write(FlatAst.encode(program), sourceHash, astFile());
+                }
+            }
+
+            imports = new ArrayList<>();
+            for (StatementNode statement : program.statements) {
+                if (statement instanceof ImportDeclarationNode i) {
+                    imports.add(i);
+                }
+            }
+            return program;
+        }
+
+        private Path astFile() {
+            return cacheDir.resolve(name + KlastFormat.EXTENSION);
+        }
+
+        synchronized SourceManager sourceManager() throws Exception {
+            parse();
+            return sourceManager;
+        }
+
+        synchronized List<ImportDeclarationNode> imports() throws Exception {
+            parse();
+            return imports;
+        }
+
+        /**
+         * @return the syntax errors of the module, to which checking adds
+         */
+        synchronized DiagnosticCollector diagnostics() throws Exception {
+            parse();
+            return diagnostics;
+        }
     }
 
     @Override
@@ -38,7 +243,6 @@ public class MultiCommandsUtils implements Runnable {
         Path path = file.toPath();
 
         String _fileName = path.getFileName().toString();
-        String sufix = _fileName.substring(_fileName.lastIndexOf(".") + 1);
         String fileName = _fileName.replaceFirst("[.][^.]+$", "");
 
         System.err.println(_fileName);
@@ -64,56 +268,44 @@ public class MultiCommandsUtils implements Runnable {
             Files.createDirectories(sourceOutDir);
             Files.createDirectories(classOutDir);
 
-            Path cacheFile = cacheDir.resolve(fileName + ".hash");
-            Path outputFile = sourceOutDir.resolve(fileName + ".java");
-
-            boolean needsRebuild = BuildCache.needsRebuild(path, cacheFile);
-
-            // Build phase
-            if (!needsRebuild && !clean) {
-                System.out.println("✓ " + fileName + ".java is up to date (skipping build)");
-            } else {
-                System.out.println("Building " + fileName + sufix + "...");
-
-                // 1. Read
-                String source = Files.readString(path);
-                SourceManager sourceManager = new SourceManager(source);
+            // 1-3. Load the entry file and every module it imports
+            Map<String, ModuleUnit> units = loadModules(path, fileName, sourceOutDir, cacheDir);
 
-                // 2. Lex
-                Lexer lexer = new Lexer(source, file.getPath(), sourceManager);
-                List<Token> tokens = lexer.tokenizeSourceCode();
-
-                // 3. Parse
-                Parser parser = new Parser(tokens, path, sourceManager);
-                ProgramNode program = parser.parseProgram();
-
-                // 4. Type check
-                TypeChecker checker = new TypeChecker(sourceManager, path);
-                checker.check(program);
-
-                // 5. Validation
-                IntentResolution iR = new IntentResolution(program, path, sourceManager);
-                iR.validateIntent();
-
-                // 6. Transpile
-                JavaTranspiler transpiler = new JavaTranspiler(fileName, sourceManager, path);
-                String javaCode = transpiler.transpile(program);
+            ModuleGraph graph = new ModuleGraph();
+            for (ModuleUnit unit : units.values()) {
+                graph.add(unit.name, unit.className, unit.importNames);
+            }
+            reportClash(graph, units);
+            reportCycle(graph, units);
 
-                // 7. Write output
-                Files.writeString(outputFile, javaCode);
+            // 4-8. Build modules wave by wave; a wave only needs the ones before it
+            boolean failed = false;
+            for (List<String> wave : graph.waves()) {
+                wave.parallelStream().forEach(name -> buildModule(units.get(name), units, sourceOutDir, cacheDir));
 
-                // 8. Save hash for next time
-                BuildCache.saveHash(path, cacheFile);
+                for (String name : wave) {
+                    failed |= units.get(name).failed;
+                }
+                if (failed) {
+                    break;
+                }
+            }
 
-                if (caller.equals("build")) {
-                    System.out.println(
-                            "✓ Build successful → " + fileName + ".java generated at " + sourceOutDir.toAbsolutePath());
+            // Compile phase - always compile for run, or if we just rebuilt.
+            // Modules rebuilt before a failure are compiled too, since their
+            // hashes are already saved.
+            List<String> toCompile = new ArrayList<>();
+            for (ModuleUnit unit : units.values()) {
+                if (unit.rebuilt || (!failed && caller.equals("run") && unit.name.equals(fileName))) {
+                    toCompile.add(unit.className);
                 }
             }
+            if (!toCompile.isEmpty()) {
+                compileJavaSource(sourceOutDir, classOutDir, toCompile);
+            }
 
-            // Compile phase - always compile for run, or if we just rebuilt
-            if (caller.equals("run") || needsRebuild || clean) {
-                compileJavaSource(sourceOutDir, classOutDir, fileName);
+            if (failed) {
+                return;
             }
 
             // Run phase
@@ -131,19 +323,250 @@ public class MultiCommandsUtils implements Runnable {
         } catch (Exception e) {
             System.err.println("Build error: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            // Identifiers of files no longer in the build are released
+            SymbolInterner.shared().advanceEpoch(INTERNED_BUILDS_RETAINED);
         }
     }
 
-    private void compileJavaSource(Path sourceOutDir, Path classOutDir, String fileName)
-            throws IOException, InterruptedException {
-        System.out.println("Compiling " + fileName + ".java...");
+    /**
+     * Loads the entry file, then every file it imports, transitively.
+     *
+     * @return the modules by qualified name, in discovery order; the entry
+     *         file is named after its file name
+     */
+    private Map<String, ModuleUnit> loadModules(Path entry, String entryName, Path sourceOutDir, Path cacheDir)
+            throws Exception {
+        ModuleResolver resolver = new ModuleResolver(entry.toAbsolutePath().getParent());
+        Map<String, ModuleUnit> units = new LinkedHashMap<>();
+        ArrayDeque<ModuleUnit> pending = new ArrayDeque<>();
+
+        ModuleUnit first = loadModule(entryName, entryName, entry, sourceOutDir, cacheDir);
+        units.put(entryName, first);
+        pending.add(first);
+
+        while (!pending.isEmpty()) {
+            ModuleUnit unit = pending.poll();
+            for (String name : unit.importNames) {
+                if (units.containsKey(name)) {
+                    continue;
+                }
 
-        Path javaFile = sourceOutDir.resolve(fileName + ".java");
+                Path source = resolver.find(name);
+                if (source == null) {
+                    // Parse the importer to point the diagnostic at its import.
+                    for (ImportDeclarationNode i : unit.imports()) {
+                        if (ModuleResolver.qualifiedName(i).equals(name)) {
+                            resolver.resolve(i, unit.path, unit.sourceManager());
+                        }
+                    }
+                }
 
-        Process javac = new ProcessBuilder(
+                ModuleUnit imported = loadModule(name, ModuleResolver.className(name), source, sourceOutDir, cacheDir);
+                units.put(name, imported);
+                pending.add(imported);
+            }
+        }
+
+        return units;
+    }
+
+    private ModuleUnit loadModule(String name, String className, Path path, Path sourceOutDir, Path cacheDir)
+            throws Exception {
+        byte[] sourceBytes = Files.readAllBytes(path);
+        String source = new String(sourceBytes, StandardCharsets.UTF_8);
+        byte[] sourceHash = BuildCache.hash(sourceBytes);
+
+        ModuleInterface cached = clean ? null
+                : KliFormat.read(sourceOutDir.resolve(className + KliFormat.EXTENSION), sourceHash);
+        return new ModuleUnit(name, className, path, source, sourceHash, cacheDir, cached, maxErrors);
+    }
+
+    private void reportClash(ModuleGraph graph, Map<String, ModuleUnit> units) throws Exception {
+        List<String> clash = graph.clash();
+        if (clash.isEmpty()) {
+            return;
+        }
+
+        // Point at an import of the second module; the first was found earlier
+        for (ModuleUnit unit : units.values()) {
+            for (ImportDeclarationNode i : unit.imports()) {
+                if (ModuleResolver.qualifiedName(i).equals(clash.get(1))) {
+                    throw new SemanticException(
+                            DiagnosticCode.E220,
+                            new SourceLocation(unit.path.toString(), i.line, i.column),
+                            unit.sourceManager(),
+                            "Modules '" + clash.get(0) + "' and '" + clash.get(1) + "' would both be written to "
+                                    + units.get(clash.get(1)).className + ".java",
+                            "Rename one of the modules",
+                            null,
+                            null,
+                            1);
+                }
+            }
+        }
+    }
+
+    private void reportCycle(ModuleGraph graph, Map<String, ModuleUnit> units) throws Exception {
+        List<String> cycle = graph.cycle();
+        if (cycle.isEmpty()) {
+            return;
+        }
+
+        ModuleUnit unit = units.get(cycle.get(0));
+        for (ImportDeclarationNode i : unit.imports()) {
+            if (ModuleResolver.qualifiedName(i).equals(cycle.get(1))) {
+                throw new SemanticException(
+                        DiagnosticCode.E219,
+                        new SourceLocation(unit.path.toString(), i.line, i.column),
+                        unit.sourceManager(),
+                        "Import cycle: " + String.join(" -> ", cycle),
+                        "Move the shared functions to a module that imports neither",
+                        null,
+                        null,
+                        1);
+            }
+        }
+    }
+
+    /**
+     * Checks and transpiles one module if its source, or a signature it
+     * imports, changed since the last build. Errors are reported here and
+     * mark the module as failed.
+     */
+    private void buildModule(ModuleUnit unit, Map<String, ModuleUnit> units, Path sourceOutDir, Path cacheDir) {
+        try {
+            Path cacheFile = cacheDir.resolve(unit.name + ".hash");
+            Path signaturesFile = cacheDir.resolve(unit.name + ".deps");
+            Path outputFile = sourceOutDir.resolve(unit.className + ".java");
+            Path interfaceFile = sourceOutDir.resolve(unit.className + KliFormat.EXTENSION);
+            Path optionsFile = cacheDir.resolve(unit.name + ".opts");
+
+            Map<String, String> signatures = new TreeMap<>();
+            for (String name : unit.importNames) {
+                signatures.put(name, BuildCache.toHex(units.get(name).summary.signatureHash()));
+            }
+
+            // Printing or timing passes needs the module to go through them
+            boolean needsRebuild = clean
+                    || inspectPasses
+                    || BuildCache.needsRebuild(unit.path, cacheFile)
+                    || !Files.exists(outputFile)
+                    || BuildCache.signaturesChanged(signaturesFile, signatures)
+                    || BuildCache.optionsChanged(optionsFile, optimization.name());
+
+            if (!needsRebuild) {
+                System.out.println("✓ " + unit.className + ".java is up to date (skipping build)");
+                return;
+            }
+
+            System.out.println("Building " + unit.path.getFileName() + "...");
+            ProgramNode program = unit.parse();
+            SourceManager sourceManager = unit.sourceManager();
+
+            // 4. Type check against the interfaces of the imports
+            TypeChecker checker = new TypeChecker(sourceManager, unit.path, ForkJoinPool.commonPool(),
+                    unit.diagnostics());
+            for (String name : unit.importNames) {
+                checker.addModule(units.get(name).summary);
+            }
+            TypedProgram types = checker.check(program);
+            printWarnings(unit.diagnostics());
+
+            // 5. Validation
+            IntentResolution iR = new IntentResolution(program, unit.path, sourceManager);
+            iR.validateIntent();
+
+            // 6. Transpile, through the IR and its passes from -O1 up
+            JavaTranspiler transpiler = new JavaTranspiler(unit.className, sourceManager, unit.path, types);
+            String javaCode = optimization == OptimizationLevel.O0
+                    ? transpiler.transpile(program)
+                    : transpiler.transpile(optimize(unit, types));
+
+            // 7. Write output and interface
+            Files.writeString(outputFile, javaCode);
+            KliFormat.write(unit.summary, unit.importNames, unit.sourceHash, interfaceFile);
+
+            // 8. Save hashes for next time
+            BuildCache.saveHash(unit.path, cacheFile);
+            BuildCache.saveSignatures(signaturesFile, signatures);
+            BuildCache.saveOptions(optionsFile, optimization.name());
+            unit.rebuilt = true;
+
+            if (caller.equals("build")) {
+                System.out.println(
+                        "✓ Build successful → " + unit.className + ".java generated at "
+                                + sourceOutDir.toAbsolutePath());
+            }
+        } catch (KException e) {
+            unit.failed = true;
+            System.out.println(e.format());
+        } catch (Exception e) {
+            unit.failed = true;
+            System.err.println("Build error: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Prints the warnings of a module in one piece, so they do not interleave
+     * with the output of modules built in parallel.
+     */
+    private static void printWarnings(DiagnosticCollector diagnostics) {
+        if (diagnostics.warnings().isEmpty()) {
+            return;
+        }
+
+        StringBuilder warnings = new StringBuilder();
+        for (KException warning : diagnostics.warnings()) {
+            warnings.append(warning.format()).append('\n');
+        }
+        System.out.print(warnings);
+    }
+
+    /**
+     * Lowers a checked module to the IR and runs the passes of the
+     * optimization level on it. What {@code --print-after} and
+     * {@code --time-passes} ask for is printed in one piece, so the output of
+     * modules built in parallel does not interleave.
+     */
+    private IrProgram optimize(ModuleUnit unit, TypedProgram types) {
+        IrProgram ir = IrLowering.lower(unit.name, types);
+        ir.setEntry(unit.path.equals(file.toPath()));
+
+        StringBuilder report = new StringBuilder();
+        List<PassManager.PassTiming> timings = passes.run(ir, printed -> report.append(printed).append('\n'));
+
+        if (timePasses) {
+            long total = 0;
+            report.append("Pass timings for ").append(unit.name).append(":\n");
+            for (PassManager.PassTiming timing : timings) {
+                total += timing.nanos();
+                report.append(String.format("  %-20s %9.3f ms%s%n", timing.pass(), timing.nanos() / 1e6,
+                        timing.changed() ? "  changed" : ""));
+            }
+            report.append(String.format("  %-20s %9.3f ms%n", "total", total / 1e6));
+        }
+
+        if (report.length() > 0) {
+            System.out.print(report);
+        }
+        return ir;
+    }
+
+    private void compileJavaSource(Path sourceOutDir, Path classOutDir, List<String> classNames)
+            throws IOException, InterruptedException {
+        System.out.println("Compiling " + String.join(".java, ", classNames) + ".java...");
+
+        List<String> command = new ArrayList<>(List.of(
                 "javac",
                 "-d", classOutDir.toAbsolutePath().toString(),
-                javaFile.toAbsolutePath().toString()).inheritIO().start();
+                "-cp", classOutDir.toAbsolutePath().toString()));
+        for (String className : classNames) {
+            command.add(sourceOutDir.resolve(className + ".java").toAbsolutePath().toString());
+        }
+
+        Process javac = new ProcessBuilder(command).inheritIO().start();
 
         int exitCode = javac.waitFor();
 
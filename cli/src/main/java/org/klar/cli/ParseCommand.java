@@ -1,6 +1,7 @@
 package org.klar.cli;
 
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
 import java.io.File;
@@ -13,8 +14,13 @@ import org.klar.cli.error.diagnostic.KcDiagnosticCode;
 import org.klar.core.errors.SourceManager;
 import org.klar.core.lexer.Lexer;
 import org.klar.core.lexer.Token;
+import org.klar.core.parser.ParallelParser;
 import org.klar.core.parser.Parser;
+import org.klar.core.parser.ast.FunctionDeclarationNode;
+import org.klar.core.parser.ast.ParameterNode;
 import org.klar.core.parser.ast.ProgramNode;
+import org.klar.core.parser.ast.StatementNode;
+import org.klar.core.parser.ast.TypeReferenceNode;
 
 @Command(name = "parse", description = "Parse file.kl | file.klar")
 public class ParseCommand implements Runnable {
@@ -22,6 +28,12 @@ public class ParseCommand implements Runnable {
     @Parameters(paramLabel = "FILE")
     private File file;
 
+    @Option(names = { "--parallel", "-p" }, description = "Parse top-level declarations in parallel")
+    private boolean parallel = false;
+
+    @Option(names = { "--signatures", "-s" }, description = "List function signatures without parsing their bodies")
+    private boolean signatures = false;
+
     @Override
     public void run() {
         Path path = file.toPath();
@@ -42,8 +54,15 @@ public class ParseCommand implements Runnable {
             Lexer lexer = new Lexer(source, file.getPath(), sourceManager);
             List<Token> tokens = lexer.tokenizeSourceCode();
 
-            Parser parser = new Parser(tokens, path, sourceManager);
-            ProgramNode program = parser.parseProgram();
+            if (signatures) {
+                Parser parser = new Parser(tokens, path, sourceManager, Parser.DEFAULT_MAX_NESTING_DEPTH, true);
+                printSignatures(parser.parseProgram());
+                return;
+            }
+
+            ProgramNode program = parallel
+                    ? new ParallelParser(tokens, path, sourceManager).parseProgram()
+                    : new Parser(tokens, path, sourceManager).parseProgram();
 
             System.out.println("Parsed successfully.");
 
@@ -54,4 +73,44 @@ public class ParseCommand implements Runnable {
             throw new RuntimeException("Internal compiler error", e);
         }
     }
+
+    private static void printSignatures(ProgramNode program) {
+        for (StatementNode statement : program.statements) {
+            if (!(statement instanceof FunctionDeclarationNode fn)) {
+                continue;
+            }
+
+            StringBuilder signature = new StringBuilder();
+            if (fn.use != null) {
+                signature.append("@Use(").append(fn.use.target.getValue()).append(") ");
+            }
+            signature.append(fn.access.toString().toLowerCase()).append(' ')
+                    .append(typeName(fn.returnType)).append(' ')
+                    .append(fn.name.getValue()).append('(');
+
+            for (int i = 0; i < fn.parameters.size(); i++) {
+                ParameterNode parameter = fn.parameters.get(i);
+                if (i > 0) {
+                    signature.append(", ");
+                }
+                signature.append(typeName(parameter.type)).append(' ').append(parameter.name.getValue());
+            }
+
+            System.out.println(signature.append(')'));
+        }
+    }
+
+    private static String typeName(TypeReferenceNode type) {
+        String base = switch (type.getBaseType().getType()) {
+            case INTEGER_TYPE -> "integer";
+            case DOUBLE_TYPE -> "double";
+            case BOOLEAN_TYPE -> "boolean";
+            case CHARACTER_TYPE -> "character";
+            case STRING_TYPE -> "String";
+            case VOID -> "void";
+            default -> type.getBaseType().getValue();
+        };
+
+        return base + "[]".repeat(type.arrayDepth);
+    }
 }
@@ -5,6 +5,11 @@ import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.klar.core.IR.OptimizationLevel;
+import org.klar.core.diagnostics.DiagnosticCollector;
 
 @Command(name = "run", description = "Transpile, compile and run a Klar program")
 public class RunCommand implements Runnable {
@@ -15,9 +20,22 @@ public class RunCommand implements Runnable {
     @Option(names = { "--clean", "-c" }, description = "Limpa o diretorio out")
     private boolean clean = false;
 
+    @Option(names = { "--max-errors" }, paramLabel = "N", description = "Stop after N errors (default: ${DEFAULT-VALUE})")
+    private int maxErrors = DiagnosticCollector.DEFAULT_MAX_ERRORS;
+
+    @Option(names = { "-O" }, paramLabel = "LEVEL", description = "Optimization level: 0, 1 or 2 (default: ${DEFAULT-VALUE})")
+    private int optimization = 0;
+
+    @Option(names = { "--print-after" }, paramLabel = "PASS", split = ",", description = "Print the IR after PASS; 'lower' prints it before any pass")
+    private List<String> printAfter = new ArrayList<>();
+
+    @Option(names = { "--time-passes" }, description = "Print how long each optimization pass took")
+    private boolean timePasses = false;
+
     @Override
     public void run() {
-        MultiCommandsUtils run = new MultiCommandsUtils(file, "run", clean);
+        MultiCommandsUtils run = new MultiCommandsUtils(file, "run", clean, maxErrors,
+                OptimizationLevel.of(optimization), printAfter, timePasses);
         run.run();
 
     }
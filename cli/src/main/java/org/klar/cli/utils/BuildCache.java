@@ -3,21 +3,37 @@ package org.klar.cli.utils;
 import java.security.MessageDigest;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class BuildCache {
     
     public static String calculateFileHash(Path file) throws Exception {
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
-        byte[] fileBytes = Files.readAllBytes(file);
-        byte[] hashBytes = digest.digest(fileBytes);
-        
+        return toHex(hash(Files.readAllBytes(file)));
+    }
+    
+    /**
+     * SHA-256 of {@code bytes}, the same digest {@link #calculateFileHash(Path)}
+     * renders as hex.
+     */
+    public static byte[] hash(byte[] bytes) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(bytes);
+    }
+
+    /**
+     * Renders a digest as lowercase hex.
+     *
+     * @since 0.15
+     */
+    public static String toHex(byte[] hashBytes) {
         StringBuilder hexString = new StringBuilder();
         for (byte b : hashBytes) {
             hexString.append(String.format("%02x", b));
         }
         return hexString.toString();
     }
-    
+
     public static boolean needsRebuild(Path sourceFile, Path cacheFile) throws Exception {
         // Se o arquivo de cache não existe, precisa buildar
         if (!Files.exists(cacheFile)) {
@@ -38,4 +54,63 @@ public class BuildCache {
         String hash = calculateFileHash(sourceFile);
         Files.writeString(cacheFile, hash);
     }
-}
\ No newline at end of file
+
+    /**
+     * Whether the signatures a module was last built against differ from
+     * {@code signatures}, the current signature hashes of its imports.
+     *
+     * @param cacheFile File written by {@link #saveSignatures(Path, Map)}.
+     * @since 0.15
+     */
+    public static boolean signaturesChanged(Path cacheFile, Map<String, String> signatures) throws Exception {
+        if (!Files.exists(cacheFile)) {
+            return !signatures.isEmpty();
+        }
+
+        Map<String, String> cached = new HashMap<>();
+        List<String> lines = Files.readAllLines(cacheFile);
+        for (String line : lines) {
+            int space = line.indexOf(' ');
+            if (space > 0) {
+                cached.put(line.substring(0, space), line.substring(space + 1).trim());
+            }
+        }
+
+        return !cached.equals(signatures);
+    }
+
+    /**
+     * Records the signature hashes of the imports a module was built against,
+     * one {@code module hash} pair per line.
+     *
+     * @since 0.15
+     */
+    public static void saveSignatures(Path cacheFile, Map<String, String> signatures) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : signatures.entrySet()) {
+            sb.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        Files.writeString(cacheFile, sb.toString());
+    }
+
+    /**
+     * Whether a module was last built with other options than
+     * {@code options}, such as another optimization level. A module with no
+     * record was built before options were recorded, so it counts as changed.
+     *
+     * @param cacheFile File written by {@link #saveOptions(Path, String)}.
+     * @since 0.15
+     */
+    public static boolean optionsChanged(Path cacheFile, String options) throws Exception {
+        return !Files.exists(cacheFile) || !Files.readString(cacheFile).trim().equals(options);
+    }
+
+    /**
+     * Records the options a module was built with.
+     *
+     * @since 0.15
+     */
+    public static void saveOptions(Path cacheFile, String options) throws Exception {
+        Files.writeString(cacheFile, options);
+    }
+}
@@ -60,5 +60,43 @@ public final class Heddle {
         TokenType.INTERNAL
     );
 
+    /**
+     * Binding power of the binary operators, from loosest to tightest. Every
+     * level is left-associative.
+     */
+    public static final int NO_PRECEDENCE = 0;
+    public static final int OR_PRECEDENCE = 1;
+    public static final int AND_PRECEDENCE = 2;
+    public static final int COMPARISION_PRECEDENCE = 3;
+    public static final int TERM_PRECEDENCE = 4;
+    public static final int FACTOR_PRECEDENCE = 5;
+
+    private static final byte[] BINARY_PRECEDENCE = new byte[TokenType.values().length];
+
+    static {
+        BINARY_PRECEDENCE[TokenType.OR.ordinal()] = OR_PRECEDENCE;
+        BINARY_PRECEDENCE[TokenType.AND.ordinal()] = AND_PRECEDENCE;
+
+        for (TokenType type : COMPARISION_OPERATORS) {
+            BINARY_PRECEDENCE[type.ordinal()] = COMPARISION_PRECEDENCE;
+        }
+
+        for (TokenType type : TERM_OPERATORS) {
+            BINARY_PRECEDENCE[type.ordinal()] = TERM_PRECEDENCE;
+        }
+
+        for (TokenType type : FACTOR_OPERATORS) {
+            BINARY_PRECEDENCE[type.ordinal()] = FACTOR_PRECEDENCE;
+        }
+    }
+
+    /**
+     * @return The binding power of {@code type} as a binary operator, or
+     *         {@link #NO_PRECEDENCE} if it does not continue an expression.
+     */
+    public static int binaryPrecedence(TokenType type) {
+        return BINARY_PRECEDENCE[type.ordinal()];
+    }
+
     private Heddle() {}
 }
@@ -0,0 +1,59 @@
+package org.klar.core.IR;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sequence of instructions that always runs from start to end, followed by
+ * the {@link IrTerminator} that picks the next block.
+ * <p>
+ * Blocks are mutable so passes can rewrite them in place; the terminator is
+ * {@code null} only while the block is being built.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class BasicBlock {
+    private final int id;
+    private final List<IrInstruction> instructions = new ArrayList<>();
+    private IrTerminator terminator;
+
+    BasicBlock(int id) {
+        this.id = id;
+    }
+
+    /**
+     * @return a number that identifies the block within its function
+     */
+    public int id() {
+        return id;
+    }
+
+    /**
+     * @return the instructions, as a mutable list
+     */
+    public List<IrInstruction> instructions() {
+        return instructions;
+    }
+
+    public IrTerminator terminator() {
+        return terminator;
+    }
+
+    public void setTerminator(IrTerminator terminator) {
+        this.terminator = terminator;
+    }
+
+    public boolean isTerminated() {
+        return terminator != null;
+    }
+
+    public List<BasicBlock> successors() {
+        return terminator == null ? List.of() : terminator.successors();
+    }
+
+    @Override
+    public String toString() {
+        return "b" + id;
+    }
+}
@@ -0,0 +1,60 @@
+package org.klar.core.IR;
+
+import org.klar.core.lexer.TokenType;
+
+/**
+ * Operators of {@link IrInstruction.Binary}.
+ * <p>
+ * {@link #AND} and {@link #OR} evaluate both operands; lowering only uses them
+ * when evaluating the right operand early cannot be observed, and branches
+ * otherwise.
+ * </p>
+ *
+ * @since 0.15
+ */
+public enum BinaryOp {
+    ADD("+"),
+    SUBTRACT("-"),
+    MULTIPLY("*"),
+    DIVIDE("/"),
+    REMAINDER("%"),
+    EQUAL("=="),
+    NOT_EQUAL("!="),
+    LESS("<"),
+    GREATER(">"),
+    LESS_EQUAL("<="),
+    GREATER_EQUAL(">="),
+    AND("&&"),
+    OR("||");
+
+    /** How the operator is written in Klar, and in Java. */
+    public final String symbol;
+
+    BinaryOp(String symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * @return the operator written as {@code token}
+     * @throws IllegalArgumentException if {@code token} is not a binary
+     *                                  operator
+     */
+    public static BinaryOp of(TokenType token) {
+        return switch (token) {
+            case PLUS -> ADD;
+            case MINUS -> SUBTRACT;
+            case MULTIPLY -> MULTIPLY;
+            case DIVISION -> DIVIDE;
+            case REMAINDER -> REMAINDER;
+            case DOUBLEEQUAL -> EQUAL;
+            case NOTEQUAL -> NOT_EQUAL;
+            case LT -> LESS;
+            case GT -> GREATER;
+            case LTE -> LESS_EQUAL;
+            case GTE -> GREATER_EQUAL;
+            case AND -> AND;
+            case OR -> OR;
+            default -> throw new IllegalArgumentException("Not a binary operator: " + token);
+        };
+    }
+}
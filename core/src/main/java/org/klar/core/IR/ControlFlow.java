@@ -0,0 +1,242 @@
+package org.klar.core.IR;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Control-flow facts of an {@link IrFunction}: reverse postorder,
+ * predecessors, dominators and loops.
+ * <p>
+ * Only blocks reachable from the entry are considered. The facts describe the
+ * function when they were computed and are not updated when it changes.
+ * </p>
+ * <p>
+ * Lowering only produces reducible graphs, where every loop is entered through
+ * its header, so an edge is a back edge exactly when it goes to a block that
+ * does not come later in reverse postorder.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class ControlFlow {
+    private final List<BasicBlock> order;
+    private final Map<BasicBlock, Integer> index = new HashMap<>();
+    private final Map<BasicBlock, List<BasicBlock>> predecessors = new HashMap<>();
+    private final Map<BasicBlock, List<BasicBlock>> children = new HashMap<>();
+    private final BasicBlock[] idom;
+
+    public ControlFlow(IrFunction function) {
+        this.order = reversePostorder(function.entry());
+        for (int i = 0; i < order.size(); i++) {
+            index.put(order.get(i), i);
+            predecessors.put(order.get(i), new ArrayList<>());
+        }
+        for (BasicBlock block : order) {
+            for (BasicBlock successor : block.successors()) {
+                predecessors.get(successor).add(block);
+            }
+        }
+        this.idom = dominators();
+        for (int i = 1; i < order.size(); i++) {
+            children.computeIfAbsent(idom[i], b -> new ArrayList<>()).add(order.get(i));
+        }
+    }
+
+    /**
+     * @return the blocks reachable from the entry of {@code function}
+     */
+    public static Set<BasicBlock> reachable(IrFunction function) {
+        return new HashSet<>(reversePostorder(function.entry()));
+    }
+
+    /**
+     * @return the reachable blocks in reverse postorder, entry first
+     */
+    public List<BasicBlock> order() {
+        return Collections.unmodifiableList(order);
+    }
+
+    /**
+     * @return the position of {@code block} in {@link #order()}
+     */
+    public int indexOf(BasicBlock block) {
+        return index.get(block);
+    }
+
+    public boolean isReachable(BasicBlock block) {
+        return index.containsKey(block);
+    }
+
+    public List<BasicBlock> predecessors(BasicBlock block) {
+        return Collections.unmodifiableList(predecessors.get(block));
+    }
+
+    /**
+     * @return whether the edge from {@code from} to {@code to} closes a loop
+     */
+    public boolean isBackEdge(BasicBlock from, BasicBlock to) {
+        return indexOf(to) <= indexOf(from);
+    }
+
+    /**
+     * @return the number of edges into {@code block} that are not back edges
+     */
+    public int forwardPredecessors(BasicBlock block) {
+        int count = 0;
+        for (BasicBlock predecessor : predecessors.get(block)) {
+            if (!isBackEdge(predecessor, block)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public boolean isLoopHeader(BasicBlock block) {
+        for (BasicBlock predecessor : predecessors.get(block)) {
+            if (isBackEdge(predecessor, block)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the immediate dominator of {@code block}, or {@code null} for
+     *         the entry
+     */
+    public BasicBlock immediateDominator(BasicBlock block) {
+        int i = indexOf(block);
+        return i == 0 ? null : idom[i];
+    }
+
+    /**
+     * @return whether every path from the entry to {@code block} passes
+     *         through {@code dominator}
+     */
+    public boolean dominates(BasicBlock dominator, BasicBlock block) {
+        for (BasicBlock b = block; b != null; b = immediateDominator(b)) {
+            if (b == dominator) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the blocks {@code block} immediately dominates, in reverse
+     *         postorder
+     */
+    public List<BasicBlock> dominatedChildren(BasicBlock block) {
+        return Collections.unmodifiableList(children.getOrDefault(block, List.of()));
+    }
+
+    /**
+     * @return the blocks of the loop headed by {@code header}: those that can
+     *         reach one of its back edges without passing through it
+     */
+    public Set<BasicBlock> loop(BasicBlock header) {
+        Set<BasicBlock> body = new HashSet<>();
+        body.add(header);
+        Deque<BasicBlock> work = new ArrayDeque<>();
+        for (BasicBlock predecessor : predecessors.get(header)) {
+            if (isBackEdge(predecessor, header) && body.add(predecessor)) {
+                work.push(predecessor);
+            }
+        }
+        while (!work.isEmpty()) {
+            for (BasicBlock predecessor : predecessors.get(work.pop())) {
+                if (body.add(predecessor)) {
+                    work.push(predecessor);
+                }
+            }
+        }
+        return body;
+    }
+
+    /**
+     * Computes reverse postorder with an explicit stack, so long chains of
+     * blocks do not recurse.
+     */
+    private static List<BasicBlock> reversePostorder(BasicBlock entry) {
+        List<BasicBlock> postorder = new ArrayList<>();
+        Set<BasicBlock> visited = new HashSet<>();
+        Deque<Iterator<BasicBlock>> stack = new ArrayDeque<>();
+        Deque<BasicBlock> path = new ArrayDeque<>();
+
+        visited.add(entry);
+        stack.push(entry.successors().iterator());
+        path.push(entry);
+        while (!stack.isEmpty()) {
+            Iterator<BasicBlock> successors = stack.peek();
+            if (successors.hasNext()) {
+                BasicBlock next = successors.next();
+                if (visited.add(next)) {
+                    stack.push(next.successors().iterator());
+                    path.push(next);
+                }
+            } else {
+                stack.pop();
+                postorder.add(path.pop());
+            }
+        }
+
+        Collections.reverse(postorder);
+        return postorder;
+    }
+
+    /**
+     * The iterative algorithm of Cooper, Harvey and Kennedy over reverse
+     * postorder.
+     */
+    private BasicBlock[] dominators() {
+        int[] doms = new int[order.size()];
+        Arrays.fill(doms, -1);
+        doms[0] = 0;
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int b = 1; b < order.size(); b++) {
+                int newIdom = -1;
+                for (BasicBlock predecessor : predecessors.get(order.get(b))) {
+                    int p = indexOf(predecessor);
+                    if (doms[p] == -1) {
+                        continue;
+                    }
+                    newIdom = newIdom == -1 ? p : intersect(doms, p, newIdom);
+                }
+                if (doms[b] != newIdom) {
+                    doms[b] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+
+        BasicBlock[] result = new BasicBlock[order.size()];
+        for (int b = 0; b < order.size(); b++) {
+            result[b] = order.get(doms[b]);
+        }
+        return result;
+    }
+
+    private static int intersect(int[] doms, int a, int b) {
+        while (a != b) {
+            while (a > b) {
+                a = doms[a];
+            }
+            while (b > a) {
+                b = doms[b];
+            }
+        }
+        return a;
+    }
+}
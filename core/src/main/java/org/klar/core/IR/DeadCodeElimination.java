@@ -0,0 +1,257 @@
+package org.klar.core.IR;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.klar.core.parser.ast.AccessModifier;
+
+/**
+ * Removes code that can never run or whose result is never used, pass
+ * {@value #NAME}:
+ * <ul>
+ * <li><strong>constant conditions:</strong> {@code and}/{@code or} with a
+ * constant operand are reduced, and a temporary that is only ever assigned a
+ * constant is replaced by it, so conditions such as
+ * {@code DEBUG and n > 0} fold;</li>
+ * <li><strong>constant branches:</strong> a branch on a constant becomes a
+ * jump to the target it always takes, so {@code if (false)} bodies,
+ * {@code while (false)} loops and the branches after an always-true condition
+ * become unreachable;</li>
+ * <li><strong>unreachable blocks:</strong> blocks no path from the entry
+ * reaches are dropped;</li>
+ * <li><strong>dead instructions:</strong> an instruction without side effects
+ * whose result no instruction reads is dropped;</li>
+ * <li><strong>unused functions:</strong> functions that neither {@code main}
+ * nor a global initializer calls, directly or not, are dropped. Public
+ * functions are kept unless the module is the {@linkplain IrProgram#isEntry()
+ * entry} of a program, since other modules may call them.</li>
+ * </ul>
+ * <p>
+ * The checker reports the same unreachable code as warnings, see
+ * {@code org.klar.core.semantics.flow.ReachabilityAnalyzer}.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class DeadCodeElimination implements IrPass {
+    public static final String NAME = "dce";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean run(IrProgram program) {
+        boolean changed = false;
+        for (IrFunction function : program.allFunctions()) {
+            changed |= eliminate(function);
+        }
+        // Calls in dropped blocks no longer keep their callee
+        return removeUnusedFunctions(program) | changed;
+    }
+
+    /**
+     * @return whether {@code function} changed
+     */
+    public static boolean eliminate(IrFunction function) {
+        boolean changed = false;
+        boolean progress = true;
+        while (progress) {
+            progress = foldConditions(function);
+            if (foldConstantBranches(function)) {
+                // Dropped blocks may hold the other assignments of a temporary
+                IrLowering.removeUnreachableBlocks(function);
+                progress = true;
+            }
+            progress |= removeDeadInstructions(function);
+            changed |= progress;
+        }
+        return changed;
+    }
+
+    private static boolean foldConditions(IrFunction function) {
+        boolean changed = false;
+        for (BasicBlock block : function.blocks()) {
+            List<IrInstruction> instructions = block.instructions();
+            for (int i = 0; i < instructions.size(); i++) {
+                if (instructions.get(i) instanceof IrInstruction.Binary b
+                        && (b.op() == BinaryOp.AND || b.op() == BinaryOp.OR)) {
+                    IrValue folded = foldLogical(b.op(), b.left(), b.right());
+                    if (folded != null) {
+                        instructions.set(i, new IrInstruction.Assign(b.result(), folded));
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        Map<IrVariable, IrConstant> constants = constantTemporaries(function);
+        if (constants.isEmpty()) {
+            return changed;
+        }
+        for (BasicBlock block : function.blocks()) {
+            List<IrInstruction> instructions = block.instructions();
+            for (int i = 0; i < instructions.size(); i++) {
+                List<IrValue> operands = instructions.get(i).operands();
+                List<IrValue> replaced = substitute(operands, constants);
+                if (replaced != operands) {
+                    instructions.set(i, instructions.get(i).withOperands(replaced));
+                    changed = true;
+                }
+            }
+
+            IrTerminator terminator = block.terminator();
+            if (terminator instanceof IrTerminator.Branch b && constants.containsKey(b.condition())) {
+                block.setTerminator(new IrTerminator.Branch(constants.get(b.condition()), b.whenTrue(), b.whenFalse()));
+                changed = true;
+            } else if (terminator instanceof IrTerminator.Return r && constants.containsKey(r.value())) {
+                block.setTerminator(new IrTerminator.Return(constants.get(r.value())));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return what {@code left op right} reduces to when one operand is a
+     *         constant, else {@code null}; operands are plain values, so
+     *         dropping one loses no side effect
+     */
+    private static IrValue foldLogical(BinaryOp op, IrValue left, IrValue right) {
+        boolean absorbing = op == BinaryOp.OR;
+        if (left instanceof IrConstant c && c.value() instanceof Boolean b) {
+            return b == absorbing ? c : right;
+        }
+        if (right instanceof IrConstant c && c.value() instanceof Boolean b) {
+            return b == absorbing ? c : left;
+        }
+        return null;
+    }
+
+    /**
+     * @return the temporaries assigned exactly once, with a constant
+     */
+    private static Map<IrVariable, IrConstant> constantTemporaries(IrFunction function) {
+        Map<IrVariable, IrConstant> constants = new HashMap<>();
+        Set<IrVariable> reassigned = new HashSet<>();
+        for (BasicBlock block : function.blocks()) {
+            for (IrInstruction instruction : block.instructions()) {
+                IrVariable result = instruction.result();
+                if (result == null || !result.isTemporary()) {
+                    continue;
+                }
+                if (constants.containsKey(result) || reassigned.contains(result)
+                        || !(instruction instanceof IrInstruction.Assign a && a.value() instanceof IrConstant c)) {
+                    constants.remove(result);
+                    reassigned.add(result);
+                } else {
+                    constants.put(result, c);
+                }
+            }
+        }
+        return constants;
+    }
+
+    /**
+     * @return {@code values} with the variables in {@code constants} replaced,
+     *         or {@code values} itself if none is
+     */
+    private static List<IrValue> substitute(List<IrValue> values, Map<IrVariable, IrConstant> constants) {
+        List<IrValue> replaced = null;
+        for (int i = 0; i < values.size(); i++) {
+            IrConstant constant = constants.get(values.get(i));
+            if (constant != null) {
+                if (replaced == null) {
+                    replaced = new ArrayList<>(values);
+                }
+                replaced.set(i, constant);
+            }
+        }
+        return replaced != null ? replaced : values;
+    }
+
+    private static boolean foldConstantBranches(IrFunction function) {
+        boolean changed = false;
+        for (BasicBlock block : function.blocks()) {
+            if (block.terminator() instanceof IrTerminator.Branch b
+                    && b.condition() instanceof IrConstant c && c.value() instanceof Boolean taken) {
+                block.setTerminator(new IrTerminator.Jump(taken ? b.whenTrue() : b.whenFalse()));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static boolean removeDeadInstructions(IrFunction function) {
+        Set<IrVariable> read = new HashSet<>();
+        for (BasicBlock block : function.blocks()) {
+            for (IrInstruction instruction : block.instructions()) {
+                addVariables(instruction.operands(), read);
+            }
+            addVariables(block.terminator().operands(), read);
+        }
+
+        boolean changed = false;
+        for (BasicBlock block : function.blocks()) {
+            changed |= block.instructions().removeIf(instruction -> {
+                IrVariable result = instruction.result();
+                return result != null
+                        && (result.kind() == IrVariable.Kind.TEMPORARY || result.kind() == IrVariable.Kind.LOCAL)
+                        && !read.contains(result)
+                        && !instruction.hasSideEffects();
+            });
+        }
+        return changed;
+    }
+
+    private static void addVariables(Iterable<IrValue> values, Set<IrVariable> variables) {
+        for (IrValue value : values) {
+            if (value instanceof IrVariable v) {
+                variables.add(v);
+            }
+        }
+    }
+
+    private static boolean removeUnusedFunctions(IrProgram program) {
+        IrFunction main = program.function("main");
+        boolean onlyMain = program.isEntry() && main != null;
+
+        Deque<IrFunction> pending = new ArrayDeque<>();
+        for (IrFunction function : program.functions()) {
+            if (function == main || (!onlyMain && function.access() == AccessModifier.PUBLIC)) {
+                pending.add(function);
+            }
+        }
+        for (IrGlobal global : program.globals()) {
+            if (global.initializer() != null) {
+                pending.add(global.initializer());
+            }
+        }
+
+        Set<IrFunction> reached = new HashSet<>();
+        while (!pending.isEmpty()) {
+            IrFunction function = pending.pop();
+            if (!reached.add(function)) {
+                continue;
+            }
+            for (BasicBlock block : function.blocks()) {
+                for (IrInstruction instruction : block.instructions()) {
+                    if (instruction instanceof IrInstruction.Call call && call.owner() == null) {
+                        IrFunction callee = program.function(call.function());
+                        if (callee != null) {
+                            pending.add(callee);
+                        }
+                    }
+                }
+            }
+        }
+        return program.functions().retainAll(reached);
+    }
+}
@@ -0,0 +1,201 @@
+package org.klar.core.IR;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces calls to small functions of the module by their body, pass
+ * {@value #NAME}.
+ * <p>
+ * A function is inlined when:
+ * </p>
+ * <ul>
+ * <li><strong>straight-line:</strong> its body is a single block ending in a
+ * {@code return}, such as a function that only returns an expression;</li>
+ * <li><strong>small:</strong> the block has at most
+ * {@value #MAX_INSTRUCTIONS} instructions, so call sites grow by little;</li>
+ * <li><strong>not recursive:</strong> it cannot reach itself through the
+ * calls of the module.</li>
+ * </ul>
+ * <p>
+ * Only functions of the same module are inlined, since an imported module is
+ * known by its interface alone. Parameters the body never assigns are replaced
+ * by the arguments, unless the argument is a global; the other variables of
+ * the body become fresh variables of the caller. Inlined functions are left in
+ * place; {@link DeadCodeElimination} removes the ones no longer called.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class Inliner implements IrPass {
+    public static final String NAME = "inline";
+
+    /** Largest body, in instructions, that is copied into its callers. */
+    public static final int MAX_INSTRUCTIONS = 8;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean run(IrProgram program) {
+        Set<IrFunction> inlinable = new HashSet<>();
+        for (IrFunction function : program.functions()) {
+            if (isSmall(function) && !isRecursive(program, function)) {
+                inlinable.add(function);
+            }
+        }
+        if (inlinable.isEmpty()) {
+            return false;
+        }
+
+        boolean changed = false;
+        for (IrFunction caller : program.allFunctions()) {
+            for (BasicBlock block : caller.blocks()) {
+                List<IrInstruction> instructions = block.instructions();
+                // The copied body is visited next, so calls in it are inlined too
+                for (int i = 0; i < instructions.size(); i++) {
+                    IrFunction callee = callee(program, instructions.get(i));
+                    if (callee != null && callee != caller && inlinable.contains(callee)) {
+                        IrInstruction.Call call = (IrInstruction.Call) instructions.remove(i);
+                        instructions.addAll(i, inline(caller, callee, call));
+                        i--;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    private static boolean isSmall(IrFunction function) {
+        return !function.isMain()
+                && function.blocks().size() == 1
+                && function.entry().terminator() instanceof IrTerminator.Return
+                && function.entry().instructions().size() <= MAX_INSTRUCTIONS;
+    }
+
+    private static boolean isRecursive(IrProgram program, IrFunction function) {
+        Set<IrFunction> seen = new HashSet<>();
+        List<IrFunction> pending = new ArrayList<>(List.of(function));
+        while (!pending.isEmpty()) {
+            IrFunction current = pending.remove(pending.size() - 1);
+            for (BasicBlock block : current.blocks()) {
+                for (IrInstruction instruction : block.instructions()) {
+                    IrFunction callee = callee(program, instruction);
+                    if (callee == function) {
+                        return true;
+                    }
+                    if (callee != null && seen.add(callee)) {
+                        pending.add(callee);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the function of {@code program} that {@code instruction} calls,
+     *         or {@code null}
+     */
+    private static IrFunction callee(IrProgram program, IrInstruction instruction) {
+        if (instruction instanceof IrInstruction.Call call && call.owner() == null) {
+            return program.function(call.function());
+        }
+        return null;
+    }
+
+    /**
+     * @return the instructions that do what {@code call} did, with the body of
+     *         {@code callee} renamed into {@code caller}
+     */
+    private static List<IrInstruction> inline(IrFunction caller, IrFunction callee, IrInstruction.Call call) {
+        BasicBlock body = callee.entry();
+        List<IrInstruction> inlined = new ArrayList<>(body.instructions().size() + callee.parameters().size() + 1);
+
+        Set<IrVariable> assigned = new HashSet<>();
+        for (IrInstruction instruction : body.instructions()) {
+            if (instruction.result() != null) {
+                assigned.add(instruction.result());
+            }
+        }
+
+        Map<IrVariable, IrValue> renamed = new HashMap<>();
+        for (int i = 0; i < callee.parameters().size(); i++) {
+            IrVariable parameter = callee.parameters().get(i);
+            IrValue argument = call.arguments().get(i);
+            // A global argument could be changed by the body before the parameter is read
+            if (assigned.contains(parameter)
+                    || argument instanceof IrVariable v && v.kind() == IrVariable.Kind.GLOBAL) {
+                IrVariable copy = caller.newLocal(parameter.name(), parameter.type());
+                inlined.add(new IrInstruction.Assign(copy, argument));
+                renamed.put(parameter, copy);
+            } else {
+                renamed.put(parameter, argument);
+            }
+        }
+
+        for (IrInstruction instruction : body.instructions()) {
+            IrInstruction copy = instruction.withOperands(rename(instruction.operands(), renamed, caller));
+            if (copy.result() != null) {
+                copy = withResult(copy, (IrVariable) rename(copy.result(), renamed, caller));
+            }
+            inlined.add(copy);
+        }
+
+        IrValue returned = ((IrTerminator.Return) body.terminator()).value();
+        if (call.result() != null && returned != null) {
+            inlined.add(new IrInstruction.Assign(call.result(), rename(returned, renamed, caller)));
+        }
+        return inlined;
+    }
+
+    private static List<IrValue> rename(List<IrValue> values, Map<IrVariable, IrValue> renamed, IrFunction caller) {
+        List<IrValue> result = new ArrayList<>(values.size());
+        for (IrValue value : values) {
+            result.add(rename(value, renamed, caller));
+        }
+        return result;
+    }
+
+    /**
+     * @return what {@code value} of the callee is in the caller; variables of
+     *         the callee seen for the first time get a fresh counterpart
+     */
+    private static IrValue rename(IrValue value, Map<IrVariable, IrValue> renamed, IrFunction caller) {
+        if (!(value instanceof IrVariable variable) || variable.kind() == IrVariable.Kind.GLOBAL) {
+            return value;
+        }
+        return renamed.computeIfAbsent(variable, v -> v.isTemporary()
+                ? caller.newTemporary(v.type())
+                : caller.newLocal(v.name(), v.type()));
+    }
+
+    private static IrInstruction withResult(IrInstruction instruction, IrVariable result) {
+        if (instruction instanceof IrInstruction.Assign a) {
+            return new IrInstruction.Assign(result, a.value());
+        }
+        if (instruction instanceof IrInstruction.Binary b) {
+            return new IrInstruction.Binary(result, b.op(), b.left(), b.right());
+        }
+        if (instruction instanceof IrInstruction.Call c) {
+            return new IrInstruction.Call(result, c.owner(), c.function(), c.arguments());
+        }
+        if (instruction instanceof IrInstruction.NewArray n) {
+            return new IrInstruction.NewArray(result, n.elementType(), n.size());
+        }
+        if (instruction instanceof IrInstruction.ArrayLiteral a) {
+            return new IrInstruction.ArrayLiteral(result, a.elementType(), a.elements());
+        }
+        if (instruction instanceof IrInstruction.Load l) {
+            return new IrInstruction.Load(result, l.array(), l.index());
+        }
+        return instruction;
+    }
+}
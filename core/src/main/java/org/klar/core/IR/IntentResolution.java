@@ -58,7 +58,7 @@ public class IntentResolution {
                             DiagnosticCode.E401,
                             new SourceLocation(filePath.toString(), target.getLine(),
                                     Math.max(target.getColumn() - 1, 0)),
-                            sm.getContextLines(target.getLine(), 2),
+                            sm,
                             "Empty backend target",
                             "Use a supported backend (currently only 'java' is supported)",
                             "@Use(\"java\")\n  public void myFunction() { ... }",
@@ -85,7 +85,7 @@ public class IntentResolution {
                     DiagnosticCode.E402,
                     new SourceLocation(filePath.toString(), use.target.getLine(),
                             Math.max(use.target.getColumn() - 1, 0)),
-                    sm.getContextLines(use.target.getLine(), 2),
+                    sm,
                     "Unsupported backend target '" + targetNormalized + "'",
                     "Use a supported backend (currently only 'java' is supported)",
                     "@Use(\"java\")\n  public void myFunction() { ... }",
@@ -114,7 +114,7 @@ public class IntentResolution {
                             DiagnosticCode.E400,
                             new SourceLocation(filePath.toString(), use.target.getLine(),
                                     Math.max(use.target.getColumn() - 1, 0)),
-                            sm.getContextLines(use.target.getLine(), 2),
+                            sm,
                             "Backend toolchain probe timed out: '" + tool + " " + flag + "'",
                             "Ensure the tool is installed and responsive. Try running '" + tool + " " + flag
                                     + "' manually.",
@@ -142,7 +142,7 @@ public class IntentResolution {
                     DiagnosticCode.E404,
                     new SourceLocation(filePath.toString(), use.target.getLine(),
                             Math.max(use.target.getColumn() - 1, 0)),
-                    sm.getContextLines(use.target.getLine(), 2),
+                    sm,
                     "Backend toolchain verification failed for target '" + targetNormalized + "'",
                     "Install/fix the missing tools and retry. Failed checks: " + joined,
                     "@Use(\"java\")\n  public void myFunction() { ... }",
@@ -0,0 +1,57 @@
+package org.klar.core.IR;
+
+import org.klar.core.semantics.ConstantEvaluator;
+import org.klar.core.semantics.PrimitiveTypeSymbol;
+import org.klar.core.semantics.Type;
+import org.klar.core.semantics.TypeSymbol;
+
+/**
+ * A constant operand.
+ * <p>
+ * The value is an {@link Integer}, {@link Double} or {@link Boolean}; strings
+ * and characters are kept in source form without their quotes, as
+ * {@link ConstantEvaluator} does, and {@code null} has no value.
+ * </p>
+ *
+ * @since 0.15
+ */
+public record IrConstant(Type kind, Object value) implements IrValue {
+
+    public static final IrConstant TRUE = new IrConstant(Type.BOOLEAN, Boolean.TRUE);
+    public static final IrConstant FALSE = new IrConstant(Type.BOOLEAN, Boolean.FALSE);
+    public static final IrConstant NULL = new IrConstant(Type.NULL, null);
+
+    /**
+     * @param value A value computed by {@link ConstantEvaluator}.
+     */
+    public static IrConstant of(Object value) {
+        if (value instanceof Integer) {
+            return new IrConstant(Type.INTEGER, value);
+        }
+        if (value instanceof Double) {
+            return new IrConstant(Type.DOUBLE, value);
+        }
+        if (value instanceof Boolean b) {
+            return b ? TRUE : FALSE;
+        }
+        if (value instanceof String) {
+            return new IrConstant(Type.STRING, value);
+        }
+        throw new IllegalArgumentException("Not a constant value: " + value);
+    }
+
+    @Override
+    public TypeSymbol type() {
+        return PrimitiveTypeSymbol.of(kind, false);
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case STRING -> "\"" + value + "\"";
+            case CHARACTER -> "'" + value + "'";
+            case NULL -> "null";
+            default -> String.valueOf(value);
+        };
+    }
+}
@@ -0,0 +1,111 @@
+package org.klar.core.IR;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.klar.core.parser.ast.AccessModifier;
+import org.klar.core.semantics.TypeSymbol;
+
+/**
+ * A function as a control-flow graph of {@link BasicBlock}s.
+ * <p>
+ * The first block is the entry. Every variable the function uses, other than
+ * globals, is created through it, so backends can declare them all up front.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class IrFunction {
+    private final String name;
+    private final AccessModifier access;
+    private final TypeSymbol returnType;
+    private final List<IrVariable> parameters = new ArrayList<>();
+    private final List<IrVariable> variables = new ArrayList<>();
+    private final List<BasicBlock> blocks = new ArrayList<>();
+    private int nextVariable;
+    private int nextBlock;
+
+    /**
+     * @param access Access modifier, or {@code null} for functions that do not
+     *               come from a declaration.
+     */
+    public IrFunction(String name, AccessModifier access, TypeSymbol returnType) {
+        this.name = name;
+        this.access = access;
+        this.returnType = returnType;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public AccessModifier access() {
+        return access;
+    }
+
+    public TypeSymbol returnType() {
+        return returnType;
+    }
+
+    public boolean isMain() {
+        return name.equals("main");
+    }
+
+    public List<IrVariable> parameters() {
+        return Collections.unmodifiableList(parameters);
+    }
+
+    /**
+     * @return the locals and temporaries, in creation order
+     */
+    public List<IrVariable> variables() {
+        return Collections.unmodifiableList(variables);
+    }
+
+    /**
+     * @return the blocks, entry first, as a mutable list
+     */
+    public List<BasicBlock> blocks() {
+        return blocks;
+    }
+
+    public BasicBlock entry() {
+        return blocks.get(0);
+    }
+
+    public IrVariable addParameter(String name, TypeSymbol type) {
+        IrVariable parameter = new IrVariable(nextVariable++, name, type, IrVariable.Kind.PARAMETER);
+        parameters.add(parameter);
+        return parameter;
+    }
+
+    public IrVariable newLocal(String name, TypeSymbol type) {
+        IrVariable local = new IrVariable(nextVariable++, name, type, IrVariable.Kind.LOCAL);
+        variables.add(local);
+        return local;
+    }
+
+    public IrVariable newTemporary(TypeSymbol type) {
+        IrVariable temporary = new IrVariable(nextVariable++, "t", type, IrVariable.Kind.TEMPORARY);
+        variables.add(temporary);
+        return temporary;
+    }
+
+    /**
+     * Removes variables no instruction refers to any more.
+     */
+    public void retainVariables(Set<IrVariable> used) {
+        variables.retainAll(used);
+    }
+
+    /**
+     * Appends a new, empty block.
+     */
+    public BasicBlock newBlock() {
+        BasicBlock block = new BasicBlock(nextBlock++);
+        blocks.add(block);
+        return block;
+    }
+}
@@ -0,0 +1,17 @@
+package org.klar.core.IR;
+
+/**
+ * A top-level declaration of a module.
+ * <p>
+ * Its initial value is either a constant or the result of
+ * {@code initializer}, a function without parameters that computes it.
+ * </p>
+ *
+ * @param constant    Whether the declaration is a {@code constant}.
+ * @param value       Initial value known at compile time, or {@code null}.
+ * @param initializer Function computing the initial value when
+ *                    {@code value} is {@code null}.
+ * @since 0.15
+ */
+public record IrGlobal(IrVariable variable, boolean constant, IrConstant value, IrFunction initializer) {
+}
@@ -0,0 +1,186 @@
+package org.klar.core.IR;
+
+import java.util.List;
+
+import org.klar.core.semantics.Type;
+
+/**
+ * A three-address instruction: at most one operation, whose operands are
+ * {@link IrValue}s and whose result, if any, is stored in a variable.
+ *
+ * @since 0.15
+ */
+public sealed interface IrInstruction {
+
+    /**
+     * @return the variable the instruction writes, or {@code null}
+     */
+    IrVariable result();
+
+    /**
+     * @return the values the instruction reads, in evaluation order
+     */
+    List<IrValue> operands();
+
+    /**
+     * @return a copy of this instruction that reads {@code operands} instead,
+     *         in the order of {@link #operands()}
+     */
+    IrInstruction withOperands(List<IrValue> operands);
+
+    /**
+     * Whether executing the instruction can be observed other than through its
+     * result: it writes memory, calls a function or may throw.
+     */
+    boolean hasSideEffects();
+
+    /** {@code result = value} */
+    record Assign(IrVariable result, IrValue value) implements IrInstruction {
+        @Override
+        public List<IrValue> operands() {
+            return List.of(value);
+        }
+
+        @Override
+        public IrInstruction withOperands(List<IrValue> operands) {
+            return new Assign(result, operands.get(0));
+        }
+
+        @Override
+        public boolean hasSideEffects() {
+            return false;
+        }
+    }
+
+    /** {@code result = left op right} */
+    record Binary(IrVariable result, BinaryOp op, IrValue left, IrValue right) implements IrInstruction {
+        @Override
+        public List<IrValue> operands() {
+            return List.of(left, right);
+        }
+
+        @Override
+        public IrInstruction withOperands(List<IrValue> operands) {
+            return new Binary(result, op, operands.get(0), operands.get(1));
+        }
+
+        /** Integer division and remainder throw when dividing by zero. */
+        @Override
+        public boolean hasSideEffects() {
+            return (op == BinaryOp.DIVIDE || op == BinaryOp.REMAINDER)
+                    && !left.type().isDouble() && !right.type().isDouble();
+        }
+    }
+
+    /**
+     * {@code result = owner.function(arguments)}
+     *
+     * @param result Variable receiving the returned value, or {@code null}.
+     * @param owner  Java class of an imported function, or {@code null} for
+     *               functions of the module and built-ins.
+     */
+    record Call(IrVariable result, String owner, String function, List<IrValue> arguments)
+            implements IrInstruction {
+        public Call {
+            arguments = List.copyOf(arguments);
+        }
+
+        @Override
+        public List<IrValue> operands() {
+            return arguments;
+        }
+
+        @Override
+        public IrInstruction withOperands(List<IrValue> operands) {
+            return new Call(result, owner, function, operands);
+        }
+
+        @Override
+        public boolean hasSideEffects() {
+            return true;
+        }
+    }
+
+    /** {@code result = new elementType[size]} */
+    record NewArray(IrVariable result, Type elementType, IrValue size) implements IrInstruction {
+        @Override
+        public List<IrValue> operands() {
+            return List.of(size);
+        }
+
+        @Override
+        public IrInstruction withOperands(List<IrValue> operands) {
+            return new NewArray(result, elementType, operands.get(0));
+        }
+
+        /** Throws for a negative size. */
+        @Override
+        public boolean hasSideEffects() {
+            return true;
+        }
+    }
+
+    /** {@code result = new elementType[]{elements}} */
+    record ArrayLiteral(IrVariable result, Type elementType, List<IrValue> elements) implements IrInstruction {
+        public ArrayLiteral {
+            elements = List.copyOf(elements);
+        }
+
+        @Override
+        public List<IrValue> operands() {
+            return elements;
+        }
+
+        @Override
+        public IrInstruction withOperands(List<IrValue> operands) {
+            return new ArrayLiteral(result, elementType, operands);
+        }
+
+        @Override
+        public boolean hasSideEffects() {
+            return false;
+        }
+    }
+
+    /** {@code result = array[index]} */
+    record Load(IrVariable result, IrValue array, IrValue index) implements IrInstruction {
+        @Override
+        public List<IrValue> operands() {
+            return List.of(array, index);
+        }
+
+        @Override
+        public IrInstruction withOperands(List<IrValue> operands) {
+            return new Load(result, operands.get(0), operands.get(1));
+        }
+
+        /** Throws for an index out of bounds. */
+        @Override
+        public boolean hasSideEffects() {
+            return true;
+        }
+    }
+
+    /** {@code array[index] = value} */
+    record Store(IrValue array, IrValue index, IrValue value) implements IrInstruction {
+        @Override
+        public IrVariable result() {
+            return null;
+        }
+
+        @Override
+        public List<IrValue> operands() {
+            return List.of(array, index, value);
+        }
+
+        @Override
+        public IrInstruction withOperands(List<IrValue> operands) {
+            return new Store(operands.get(0), operands.get(1), operands.get(2));
+        }
+
+        @Override
+        public boolean hasSideEffects() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,662 @@
+package org.klar.core.IR;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.klar.core.parser.ast.AssignmentStatementNode;
+import org.klar.core.parser.ast.AstVisitor;
+import org.klar.core.parser.ast.BinaryExpressionNode;
+import org.klar.core.parser.ast.BlockStatementNode;
+import org.klar.core.parser.ast.CallExpressionNode;
+import org.klar.core.parser.ast.ConstantDeclarationNode;
+import org.klar.core.parser.ast.DecisionStatementNode;
+import org.klar.core.parser.ast.ErrorExpressionNode;
+import org.klar.core.parser.ast.ErrorStatementNode;
+import org.klar.core.parser.ast.ExpressionNode;
+import org.klar.core.parser.ast.ExpressionStatementNode;
+import org.klar.core.parser.ast.FunctionDeclarationNode;
+import org.klar.core.parser.ast.ImportDeclarationNode;
+import org.klar.core.parser.ast.IndexExpressionNode;
+import org.klar.core.parser.ast.LiteralExpressionNode;
+import org.klar.core.parser.ast.ModuleDeclarationNode;
+import org.klar.core.parser.ast.NewArrayExpressionNode;
+import org.klar.core.parser.ast.OtherwiseBranchNode;
+import org.klar.core.parser.ast.ParameterNode;
+import org.klar.core.parser.ast.ReturnStatementNode;
+import org.klar.core.parser.ast.StatementNode;
+import org.klar.core.parser.ast.TypeReferenceNode;
+import org.klar.core.parser.ast.VariableDeclarationNode;
+import org.klar.core.parser.ast.VariableExpressionNode;
+import org.klar.core.parser.ast.WhileStatementNode;
+import org.klar.core.semantics.ArrayTypeSymbol;
+import org.klar.core.semantics.ConstantEvaluator;
+import org.klar.core.semantics.ConstantSymbol;
+import org.klar.core.semantics.FunctionSymbol;
+import org.klar.core.semantics.PrimitiveTypeSymbol;
+import org.klar.core.semantics.Type;
+import org.klar.core.semantics.TypeChecker;
+import org.klar.core.semantics.TypeSymbol;
+import org.klar.core.semantics.TypedProgram;
+
+/**
+ * Lowers a checked program to the IR.
+ * <p>
+ * Types, resolved calls and folded constants are read from the
+ * {@link TypedProgram}, so the program must have passed the checker. Lowering
+ * works as follows:
+ * </p>
+ * <ul>
+ * <li><strong>expressions</strong> become one instruction per operation, in
+ * Java evaluation order. Operands that are variables or constants are used
+ * directly; every other intermediate value gets a temporary.</li>
+ * <li><strong>{@code &&} and {@code ||}</strong> become a {@link BinaryOp}
+ * when the right operand has no side effects, and a branch otherwise, so it
+ * is only evaluated when needed.</li>
+ * <li><strong>{@code if}/{@code otherwise}/{@code afterall}</strong> become a
+ * chain of branches that all continue in one join block.</li>
+ * <li><strong>{@code while}</strong> becomes a header block testing the
+ * condition, a body that jumps back to it, and an exit block.</li>
+ * <li><strong>top-level declarations</strong> become {@link IrGlobal}s.</li>
+ * </ul>
+ * <p>
+ * Blocks that cannot be reached from the entry are dropped. Nodes are
+ * dispatched through {@link AstVisitor}, so a node type added to the AST fails
+ * to compile here until it is lowered.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class IrLowering implements AstVisitor<IrValue> {
+    private final TypedProgram types;
+    private final IrProgram program;
+    private final Map<String, IrVariable> globals = new HashMap<>();
+    private final Deque<Map<String, IrVariable>> scopes = new ArrayDeque<>();
+
+    private IrFunction function;
+    private BasicBlock current;
+
+    // Argument of the expression being visited
+    private IrVariable into;
+
+    private IrLowering(String name, TypedProgram types) {
+        this.types = types;
+        this.program = new IrProgram(name);
+    }
+
+    /**
+     * @param name Name of the module, see {@link IrProgram#name()}.
+     */
+    public static IrProgram lower(String name, TypedProgram types) {
+        IrLowering lowering = new IrLowering(name, types);
+        lowering.lowerProgram();
+        return lowering.program;
+    }
+
+    private void lowerProgram() {
+        // Globals first, since functions may use the ones declared after them
+        for (StatementNode statement : types.program().statements) {
+            if (statement instanceof ConstantDeclarationNode c) {
+                lowerGlobal(c.name.getValue(), c.type, c.value, true);
+            } else if (statement instanceof VariableDeclarationNode v) {
+                lowerGlobal(v.name.getValue(), v.type, v.value, false);
+            }
+        }
+
+        for (StatementNode statement : types.program().statements) {
+            statement.accept(this);
+        }
+    }
+
+    private void lowerGlobal(String name, TypeReferenceNode typeNode, ExpressionNode value, boolean constant) {
+        TypeSymbol type = declared(typeNode);
+        IrVariable variable = new IrVariable(globals.size(), name, type, IrVariable.Kind.GLOBAL);
+        IrConstant initial = constantOf(value);
+        IrFunction initializer = null;
+
+        if (initial == null) {
+            initializer = begin(new IrFunction(name + "$init", null, type));
+            current.setTerminator(new IrTerminator.Return(lowerExpression(value)));
+            end();
+        }
+
+        program.globals().add(new IrGlobal(variable, constant, initial, initializer));
+        globals.put(name, variable);
+    }
+
+    private void lowerFunction(FunctionDeclarationNode f) {
+        IrFunction lowered = begin(new IrFunction(f.name.getValue(), f.access, declared(f.returnType)));
+        for (ParameterNode parameter : f.parameters) {
+            String name = parameter.name.getValue();
+            scopes.peek().put(name, lowered.addParameter(name, declared(parameter.type)));
+        }
+
+        lowerBlock(f.body());
+
+        if (!current.isTerminated()) {
+            current.setTerminator(new IrTerminator.Return(null));
+        }
+        end();
+        program.functions().add(lowered);
+    }
+
+    private IrFunction begin(IrFunction f) {
+        function = f;
+        current = f.newBlock();
+        scopes.push(new HashMap<>());
+        return f;
+    }
+
+    private void end() {
+        scopes.pop();
+        removeUnreachableBlocks(function);
+        function = null;
+        current = null;
+    }
+
+    /**
+     * Drops the blocks that cannot be reached from the entry, such as the one
+     * started after a {@code return}.
+     */
+    static void removeUnreachableBlocks(IrFunction f) {
+        Set<BasicBlock> reachable = ControlFlow.reachable(f);
+        f.blocks().retainAll(reachable);
+
+        for (BasicBlock block : f.blocks()) {
+            if (!block.isTerminated()) {
+                if (!PrimitiveTypeSymbol.isOf(f.returnType(), Type.VOID)) {
+                    throw new IllegalStateException("Function '" + f.name() + "' can end without a return");
+                }
+                block.setTerminator(new IrTerminator.Return(null));
+            }
+        }
+    }
+
+    // Statements
+
+    private void lowerBlock(BlockStatementNode block) {
+        scopes.push(new HashMap<>());
+        for (StatementNode statement : block.statements) {
+            lowerStatement(statement);
+        }
+        scopes.pop();
+    }
+
+    private void lowerStatement(StatementNode statement) {
+        if (current.isTerminated()) {
+            // Code after a return: keep lowering it into a block nothing
+            // jumps to, which is dropped afterwards.
+            current = function.newBlock();
+        }
+        statement.accept(this);
+    }
+
+    /**
+     * Statements that run code are only lowered inside a function.
+     */
+    private void requireFunction(StatementNode statement) {
+        if (function == null) {
+            throw new IllegalStateException("Cannot lower a top-level " + statement.getClass().getSimpleName());
+        }
+    }
+
+    @Override
+    public IrValue visitAssignment(AssignmentStatementNode a) {
+        requireFunction(a);
+        lowerAssignment(a);
+        return null;
+    }
+
+    @Override
+    public IrValue visitBlock(BlockStatementNode b) {
+        requireFunction(b);
+        lowerBlock(b);
+        return null;
+    }
+
+    @Override
+    public IrValue visitConstantDeclaration(ConstantDeclarationNode c) {
+        // Top-level constants are globals, lowered first
+        if (function != null) {
+            declareLocal(c.name.getValue(), c.type, c.value);
+        }
+        return null;
+    }
+
+    @Override
+    public IrValue visitDecision(DecisionStatementNode d) {
+        requireFunction(d);
+        lowerDecision(d);
+        return null;
+    }
+
+    @Override
+    public IrValue visitErrorStatement(ErrorStatementNode e) {
+        throw new IllegalStateException("Cannot lower a statement that failed to parse");
+    }
+
+    @Override
+    public IrValue visitExpressionStatement(ExpressionStatementNode e) {
+        requireFunction(e);
+        if (e.expression instanceof CallExpressionNode call) {
+            lowerCall(call, null);
+        } else {
+            lowerExpression(e.expression);
+        }
+        return null;
+    }
+
+    @Override
+    public IrValue visitFunctionDeclaration(FunctionDeclarationNode f) {
+        lowerFunction(f);
+        return null;
+    }
+
+    @Override
+    public IrValue visitImportDeclaration(ImportDeclarationNode i) {
+        return null;
+    }
+
+    @Override
+    public IrValue visitModuleDeclaration(ModuleDeclarationNode m) {
+        return null;
+    }
+
+    @Override
+    public IrValue visitReturn(ReturnStatementNode r) {
+        requireFunction(r);
+        IrValue value = r.value == null || PrimitiveTypeSymbol.isOf(function.returnType(), Type.VOID)
+                ? null
+                : lowerExpression(r.value);
+        current.setTerminator(new IrTerminator.Return(value));
+        return null;
+    }
+
+    @Override
+    public IrValue visitVariableDeclaration(VariableDeclarationNode v) {
+        // Top-level variables are globals, lowered first
+        if (function != null) {
+            declareLocal(v.name.getValue(), v.type, v.value);
+        }
+        return null;
+    }
+
+    @Override
+    public IrValue visitWhile(WhileStatementNode w) {
+        requireFunction(w);
+        lowerWhile(w);
+        return null;
+    }
+
+    private void declareLocal(String name, TypeReferenceNode type, ExpressionNode value) {
+        IrVariable local = function.newLocal(name, declared(type));
+        lowerInto(value, local);
+        // Declared after its initializer, which still sees an outer variable
+        // of the same name
+        scopes.peek().put(name, local);
+    }
+
+    private void lowerAssignment(AssignmentStatementNode a) {
+        if (a.name instanceof IndexExpressionNode target) {
+            IrValue array = lowerExpression(target.target);
+            IrValue index = lowerExpression(target.index);
+            IrValue value = lowerExpression(a.value);
+            current.instructions().add(new IrInstruction.Store(array, index, value));
+            return;
+        }
+
+        VariableExpressionNode target = (VariableExpressionNode) a.name;
+        lowerInto(a.value, lookup(target));
+    }
+
+    private void lowerDecision(DecisionStatementNode d) {
+        List<BasicBlock> ends = new ArrayList<>();
+
+        IrValue condition = lowerExpression(d.condition);
+        BasicBlock test = current;
+        BasicBlock then = function.newBlock();
+        current = then;
+        lowerBlock(d.ifBlock);
+        ends.add(current);
+
+        for (OtherwiseBranchNode branch : d.otherwiseBranches) {
+            BasicBlock next = function.newBlock();
+            test.setTerminator(new IrTerminator.Branch(condition, then, next));
+
+            current = next;
+            condition = lowerExpression(branch.condition);
+            test = current;
+            then = function.newBlock();
+            current = then;
+            lowerBlock(branch.body);
+            ends.add(current);
+        }
+
+        BasicBlock otherwise = null;
+        if (d.afterallBlock != null) {
+            otherwise = function.newBlock();
+            current = otherwise;
+            lowerBlock(d.afterallBlock);
+            ends.add(current);
+        }
+
+        BasicBlock join = function.newBlock();
+        test.setTerminator(new IrTerminator.Branch(condition, then, otherwise != null ? otherwise : join));
+        for (BasicBlock end : ends) {
+            if (!end.isTerminated()) {
+                end.setTerminator(new IrTerminator.Jump(join));
+            }
+        }
+        current = join;
+    }
+
+    private void lowerWhile(WhileStatementNode w) {
+        BasicBlock header = function.newBlock();
+        current.setTerminator(new IrTerminator.Jump(header));
+
+        current = header;
+        IrValue condition = lowerExpression(w.condition);
+        BasicBlock test = current;
+
+        BasicBlock body = function.newBlock();
+        current = body;
+        lowerBlock(w.body);
+        if (!current.isTerminated()) {
+            current.setTerminator(new IrTerminator.Jump(header));
+        }
+
+        BasicBlock exit = function.newBlock();
+        test.setTerminator(new IrTerminator.Branch(condition, body, exit));
+        current = exit;
+    }
+
+    // Expressions
+
+    private IrValue lowerExpression(ExpressionNode e) {
+        return lowerExpression(e, null);
+    }
+
+    /**
+     * Lowers {@code e} into {@code target}, writing it with the instruction
+     * that computes the value when there is one.
+     */
+    private void lowerInto(ExpressionNode e, IrVariable target) {
+        IrValue value = lowerExpression(e, target);
+        if (value != target) {
+            current.instructions().add(new IrInstruction.Assign(target, value));
+        }
+    }
+
+    /**
+     * @param into Variable the value should be stored in, or {@code null} for
+     *             a new temporary. It is only written once every operand has
+     *             been evaluated.
+     * @return the value of {@code e}; {@code into} if it was written
+     */
+    private IrValue lowerExpression(ExpressionNode e, IrVariable into) {
+        IrConstant constant = constantOf(e);
+        if (constant != null) {
+            return constant;
+        }
+
+        IrVariable saved = this.into;
+        this.into = into;
+        try {
+            return e.accept(this);
+        } finally {
+            this.into = saved;
+        }
+    }
+
+    @Override
+    public IrValue visitBinary(BinaryExpressionNode b) {
+        return lowerBinary(b, into);
+    }
+
+    @Override
+    public IrValue visitCall(CallExpressionNode c) {
+        IrVariable result = lowerCall(c, into);
+        return result != null ? result : IrConstant.NULL;
+    }
+
+    @Override
+    public IrValue visitErrorExpression(ErrorExpressionNode e) {
+        throw new IllegalStateException("Cannot lower an expression that failed to parse");
+    }
+
+    @Override
+    public IrValue visitIndex(IndexExpressionNode i) {
+        IrVariable result = into;
+        IrValue array = lowerExpression(i.target);
+        IrValue index = lowerExpression(i.index);
+        result = destination(i, result);
+        current.instructions().add(new IrInstruction.Load(result, array, index));
+        return result;
+    }
+
+    @Override
+    public IrValue visitLiteral(LiteralExpressionNode l) {
+        return constantOf(l);
+    }
+
+    @Override
+    public IrValue visitNewArray(NewArrayExpressionNode n) {
+        return lowerNewArray(n, into);
+    }
+
+    @Override
+    public IrValue visitVariable(VariableExpressionNode v) {
+        IrVariable variable = lookup(v);
+        if (variable.kind() != IrVariable.Kind.GLOBAL) {
+            return variable;
+        }
+        // A call evaluated later in the same expression may change a
+        // global, so it is read at this point of the evaluation
+        IrVariable copy = into != null ? into : function.newTemporary(variable.type());
+        current.instructions().add(new IrInstruction.Assign(copy, variable));
+        return copy;
+    }
+
+    private IrValue lowerBinary(BinaryExpressionNode node, IrVariable into) {
+        // Walk the left spine in a loop, as the checker does, so long chains
+        // do not recurse once per operand.
+        List<BinaryExpressionNode> spine = node.leftSpine();
+        IrValue left = lowerExpression(spine.get(spine.size() - 1).left);
+
+        for (int i = spine.size() - 1; i >= 0; i--) {
+            BinaryExpressionNode operation = spine.get(i);
+            IrVariable result = i == 0 ? into : null;
+            IrConstant folded = constantOf(operation);
+
+            if (folded != null) {
+                left = folded;
+                continue;
+            }
+
+            BinaryOp op = BinaryOp.of(operation.operator.getType());
+            if (op == BinaryOp.AND || op == BinaryOp.OR) {
+                left = lowerShortCircuit(operation, op, left, result);
+                continue;
+            }
+
+            IrValue right = lowerExpression(operation.right);
+            IrVariable target = destination(operation, result);
+            current.instructions().add(new IrInstruction.Binary(target, op, left, right));
+            left = target;
+        }
+
+        return left;
+    }
+
+    /**
+     * Lowers {@code left && right} or {@code left || right}. The right operand
+     * is lowered into a block of its own first: if that needs no branching
+     * and has no side effects, its instructions are moved back and the
+     * operator is kept as an instruction.
+     */
+    private IrValue lowerShortCircuit(BinaryExpressionNode operation, BinaryOp op, IrValue left, IrVariable into) {
+        BasicBlock before = current;
+        BasicBlock rightBlock = function.newBlock();
+        current = rightBlock;
+        IrValue right = lowerExpression(operation.right);
+
+        if (current == rightBlock && !rightBlock.isTerminated() && hasNoSideEffects(rightBlock)) {
+            function.blocks().remove(rightBlock);
+            before.instructions().addAll(rightBlock.instructions());
+            current = before;
+
+            IrVariable target = destination(operation, into);
+            current.instructions().add(new IrInstruction.Binary(target, op, left, right));
+            return target;
+        }
+
+        // The result is only written once the right operand is done, so it
+        // needs a fresh variable even when lowering into one
+        IrVariable result = function.newTemporary(typeOf(operation));
+        BasicBlock join = function.newBlock();
+        before.instructions().add(new IrInstruction.Assign(result, left));
+        before.setTerminator(op == BinaryOp.AND
+                ? new IrTerminator.Branch(result, rightBlock, join)
+                : new IrTerminator.Branch(result, join, rightBlock));
+
+        current.instructions().add(new IrInstruction.Assign(result, right));
+        current.setTerminator(new IrTerminator.Jump(join));
+        current = join;
+
+        if (into != null) {
+            current.instructions().add(new IrInstruction.Assign(into, result));
+            return into;
+        }
+        return result;
+    }
+
+    private static boolean hasNoSideEffects(BasicBlock block) {
+        for (IrInstruction instruction : block.instructions()) {
+            if (instruction.hasSideEffects()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param into Variable receiving the result, or {@code null} for a new
+     *             temporary.
+     * @return the variable holding the result, or {@code null} for a call
+     *         without one
+     */
+    private IrVariable lowerCall(CallExpressionNode call, IrVariable into) {
+        List<IrValue> arguments = new ArrayList<>(call.arguments.size());
+        for (ExpressionNode argument : call.arguments) {
+            arguments.add(lowerExpression(argument));
+        }
+
+        FunctionSymbol callee = types.functionOf(call);
+        TypeSymbol returnType = callee != null ? plain(callee.returnType) : typeOf(call);
+        IrVariable result = PrimitiveTypeSymbol.isOf(returnType, Type.VOID) ? null
+                : into != null ? into : function.newTemporary(returnType);
+        String owner = callee != null ? callee.owner : null;
+
+        current.instructions().add(new IrInstruction.Call(result, owner, call.callee.getValue(), arguments));
+        return result;
+    }
+
+    private IrValue lowerNewArray(NewArrayExpressionNode n, IrVariable into) {
+        TypeSymbol declared = declared(n.type);
+        Type element = declared instanceof ArrayTypeSymbol a ? a.elementType : ((PrimitiveTypeSymbol) declared).type;
+
+        if (n.initializer.isEmpty()) {
+            IrValue size = lowerExpression(n.size);
+            IrVariable result = into != null ? into : function.newTemporary(ArrayTypeSymbol.of(element));
+            current.instructions().add(new IrInstruction.NewArray(result, element, size));
+            return result;
+        }
+
+        List<IrValue> elements = new ArrayList<>(n.initializer.size());
+        for (ExpressionNode value : n.initializer) {
+            elements.add(lowerExpression(value));
+        }
+        IrVariable result = into != null ? into : function.newTemporary(ArrayTypeSymbol.of(element));
+        current.instructions().add(new IrInstruction.ArrayLiteral(result, element, elements));
+        return result;
+    }
+
+    // Helpers
+
+    private IrVariable destination(ExpressionNode e, IrVariable into) {
+        return into != null ? into : function.newTemporary(typeOf(e));
+    }
+
+    private IrVariable lookup(VariableExpressionNode v) {
+        String name = v.name.getValue();
+        for (Map<String, IrVariable> scope : scopes) {
+            IrVariable variable = scope.get(name);
+            if (variable != null) {
+                return variable;
+            }
+        }
+
+        IrVariable global = globals.get(name);
+        if (global == null) {
+            throw new IllegalStateException("Unresolved variable '" + name + "'");
+        }
+        return global;
+    }
+
+    /**
+     * @return the value of {@code e} if it is a literal or was folded by the
+     *         checker, else {@code null}
+     */
+    private IrConstant constantOf(ExpressionNode e) {
+        if (types.hasConstantValue(e)) {
+            return IrConstant.of(types.constantValue(e));
+        }
+        if (!(e instanceof LiteralExpressionNode l)) {
+            return null;
+        }
+
+        String text = l.value.getValue();
+        return switch (l.value.getType()) {
+            case NULL -> IrConstant.NULL;
+            case CHARACTER_LITERAL -> new IrConstant(Type.CHARACTER, text.substring(1, text.length() - 1));
+            default -> {
+                Object value = ConstantEvaluator.evaluate(l);
+                if (value == null) {
+                    throw new IllegalStateException("Unsupported literal " + text);
+                }
+                yield IrConstant.of(value);
+            }
+        };
+    }
+
+    private TypeSymbol typeOf(ExpressionNode e) {
+        TypeSymbol type = types.typeOf(e);
+        if (type == null) {
+            throw new IllegalStateException("Expression at " + e.line + ":" + e.column + " was not checked");
+        }
+        return plain(type);
+    }
+
+    private TypeSymbol declared(TypeReferenceNode node) {
+        TypeSymbol type = types.typeOf(node);
+        return plain(type != null ? type : TypeChecker.declaredType(node));
+    }
+
+    /**
+     * Drops what only matters to the checker: the constant wrapper and the
+     * literal flag.
+     */
+    static TypeSymbol plain(TypeSymbol type) {
+        if (type instanceof ConstantSymbol c) {
+            return plain(c.type);
+        }
+        if (type instanceof PrimitiveTypeSymbol p) {
+            return PrimitiveTypeSymbol.of(p.type, false);
+        }
+        return type;
+    }
+}
@@ -0,0 +1,34 @@
+package org.klar.core.IR;
+
+import java.util.List;
+
+/**
+ * A transformation of an {@link IrProgram}, run by a {@link PassManager}.
+ * <p>
+ * One pass object may be run on several modules at the same time, so a pass
+ * must not keep state between runs.
+ * </p>
+ *
+ * @since 0.15
+ */
+public interface IrPass {
+
+    /**
+     * @return the name the pass is registered and selected under, e.g.
+     *         {@code simplify-cfg}
+     */
+    String name();
+
+    /**
+     * @return names of the passes that must have run before this one; the
+     *         manager schedules them first
+     */
+    default List<String> dependencies() {
+        return List.of();
+    }
+
+    /**
+     * @return whether the program changed
+     */
+    boolean run(IrProgram program);
+}
@@ -0,0 +1,135 @@
+package org.klar.core.IR;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.klar.core.semantics.ArrayTypeSymbol;
+import org.klar.core.semantics.PrimitiveTypeSymbol;
+import org.klar.core.semantics.Type;
+import org.klar.core.semantics.TypeSymbol;
+
+/**
+ * Renders the IR as text, for debugging and for {@code --print-after}.
+ * <p>
+ * Temporaries print as {@code %n} and blocks as {@code bn}. A function looks
+ * like:
+ * </p>
+ *
+ * <pre>
+ * function public integer sum(integer a, integer b) {
+ * b0:
+ *     %2 = a + b
+ *     return %2
+ * }
+ * </pre>
+ *
+ * @since 0.15
+ */
+public final class IrPrinter {
+
+    private IrPrinter() {
+    }
+
+    public static String print(IrProgram program) {
+        StringBuilder sb = new StringBuilder("module ").append(program.name()).append('\n');
+
+        for (IrGlobal global : program.globals()) {
+            IrVariable variable = global.variable();
+            sb.append('\n').append(global.constant() ? "constant " : "global ")
+                    .append(typeName(variable.type())).append(' ').append(variable.name()).append(" = ");
+            if (global.value() != null) {
+                sb.append(global.value()).append('\n');
+            } else {
+                sb.append("call ").append(global.initializer().name()).append("()\n");
+                sb.append('\n').append(print(global.initializer()));
+            }
+        }
+
+        for (IrFunction function : program.functions()) {
+            sb.append('\n').append(print(function));
+        }
+        return sb.toString();
+    }
+
+    public static String print(IrFunction function) {
+        StringBuilder sb = new StringBuilder("function ");
+        if (function.access() != null) {
+            sb.append(function.access().name().toLowerCase()).append(' ');
+        }
+        sb.append(typeName(function.returnType())).append(' ').append(function.name()).append('(')
+                .append(function.parameters().stream()
+                        .map(p -> typeName(p.type()) + " " + p.name())
+                        .collect(Collectors.joining(", ")))
+                .append(") {\n");
+
+        for (BasicBlock block : function.blocks()) {
+            sb.append(block).append(":\n");
+            for (IrInstruction instruction : block.instructions()) {
+                sb.append("    ").append(print(instruction)).append('\n');
+            }
+            sb.append("    ").append(print(block.terminator())).append('\n');
+        }
+        return sb.append("}\n").toString();
+    }
+
+    public static String print(IrInstruction instruction) {
+        if (instruction instanceof IrInstruction.Assign a) {
+            return a.result() + " = " + a.value();
+        }
+        if (instruction instanceof IrInstruction.Binary b) {
+            return b.result() + " = " + b.left() + " " + b.op().symbol + " " + b.right();
+        }
+        if (instruction instanceof IrInstruction.Call c) {
+            return (c.result() != null ? c.result() + " = " : "") + "call "
+                    + (c.owner() != null ? c.owner() + "." : "") + c.function() + "(" + join(c.arguments()) + ")";
+        }
+        if (instruction instanceof IrInstruction.NewArray n) {
+            return n.result() + " = new " + elementName(n.elementType()) + "[" + n.size() + "]";
+        }
+        if (instruction instanceof IrInstruction.ArrayLiteral a) {
+            return a.result() + " = new " + elementName(a.elementType()) + "[]{" + join(a.elements()) + "}";
+        }
+        if (instruction instanceof IrInstruction.Load l) {
+            return l.result() + " = " + l.array() + "[" + l.index() + "]";
+        }
+        IrInstruction.Store s = (IrInstruction.Store) instruction;
+        return s.array() + "[" + s.index() + "] = " + s.value();
+    }
+
+    public static String print(IrTerminator terminator) {
+        if (terminator instanceof IrTerminator.Jump j) {
+            return "jump " + j.target();
+        }
+        if (terminator instanceof IrTerminator.Branch b) {
+            return "branch " + b.condition() + ", " + b.whenTrue() + ", " + b.whenFalse();
+        }
+        if (terminator instanceof IrTerminator.Return r) {
+            return r.value() != null ? "return " + r.value() : "return";
+        }
+        return "<unterminated>";
+    }
+
+    /**
+     * @return the Klar spelling of {@code type}, e.g. {@code integer[]}
+     */
+    public static String typeName(TypeSymbol type) {
+        if (type instanceof ArrayTypeSymbol a) {
+            return typeName(PrimitiveTypeSymbol.of(a.elementType, false)) + "[]";
+        }
+        if (type instanceof PrimitiveTypeSymbol p) {
+            return switch (p.type) {
+                case STRING -> "String";
+                default -> p.type.name().toLowerCase();
+            };
+        }
+        return String.valueOf(type);
+    }
+
+    private static String elementName(Type type) {
+        return typeName(PrimitiveTypeSymbol.of(type, false));
+    }
+
+    private static String join(List<IrValue> values) {
+        return values.stream().map(String::valueOf).collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,83 @@
+package org.klar.core.IR;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The IR of one module: its globals and functions, in declaration order.
+ * <p>
+ * Passes rewrite the lists in place; functions that are removed no longer
+ * appear in the output.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class IrProgram {
+    private final String name;
+    private final List<IrGlobal> globals = new ArrayList<>();
+    private final List<IrFunction> functions = new ArrayList<>();
+    private boolean entry;
+
+    /**
+     * @param name Name of the module, used as the class name by backends.
+     */
+    public IrProgram(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return whether this module is the program being built rather than one
+     *         it imports, so that no other module calls its functions
+     */
+    public boolean isEntry() {
+        return entry;
+    }
+
+    public void setEntry(boolean entry) {
+        this.entry = entry;
+    }
+
+    /**
+     * @return the globals, as a mutable list
+     */
+    public List<IrGlobal> globals() {
+        return globals;
+    }
+
+    /**
+     * @return the functions, as a mutable list
+     */
+    public List<IrFunction> functions() {
+        return functions;
+    }
+
+    /**
+     * @return the functions followed by the initializers of the globals, for
+     *         passes that rewrite every function body
+     */
+    public List<IrFunction> allFunctions() {
+        List<IrFunction> all = new ArrayList<>(functions);
+        for (IrGlobal global : globals) {
+            if (global.initializer() != null) {
+                all.add(global.initializer());
+            }
+        }
+        return all;
+    }
+
+    /**
+     * @return the function of this module called {@code name}, or {@code null}
+     */
+    public IrFunction function(String name) {
+        for (IrFunction function : functions) {
+            if (function.name().equals(name)) {
+                return function;
+            }
+        }
+        return null;
+    }
+}
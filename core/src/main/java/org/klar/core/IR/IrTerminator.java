@@ -0,0 +1,85 @@
+package org.klar.core.IR;
+
+import java.util.List;
+
+/**
+ * The control transfer that ends a {@link BasicBlock}.
+ *
+ * @since 0.15
+ */
+public sealed interface IrTerminator {
+
+    /**
+     * @return the blocks control may continue in, without duplicates
+     */
+    List<BasicBlock> successors();
+
+    /**
+     * @return this terminator with every edge to {@code from} going to
+     *         {@code to} instead
+     */
+    IrTerminator retarget(BasicBlock from, BasicBlock to);
+
+    /**
+     * @return the values the terminator reads
+     */
+    List<IrValue> operands();
+
+    /** Continues in {@code target}. */
+    record Jump(BasicBlock target) implements IrTerminator {
+        @Override
+        public List<BasicBlock> successors() {
+            return List.of(target);
+        }
+
+        @Override
+        public IrTerminator retarget(BasicBlock from, BasicBlock to) {
+            return target == from ? new Jump(to) : this;
+        }
+
+        @Override
+        public List<IrValue> operands() {
+            return List.of();
+        }
+    }
+
+    /** Continues in {@code whenTrue} if {@code condition} holds, else in {@code whenFalse}. */
+    record Branch(IrValue condition, BasicBlock whenTrue, BasicBlock whenFalse) implements IrTerminator {
+        @Override
+        public List<BasicBlock> successors() {
+            return whenTrue == whenFalse ? List.of(whenTrue) : List.of(whenTrue, whenFalse);
+        }
+
+        @Override
+        public IrTerminator retarget(BasicBlock from, BasicBlock to) {
+            return new Branch(condition, whenTrue == from ? to : whenTrue, whenFalse == from ? to : whenFalse);
+        }
+
+        @Override
+        public List<IrValue> operands() {
+            return List.of(condition);
+        }
+    }
+
+    /**
+     * Leaves the function.
+     *
+     * @param value Returned value, or {@code null} in a {@code void} function.
+     */
+    record Return(IrValue value) implements IrTerminator {
+        @Override
+        public List<BasicBlock> successors() {
+            return List.of();
+        }
+
+        @Override
+        public IrTerminator retarget(BasicBlock from, BasicBlock to) {
+            return this;
+        }
+
+        @Override
+        public List<IrValue> operands() {
+            return value == null ? List.of() : List.of(value);
+        }
+    }
+}
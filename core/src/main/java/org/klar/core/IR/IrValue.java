@@ -0,0 +1,13 @@
+package org.klar.core.IR;
+
+import org.klar.core.semantics.TypeSymbol;
+
+/**
+ * An operand of an IR instruction: a variable or a constant.
+ *
+ * @since 0.15
+ */
+public sealed interface IrValue permits IrVariable, IrConstant {
+
+    TypeSymbol type();
+}
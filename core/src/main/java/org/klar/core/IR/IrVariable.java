@@ -0,0 +1,69 @@
+package org.klar.core.IR;
+
+import org.klar.core.semantics.TypeSymbol;
+
+/**
+ * A storage location of the IR.
+ * <p>
+ * Variables compare by identity: two Klar declarations with the same name in
+ * different blocks are different variables. The name is the one written in the
+ * source, or a generated one for temporaries, and is not unique.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class IrVariable implements IrValue {
+
+    /** Where a variable comes from, which decides how backends declare it. */
+    public enum Kind {
+        /** A parameter of the function. */
+        PARAMETER,
+        /** A variable or constant declared in a function body. */
+        LOCAL,
+        /** A value created by lowering, such as an operand of an expression. */
+        TEMPORARY,
+        /** A top-level declaration of the module, see {@link IrGlobal}. */
+        GLOBAL
+    }
+
+    private final int id;
+    private final String name;
+    private final TypeSymbol type;
+    private final Kind kind;
+
+    IrVariable(int id, String name, TypeSymbol type, Kind kind) {
+        this.id = id;
+        this.name = name;
+        this.type = type;
+        this.kind = kind;
+    }
+
+    /**
+     * @return a number that identifies the variable within its function
+     */
+    public int id() {
+        return id;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public TypeSymbol type() {
+        return type;
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public boolean isTemporary() {
+        return kind == Kind.TEMPORARY;
+    }
+
+    @Override
+    public String toString() {
+        return isTemporary() ? "%" + id : name;
+    }
+}
@@ -0,0 +1,29 @@
+package org.klar.core.IR;
+
+/**
+ * How much work the compiler puts into the code it emits, as selected with
+ * {@code -O0}, {@code -O1} and {@code -O2}.
+ * <p>
+ * See {@link PassManager#forLevel(OptimizationLevel)} for the passes each
+ * level runs.
+ * </p>
+ *
+ * @since 0.15
+ */
+public enum OptimizationLevel {
+    /** Transpiles straight from the AST, without the IR. */
+    O0,
+    /** Lowers to the IR and runs the cheap cleanups. */
+    O1,
+    /** Everything in {@link #O1}, plus passes that trade build time for speed. */
+    O2;
+
+    /**
+     * @return the level for {@code -O<level>}; numbers beyond the highest
+     *         level select it, negative numbers select {@link #O0}
+     */
+    public static OptimizationLevel of(int level) {
+        OptimizationLevel[] levels = values();
+        return levels[Math.max(0, Math.min(level, levels.length - 1))];
+    }
+}
@@ -0,0 +1,177 @@
+package org.klar.core.IR;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Runs a pipeline of {@link IrPass}es over a lowered program.
+ * <p>
+ * Passes are registered under their name, then added to the pipeline. Adding
+ * a pass adds the passes it depends on before it, unless they are already in
+ * the pipeline. The manager is set up once and can then run on several
+ * modules at the same time:
+ * </p>
+ * <ul>
+ * <li><strong>timing:</strong> {@link #run} reports how long each pass took
+ * and whether it changed the program.</li>
+ * <li><strong>printing:</strong> after each pass selected with
+ * {@link #printAfter(String)}, the program is rendered with
+ * {@link IrPrinter}. {@link #LOWER} selects the program as it came from
+ * lowering.</li>
+ * </ul>
+ *
+ * @since 0.15
+ */
+public final class PassManager {
+    /** Name that selects the program before any pass ran, for {@link #printAfter}. */
+    public static final String LOWER = "lower";
+
+    private final Map<String, IrPass> registered = new LinkedHashMap<>();
+    private final List<IrPass> pipeline = new ArrayList<>();
+    private final Set<String> printAfter = new HashSet<>();
+
+    /**
+     * How one pass went on one program.
+     *
+     * @param nanos   Time the pass took.
+     * @param changed Whether it changed the program.
+     */
+    public record PassTiming(String pass, long nanos, boolean changed) {
+    }
+
+    /**
+     * @return a manager with every built-in pass registered, and the ones
+     *         {@code level} runs added
+     */
+    public static PassManager forLevel(OptimizationLevel level) {
+        PassManager manager = new PassManager();
+        manager.register(new DeadCodeElimination());
+        manager.register(new SimplifyControlFlow());
+        manager.register(new Inliner());
+        manager.register(new TailCallElimination());
+
+        // Inlining first leaves dce the functions it made unused
+        if (level.compareTo(OptimizationLevel.O2) >= 0) {
+            manager.add(Inliner.NAME);
+        }
+        if (level.compareTo(OptimizationLevel.O1) >= 0) {
+            manager.add(DeadCodeElimination.NAME);
+            manager.add(TailCallElimination.NAME);
+            manager.add(SimplifyControlFlow.NAME);
+        }
+        return manager;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a pass with the same name is
+     *                                  registered
+     */
+    public PassManager register(IrPass pass) {
+        if (registered.putIfAbsent(pass.name(), pass) != null) {
+            throw new IllegalArgumentException("A pass named '" + pass.name() + "' is already registered");
+        }
+        return this;
+    }
+
+    /**
+     * Appends a registered pass to the pipeline, after the passes it depends
+     * on.
+     *
+     * @throws IllegalArgumentException if the pass or one of its
+     *                                  dependencies is not registered, or the
+     *                                  dependencies form a cycle
+     */
+    public PassManager add(String name) {
+        add(name, new ArrayList<>());
+        return this;
+    }
+
+    private void add(String name, List<String> path) {
+        IrPass pass = registered.get(name);
+        if (pass == null) {
+            throw new IllegalArgumentException("Unknown pass '" + name + "'; registered passes: "
+                    + String.join(", ", registered.keySet()));
+        }
+        if (pipeline.contains(pass)) {
+            return;
+        }
+        if (path.contains(name)) {
+            path.add(name);
+            throw new IllegalArgumentException("Passes depend on each other: " + String.join(" -> ", path));
+        }
+
+        path.add(name);
+        for (String dependency : pass.dependencies()) {
+            add(dependency, path);
+        }
+        path.remove(path.size() - 1);
+        pipeline.add(pass);
+    }
+
+    /**
+     * Prints the program after the pass {@code name} runs.
+     *
+     * @throws IllegalArgumentException if the pass is not in the pipeline
+     */
+    public PassManager printAfter(String name) {
+        if (!name.equals(LOWER) && pipeline().stream().noneMatch(name::equals)) {
+            throw new IllegalArgumentException("Pass '" + name + "' does not run at this optimization level; "
+                    + "passes that run: " + String.join(", ", pipelineWithLowering()));
+        }
+        printAfter.add(name);
+        return this;
+    }
+
+    /**
+     * @return the names of the passes in the order they run
+     */
+    public List<String> pipeline() {
+        List<String> names = new ArrayList<>();
+        for (IrPass pass : pipeline) {
+            names.add(pass.name());
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    private List<String> pipelineWithLowering() {
+        List<String> names = new ArrayList<>();
+        names.add(LOWER);
+        names.addAll(pipeline());
+        return names;
+    }
+
+    /**
+     * Runs the pipeline on {@code program}.
+     *
+     * @param printer Receives the printed program after each pass selected
+     *                with {@link #printAfter(String)}.
+     * @return one timing per pass, in the order they ran
+     */
+    public List<PassTiming> run(IrProgram program, Consumer<String> printer) {
+        if (printAfter.contains(LOWER)) {
+            printer.accept(header(LOWER, program) + IrPrinter.print(program));
+        }
+
+        List<PassTiming> timings = new ArrayList<>(pipeline.size());
+        for (IrPass pass : pipeline) {
+            long start = System.nanoTime();
+            boolean changed = pass.run(program);
+            timings.add(new PassTiming(pass.name(), System.nanoTime() - start, changed));
+
+            if (printAfter.contains(pass.name())) {
+                printer.accept(header(pass.name(), program) + IrPrinter.print(program));
+            }
+        }
+        return timings;
+    }
+
+    private static String header(String pass, IrProgram program) {
+        return "; IR of " + program.name() + " after " + pass + "\n";
+    }
+}
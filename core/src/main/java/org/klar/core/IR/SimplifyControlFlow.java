@@ -0,0 +1,116 @@
+package org.klar.core.IR;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tidies the control-flow graph that lowering leaves behind, pass
+ * {@value #NAME}:
+ * <ul>
+ * <li>a branch whose two targets are the same block becomes a jump;</li>
+ * <li>edges into a block that only jumps on go straight to its target, such
+ * as the join block of an inner {@code if} that ends an outer one;</li>
+ * <li>a block is merged into its only predecessor when that predecessor jumps
+ * to it unconditionally;</li>
+ * <li>blocks nothing reaches any more are dropped.</li>
+ * </ul>
+ * <p>
+ * Fewer blocks means fewer labels in the emitted code and less work for the
+ * passes after this one. The rules are applied until none matches.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class SimplifyControlFlow implements IrPass {
+    public static final String NAME = "simplify-cfg";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean run(IrProgram program) {
+        boolean changed = false;
+        for (IrFunction function : program.allFunctions()) {
+            changed |= simplify(function);
+        }
+        return changed;
+    }
+
+    /**
+     * @return whether {@code function} changed
+     */
+    public static boolean simplify(IrFunction function) {
+        boolean changed = false;
+        boolean progress = true;
+        while (progress) {
+            progress = foldBranches(function) | threadJumps(function) | mergeBlocks(function);
+            changed |= progress;
+        }
+        return changed;
+    }
+
+    private static boolean foldBranches(IrFunction function) {
+        boolean changed = false;
+        for (BasicBlock block : function.blocks()) {
+            if (block.terminator() instanceof IrTerminator.Branch b && b.whenTrue() == b.whenFalse()) {
+                block.setTerminator(new IrTerminator.Jump(b.whenTrue()));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static boolean threadJumps(IrFunction function) {
+        boolean changed = false;
+        for (BasicBlock empty : function.blocks()) {
+            if (empty == function.entry() || !empty.instructions().isEmpty()
+                    || !(empty.terminator() instanceof IrTerminator.Jump j) || j.target() == empty) {
+                continue;
+            }
+            for (BasicBlock block : function.blocks()) {
+                if (block.successors().contains(empty)) {
+                    block.setTerminator(block.terminator().retarget(empty, j.target()));
+                    changed = true;
+                }
+            }
+        }
+        if (changed) {
+            IrLowering.removeUnreachableBlocks(function);
+        }
+        return changed;
+    }
+
+    private static boolean mergeBlocks(IrFunction function) {
+        Map<BasicBlock, Integer> predecessors = new HashMap<>();
+        for (BasicBlock block : function.blocks()) {
+            for (BasicBlock successor : block.successors()) {
+                predecessors.merge(successor, 1, Integer::sum);
+            }
+        }
+
+        boolean changed = false;
+        List<BasicBlock> blocks = function.blocks();
+        for (int i = 0; i < blocks.size(); i++) {
+            BasicBlock block = blocks.get(i);
+            while (block.terminator() instanceof IrTerminator.Jump j) {
+                BasicBlock next = j.target();
+                if (next == block || next == function.entry() || predecessors.get(next) != 1) {
+                    break;
+                }
+                block.instructions().addAll(next.instructions());
+                block.setTerminator(next.terminator());
+                // The merged block keeps its successors' predecessor counts
+                int index = blocks.indexOf(next);
+                blocks.remove(index);
+                if (index < i) {
+                    i--;
+                }
+                changed = true;
+            }
+        }
+        return changed;
+    }
+}
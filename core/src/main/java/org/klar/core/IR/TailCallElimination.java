@@ -0,0 +1,125 @@
+package org.klar.core.IR;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns calls of a function to itself in tail position into a jump back to
+ * its start, pass {@value #NAME}.
+ * <p>
+ * Klar only allows a {@code return} at the end of a function, so a tail call
+ * is written by assigning the call to the variable that is returned, as in
+ * {@code result = sum(n - one, total + n);} inside an {@code if}. In the IR,
+ * the call is then the last instruction of its block, and the block either
+ * returns the result or jumps, through blocks that do nothing, to one that
+ * does. Such a call becomes:
+ * </p>
+ * <ul>
+ * <li>assignments of the arguments to the parameters, through temporaries
+ * where an argument reads a parameter that is assigned before it;</li>
+ * <li>a jump to the first block of the body, which a new, empty entry block
+ * leads to, so that the body becomes a loop.</li>
+ * </ul>
+ * <p>
+ * Every local is assigned by its declaration, so running the body again
+ * starts it from the same state a new call would. Recursion then runs in
+ * constant stack space.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class TailCallElimination implements IrPass {
+    public static final String NAME = "tail-calls";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean run(IrProgram program) {
+        boolean changed = false;
+        for (IrFunction function : program.functions()) {
+            changed |= eliminate(function);
+        }
+        return changed;
+    }
+
+    /**
+     * @return whether {@code function} changed
+     */
+    public static boolean eliminate(IrFunction function) {
+        List<BasicBlock> tails = new ArrayList<>();
+        for (BasicBlock block : function.blocks()) {
+            if (isTailCall(function, block)) {
+                tails.add(block);
+            }
+        }
+        if (tails.isEmpty()) {
+            return false;
+        }
+
+        BasicBlock start = function.entry();
+        BasicBlock entry = function.newBlock();
+        function.blocks().remove(entry);
+        function.blocks().add(0, entry);
+        entry.setTerminator(new IrTerminator.Jump(start));
+
+        for (BasicBlock block : tails) {
+            List<IrInstruction> instructions = block.instructions();
+            IrInstruction.Call call = (IrInstruction.Call) instructions.remove(instructions.size() - 1);
+            instructions.addAll(reassignParameters(function, call.arguments()));
+            block.setTerminator(new IrTerminator.Jump(start));
+        }
+        IrLowering.removeUnreachableBlocks(function);
+        return true;
+    }
+
+    private static boolean isTailCall(IrFunction function, BasicBlock block) {
+        List<IrInstruction> instructions = block.instructions();
+        if (instructions.isEmpty()
+                || !(instructions.get(instructions.size() - 1) instanceof IrInstruction.Call call)
+                || call.owner() != null || !call.function().equals(function.name())) {
+            return false;
+        }
+
+        IrTerminator terminator = block.terminator();
+        Set<BasicBlock> seen = new HashSet<>();
+        while (terminator instanceof IrTerminator.Jump j && j.target().instructions().isEmpty()
+                && seen.add(j.target())) {
+            terminator = j.target().terminator();
+        }
+        return terminator instanceof IrTerminator.Return r
+                && (r.value() == null || r.value() == call.result());
+    }
+
+    /**
+     * @return the instructions that give each parameter its argument, as if
+     *         all were assigned at once
+     */
+    private static List<IrInstruction> reassignParameters(IrFunction function, List<IrValue> arguments) {
+        List<IrVariable> parameters = function.parameters();
+        List<IrInstruction> copies = new ArrayList<>();
+        List<IrInstruction> assignments = new ArrayList<>();
+
+        for (int i = 0; i < parameters.size(); i++) {
+            IrVariable parameter = parameters.get(i);
+            IrValue argument = arguments.get(i);
+            if (argument == parameter) {
+                continue;
+            }
+            // Parameters before this one already hold their new value
+            if (argument instanceof IrVariable v && parameters.indexOf(v) >= 0 && parameters.indexOf(v) < i) {
+                IrVariable copy = function.newTemporary(v.type());
+                copies.add(new IrInstruction.Assign(copy, argument));
+                argument = copy;
+            }
+            assignments.add(new IrInstruction.Assign(parameter, argument));
+        }
+
+        copies.addAll(assignments);
+        return copies;
+    }
+}
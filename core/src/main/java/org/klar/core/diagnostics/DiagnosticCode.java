@@ -30,6 +30,7 @@ public enum DiagnosticCode {
     E111("MisplacedAfterall", Phase.SYNTAX),
     E112("MissingAccessModifier", Phase.SYNTAX),
     E113("MissingAnnotation", Phase.SYNTAX),
+    E114("NestingTooDeep", Phase.SYNTAX),
 
     // --- Semantic Errors (200 - 299) ---
     E201("UnknownType", Phase.SEMANTIC),
@@ -49,11 +50,18 @@ public enum DiagnosticCode {
     E215("NotAnArray", Phase.SEMANTIC),
     E216("ArraySizeMismatch", Phase.SEMANTIC),
     E217("UnresolvedSymbol", Phase.SEMANTIC),
+    E218("UnresolvedModule", Phase.SEMANTIC),
+    E219("CyclicImport", Phase.SEMANTIC),
+    E220("ModuleNameClash", Phase.SEMANTIC),
 
     E400("BackendProbeTimeout", Phase.BACKEND),
     E401("MissingBackendTarget", Phase.BACKEND),
     E402("InvalidBackendBinding", Phase.BACKEND),
-    E404("BackendConstraintViolation", Phase.BACKEND);
+    E404("BackendConstraintViolation", Phase.BACKEND),
+
+    // --- Warnings (500 - 599) ---
+    W501("UnreachableCode", Phase.SEMANTIC),
+    W502("UnusedFunction", Phase.SEMANTIC);
 
     public final String name;
     public final Phase phase;
@@ -62,4 +70,13 @@ public enum DiagnosticCode {
         this.name = name;
         this.phase = phase;
     }
+
+    /**
+     * Whether the code reports something that does not stop the build.
+     *
+     * @since 0.15
+     */
+    public boolean isWarning() {
+        return name().charAt(0) == 'W';
+    }
 }
\ No newline at end of file
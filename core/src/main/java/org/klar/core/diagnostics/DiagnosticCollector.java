@@ -0,0 +1,102 @@
+package org.klar.core.diagnostics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.klar.core.errors.CompilationFailedException;
+import org.klar.core.errors.KException;
+
+/**
+ * Collects the errors of a phase that recovers instead of stopping at the
+ * first one.
+ * <p>
+ * Errors are kept in the order they are reported. Once {@code maxErrors} of
+ * them are collected the phase is aborted with a
+ * {@link CompilationFailedException}, since the rest are usually a
+ * consequence of the first ones.
+ * </p>
+ * <p>
+ * A collector is not thread-safe; parallel work uses one per worker.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class DiagnosticCollector {
+    /** Limit used when {@code --max-errors} is not given. */
+    public static final int DEFAULT_MAX_ERRORS = 20;
+
+    private final int maxErrors;
+    private final List<KException> errors = new ArrayList<>();
+    private final List<KException> warnings = new ArrayList<>();
+
+    public DiagnosticCollector() {
+        this(DEFAULT_MAX_ERRORS);
+    }
+
+    /**
+     * @param maxErrors Number of errors after which the phase is aborted.
+     */
+    public DiagnosticCollector(int maxErrors) {
+        if (maxErrors < 1) {
+            throw new IllegalArgumentException("maxErrors must be at least 1, got " + maxErrors);
+        }
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Records an error.
+     *
+     * @throws CompilationFailedException with every collected error if this
+     *                                    one reaches the limit
+     */
+    public void report(KException error) {
+        errors.add(error);
+        if (errors.size() >= maxErrors) {
+            throw new CompilationFailedException(errors, true);
+        }
+    }
+
+    /**
+     * Records a diagnostic that does not fail the phase, such as unreachable
+     * code. Warnings do not count towards the limit.
+     */
+    public void warn(KException warning) {
+        warnings.add(warning);
+    }
+
+    /**
+     * @throws CompilationFailedException if any error was reported
+     */
+    public void throwIfErrors() {
+        if (!errors.isEmpty()) {
+            throw new CompilationFailedException(errors, false);
+        }
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    public int errorCount() {
+        return errors.size();
+    }
+
+    public int maxErrors() {
+        return maxErrors;
+    }
+
+    /**
+     * @return the reported errors, in order, as a read-only view
+     */
+    public List<KException> errors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * @return the reported warnings, in order, as a read-only view
+     */
+    public List<KException> warnings() {
+        return Collections.unmodifiableList(warnings);
+    }
+}
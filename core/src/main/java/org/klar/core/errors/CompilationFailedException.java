@@ -0,0 +1,71 @@
+package org.klar.core.errors;
+
+import java.util.List;
+
+import org.klar.core.diagnostics.DiagnosticColors;
+
+/**
+ * Every error a phase found before giving up, rendered as one batch.
+ * <p>
+ * Its code and location are those of the first error, so code that only looks
+ * at a single {@link KException} still sees the earliest problem. A single
+ * error formats exactly as it would on its own; several are followed by a
+ * count.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class CompilationFailedException extends KException {
+    private final List<KException> errors;
+    private final boolean limitReached;
+
+    /**
+     * @param errors       Errors in the order they were found; must not be
+     *                     empty.
+     * @param limitReached Whether collection stopped at the error limit, so
+     *                     more errors may exist.
+     */
+    public CompilationFailedException(List<KException> errors, boolean limitReached) {
+        super(first(errors).code, first(errors).location, (SourceManager) null, first(errors).cause,
+                first(errors).fix, first(errors).example, first(errors).note, first(errors).length);
+        this.errors = List.copyOf(errors);
+        this.limitReached = limitReached;
+    }
+
+    private static KException first(List<KException> errors) {
+        if (errors.isEmpty()) {
+            throw new IllegalArgumentException("A failed compilation needs at least one error");
+        }
+        return errors.get(0);
+    }
+
+    public List<KException> errors() {
+        return errors;
+    }
+
+    /**
+     * @return whether collection stopped at the error limit
+     */
+    public boolean limitReached() {
+        return limitReached;
+    }
+
+    @Override
+    public String format() {
+        if (errors.size() == 1 && !limitReached) {
+            return errors.get(0).format();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (KException error : errors) {
+            sb.append(error.format()).append("\n");
+        }
+
+        String summary = errors.size() + (errors.size() == 1 ? " error" : " errors");
+        if (limitReached) {
+            summary += "; stopped at the limit, raise --max-errors to see more";
+        }
+        sb.append(DiagnosticColors.error(summary)).append("\n");
+        return sb.toString();
+    }
+}
@@ -4,9 +4,12 @@ import org.klar.core.diagnostics.DiagnosticCode;
 
 public abstract class KException extends RuntimeException {
 
+    private static final int CONTEXT_LINES_BEFORE = 2;
+
     protected final DiagnosticCode code;
     protected final SourceLocation location;
-    protected final String[] contextLines;
+    private final SourceManager sourceManager;
+    private String[] contextLines;
     protected final String cause;
     protected final String fix;
     protected final String example;
@@ -23,11 +26,30 @@ public abstract class KException extends RuntimeException {
         String example,
         String note,
         int length
+    ) {
+        this(code, location, (SourceManager) null, cause, fix, example, note, length);
+        this.contextLines = contextLines;
+    }
+
+    /**
+     * Creates a diagnostic whose context lines are sliced out of
+     * {@code sourceManager} only when it is formatted, so an exception that is
+     * never printed does not pay for them.
+     */
+    protected KException(
+        DiagnosticCode code,
+        SourceLocation location,
+        SourceManager sourceManager,
+        String cause,
+        String fix,
+        String example,
+        String note,
+        int length
     ) {
         super(code.name);
         this.code = code;
         this.location = location;
-        this.contextLines = contextLines;
+        this.sourceManager = sourceManager;
         this.cause = cause;
         this.fix = fix;
         this.example = example;
@@ -35,6 +57,19 @@ public abstract class KException extends RuntimeException {
         this.length = length;
     }
 
+    /**
+     * @return The source lines shown above the caret, ending with the error line.
+     */
+    protected final String[] contextLines() {
+        if (contextLines == null) {
+            contextLines = sourceManager == null
+                    ? new String[0]
+                    : sourceManager.getContextLines(location.line(), CONTEXT_LINES_BEFORE);
+        }
+
+        return contextLines;
+    }
+
     @Override
     public final String getMessage() {
         if (cachedMessage == null){
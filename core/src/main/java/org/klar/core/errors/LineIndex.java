@@ -0,0 +1,157 @@
+package org.klar.core.errors;
+
+import java.util.Arrays;
+
+/**
+ * Compact index of line start offsets for one source text.
+ * <p>
+ * The {@link org.klar.core.lexer.Lexer} records the start of every line while
+ * it scans, so diagnostics can slice a single line out of the source (and
+ * convert between offsets and {@code (line, column)} pairs) without splitting
+ * the whole file into one {@link String} per line. Lines are 1-based and
+ * columns are 0-based, matching the positions stored in tokens.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class LineIndex {
+
+    private final int[] lineStarts;
+    private final int lineCount;
+    private final int length;
+
+    /**
+     * @param lineStarts Start offset of each line; {@code lineStarts[0]} must be
+     *                   {@code 0}. Only the first {@code lineCount} entries are
+     *                   read, and the array is not copied.
+     * @param lineCount  Number of lines in the text.
+     * @param length     Length of the text.
+     */
+    public LineIndex(int[] lineStarts, int lineCount, int length) {
+        this.lineStarts = lineStarts;
+        this.lineCount = lineCount;
+        this.length = length;
+    }
+
+    /**
+     * Builds the index by scanning {@code source} for line breaks.
+     */
+    public static LineIndex of(CharSequence source) {
+        int[] starts = new int[Math.max(16, source.length() / 32)];
+        int count = 1;
+
+        for (int i = 0, n = source.length(); i < n; i++) {
+            if (source.charAt(i) == '\n') {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+
+        return new LineIndex(starts, count, source.length());
+    }
+
+    public int lineCount() {
+        return lineCount;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return The offset of the first character of {@code line}.
+     */
+    public int lineStart(int line) {
+        checkLine(line);
+        return lineStarts[line - 1];
+    }
+
+    /**
+     * @return The offset just past the last character of {@code line},
+     *         excluding its line break.
+     */
+    public int lineEnd(int line) {
+        checkLine(line);
+        return line == lineCount ? length : lineStarts[line] - 1;
+    }
+
+    public int offsetOf(int line, int column) {
+        return lineStart(line) + column;
+    }
+
+    /**
+     * @return The 1-based line containing {@code offset}.
+     */
+    public int lineOf(int offset) {
+        if (offset < 0 || offset > length) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " is out of bounds for length " + length);
+        }
+
+        int low = 0;
+        int high = lineCount - 1;
+
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+
+            if (lineStarts[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return low + 1;
+    }
+
+    /**
+     * @return The 0-based column of {@code offset} within its line.
+     */
+    public int columnOf(int offset) {
+        return offset - lineStarts[lineOf(offset) - 1];
+    }
+
+    /**
+     * Returns the index of the text produced by replacing
+     * {@code [offset, offset + removedLength)} with {@code inserted}. Lines
+     * before the edit are copied and lines after it are shifted, so the
+     * edited text itself is never rescanned.
+     */
+    public LineIndex edited(int offset, int removedLength, CharSequence inserted) {
+        int firstLine = lineOf(offset);
+        int lastLine = lineOf(offset + removedLength);
+        int delta = inserted.length() - removedLength;
+
+        int insertedBreaks = 0;
+        for (int i = 0; i < inserted.length(); i++) {
+            if (inserted.charAt(i) == '\n') {
+                insertedBreaks++;
+            }
+        }
+
+        int count = firstLine + insertedBreaks + (lineCount - lastLine);
+        int[] starts = new int[Math.max(16, count)];
+
+        System.arraycopy(lineStarts, 0, starts, 0, firstLine);
+
+        int next = firstLine;
+        for (int i = 0; i < inserted.length(); i++) {
+            if (inserted.charAt(i) == '\n') {
+                starts[next++] = offset + i + 1;
+            }
+        }
+
+        for (int line = lastLine; line < lineCount; line++) {
+            starts[next++] = lineStarts[line] + delta;
+        }
+
+        return new LineIndex(starts, count, length + delta);
+    }
+
+    private void checkLine(int line) {
+        if (line < 1 || line > lineCount) {
+            throw new IndexOutOfBoundsException("Line " + line + " is out of bounds for " + lineCount + " lines");
+        }
+    }
+}
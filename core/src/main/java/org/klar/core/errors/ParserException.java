@@ -20,6 +20,20 @@ public class ParserException extends KException {
         this.expected = expected;
       }
 
+    public ParserException(
+            DiagnosticCode code,
+            SourceLocation location,
+            SourceManager sourceManager,
+            String cause,
+            String fix,
+            String expected,
+            String example,
+            String note,
+            int length) {
+        super(code, location, sourceManager, cause, fix, example, note, length);
+        this.expected = expected;
+      }
+
     @Override
     public String format() {
         StringBuilder sb = new StringBuilder();
@@ -46,6 +60,7 @@ public class ParserException extends KException {
         int errorLine = location.line();
         int maxLineDigitWidth = String.valueOf(errorLine).length();
         
+        String[] contextLines = contextLines();
         int firstLineInContext = errorLine - (contextLines.length - 1);
 
         for (int i = 0; i < contextLines.length; i++) {
@@ -23,6 +23,18 @@ public final class SemanticException extends KException {
         super(code, location, contextLines, cause, fix, example, note, length);
     }
 
+    public SemanticException(
+            DiagnosticCode code,
+            SourceLocation location,
+            SourceManager sourceManager,
+            String cause,
+            String fix,
+            String example,
+            String note,
+            int length) {
+        super(code, location, sourceManager, cause, fix, example, note, length);
+    }
+
     @Override
     public String format() {
         StringBuilder sb = new StringBuilder();
@@ -35,7 +47,7 @@ public final class SemanticException extends KException {
                 .append("\n");
 
         // Phase & Location
-        sb.append(DiagnosticColors.structure("ERROR ("))
+        sb.append(DiagnosticColors.structure(code.isWarning() ? "WARNING (" : "ERROR ("))
                 .append(code.phase.name())
                 .append(")\n");
 
@@ -50,6 +62,7 @@ public final class SemanticException extends KException {
         // Context Lines
         int errorLine = location.line();
         int maxLineDigitWidth = String.valueOf(errorLine).length();
+        String[] contextLines = contextLines();
         int firstLineInContext = errorLine - (contextLines.length - 1);
 
         for (int i = 0; i < contextLines.length; i++) {
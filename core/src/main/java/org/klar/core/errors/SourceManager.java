@@ -4,39 +4,68 @@ public final class SourceManager {
 
 
     private final String source;
-    private String[] lines; // lazy
+    private volatile LineIndex lineIndex; // recorded by the lexer, or lazy
 
     public SourceManager(String source) {
         this.source = source;
     }
 
-    /** 
-    * @return Returns context lines with the error line ALWAYS as the last line. 
-    * @param errorLine error line (1-indexed) 
-    * @param linesBefore how many lines to show BEFORE the error 
+    /**
+     * Installs the line index recorded by the lexer while scanning, so context
+     * lookups never rescan the source.
+     */
+    public void attachLineIndex(LineIndex lineIndex) {
+        this.lineIndex = lineIndex;
+    }
+
+    /**
+    * @return Returns context lines with the error line ALWAYS as the last line.
+    * @param errorLine error line (1-indexed)
+    * @param linesBefore how many lines to show BEFORE the error
     */
     public String[] getContextLines(int errorLine, int linesBefore) {
-        String[] allLines = lines();
-        
-        int errorIndex = errorLine - 1;
-        int startIndex = Math.max(0, errorIndex - linesBefore);
-        int endIndex = errorIndex;
-        
-        String[] context = new String[endIndex - startIndex + 1];
-        
-        for (int i = startIndex; i <= endIndex; i++) {
-            context[i - startIndex] = allLines[i];
+        LineIndex index = lineIndex();
+
+        int endLine = Math.min(Math.max(errorLine, 1), index.lineCount());
+        int startLine = Math.max(1, endLine - linesBefore);
+
+        String[] context = new String[endLine - startLine + 1];
+
+        for (int line = startLine; line <= endLine; line++) {
+            context[line - startLine] = line(line);
         }
-    
+
         return context;
     }
 
+    /**
+     * @return The text of {@code line} (1-indexed), without its line break.
+     */
+    public String line(int line) {
+        LineIndex index = lineIndex();
+        return source.substring(index.lineStart(line), index.lineEnd(line));
+    }
+
+    public int offsetOf(int line, int column) {
+        return lineIndex().offsetOf(line, column);
+    }
+
+    public int lineOf(int offset) {
+        return lineIndex().lineOf(offset);
+    }
+
+    public int columnOf(int offset) {
+        return lineIndex().columnOf(offset);
+    }
+
+    public LineIndex lineIndex(){
+        LineIndex index = lineIndex;
 
-    private String[] lines(){
-        if (lines == null){
-            lines = source.split("\n", -1);
+        if (index == null){
+            index = LineIndex.of(source);
+            lineIndex = index;
         }
 
-        return lines;
+        return index;
     }
-}
\ No newline at end of file
+}
@@ -17,6 +17,18 @@ public final class SyntaxException extends KException {
         super(code, location, contextLines, cause, fix, example, note, length);
     }
 
+    public SyntaxException(
+            DiagnosticCode code,
+            SourceLocation location,
+            SourceManager sourceManager,
+            String cause,
+            String fix,
+            String example,
+            String note,
+            int length) {
+        super(code, location, sourceManager, cause, fix, example, note, length);
+    }
+
     @Override
     public String format() {
         StringBuilder sb = new StringBuilder();
@@ -41,6 +53,7 @@ public final class SyntaxException extends KException {
         int errorLine = location.line();
         int maxLineDigitWidth = String.valueOf(errorLine).length();
 
+        String[] contextLines = contextLines();
         int firstLineInContext = errorLine - (contextLines.length - 1);
 
         for (int i = 0; i < contextLines.length; i++) {
@@ -0,0 +1,207 @@
+package org.klar.core.lexer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.klar.core.errors.LineIndex;
+import org.klar.core.errors.SourceManager;
+
+/**
+ * Re-tokenizes a source file after a small text edit without restarting from
+ * offset 0.
+ * <p>
+ * Editor integration and watch mode resubmit the whole file after every
+ * keystroke. Since the {@link Lexer} carries no state between tokens other
+ * than its position, scanning can resume at any token boundary that lies
+ * before the edit and stop as soon as it produces a token at a position that
+ * also started a token in the previous buffer, past the edit: from there on the
+ * remaining text is identical, so the old tokens are reused with their
+ * positions shifted.
+ * </p>
+ * <ul>
+ * <li><strong>Restart point:</strong> the token before the last token that
+ * starts before the edit. Backing up one extra token covers lookahead (e.g.
+ * {@code =} becoming {@code ==}, or {@code 1.} becoming {@code 1.5}).</li>
+ * <li><strong>Resynchronization:</strong> token positions are compared in
+ * (line, column) space, mapping new positions back through the edit.</li>
+ * <li><strong>Shifting:</strong> tokens on the edited line move by the column
+ * delta; tokens on later lines only move by the line delta, so an edit that
+ * does not add or remove line breaks reuses every token after its line as
+ * is.</li>
+ * </ul>
+ * <p>
+ * Only the scan is bounded by the size of the edit. Building the edited
+ * source, its line index, the lexer's character buffer and the new token
+ * list still copies the whole file, so an edit costs O(n) in array copies.
+ * The caller passes the line index of the previous buffer, so no edit
+ * rescans the text for line breaks.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class IncrementalLexer {
+
+    private static final int EXPECTED_RELEXED_TOKENS = 64;
+
+    private final String filePath;
+    private final SymbolInterner interner;
+
+    /**
+     * @param source        The edited source text.
+     * @param lines         The line index of the edited source text, to pass
+     *                      to the next {@code relex}.
+     * @param tokens        The token buffer of the edited source.
+     * @param relexedTokens How many tokens had to be scanned again.
+     */
+    public record Result(String source, LineIndex lines, List<Token> tokens, int relexedTokens) {
+    }
+
+    private record Position(int line, int column) {
+        boolean isBefore(int otherLine, int otherColumn) {
+            return line < otherLine || (line == otherLine && column < otherColumn);
+        }
+    }
+
+    public IncrementalLexer(String filePath, SymbolInterner interner) {
+        this.filePath = filePath;
+        this.interner = interner;
+    }
+
+    /**
+     * Applies {@code edit} to {@code oldSource} and returns the token buffer of
+     * the resulting text.
+     *
+     * @param oldSource The text {@code previous} was produced from.
+     * @param oldLines  The line index of {@code oldSource}, e.g.
+     *                  {@link Result#lines()} of the last edit, or the index
+     *                  the {@link SourceManager} got from the first full scan.
+     * @param previous  The complete token buffer of {@code oldSource}, including
+     *                  its trailing {@link TokenType#EOF} token.
+     * @param edit      The edit, expressed in {@code oldSource} offsets.
+     * @return The edited text and its tokens.
+     * @throws org.klar.core.errors.LexicalException if the relexed region is
+     *                                               lexically invalid.
+     */
+    public Result relex(String oldSource, LineIndex oldLines, List<Token> previous, TextEdit edit) {
+        String newSource = edit.applyTo(oldSource);
+        LineIndex newLines = oldLines.edited(edit.offset(), edit.removedLength(), edit.insertedText());
+
+        Position editStart = position(oldLines, edit.offset());
+        Position oldEnd = position(oldLines, edit.oldEnd());
+        Position newEnd = position(newLines, edit.newEnd());
+
+        int lineDelta = newEnd.line() - oldEnd.line();
+        int columnDelta = newEnd.column() - oldEnd.column();
+
+        // Restart one token before the last token that starts before the edit.
+        int lastBefore = lastTokenBefore(previous, editStart);
+        int restart = Math.max(0, lastBefore - 1);
+
+        int restartOffset = 0;
+        int restartLine = 1;
+        int restartColumn = 0;
+
+        if (lastBefore > 0) {
+            Token anchor = previous.get(restart);
+            restartLine = anchor.getLine();
+            restartColumn = anchor.getColumn();
+            restartOffset = oldLines.offsetOf(restartLine, restartColumn);
+        }
+
+        SourceManager sourceManager = new SourceManager(newSource);
+        sourceManager.attachLineIndex(newLines);
+
+        Lexer lexer = new Lexer(newSource, filePath, sourceManager, interner,
+                EXPECTED_RELEXED_TOKENS);
+        lexer.resumeAt(restartOffset, restartLine, restartColumn);
+
+        List<Token> fresh = new ArrayList<>(EXPECTED_RELEXED_TOKENS);
+        int cursor = restart;
+
+        while (true) {
+            Token token = lexer.nextToken();
+
+            if (token.getType() == TokenType.EOF) {
+                fresh.add(token);
+                return new Result(newSource, newLines, splice(previous, restart, fresh, previous.size(), 0, 0, 0),
+                        fresh.size());
+            }
+
+            if (!new Position(token.getLine(), token.getColumn()).isBefore(newEnd.line(), newEnd.column())) {
+                // Map the new position back to the previous buffer.
+                int oldLine = token.getLine() - lineDelta;
+                int oldColumn = token.getLine() == newEnd.line() ? token.getColumn() - columnDelta : token.getColumn();
+
+                while (cursor < previous.size()
+                        && new Position(previous.get(cursor).getLine(), previous.get(cursor).getColumn())
+                                .isBefore(oldLine, oldColumn)) {
+                    cursor++;
+                }
+
+                if (cursor < previous.size()
+                        && previous.get(cursor).getType() != TokenType.EOF
+                        && previous.get(cursor).getLine() == oldLine
+                        && previous.get(cursor).getColumn() == oldColumn) {
+                    List<Token> tokens = splice(previous, restart, fresh, cursor, oldEnd.line(), lineDelta,
+                            columnDelta);
+                    return new Result(newSource, newLines, tokens, fresh.size());
+                }
+            }
+
+            fresh.add(token);
+        }
+    }
+
+    /**
+     * Builds the new buffer in one copy: {@code previous[0, prefixLength)},
+     * then {@code fresh}, then {@code previous[tailStart, size)} shifted past
+     * the edit.
+     */
+    private static List<Token> splice(List<Token> previous, int prefixLength, List<Token> fresh, int tailStart,
+            int editedLine, int lineDelta, int columnDelta) {
+        List<Token> tokens = new ArrayList<>(prefixLength + fresh.size() + previous.size() - tailStart);
+        tokens.addAll(previous.subList(0, prefixLength));
+        tokens.addAll(fresh);
+
+        for (Token token : previous.subList(tailStart, previous.size())) {
+            if (token.getLine() == editedLine) {
+                tokens.add(new Token(token.type, token.value, token.line + lineDelta, token.column + columnDelta));
+            } else if (lineDelta != 0) {
+                tokens.add(new Token(token.type, token.value, token.line + lineDelta, token.column));
+            } else {
+                tokens.add(token);
+            }
+        }
+
+        return tokens;
+    }
+
+    /**
+     * @return The index of the last non-EOF token starting strictly before
+     *         {@code position}, or {@code -1}.
+     */
+    private static int lastTokenBefore(List<Token> tokens, Position position) {
+        int low = 0;
+        int high = tokens.size() - 1;
+        int found = -1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Token token = tokens.get(mid);
+
+            if (token.getType() != TokenType.EOF
+                    && new Position(token.getLine(), token.getColumn()).isBefore(position.line(), position.column())) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return found;
+    }
+
+    private static Position position(LineIndex lines, int offset) {
+        return new Position(lines.lineOf(offset), lines.columnOf(offset));
+    }
+}
@@ -1,12 +1,14 @@
 package org.klar.core.lexer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.klar.core.diagnostics.DiagnosticCode;
 import org.klar.core.errors.LexicalException;
+import org.klar.core.errors.LineIndex;
 import org.klar.core.errors.SourceLocation;
 import org.klar.core.errors.SourceManager;
 
@@ -34,7 +36,8 @@ import org.klar.core.errors.SourceManager;
  * {@code --}) and logical operators ({@code &&}, {@code ||}) in favor of
  * Klar's idiomatic syntax.</li>
  * <li><strong>String Interning:</strong> Uses a symbol table to canonicalize
- * identifiers, reducing memory usage.</li>
+ * identifiers, reducing memory usage. The table is either private to the lexer
+ * or a {@link SymbolInterner} shared by all lexers of a build.</li>
  * </ul>
  * 
  * @author Lucas Paulino Da Silva (~K')
@@ -55,12 +58,18 @@ public class Lexer {
     private final ArrayList<Token> tokens;
 
     private final SourceManager sourceManager;
+    private int[] lineStarts; // only recorded by a scan from offset 0
+    private int lineCount = 1;
     private final StringBuilder stringBuilder = new StringBuilder(255);
+    private boolean lastNumberIsDouble;
+
+    private static final String UNTERMINATED_STRING_EXAMPLE = "\"\"\"";
 
     private final HashMap<String, TokenType> tokensTypeByString = new HashMap<>(65, 1.0f);
     private final TokenType[] singleCharTokens = new TokenType[128];
 
-    private final Map<String, String> symbolTable = new HashMap<>(512, 0.75f);
+    private final Map<String, String> symbolTable;
+    private final SymbolInterner interner;
 
     /**
      * Constructs a new Lexer instance.
@@ -72,6 +81,27 @@ public class Lexer {
      *                      diagnostics.
      */
     public Lexer(String source, String filePath, SourceManager sourceManager) {
+        this(source, filePath, sourceManager, null);
+    }
+
+    /**
+     * Constructs a new Lexer instance that canonicalizes identifiers through a
+     * shared interning table.
+     *
+     * @param source        The raw source code string to be analyzed.
+     * @param filePath      The path to the file being processed (used for error
+     *                      reporting).
+     * @param sourceManager The manager responsible for handling source context and
+     *                      diagnostics.
+     * @param interner      The table shared by the lexers of the build, or
+     *                      {@code null} to use a table private to this lexer.
+     */
+    public Lexer(String source, String filePath, SourceManager sourceManager, SymbolInterner interner) {
+        this(source, filePath, sourceManager, interner, Math.max(16, source.length() / 4));
+    }
+
+    Lexer(String source, String filePath, SourceManager sourceManager, SymbolInterner interner,
+            int expectedTokens) {
         this.source = source;
         this.filePath = filePath;
 
@@ -80,8 +110,10 @@ public class Lexer {
 
         this.sourceManager = sourceManager;
         // Optimization: Estimate token count to avoid frequent array resizing
-        int estimedTokens = Math.max(16, source.length() / 4);
-        this.tokens = new ArrayList<>(estimedTokens);
+        this.tokens = new ArrayList<>(expectedTokens);
+
+        this.interner = interner;
+        this.symbolTable = interner == null ? new HashMap<>(512, 0.75f) : null;
 
         initialzerhashMapTokensTypes();
     }
@@ -99,6 +131,10 @@ public class Lexer {
      * @return The canonical instance of the string.
      */
     private String canonical(String s) {
+        if (interner != null) {
+            return interner.intern(s);
+        }
+
         String existing = symbolTable.get(s);
 
         if (existing != null) {
@@ -132,314 +168,379 @@ public class Lexer {
      */
     public List<Token> tokenizeSourceCode() {
         this.stringBuilder.setLength(0);
+        if (position == 0) {
+            this.lineStarts = new int[Math.max(16, length / 32)];
+        }
         while (!isAtEnd()) {
+            scanToken();
+        }
 
-            char c = peek();
+        tokens.add(TokenFactory.simple(TokenType.EOF, "\0", line, column));
+        tokens.trimToSize();
 
-            // Handle Whitespace
-            if (Character.isWhitespace(c)) {
-                advance();
-                if (c == '\n') {
-                    line++;
-                    column = 0;
-                }
-                continue;
-            }
+        if (lineStarts != null && sourceManager != null) {
+            sourceManager.attachLineIndex(new LineIndex(lineStarts, lineCount, length));
+        }
 
-            // Handle String Literals
-            if (c == '"') {
-                int startLine = this.line;
-                int startColumn = this.column; // Captura coluna inicial
+        return tokens;
+    }
 
-                advance();
+    /**
+     * Moves the scanner to a token boundary of the source.
+     * <p>
+     * Used by {@link IncrementalLexer}: the caller guarantees that
+     * {@code offset} is the start of a token whose position is
+     * {@code (line, column)}.
+     * </p>
+     */
+    void resumeAt(int offset, int line, int column) {
+        this.position = offset;
+        this.line = line;
+        this.column = column;
+        this.lineStarts = null;
+    }
 
-                String content = readString(startLine, startColumn);
-                tokens.add(new Token(
-                        TokenType.STRING_LITERAL,
-                        content,
-                        line,
-                        startColumn)); // CORREÇÃO: Usa startColumn, não position
+    /**
+     * Scans forward until one more token is produced.
+     *
+     * @return The next token, or an {@link TokenType#EOF} token when the end of
+     *         the source is reached.
+     */
+    Token nextToken() {
+        int produced = tokens.size();
 
-                continue;
-            }
+        while (!isAtEnd() && tokens.size() == produced) {
+            scanToken();
+        }
 
-            // Handle Character Literals
-            if (c == '\'') {
-                int startColumn = this.column; // Captura coluna inicial
-                advance();
+        if (tokens.size() == produced) {
+            return TokenFactory.simple(TokenType.EOF, "\0", line, column);
+        }
 
-                String content = readCharacter();
-                tokens.add(new Token(
-                        TokenType.CHARACTER_LITERAL,
-                        content,
-                        line,
-                        startColumn)); // CORREÇÃO: Usa startColumn, não position
+        return tokens.get(produced);
+    }
 
-                continue;
+    /**
+     * Called right after a line break was consumed. Records where the new line
+     * starts, so the {@link SourceManager} never has to rescan the source.
+     */
+    private void newLine() {
+        line++;
+        column = 0;
+
+        if (lineStarts != null) {
+            if (lineCount == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+            }
+            lineStarts[lineCount++] = position;
+        }
+    }
+
+    /**
+     * Scans the next lexeme starting at the current position.
+     * <p>
+     * Adds at most one token to the token list: whitespace and comments are
+     * consumed without producing a token. The only state carried between calls
+     * is the position/line/column triple, which is what allows
+     * {@link IncrementalLexer} to resume scanning at any token boundary.
+     * </p>
+     */
+    private void scanToken() {
+        char c = peek();
+
+        // Handle Whitespace
+        if (Character.isWhitespace(c)) {
+            advance();
+            if (c == '\n') {
+                newLine();
             }
+            return;
+        }
 
-            // Handle Identifiers and Keywords
-            if (Character.isLetter(c) || c == '_' || c == '$') {
-                int startColumn = this.column; // Captura coluna inicial
+        // Handle String Literals
+        if (c == '"') {
+            int startLine = this.line;
+            int startColumn = this.column; // Captura coluna inicial
 
-                if (c == '$' && !(Character.isLetter(peekNext()) || peekNext() == '_')) {
-                    String example = "integer $validName = 10; // ok\n  integer $ = 10; // invalid";
+            advance();
 
-                    lexicalError(
-                            DiagnosticCode.E001,
-                            "Invalid identifier format.",
-                            "Identifiers starting with '$' must be followed by a letter or underscore.",
-                            example,
-                            null,
-                            1);
-                }
+            String content = readString(startLine, startColumn);
+            tokens.add(new Token(
+                    TokenType.STRING_LITERAL,
+                    content,
+                    line,
+                    startColumn)); // CORREÇÃO: Usa startColumn, não position
 
-                String ident = readIdentifier();
-                ident = canonical(ident);
-                TokenType tokenType = tokensTypeByString.getOrDefault(ident, TokenType.IDENTIFIER);
+            return;
+        }
 
-                if (tokenType == TokenType.IDENTIFIER) {
-                    tokens.add(new Token(tokenType, ident, line, startColumn));
-                } else {
-                    tokens.add(new Token(tokenType, line, startColumn));
-                }
+        // Handle Character Literals
+        if (c == '\'') {
+            int startColumn = this.column; // Captura coluna inicial
+            advance();
 
-                continue;
-            }
+            String content = readCharacter();
+            tokens.add(new Token(
+                    TokenType.CHARACTER_LITERAL,
+                    content,
+                    line,
+                    startColumn)); // CORREÇÃO: Usa startColumn, não position
 
-            // Handle Numbers
-            if (Character.isDigit(c)) {
-                int startColumn = this.column; // Captura coluna inicial
-                String[] data = readNumber();
-                String num = data[0];
+            return;
+        }
 
-                if (data[1].equals("true")) {
-                    tokens.add(new Token(TokenType.DOUBLE_LITERAL, num, line, startColumn));
-                } else {
-                    tokens.add(new Token(TokenType.INTEGER_LITERAL, num, line, startColumn));
-                }
+        // Handle Identifiers and Keywords
+        if (Character.isLetter(c) || c == '_' || c == '$') {
+            int startColumn = this.column; // Captura coluna inicial
 
-                continue;
+            if (c == '$' && !(Character.isLetter(peekNext()) || peekNext() == '_')) {
+                String example = "integer $validName = 10; // ok\n  integer $ = 10; // invalid";
+
+                lexicalError(
+                        DiagnosticCode.E001,
+                        "Invalid identifier format.",
+                        "Identifiers starting with '$' must be followed by a letter or underscore.",
+                        example,
+                        null,
+                        1);
             }
 
-            // Handle Comments (Single-line)
-            if (peek() == '/' && peekNext() == '/') {
-                advance();
-                advance();
+            String ident = readIdentifier();
+            TokenType tokenType = tokensTypeByString.getOrDefault(ident, TokenType.IDENTIFIER);
 
-                while (!isAtEnd() && peek() != '\n') {
-                    advance();
-                }
+            if (tokenType == TokenType.IDENTIFIER) {
+                tokens.add(new Token(tokenType, ident, line, startColumn));
+            } else {
+                tokens.add(new Token(tokenType, line, startColumn));
+            }
 
-                continue;
+            return;
+        }
+
+        // Handle Numbers
+        if (Character.isDigit(c)) {
+            int startColumn = this.column; // Captura coluna inicial
+            String num = readNumber();
+
+            if (lastNumberIsDouble) {
+                tokens.add(new Token(TokenType.DOUBLE_LITERAL, num, line, startColumn));
+            } else {
+                tokens.add(new Token(TokenType.INTEGER_LITERAL, num, line, startColumn));
             }
 
-            // Handle Comments (Multi-line)
-            if (peek() == '/' && peekNext() == '*') {
-                advance();
+            return;
+        }
+
+        // Handle Comments (Single-line)
+        if (peek() == '/' && peekNext() == '/') {
+            advance();
+            advance();
+
+            while (!isAtEnd() && peek() != '\n') {
                 advance();
+            }
 
-                while (!isAtEnd()) {
+            return;
+        }
 
-                    if (peek() == '*' && peekNext() == '/') {
-                        advance();
-                        advance();
-                        break;
-                    }
+        // Handle Comments (Multi-line)
+        if (peek() == '/' && peekNext() == '*') {
+            advance();
+            advance();
 
-                    if (peek() == '\n') {
-                        line++;
-                        column = 0;
-                    }
+            while (!isAtEnd()) {
 
+                if (peek() == '*' && peekNext() == '/') {
+                    advance();
                     advance();
+                    break;
                 }
 
-                continue;
+                if (advance() == '\n') {
+                    newLine();
+                }
             }
 
-            // Handle Operators and Symbols
-            // CRUCIAL: Captura a coluna ANTES de avançar no switch
-            int tokenStart = this.column;
-            TokenType tokenType = c < 128 ? singleCharTokens[c] : null;
-            this.stringBuilder.setLength(0);
-
-            switch (c) {
-                case '@':
-                    advance();
-                    tokens.add(TokenFactory.simple(TokenType.AT, "@", line, tokenStart));
-                    continue;
+            return;
+        }
 
-                case '=':
-                    advance();
-                    if (match('=')) {
-                        tokens.add(TokenFactory.simple(TokenType.DOUBLEEQUAL, "==", line, tokenStart));
-                    } else {
-                        tokens.add(TokenFactory.simple(TokenType.ASSIGNMENT, "=", line, tokenStart));
-                    }
-                    continue;
+        // Handle Operators and Symbols
+        // CRUCIAL: Captura a coluna ANTES de avançar no switch
+        int tokenStart = this.column;
+        TokenType tokenType = c < 128 ? singleCharTokens[c] : null;
+        this.stringBuilder.setLength(0);
 
-                case '+':
-                    advance();
-                    this.stringBuilder.append('+');
-                    if (peek() == '+') {
-                        while (peek() == '+') {
-                            this.stringBuilder.append(advance());
-                        }
-
-                        lexicalError(
-                                DiagnosticCode.E001,
-                                "Unsupported operator '" + this.stringBuilder.toString() + "'.",
-                                "The increment operator '++' is not supported in K. Use explicit assignment.",
-                                "x = x + 1;",
-                                "K favors explicit modification over implicit increment effects.",
-                                this.stringBuilder.length());
-
-                    } else {
-                        tokens.add(TokenFactory.simple(TokenType.PLUS, "+", line, tokenStart));
-                    }
-                    continue;
+        switch (c) {
+            case '@':
+                advance();
+                tokens.add(TokenFactory.simple(TokenType.AT, "@", line, tokenStart));
+                return;
 
-                case '.':
-                    advance();
-                    tokens.add(TokenFactory.simple(TokenType.DOT, ".", line, tokenStart));
-                    continue;
+            case '=':
+                advance();
+                if (match('=')) {
+                    tokens.add(TokenFactory.simple(TokenType.DOUBLEEQUAL, "==", line, tokenStart));
+                } else {
+                    tokens.add(TokenFactory.simple(TokenType.ASSIGNMENT, "=", line, tokenStart));
+                }
+                return;
 
-                case '-':
-                    advance();
-                    if (peek() == '-') {
-                        this.stringBuilder.append('-');
-                        while (peek() == '-') {
-                            this.stringBuilder.append(advance());
-                        }
-
-                        lexicalError(
-                                DiagnosticCode.E001,
-                                "Unsupported operator '" + this.stringBuilder.toString() + "'.",
-                                "The decrement operator '--' is not supported in K. Use explicit assignment.",
-                                "x = x - 1;",
-                                "K favors explicit modification over implicit decrement effects.",
-                                this.stringBuilder.length());
-
-                    } else if (peek() == '>') {
-                        this.stringBuilder.append('>');
-                        while (peek() == '-' || peek() == '>') {
-                            this.stringBuilder.append(advance());
-                        }
-
-                        lexicalError(
-                                DiagnosticCode.E001,
-                                "Invalid operator sequence '" + this.stringBuilder.toString() + "'.",
-                                "This sequence is not recognized as a valid operator.",
-                                null,
-                                null,
-                                this.stringBuilder.length());
-                    } else {
-                        tokens.add(TokenFactory.simple(TokenType.MINUS, "-", line, tokenStart));
+            case '+':
+                advance();
+                this.stringBuilder.append('+');
+                if (peek() == '+') {
+                    while (peek() == '+') {
+                        this.stringBuilder.append(advance());
                     }
-                    continue;
 
-                case '*':
-                    advance();
-                    this.stringBuilder.append('*');
-
-                    if (peek() == '*') {
-                        while (peek() == '*') {
-                            this.stringBuilder.append(advance());
-                        }
-
-                        lexicalError(
-                                DiagnosticCode.E001,
-                                "Unsupported operator '" + this.stringBuilder.toString() + "'.",
-                                "The power operator '**' is not supported.",
-                                "double res = Mathematics.power(base, exponent);",
-                                "The Mathematics standard library is not yet implemented. Use manual multiplication for powers in the meantime.",
-                                this.stringBuilder.length());
-                    } else {
-                        tokens.add(TokenFactory.simple(TokenType.MULTIPLY, "*", line, tokenStart));
-                    }
-                    continue;
+                    lexicalError(
+                            DiagnosticCode.E001,
+                            "Unsupported operator '" + this.stringBuilder.toString() + "'.",
+                            "The increment operator '++' is not supported in K. Use explicit assignment.",
+                            "x = x + 1;",
+                            "K favors explicit modification over implicit increment effects.",
+                            this.stringBuilder.length());
 
-                case '>':
-                    advance();
-                    if (match('=')) {
-                        tokens.add(TokenFactory.simple(TokenType.GTE, ">=", line, tokenStart));
-                    } else {
-                        tokens.add(TokenFactory.simple(TokenType.GT, ">", line, tokenStart));
-                    }
-                    continue;
+                } else {
+                    tokens.add(TokenFactory.simple(TokenType.PLUS, "+", line, tokenStart));
+                }
+                return;
 
-                case '<':
-                    advance();
-                    if (match('=')) {
-                        tokens.add(TokenFactory.simple(TokenType.LTE, "<=", line, tokenStart));
-                    } else {
-                        tokens.add(TokenFactory.simple(TokenType.LT, "<", line, tokenStart));
-                    }
-                    continue;
+            case '.':
+                advance();
+                tokens.add(TokenFactory.simple(TokenType.DOT, ".", line, tokenStart));
+                return;
 
-                case '!':
-                    advance();
-                    if (match('=')) {
-                        tokens.add(TokenFactory.simple(TokenType.NOTEQUAL, "!=", line, tokenStart));
-                    } else {
-                        tokens.add(TokenFactory.simple(TokenType.BANG, "!", line, tokenStart));
+            case '-':
+                advance();
+                if (peek() == '-') {
+                    this.stringBuilder.append('-');
+                    while (peek() == '-') {
+                        this.stringBuilder.append(advance());
                     }
-                    continue;
 
-                case '&':
-                    advance();
-                    this.stringBuilder.append("&");
+                    lexicalError(
+                            DiagnosticCode.E001,
+                            "Unsupported operator '" + this.stringBuilder.toString() + "'.",
+                            "The decrement operator '--' is not supported in K. Use explicit assignment.",
+                            "x = x - 1;",
+                            "K favors explicit modification over implicit decrement effects.",
+                            this.stringBuilder.length());
 
-                    while (peek() == '&') {
+                } else if (peek() == '>') {
+                    this.stringBuilder.append('>');
+                    while (peek() == '-' || peek() == '>') {
                         this.stringBuilder.append(advance());
                     }
 
                     lexicalError(
                             DiagnosticCode.E001,
-                            "Unsupported operator '" + this.stringBuilder.toString() + "'.",
-                            "Use the keyword 'and' for logical conjunction.",
-                            "if (isValid and isReady) {\n      ...\n  }",
-                            "K uses readable keywords ('and', 'or') instead of C-style symbols.",
+                            "Invalid operator sequence '" + this.stringBuilder.toString() + "'.",
+                            "This sequence is not recognized as a valid operator.",
+                            null,
+                            null,
                             this.stringBuilder.length());
-                    break;
+                } else {
+                    tokens.add(TokenFactory.simple(TokenType.MINUS, "-", line, tokenStart));
+                }
+                return;
 
-                case '|':
-                    advance();
-                    this.stringBuilder.append("|");
+            case '*':
+                advance();
+                this.stringBuilder.append('*');
 
-                    while (peek() == '|') {
+                if (peek() == '*') {
+                    while (peek() == '*') {
                         this.stringBuilder.append(advance());
                     }
 
                     lexicalError(
                             DiagnosticCode.E001,
                             "Unsupported operator '" + this.stringBuilder.toString() + "'.",
-                            "Use the keyword 'or' for logical disjunction.",
-                            "if (isA or isB) {\n      ...\n  }",
-                            "K uses readable keywords ('and', 'or') instead of C-style symbols.",
+                            "The power operator '**' is not supported.",
+                            "double res = Mathematics.power(base, exponent);",
+                            "The Mathematics standard library is not yet implemented. Use manual multiplication for powers in the meantime.",
                             this.stringBuilder.length());
-                    break;
-            }
+                } else {
+                    tokens.add(TokenFactory.simple(TokenType.MULTIPLY, "*", line, tokenStart));
+                }
+                return;
+
+            case '>':
+                advance();
+                if (match('=')) {
+                    tokens.add(TokenFactory.simple(TokenType.GTE, ">=", line, tokenStart));
+                } else {
+                    tokens.add(TokenFactory.simple(TokenType.GT, ">", line, tokenStart));
+                }
+                return;
+
+            case '<':
+                advance();
+                if (match('=')) {
+                    tokens.add(TokenFactory.simple(TokenType.LTE, "<=", line, tokenStart));
+                } else {
+                    tokens.add(TokenFactory.simple(TokenType.LT, "<", line, tokenStart));
+                }
+                return;
+
+            case '!':
+                advance();
+                if (match('=')) {
+                    tokens.add(TokenFactory.simple(TokenType.NOTEQUAL, "!=", line, tokenStart));
+                } else {
+                    tokens.add(TokenFactory.simple(TokenType.BANG, "!", line, tokenStart));
+                }
+                return;
+
+            case '&':
+                advance();
+                this.stringBuilder.append("&");
+
+                while (peek() == '&') {
+                    this.stringBuilder.append(advance());
+                }
 
-            if (tokenType == null) {
                 lexicalError(
                         DiagnosticCode.E001,
-                        "Unexpected character '" + c + "'.",
-                        "Remove or replace this character.",
-                        null,
-                        "This character is not valid in the source code context.",
-                        1);
-            }
+                        "Unsupported operator '" + this.stringBuilder.toString() + "'.",
+                        "Use the keyword 'and' for logical conjunction.",
+                        "if (isValid and isReady) {\n      ...\n  }",
+                        "K uses readable keywords ('and', 'or') instead of C-style symbols.",
+                        this.stringBuilder.length());
+                break;
+
+            case '|':
+                advance();
+                this.stringBuilder.append("|");
 
-            // CORREÇÃO: Usa tokenStart aqui também, pois é um singleCharToken
-            tokens.add(TokenFactory.simple(tokenType, String.valueOf(c), line, tokenStart));
-            advance();
+                while (peek() == '|') {
+                    this.stringBuilder.append(advance());
+                }
+
+                lexicalError(
+                        DiagnosticCode.E001,
+                        "Unsupported operator '" + this.stringBuilder.toString() + "'.",
+                        "Use the keyword 'or' for logical disjunction.",
+                        "if (isA or isB) {\n      ...\n  }",
+                        "K uses readable keywords ('and', 'or') instead of C-style symbols.",
+                        this.stringBuilder.length());
+                break;
         }
 
-        tokens.add(TokenFactory.simple(TokenType.EOF, "\0", line, column));
-        tokens.trimToSize();
-        return tokens;
+        if (tokenType == null) {
+            lexicalError(
+                    DiagnosticCode.E001,
+                    "Unexpected character '" + c + "'.",
+                    "Remove or replace this character.",
+                    null,
+                    "This character is not valid in the source code context.",
+                    1);
+        }
+
+        // CORREÇÃO: Usa tokenStart aqui também, pois é um singleCharToken
+        tokens.add(TokenFactory.simple(tokenType, String.valueOf(c), line, tokenStart));
+        advance();
     }
 
     /**
@@ -460,7 +561,7 @@ public class Lexer {
     private String readString(int startLine, int startColumn) {
         this.stringBuilder.setLength(0);
         this.stringBuilder.append("\"");
-        String example = "\"" + this.stringBuilder.toString().strip() + "\"";
+        String example = UNTERMINATED_STRING_EXAMPLE;
 
         while (!isAtEnd()) {
             char c = advance();
@@ -562,6 +663,16 @@ public class Lexer {
         char c = advance();
         String value;
 
+        if (c == '\n') {
+            lexicalError(
+                    DiagnosticCode.E104,
+                    "Unclosed character literal.",
+                    "Character literals cannot span multiple lines. Use the escape sequence '\\n'.",
+                    "character c = '\\n';",
+                    null,
+                    errorLength);
+        }
+
         if (c == '\\') {
             if (isAtEnd()) {
                 String example = "\'\\n\'";
@@ -672,12 +783,13 @@ public class Lexer {
      * indicate a malformed identifier or invalid syntax.
      * </p>
      * 
-     * @return The string representation of the number.
+     * @return The string representation of the number; whether it is a floating
+     *         point literal is left in {@code lastNumberIsDouble}.
      * @throws LexicalException if the number format is invalid.
      */
-    private String[] readNumber() {
+    private String readNumber() {
         this.stringBuilder.setLength(0);
-        String isDouble = "false";
+        this.lastNumberIsDouble = false;
 
         this.stringBuilder.append(advance());
 
@@ -686,7 +798,7 @@ public class Lexer {
         }
 
         if (peek() == '.' && Character.isDigit(peekNext())) {
-            isDouble = "true";
+            this.lastNumberIsDouble = true;
             this.stringBuilder.append(advance());
 
             while (Character.isDigit(peek())) {
@@ -713,7 +825,7 @@ public class Lexer {
                     (errorLenth));
         }
 
-        return new String[] { this.stringBuilder.toString(), isDouble };
+        return this.stringBuilder.toString();
     }
 
     // Utility methods
@@ -776,7 +888,7 @@ public class Lexer {
         throw new LexicalException(
                 code,
                 new SourceLocation(filePath, line, Math.max(column - 1, 0)),
-                sourceManager.getContextLines(line, 2),
+                sourceManager,
                 cause,
                 fix,
                 example,
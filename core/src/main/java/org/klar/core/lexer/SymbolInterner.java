@@ -0,0 +1,107 @@
+package org.klar.core.lexer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide identifier interning table shared by every {@link Lexer} of a
+ * build (or of a long-lived daemon session).
+ * <p>
+ * A per-lexer symbol table only deduplicates identifiers inside one file, so a
+ * multi-file build still keeps one {@code "main"} or {@code "println"} per
+ * file. Lexers constructed with a {@code SymbolInterner} canonicalize through
+ * this table instead, so identical names coming from different files resolve to
+ * the same {@link String} instance. Later phases ({@code FunctionTable},
+ * {@code TypeContext}) then hit the identity fast path of
+ * {@link String#equals(Object)} on every lookup.
+ * </p>
+ * <p>
+ * Lookups are lock-free ({@link ConcurrentHashMap#get(Object)}); insertions
+ * only contend on the bin being written. For long-lived processes the table
+ * uses epoch-based eviction: every hit stamps the symbol with the current
+ * epoch, and {@link #advanceEpoch(int)} drops symbols that were not used in the
+ * last {@code retainedEpochs} epochs. Identity is therefore guaranteed for the
+ * symbols of one epoch window, which is what a single build needs. The build
+ * closes an epoch when it ends, so a long-lived process only keeps the
+ * identifiers of the files it built last.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class SymbolInterner {
+
+    private static final SymbolInterner SHARED = new SymbolInterner(1024);
+
+    private final ConcurrentHashMap<String, Symbol> table;
+    private final AtomicInteger epoch = new AtomicInteger();
+
+    private static final class Symbol {
+        final String value;
+        volatile int lastEpoch;
+
+        Symbol(String value, int lastEpoch) {
+            this.value = value;
+            this.lastEpoch = lastEpoch;
+        }
+    }
+
+    public SymbolInterner(int expectedSymbols) {
+        this.table = new ConcurrentHashMap<>(Math.max(16, expectedSymbols));
+    }
+
+    /**
+     * @return The interner shared by all lexers of this process.
+     */
+    public static SymbolInterner shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the canonical instance of {@code s}, registering it if needed.
+     *
+     * @param s The identifier to canonicalize.
+     * @return The canonical instance of the identifier.
+     */
+    public String intern(String s) {
+        int now = epoch.get();
+        Symbol symbol = table.get(s);
+
+        if (symbol == null) {
+            Symbol created = new Symbol(s, now);
+            symbol = table.putIfAbsent(s, created);
+
+            if (symbol == null) {
+                return s;
+            }
+        }
+
+        // Only write when the epoch changed, so hot symbols are not written
+        // (and their cache line invalidated) on every hit.
+        if (symbol.lastEpoch != now) {
+            symbol.lastEpoch = now;
+        }
+
+        return symbol.value;
+    }
+
+    /**
+     * Closes the current epoch and evicts symbols that were not interned during
+     * the last {@code retainedEpochs} epochs.
+     *
+     * @param retainedEpochs How many epochs (including the one being closed) a
+     *                       symbol survives without being used.
+     * @return The number of evicted symbols.
+     */
+    public int advanceEpoch(int retainedEpochs) {
+        int now = epoch.incrementAndGet();
+        int oldest = now - Math.max(1, retainedEpochs);
+        int before = table.size();
+
+        table.values().removeIf(symbol -> symbol.lastEpoch < oldest);
+        return Math.max(0, before - table.size());
+    }
+
+    public int size() {
+        return table.size();
+    }
+}
@@ -0,0 +1,52 @@
+package org.klar.core.lexer;
+
+/**
+ * A single text replacement applied to a source file: {@code removedLength}
+ * characters starting at {@code offset} are replaced by {@code insertedText}.
+ *
+ * @since 0.15
+ */
+public record TextEdit(int offset, int removedLength, String insertedText) {
+
+    public TextEdit {
+        if (offset < 0 || removedLength < 0) {
+            throw new IllegalArgumentException("Invalid edit range: offset=" + offset + ", removed=" + removedLength);
+        }
+
+        if (insertedText == null) {
+            insertedText = "";
+        }
+    }
+
+    /**
+     * @return The first offset after the removed range, in the original text.
+     */
+    public int oldEnd() {
+        return offset + removedLength;
+    }
+
+    /**
+     * @return The first offset after the inserted text, in the edited text.
+     */
+    public int newEnd() {
+        return offset + insertedText.length();
+    }
+
+    /**
+     * Applies this edit to {@code source}.
+     *
+     * @throws IllegalArgumentException if the edit does not fit the source.
+     */
+    public String applyTo(String source) {
+        if (oldEnd() > source.length()) {
+            throw new IllegalArgumentException(
+                    "Edit [" + offset + ", " + oldEnd() + ") is out of bounds for length " + source.length());
+        }
+
+        return new StringBuilder(source.length() - removedLength + insertedText.length())
+                .append(source, 0, offset)
+                .append(insertedText)
+                .append(source, oldEnd(), source.length())
+                .toString();
+    }
+}
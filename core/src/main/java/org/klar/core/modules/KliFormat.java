@@ -0,0 +1,284 @@
+package org.klar.core.modules;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.klar.core.semantics.ArrayTypeSymbol;
+import org.klar.core.semantics.FunctionSymbol;
+import org.klar.core.semantics.PrimitiveTypeSymbol;
+import org.klar.core.semantics.Type;
+import org.klar.core.semantics.TypeSymbol;
+
+/**
+ * Binary {@code .kli} interface file of a module, written next to its
+ * generated Java so importers are checked without parsing the module again.
+ * <p>
+ * Integers are big-endian; strings are a 4-byte length followed by UTF-8. The
+ * layout is:
+ * </p>
+ * <ul>
+ * <li><strong>header:</strong> the bytes {@code KLIF}, {@link #VERSION}, a
+ * fingerprint of the {@link Type} constants, the hash of the source the
+ * interface was built from, and the signature hash of the summary.</li>
+ * <li><strong>module:</strong> qualified name, owner class and imported
+ * module names.</li>
+ * <li><strong>functions:</strong> name, return type and parameter types.
+ * A type is a flag byte ({@code 1} for arrays) and a {@link Type}
+ * ordinal.</li>
+ * <li><strong>constants:</strong> name, type, and the value behind a tag
+ * byte: {@code I}nteger, {@code D}ouble, {@code B}oolean or
+ * {@code S}tring.</li>
+ * <li><strong>trailer:</strong> a CRC-32 of everything before it.</li>
+ * </ul>
+ * <p>
+ * Reading returns {@code null} unless the header matches the running compiler
+ * and the given source hash, and the decoded summary hashes to the stored
+ * signature hash.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class KliFormat {
+    public static final String EXTENSION = ".kli";
+
+    /** Bumped whenever the layout changes. */
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = { 'K', 'L', 'I', 'F' };
+    private static final int SCHEMA = schemaFingerprint();
+
+    private KliFormat() {
+    }
+
+    /**
+     * Writes the interface of a module, replacing {@code file} atomically.
+     *
+     * @param sourceHash Hash of the source {@code summary} was taken from.
+     */
+    public static void write(ModuleSummary summary, List<String> imports, byte[] sourceHash, Path file)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.write(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(SCHEMA);
+        writeBytes(out, sourceHash);
+        writeBytes(out, summary.signatureHash());
+
+        writeString(out, summary.name());
+        writeString(out, summary.owner());
+        out.writeInt(imports.size());
+        for (String imported : imports) {
+            writeString(out, imported);
+        }
+
+        out.writeInt(summary.functions().size());
+        for (FunctionSymbol function : summary.functions()) {
+            writeString(out, function.name);
+            writeType(out, function.returnType);
+            out.writeInt(function.parameters.size());
+            for (TypeSymbol parameter : function.parameters) {
+                writeType(out, parameter);
+            }
+        }
+
+        out.writeInt(summary.constants().size());
+        for (ModuleSummary.Constant constant : summary.constants()) {
+            writeString(out, constant.name());
+            writeType(out, constant.type());
+            writeValue(out, constant.value());
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, bytes.toByteArray());
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the interface in {@code file}, or {@code null} if it is missing,
+     *         stale or unreadable
+     */
+    public static ModuleInterface read(Path file, byte[] sourceHash) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer, sourceHash);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decodes an interface image.
+     *
+     * @return the interface, or {@code null} if the image does not belong to
+     *         {@code sourceHash} or is damaged
+     */
+    public static ModuleInterface decode(ByteBuffer buffer, byte[] sourceHash) {
+        try {
+            if (!checksumMatches(buffer)) {
+                return null;
+            }
+
+            ByteBuffer in = buffer.duplicate().limit(buffer.limit() - 4);
+            byte[] magic = new byte[MAGIC.length];
+            in.get(magic);
+            if (!Arrays.equals(magic, MAGIC)
+                    || in.getInt() != VERSION
+                    || in.getInt() != SCHEMA
+                    || !Arrays.equals(readBytes(in), sourceHash)) {
+                return null;
+            }
+            byte[] signatureHash = readBytes(in);
+
+            String name = readString(in);
+            String owner = readString(in);
+            List<String> imports = new ArrayList<>();
+            for (int i = count(in); i > 0; i--) {
+                imports.add(readString(in));
+            }
+
+            List<FunctionSymbol> functions = new ArrayList<>();
+            for (int i = count(in); i > 0; i--) {
+                String functionName = readString(in);
+                TypeSymbol returnType = readType(in);
+                List<TypeSymbol> parameters = new ArrayList<>();
+                for (int p = count(in); p > 0; p--) {
+                    parameters.add(readType(in));
+                }
+                functions.add(new FunctionSymbol(functionName, returnType, List.copyOf(parameters), owner));
+            }
+
+            List<ModuleSummary.Constant> constants = new ArrayList<>();
+            for (int i = count(in); i > 0; i--) {
+                constants.add(new ModuleSummary.Constant(readString(in), readType(in), readValue(in)));
+            }
+
+            if (in.hasRemaining()) {
+                return null;
+            }
+
+            ModuleSummary summary = new ModuleSummary(name, owner, functions, constants);
+            return summary.hasSignatureHash(signatureHash) ? new ModuleInterface(summary, imports) : null;
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static boolean checksumMatches(ByteBuffer buffer) {
+        int end = buffer.limit() - 4;
+        if (end < MAGIC.length) {
+            return false;
+        }
+
+        byte[] body = new byte[end];
+        buffer.duplicate().position(0).get(body);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue() == buffer.getInt(end);
+    }
+
+    private static int schemaFingerprint() {
+        int hash = 1;
+        for (Type type : Type.values()) {
+            hash = 31 * hash + type.name().hashCode();
+        }
+        return hash;
+    }
+
+    private static void writeType(DataOutputStream out, TypeSymbol type) throws IOException {
+        if (type instanceof ArrayTypeSymbol a) {
+            out.writeByte(1);
+            out.writeByte(a.elementType.ordinal());
+        } else if (type instanceof PrimitiveTypeSymbol p) {
+            out.writeByte(0);
+            out.writeByte(p.type.ordinal());
+        } else {
+            throw new IllegalArgumentException("Cannot write type " + type);
+        }
+    }
+
+    private static TypeSymbol readType(ByteBuffer in) {
+        boolean array = in.get() == 1;
+        Type type = Type.values()[in.get()];
+        return array ? ArrayTypeSymbol.of(type) : PrimitiveTypeSymbol.of(type, true);
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value instanceof Integer i) {
+            out.writeByte('I');
+            out.writeInt(i);
+        } else if (value instanceof Double d) {
+            out.writeByte('D');
+            out.writeDouble(d);
+        } else if (value instanceof Boolean b) {
+            out.writeByte('B');
+            out.writeBoolean(b);
+        } else if (value instanceof String s) {
+            out.writeByte('S');
+            writeString(out, s);
+        } else {
+            throw new IllegalArgumentException("Cannot write constant " + value);
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        return switch (in.get()) {
+            case 'I' -> in.getInt();
+            case 'D' -> in.getDouble();
+            case 'B' -> in.get() != 0;
+            case 'S' -> readString(in);
+            default -> throw new IllegalArgumentException("Unknown constant tag");
+        };
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(ByteBuffer in) {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        byte[] value = new byte[count(in)];
+        in.get(value);
+        return value;
+    }
+
+    /**
+     * Reads a length or count, rejecting values the remaining bytes cannot
+     * hold so a damaged file cannot trigger a huge allocation.
+     */
+    private static int count(ByteBuffer in) {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining()) {
+            throw new IllegalArgumentException("Bad count " + count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,168 @@
+package org.klar.core.modules;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Import graph of the modules in a build.
+ * <p>
+ * Modules are identified by their qualified name. The graph is ordered into
+ * <strong>waves</strong>: the first wave holds the modules that import
+ * nothing, and each later wave the modules whose imports are all in earlier
+ * waves. Modules of one wave do not depend on each other and can be built
+ * concurrently.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class ModuleGraph {
+    private final Map<String, List<String>> imports = new LinkedHashMap<>();
+    private final Map<String, String> classNames = new HashMap<>();
+
+    /**
+     * Adds a module and the modules it imports. Imports that are never added
+     * themselves are ignored when ordering.
+     */
+    public void add(String module, List<String> imported) {
+        imports.put(module, List.copyOf(imported));
+    }
+
+    /**
+     * Adds a module, the Java class it is transpiled to, and the modules it
+     * imports.
+     */
+    public void add(String module, String className, List<String> imported) {
+        add(module, imported);
+        classNames.put(module, className);
+    }
+
+    public boolean contains(String module) {
+        return imports.containsKey(module);
+    }
+
+    /**
+     * @return the modules {@code module} imports
+     */
+    public List<String> importsOf(String module) {
+        return imports.getOrDefault(module, List.of());
+    }
+
+    /**
+     * Finds two modules transpiled to the same Java class, whose outputs
+     * would overwrite each other.
+     *
+     * @return the two modules, in the order they were added, or an empty list
+     *         if every class name is distinct
+     */
+    public List<String> clash() {
+        Map<String, String> owners = new HashMap<>();
+        for (String module : imports.keySet()) {
+            String className = classNames.get(module);
+            if (className == null) {
+                continue;
+            }
+            String previous = owners.putIfAbsent(className, module);
+            if (previous != null) {
+                return List.of(previous, module);
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Finds an import cycle.
+     *
+     * @return the modules of a cycle, starting and ending with the same module,
+     *         or an empty list if the graph is acyclic
+     */
+    public List<String> cycle() {
+        Map<String, Integer> state = new HashMap<>(); // 1 = on the path, 2 = done
+        List<String> path = new ArrayList<>();
+
+        for (String module : imports.keySet()) {
+            List<String> cycle = findCycle(module, state, path);
+            if (!cycle.isEmpty()) {
+                return cycle;
+            }
+        }
+        return List.of();
+    }
+
+    private List<String> findCycle(String module, Map<String, Integer> state, List<String> path) {
+        Integer current = state.get(module);
+        if (current != null) {
+            if (current == 1) {
+                List<String> cycle = new ArrayList<>(path.subList(path.indexOf(module), path.size()));
+                cycle.add(module);
+                return cycle;
+            }
+            return List.of();
+        }
+
+        state.put(module, 1);
+        path.add(module);
+        for (String imported : importsOf(module)) {
+            if (contains(imported)) {
+                List<String> cycle = findCycle(imported, state, path);
+                if (!cycle.isEmpty()) {
+                    return cycle;
+                }
+            }
+        }
+        path.remove(path.size() - 1);
+        state.put(module, 2);
+        return List.of();
+    }
+
+    /**
+     * Orders the modules into waves. Within a wave, modules keep the order in
+     * which they were added.
+     *
+     * @throws IllegalStateException if the graph has a cycle, see
+     *                               {@link #cycle()}
+     */
+    public List<List<String>> waves() {
+        Map<String, Integer> wave = new HashMap<>();
+        List<List<String>> waves = new ArrayList<>();
+        int placed = 0;
+
+        while (placed < imports.size()) {
+            int current = waves.size();
+            List<String> next = new ArrayList<>();
+
+            for (Map.Entry<String, List<String>> entry : imports.entrySet()) {
+                if (!wave.containsKey(entry.getKey()) && importsPlaced(entry.getValue(), wave, current)) {
+                    next.add(entry.getKey());
+                }
+            }
+
+            if (next.isEmpty()) {
+                throw new IllegalStateException("Import cycle: " + String.join(" -> ", cycle()));
+            }
+
+            for (String module : next) {
+                wave.put(module, current);
+            }
+            placed += next.size();
+            waves.add(Collections.unmodifiableList(next));
+        }
+
+        return Collections.unmodifiableList(waves);
+    }
+
+    private boolean importsPlaced(List<String> imported, Map<String, Integer> wave, int current) {
+        for (String module : imported) {
+            if (contains(module)) {
+                Integer placedIn = wave.get(module);
+                if (placedIn == null || placedIn >= current) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,17 @@
+package org.klar.core.modules;
+
+import java.util.List;
+
+/**
+ * Contents of a {@code .kli} file: what a module exports and which modules it
+ * imports, enough to check its importers and to order the build without
+ * parsing it.
+ *
+ * @param imports Qualified names of the imported modules, in source order.
+ * @since 0.15
+ */
+public record ModuleInterface(ModuleSummary summary, List<String> imports) {
+    public ModuleInterface {
+        imports = List.copyOf(imports);
+    }
+}
@@ -0,0 +1,116 @@
+package org.klar.core.modules;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.klar.core.diagnostics.DiagnosticCode;
+import org.klar.core.errors.SemanticException;
+import org.klar.core.errors.SourceLocation;
+import org.klar.core.errors.SourceManager;
+import org.klar.core.lexer.Token;
+import org.klar.core.parser.ast.ImportDeclarationNode;
+import org.klar.core.parser.ast.flat.FlatAst;
+import org.klar.core.parser.ast.flat.FlatNodeKind;
+
+/**
+ * Maps import declarations to source files.
+ * <p>
+ * {@code import a.b;} names the file {@code a/b.kl} (or {@code a/b.klar})
+ * under the root directory, which is the directory of the file being built.
+ * The module is transpiled to a Java class named after its whole qualified
+ * name, {@code a_b}, so {@code a.util} and {@code b.util} do not share a
+ * class. Names that still meet, such as {@code a.b} and {@code a_b}, are
+ * reported by {@link ModuleGraph#clash()}.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class ModuleResolver {
+    /** Source extensions, in lookup order. */
+    public static final List<String> EXTENSIONS = List.of(".kl", ".klar");
+
+    private final Path root;
+
+    public ModuleResolver(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * @return the dotted name of the imported module, e.g. {@code a.b}
+     */
+    public static String qualifiedName(ImportDeclarationNode node) {
+        StringBuilder sb = new StringBuilder();
+        for (Token segment : node.path) {
+            if (sb.length() > 0) {
+                sb.append('.');
+            }
+            sb.append(segment.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param node An {@link FlatNodeKind#IMPORT} node of {@code ast}.
+     * @return the dotted name of the imported module, e.g. {@code a.b}
+     */
+    public static String qualifiedName(FlatAst ast, int node) {
+        StringBuilder sb = new StringBuilder();
+        for (int segment = ast.firstChild(node); segment != FlatAst.NONE; segment = ast.nextSibling(segment)) {
+            if (sb.length() > 0) {
+                sb.append('.');
+            }
+            sb.append(ast.text(segment));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the Java class a module with this qualified name is
+     *         transpiled to, its segments joined by {@code _}
+     */
+    public static String className(String qualifiedName) {
+        return qualifiedName.replace('.', '_');
+    }
+
+    /**
+     * @return the source file of the module with this qualified name, or
+     *         {@code null} if there is none
+     */
+    public Path find(String qualifiedName) {
+        String relative = qualifiedName.replace('.', '/');
+
+        for (String extension : EXTENSIONS) {
+            Path candidate = root.resolve(relative + extension);
+            if (Files.isRegularFile(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the source file of an imported module.
+     *
+     * @param importer      File that contains {@code node}, for the diagnostic.
+     * @param sourceManager Source of {@code importer}.
+     * @throws SemanticException {@link DiagnosticCode#E218} if no file matches
+     */
+    public Path resolve(ImportDeclarationNode node, Path importer, SourceManager sourceManager) {
+        Path source = find(qualifiedName(node));
+        if (source != null) {
+            return source;
+        }
+
+        String relative = qualifiedName(node).replace('.', '/');
+        throw new SemanticException(
+                DiagnosticCode.E218,
+                new SourceLocation(importer.toString(), node.line, node.column),
+                sourceManager,
+                "Module '" + qualifiedName(node) + "' not found",
+                "Create " + root.resolve(relative + EXTENSIONS.get(0)) + " or fix the import path",
+                null,
+                null,
+                1);
+    }
+}
@@ -0,0 +1,247 @@
+package org.klar.core.modules;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.klar.core.parser.ast.AccessModifier;
+import org.klar.core.parser.ast.ConstantDeclarationNode;
+import org.klar.core.parser.ast.ExpressionNode;
+import org.klar.core.parser.ast.FunctionDeclarationNode;
+import org.klar.core.parser.ast.ParameterNode;
+import org.klar.core.parser.ast.ProgramNode;
+import org.klar.core.parser.ast.StatementNode;
+import org.klar.core.parser.ast.flat.FlatAst;
+import org.klar.core.parser.ast.flat.FlatNodeKind;
+import org.klar.core.semantics.ArrayTypeSymbol;
+import org.klar.core.semantics.ConstantEvaluator;
+import org.klar.core.semantics.FunctionSymbol;
+import org.klar.core.semantics.PrimitiveTypeSymbol;
+import org.klar.core.semantics.TypeChecker;
+import org.klar.core.semantics.TypeSymbol;
+
+/**
+ * What a module exports: the signatures of its {@code public} functions and
+ * the values of its top-level constants.
+ * <p>
+ * A summary is all an importer needs to be checked and transpiled, so it is
+ * read from the declarations alone and never looks at function bodies.
+ * </p>
+ * <ul>
+ * <li><strong>name:</strong> the qualified name importers use, e.g.
+ * {@code math.vectors}.</li>
+ * <li><strong>owner:</strong> the Java class the module is transpiled to;
+ * every exported {@link FunctionSymbol} carries it.</li>
+ * <li><strong>signature hash:</strong> SHA-256 over the exported signatures
+ * and constants. Importers only need rebuilding when it changes.</li>
+ * </ul>
+ *
+ * @since 0.15
+ */
+public final class ModuleSummary {
+    private final String name;
+    private final String owner;
+    private final List<FunctionSymbol> functions;
+    private final List<Constant> constants;
+    private final byte[] signatureHash;
+
+    /**
+     * A top-level constant whose value is known at compile time.
+     *
+     * @param value An {@link Integer}, {@link Double}, {@link Boolean} or
+     *              {@link String}, see {@link ConstantEvaluator}.
+     */
+    public record Constant(String name, TypeSymbol type, Object value) {
+    }
+
+    /**
+     * @param functions Exported functions, in declaration order. Their owner is
+     *                  expected to be {@code owner}.
+     * @param constants Exported constants, in declaration order.
+     */
+    public ModuleSummary(String name, String owner, List<FunctionSymbol> functions, List<Constant> constants) {
+        this.name = name;
+        this.owner = owner;
+        this.functions = List.copyOf(functions);
+        this.constants = List.copyOf(constants);
+        this.signatureHash = hash(this.functions, this.constants);
+    }
+
+    /**
+     * Summarizes the {@code public} functions of a parsed module, except
+     * {@code main}, and its top-level constants with a compile-time value.
+     */
+    public static ModuleSummary of(String name, String owner, ProgramNode program) {
+        List<FunctionSymbol> functions = new ArrayList<>();
+        List<Constant> constants = new ArrayList<>();
+        Map<String, Object> values = new HashMap<>();
+
+        for (StatementNode statement : program.statements) {
+            if (statement instanceof ConstantDeclarationNode c) {
+                addConstant(constants, values, c.name.getValue(), TypeChecker.declaredType(c.type), c.value);
+                continue;
+            }
+
+            if (!(statement instanceof FunctionDeclarationNode f)
+                    || f.access != AccessModifier.PUBLIC
+                    || f.name.getValue().equals("main")) {
+                continue;
+            }
+
+            List<TypeSymbol> parameters = new ArrayList<>(f.parameters.size());
+            for (ParameterNode parameter : f.parameters) {
+                parameters.add(TypeChecker.declaredType(parameter.type));
+            }
+            functions.add(new FunctionSymbol(f.name.getValue(), TypeChecker.declaredType(f.returnType),
+                    List.copyOf(parameters), owner));
+        }
+
+        return new ModuleSummary(name, owner, functions, constants);
+    }
+
+    /**
+     * Summarizes a cached module the same way, reading the declarations
+     * through the views of {@code ast}. Only the value of each constant is
+     * rebuilt as objects, to be evaluated.
+     */
+    public static ModuleSummary of(String name, String owner, FlatAst ast) {
+        List<FunctionSymbol> functions = new ArrayList<>();
+        List<Constant> constants = new ArrayList<>();
+        Map<String, Object> values = new HashMap<>();
+
+        for (int node = ast.firstChild(ast.root()); node != FlatAst.NONE; node = ast.nextSibling(node)) {
+            if (ast.kind(node) == FlatNodeKind.CONSTANT_DECLARATION) {
+                int type = ast.firstChild(node);
+                int value = ast.nextSibling(type);
+                addConstant(constants, values, ast.text(node), declaredType(ast, type),
+                        value == FlatAst.NONE ? null : ast.expression(value));
+                continue;
+            }
+
+            if (ast.kind(node) != FlatNodeKind.FUNCTION
+                    || AccessModifier.values()[ast.aux(node)] != AccessModifier.PUBLIC
+                    || ast.text(node).equals("main")) {
+                continue;
+            }
+
+            int child = ast.firstChild(node);
+            if (ast.kind(child) == FlatNodeKind.USE) {
+                child = ast.nextSibling(child);
+            }
+            TypeSymbol returnType = declaredType(ast, child);
+
+            List<TypeSymbol> parameters = new ArrayList<>();
+            for (child = ast.nextSibling(child); child != FlatAst.NONE
+                    && ast.kind(child) == FlatNodeKind.PARAMETER; child = ast.nextSibling(child)) {
+                parameters.add(declaredType(ast, ast.firstChild(child)));
+            }
+            functions.add(new FunctionSymbol(ast.text(node), returnType, List.copyOf(parameters), owner));
+        }
+
+        return new ModuleSummary(name, owner, functions, constants);
+    }
+
+    private static TypeSymbol declaredType(FlatAst ast, int type) {
+        return TypeChecker.declaredType(ast.tokenType(type), ast.aux(type));
+    }
+
+    /**
+     * Adds a constant if its value is known. Constants may be defined in terms
+     * of the ones above them, so each value is evaluated against
+     * {@code values} and then added to it.
+     */
+    private static void addConstant(List<Constant> constants, Map<String, Object> values, String name,
+            TypeSymbol type, ExpressionNode expression) {
+        Object value = ConstantEvaluator.coerce(ConstantEvaluator.evaluate(expression, values::get), type);
+        if (value != null) {
+            constants.add(new Constant(name, type, value));
+            values.put(name, value);
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String owner() {
+        return owner;
+    }
+
+    public List<FunctionSymbol> functions() {
+        return functions;
+    }
+
+    public List<Constant> constants() {
+        return constants;
+    }
+
+    public byte[] signatureHash() {
+        return signatureHash.clone();
+    }
+
+    /**
+     * @return whether {@code hash} is the signature hash of this summary
+     */
+    public boolean hasSignatureHash(byte[] hash) {
+        return Arrays.equals(signatureHash, hash);
+    }
+
+    /**
+     * Renders a signature the way it is hashed, e.g.
+     * {@code sum(INTEGER,INTEGER[])INTEGER}.
+     */
+    static String signature(FunctionSymbol function) {
+        StringBuilder sb = new StringBuilder(function.name).append('(');
+        for (int i = 0; i < function.parameters.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(typeName(function.parameters.get(i)));
+        }
+        return sb.append(')').append(typeName(function.returnType)).toString();
+    }
+
+    private static String typeName(TypeSymbol type) {
+        if (type instanceof ArrayTypeSymbol a) {
+            return a.elementType.name() + "[]";
+        }
+        if (type instanceof PrimitiveTypeSymbol p) {
+            return p.type.name();
+        }
+        return String.valueOf(type);
+    }
+
+    /**
+     * Renders a constant the way it is hashed, e.g.
+     * {@code LIMIT:INTEGER=Integer 10}. The value class is part of it, so
+     * {@code 1} and {@code 1.0} differ.
+     */
+    static String signature(Constant constant) {
+        return constant.name() + ':' + typeName(constant.type()) + '='
+                + constant.value().getClass().getSimpleName() + ' ' + constant.value();
+    }
+
+    private static byte[] hash(List<FunctionSymbol> functions, List<Constant> constants) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        for (FunctionSymbol function : functions) {
+            digest.update(signature(function).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        for (Constant constant : constants) {
+            digest.update(signature(constant).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return digest.digest();
+    }
+}
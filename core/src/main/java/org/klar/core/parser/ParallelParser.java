@@ -0,0 +1,249 @@
+package org.klar.core.parser;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.klar.core.Heddle;
+import org.klar.core.diagnostics.DiagnosticCollector;
+import org.klar.core.errors.CompilationFailedException;
+import org.klar.core.errors.KException;
+import org.klar.core.errors.SourceManager;
+import org.klar.core.lexer.Token;
+import org.klar.core.lexer.TokenType;
+import org.klar.core.parser.ast.ProgramNode;
+import org.klar.core.parser.ast.StatementNode;
+
+/**
+ * Parses the top-level declarations of a program in parallel.
+ * <p>
+ * A single pass over the tokens tracks brace and parenthesis depth and
+ * records where each top-level declaration starts: an {@code @} annotation,
+ * {@code module}, {@code import}, or an access modifier that does not follow
+ * an annotation. Runs of consecutive declarations are then parsed by
+ * independent {@link Parser}s on a {@link ForkJoinPool}, and the resulting
+ * {@link ProgramNode} lists the statements in source order.
+ * </p>
+ * <p>
+ * Diagnostics are unchanged. Each range records its syntax errors in a
+ * collector of its own, and the collectors are merged in source order, so the
+ * error limit stops at the same error as the sequential parse. A range reads
+ * the whole token list, so recovery sees the same tokens past its end; if a
+ * range still cannot be parsed on its own (see {@link Parser#parseRange}),
+ * the program is parsed again sequentially.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class ParallelParser {
+    /**
+     * Below this many top-level declarations the split is not worth the task
+     * overhead, and the program is parsed sequentially. The same happens when
+     * the pool has a single worker.
+     */
+    private static final int MIN_PARALLEL_DECLARATIONS = 16;
+
+    /** Ranges handed to each worker, per unit of pool parallelism. */
+    private static final int TASKS_PER_WORKER = 4;
+
+    private final List<Token> tokens;
+    private final Path filePath;
+    private final SourceManager sourceManager;
+    private final int maxNestingDepth;
+    private final ForkJoinPool pool;
+    private final DiagnosticCollector diagnostics;
+
+    public ParallelParser(List<Token> tokens, Path path, SourceManager sourceManager) {
+        this(tokens, path, sourceManager, Parser.DEFAULT_MAX_NESTING_DEPTH, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param maxNestingDepth Passed on to every {@link Parser}.
+     * @param pool            Pool that runs the range tasks.
+     */
+    public ParallelParser(List<Token> tokens, Path path, SourceManager sourceManager, int maxNestingDepth,
+            ForkJoinPool pool) {
+        this(tokens, path, sourceManager, maxNestingDepth, pool, new DiagnosticCollector());
+    }
+
+    /**
+     * @param diagnostics Collector syntax errors are recorded in, in source
+     *                    order; its limit stops the parse.
+     */
+    public ParallelParser(List<Token> tokens, Path path, SourceManager sourceManager, int maxNestingDepth,
+            ForkJoinPool pool, DiagnosticCollector diagnostics) {
+        this.tokens = tokens;
+        this.filePath = path;
+        this.sourceManager = sourceManager;
+        this.maxNestingDepth = maxNestingDepth;
+        this.pool = pool;
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Parses the entire program.
+     *
+     * @return the root ProgramNode, equal to the one {@link Parser#parseProgram()}
+     *         builds for the same tokens
+     * @throws CompilationFailedException with every syntax error found
+     */
+    public ProgramNode parseProgram() {
+        ProgramNode program = parsePartialProgram();
+        diagnostics.throwIfErrors();
+        return program;
+    }
+
+    /**
+     * Parses the entire program, recovering from syntax errors.
+     *
+     * @return the program, with error nodes where parsing failed; the errors
+     *         are left in the collector, as {@link Parser#parsePartialProgram()}
+     *         leaves them
+     * @throws CompilationFailedException if the error limit is reached
+     */
+    public ProgramNode parsePartialProgram() {
+        int[] starts = declarationStarts();
+        int declarations = starts.length - 1;
+
+        if (declarations < MIN_PARALLEL_DECLARATIONS || pool.getParallelism() < 2) {
+            return sequential().parsePartialProgram();
+        }
+
+        int tasks = Math.max(1, Math.min(declarations, pool.getParallelism() * TASKS_PER_WORKER));
+        // Each task sets its own slot only
+        Range[] ranges = new Range[tasks];
+
+        try {
+            pool.invoke(new RangeTask(starts, tasks, 0, tasks, ranges));
+        } catch (KException e) {
+            // Not a recorded syntax error; let the sequential parser raise it in order
+            return sequential().parsePartialProgram();
+        }
+
+        for (Range range : ranges) {
+            if (range.statements == null) {
+                return sequential().parsePartialProgram();
+            }
+        }
+
+        List<StatementNode> statements = new ArrayList<>();
+        for (Range range : ranges) {
+            for (KException warning : range.diagnostics.warnings()) {
+                diagnostics.warn(warning);
+            }
+            for (KException error : range.diagnostics.errors()) {
+                diagnostics.report(error);
+            }
+            statements.addAll(range.statements);
+        }
+        return new ProgramNode(statements);
+    }
+
+    private Parser sequential() {
+        return new Parser(tokens, filePath, sourceManager, maxNestingDepth, false, diagnostics);
+    }
+
+    /**
+     * Finds the token index of every top-level declaration.
+     *
+     * @return the declaration starts in ascending order, followed by the index
+     *         of the EOF token; the first entry is always {@code 0}
+     */
+    private int[] declarationStarts() {
+        int[] starts = new int[16];
+        int count = 1;
+        int braces = 0;
+        int parens = 0;
+        int end = tokens.size() - 1;
+
+        for (int i = 0; i < end; i++) {
+            TokenType type = tokens.get(i).getType();
+
+            if (type == TokenType.LBRACE) {
+                braces++;
+            } else if (type == TokenType.RBRACE) {
+                braces--;
+            } else if (type == TokenType.LPAREN) {
+                parens++;
+            } else if (type == TokenType.RPAREN) {
+                parens--;
+            } else if (i > 0 && braces == 0 && parens == 0 && startsDeclaration(i, type)) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i;
+            }
+        }
+
+        starts = Arrays.copyOf(starts, count + 1);
+        starts[count] = end;
+        return starts;
+    }
+
+    private boolean startsDeclaration(int index, TokenType type) {
+        if (type == TokenType.AT || type == TokenType.MODULE || type == TokenType.IMPORT) {
+            return true;
+        }
+        // "@Use(...) public ..." starts at the annotation, not the modifier.
+        return Heddle.ACESS_MODIFIERS.contains(type)
+                && tokens.get(index - 1).getType() != TokenType.RPAREN;
+    }
+
+    /**
+     * The statements and syntax errors of one run of declarations.
+     *
+     * @param statements The statements, or {@code null} if the run has to be
+     *                   parsed with the rest of the program.
+     */
+    private record Range(List<StatementNode> statements, DiagnosticCollector diagnostics) {
+    }
+
+    /**
+     * Parses the declarations of tasks {@code [from, to)}, splitting in half
+     * until a single task remains.
+     */
+    private final class RangeTask extends RecursiveAction {
+        private final int[] starts;
+        private final int tasks;
+        private final int from;
+        private final int to;
+        private final Range[] ranges;
+
+        RangeTask(int[] starts, int tasks, int from, int to, Range[] ranges) {
+            this.starts = starts;
+            this.tasks = tasks;
+            this.from = from;
+            this.to = to;
+            this.ranges = ranges;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new RangeTask(starts, tasks, from, middle, ranges),
+                        new RangeTask(starts, tasks, middle, to, ranges));
+                return;
+            }
+
+            int declarations = starts.length - 1;
+            int first = starts[(int) ((long) declarations * from / tasks)];
+            int last = starts[(int) ((long) declarations * to / tasks)];
+
+            DiagnosticCollector errors = new DiagnosticCollector(diagnostics.maxErrors());
+            Parser parser = new Parser(tokens, filePath, sourceManager, maxNestingDepth, false, errors);
+            List<StatementNode> statements;
+            try {
+                statements = parser.parseRange(first, last);
+            } catch (CompilationFailedException e) {
+                // The range alone reached the limit, so merging its errors stops the parse
+                statements = List.of();
+            }
+            ranges[from] = new Range(statements, errors);
+        }
+    }
+}
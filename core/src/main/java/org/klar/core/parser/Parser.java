@@ -3,6 +3,7 @@ package org.klar.core.parser;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.klar.core.lexer.Token;
 import org.klar.core.lexer.TokenType;
@@ -11,7 +12,10 @@ import org.klar.core.parser.ast.AssignmentStatementNode;
 import org.klar.core.parser.ast.BinaryExpressionNode;
 import org.klar.core.parser.ast.BlockStatementNode;
 import org.klar.core.parser.ast.CallExpressionNode;
+import org.klar.core.parser.ast.ConstantDeclarationNode;
 import org.klar.core.parser.ast.DecisionStatementNode;
+import org.klar.core.parser.ast.ErrorExpressionNode;
+import org.klar.core.parser.ast.ErrorStatementNode;
 import org.klar.core.parser.ast.ExpressionNode;
 import org.klar.core.parser.ast.ExpressionStatementNode;
 import org.klar.core.parser.ast.FunctionDeclarationNode;
@@ -32,6 +36,8 @@ import org.klar.core.parser.ast.VariableExpressionNode;
 import org.klar.core.parser.ast.WhileStatementNode;
 import org.klar.core.Heddle;
 import org.klar.core.diagnostics.DiagnosticCode;
+import org.klar.core.diagnostics.DiagnosticCollector;
+import org.klar.core.errors.CompilationFailedException;
 import org.klar.core.errors.ParserException;
 import org.klar.core.errors.SourceLocation;
 import org.klar.core.errors.SourceManager;
@@ -41,6 +47,14 @@ import org.klar.core.errors.SourceManager;
  *
  * Abstract Syntax Tree (AST) that represents the structure of the source code.
  * It implements a top-down parsing strategy.
+ * <p>
+ * Syntax errors do not stop the parse. The error is recorded, tokens are
+ * skipped up to a synchronization point ({@code ;}, <code>}</code>, {@code @}
+ * or a keyword that starts a statement or declaration) and parsing resumes.
+ * What was skipped becomes an {@link ErrorStatementNode}, and a missing
+ * expression an {@link ErrorExpressionNode}, so one parse reports every syntax
+ * error and still yields the statements that parsed cleanly.
+ * </p>
  *
  * @author Lucas Paulino Da Silva (~K')
  * @since 0.2
@@ -54,6 +68,37 @@ public class Parser {
     private int functionDepth = 0;
     private int controlDepth = 0;
 
+    /**
+     * Default bound for {@link #maxNestingDepth}. Nested expressions and blocks
+     * are parsed (and later checked and emitted) recursively, so the bound keeps
+     * machine-generated input from exhausting the stack.
+     */
+    public static final int DEFAULT_MAX_NESTING_DEPTH = 256;
+
+    private final int maxNestingDepth;
+    private int nestingDepth = 0;
+
+    /**
+     * When set, function bodies are skipped by brace matching and parsed on
+     * first access to {@link FunctionDeclarationNode#body()}.
+     */
+    private final boolean deferBodies;
+
+    private final DiagnosticCollector diagnostics;
+
+    /**
+     * Token position of the last recorded error. A second error at the same
+     * token is a consequence of the first and is not recorded.
+     */
+    private int lastErrorPosition = -1;
+
+    /**
+     * Name read by the declaration being parsed, kept on its
+     * {@link ErrorStatementNode} if the declaration fails.
+     */
+    private Token declaredName;
+    private boolean declaresFunction;
+
     // Parser
 
     /**
@@ -228,7 +273,7 @@ public class Parser {
             otherwiseBranches.add(new OtherwiseBranchNode(otherwiseCondition, reason, body));
         }
 
-        expect(TokenType.AFTERALL,
+        Token afterall = expect(TokenType.AFTERALL,
                 DiagnosticCode.E000,
                 "Expected 'afterall' to close decision block",
                 "All decision structures in Klar must end with 'afterall'",
@@ -237,10 +282,10 @@ public class Parser {
                 "if (...) { ... } afterall;",
                 null);
 
-        BlockStatementNode afterallBlock = null;
+        List<StatementNode> afterallStatements = List.of();
 
         if (check(TokenType.LBRACE)) {
-            afterallBlock = parseBlockStatement();
+            afterallStatements = parseBlockStatement().statements;
         } else {
             expect(TokenType.SEMICOLON,
                     DiagnosticCode.E102,
@@ -250,8 +295,9 @@ public class Parser {
                     ";",
                     "afterall;",
                     null);
-            afterallBlock = new BlockStatementNode(List.of(), ifToken.getLine(), ifToken.getColumn());
         }
+        BlockStatementNode afterallBlock = new BlockStatementNode(afterallStatements, afterall.getLine(),
+                afterall.getColumn());
         controlDepth--;
         return new DecisionStatementNode(condition, ifBlock, otherwiseBranches, afterallBlock, ifToken.getLine(),
                 ifToken.getColumn());
@@ -367,6 +413,8 @@ public class Parser {
                 "integer myVar = 10;",
                 null);
 
+        declaring(name, false);
+
         expect(TokenType.ASSIGNMENT,
                 DiagnosticCode.E000,
                 "Expected '=' in variable declaration",
@@ -392,56 +440,101 @@ public class Parser {
     }
 
     /**
-     * Parses any expression. Delegates to the lowest precedence operator.
-     * * @return an expression node
+     * Parses a constant declaration: {@code constant <type> <name> = <value>;}.
+     * Whether the value is known at compile time is left to the checker.
+     *
+     * @return a constant declaration node
+     * @since 0.15
      */
-    public ExpressionNode parseExpression() {
-        return parseComparision();
-    }
+    public ConstantDeclarationNode parseConstantDeclaration() {
+        Token keyword = consume();
+        TypeReferenceNode type = parseTypeReference();
+        if (!isType(type.getBaseType().getType())) {
+            parserException(
+                    DiagnosticCode.E103,
+                    "Expected valid type in constant declaration",
+                    "Specify the constant type explicitly",
+                    "Type",
+                    "constant integer LIMIT = 10;",
+                    type.getBaseType().getLine(),
+                    type.getBaseType().getColumn(),
+                    null,
+                    1);
+        }
 
-    /**
-     * Parses comparison expressions.
-     * * @return an expression node
-     */
-    public ExpressionNode parseComparision() {
-        ExpressionNode left = parseTerm();
-        while (isComparisionOperator(current().getType())) {
-            Token operator = consume();
-            ExpressionNode right = parseTerm();
+        Token name = expect(TokenType.IDENTIFIER,
+                DiagnosticCode.E000,
+                "Expected constant name",
+                "Constant declaration requires an identifier",
+                "Add a name",
+                "Identifier",
+                "constant integer LIMIT = 10;",
+                null);
 
-            left = new BinaryExpressionNode(left, operator, right, operator.getLine(), operator.getColumn());
-        }
-        return left;
+        declaring(name, false);
+
+        expect(TokenType.ASSIGNMENT,
+                DiagnosticCode.E000,
+                "Expected '=' in constant declaration",
+                "Constants must be initialized",
+                "Add '='",
+                "=",
+                "constant integer LIMIT = 10;",
+                null);
+
+        ExpressionNode value = parseExpression();
+
+        expect(TokenType.SEMICOLON,
+                DiagnosticCode.E102,
+                "Expected ';' after constant declaration",
+                "Declaration must be terminated",
+                "Add ';'",
+                ";",
+                "constant integer LIMIT = 10;",
+                null);
+
+        return new ConstantDeclarationNode(name, type, value, keyword.getLine(), keyword.getColumn());
     }
 
     /**
-     * Parses term expressions (addition and subtraction).
+     * Parses any expression. Delegates to the lowest precedence operator.
      * * @return an expression node
      */
-    public ExpressionNode parseTerm() {
-        ExpressionNode left = parseFactor();
-        while (isTermOperador(current().getType())) {
-            Token operator = consume();
-            ExpressionNode right = parseFactor();
-
-            left = new BinaryExpressionNode(left, operator, right, operator.getLine(), operator.getColumn());
+    public ExpressionNode parseExpression() {
+        enterNesting();
+        try {
+            return parseBinary(Heddle.OR_PRECEDENCE);
+        } finally {
+            nestingDepth--;
         }
-        return left;
     }
 
     /**
-     * Parses factor expressions (multiplication, division, modulo).
+     * Parses binary expressions by precedence climbing over
+     * {@link Heddle#binaryPrecedence(TokenType)}.
+     * <p>
+     * Operators at the same level are folded left in the loop, so a chain like
+     * {@code a + b + c} does not recurse per operand; recursion only happens
+     * when the right operand binds tighter, which is bounded by the number of
+     * precedence levels.
+     * </p>
+     * * @param minPrecedence the loosest operator this call may consume
      * * @return an expression node
      */
-    public ExpressionNode parseFactor() {
+    private ExpressionNode parseBinary(int minPrecedence) {
         ExpressionNode left = parsePostfixExpression();
-        while (isFactorOperator(current().getType())) {
+
+        while (true) {
+            int precedence = Heddle.binaryPrecedence(current().getType());
+            if (precedence == Heddle.NO_PRECEDENCE || precedence < minPrecedence) {
+                return left;
+            }
+
             Token operator = consume();
-            ExpressionNode right = parsePostfixExpression();
+            ExpressionNode right = parseBinary(precedence + 1);
 
             left = new BinaryExpressionNode(left, operator, right, operator.getLine(), operator.getColumn());
         }
-        return left;
     }
 
     /**
@@ -572,27 +665,43 @@ public class Parser {
             return expr;
         }
 
-        parserException(
+        Token missing = current();
+        parserError(
                 DiagnosticCode.E108,
                 "Expected expression",
                 "Insert a valid expression (literal, identifier, or operation)",
                 "Expression",
                 "integer x = 10 + 5;",
-                current().getLine(),
-                current().getColumn(),
+                missing.getLine(),
+                missing.getColumn(),
                 null,
-                current().getValue().length());
-        return null;
+                missing.getValue().length());
+        return new ErrorExpressionNode(missing.getLine(), missing.getColumn());
     }
 
     /**
      * Parses the entire program.
      * * @return the root ProgramNode containing all parsed statements
+     * @throws CompilationFailedException with every syntax error found
      */
     public ProgramNode parseProgram() {
+        ProgramNode program = parsePartialProgram();
+        diagnostics.throwIfErrors();
+        return program;
+    }
+
+    /**
+     * Parses the entire program, recovering from syntax errors.
+     *
+     * @return the program, with error nodes where parsing failed; the errors
+     *         are left in {@link #diagnostics()}
+     * @throws CompilationFailedException if the error limit is reached
+     * @since 0.15
+     */
+    public ProgramNode parsePartialProgram() {
         List<StatementNode> statements = new ArrayList<>();
         while (!isAtEnd()) {
-            StatementNode stmt = parseStatement();
+            StatementNode stmt = parseStatementOrRecover(this::parseStatement);
             if (stmt != null) {
                 statements.add(stmt);
             }
@@ -600,6 +709,116 @@ public class Parser {
         return new ProgramNode(statements);
     }
 
+    /**
+     * Parses the top-level statements in tokens {@code [from, to)}, reading
+     * past {@code to} only as far as a statement does. Used by
+     * {@link ParallelParser}, for which {@code from} and {@code to} start
+     * declarations.
+     *
+     * @return the statements, or {@code null} if the range may not parse as it
+     *         does within the whole program: a statement ran past {@code to},
+     *         or an error was recorded at {@code to}, which the sequential
+     *         parse would not record again for the next statement
+     * @throws CompilationFailedException if the error limit is reached
+     * @since 0.15
+     */
+    List<StatementNode> parseRange(int from, int to) {
+        position = from;
+        List<StatementNode> statements = new ArrayList<>();
+        while (position < to && !isAtEnd()) {
+            StatementNode stmt = parseStatementOrRecover(this::parseStatement);
+            if (stmt != null) {
+                statements.add(stmt);
+            }
+        }
+        return position == to && lastErrorPosition != to ? statements : null;
+    }
+
+    /**
+     * @return the syntax errors recorded so far
+     * @since 0.15
+     */
+    public DiagnosticCollector diagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Runs {@code parse}, and if it fails records the error and skips to the
+     * next synchronization point.
+     *
+     * @return the parsed statement, or an {@link ErrorStatementNode} in place
+     *         of the skipped tokens
+     */
+    private StatementNode parseStatementOrRecover(Supplier<StatementNode> parse) {
+        int start = position;
+        int savedFunctionDepth = functionDepth;
+        int savedControlDepth = controlDepth;
+        int savedNestingDepth = nestingDepth;
+        Token savedDeclaredName = declaredName;
+        boolean savedDeclaresFunction = declaresFunction;
+        declaredName = null;
+
+        try {
+            return parse.get();
+        } catch (ParserException e) {
+            Token first = tokens.get(start);
+            record(e);
+
+            functionDepth = savedFunctionDepth;
+            controlDepth = savedControlDepth;
+            nestingDepth = savedNestingDepth;
+            synchronize(start);
+            return new ErrorStatementNode(declaredName, declaresFunction, first.getLine(), first.getColumn());
+        } finally {
+            declaredName = savedDeclaredName;
+            declaresFunction = savedDeclaresFunction;
+        }
+    }
+
+    private void declaring(Token name, boolean function) {
+        declaredName = name;
+        declaresFunction = function;
+    }
+
+    /**
+     * Skips tokens until parsing can resume: after a {@code ;}, or before a
+     * <code>}</code>, {@code @} or a keyword that starts a statement or
+     * declaration. A block met on the way is skipped whole, so the body of a
+     * malformed header is not parsed as loose statements.
+     *
+     * @param start Position of the failed statement; if nothing was consumed
+     *              since, one token is skipped so parsing makes progress.
+     */
+    private void synchronize(int start) {
+        if (position == start) {
+            consume();
+        }
+
+        while (!isAtEnd()) {
+            TokenType type = current().getType();
+            if (type == TokenType.SEMICOLON) {
+                consume();
+                return;
+            }
+            if (type == TokenType.RBRACE || type == TokenType.AT || startsStatement(type)) {
+                return;
+            }
+            if (type == TokenType.LBRACE) {
+                int close = matchingBrace(position);
+                position = close == -1 ? tokens.size() - 1 : close + 1;
+                continue;
+            }
+            consume();
+        }
+    }
+
+    private boolean startsStatement(TokenType type) {
+        return switch (type) {
+            case IF, WHILE, RETURN, MODULE, IMPORT, CONSTANT -> true;
+            default -> isType(type) || isAccessModifier(type);
+        };
+    }
+
     /**
      * Parses an assignment statement.
      * * @return an assignment statement node
@@ -700,6 +919,15 @@ public class Parser {
      * * @return a block statement node containing the list of statements
      */
     public BlockStatementNode parseBlockStatement() {
+        enterNesting();
+        try {
+            return parseNestedBlockStatement();
+        } finally {
+            nestingDepth--;
+        }
+    }
+
+    private BlockStatementNode parseNestedBlockStatement() {
         Token openBrace = expect(TokenType.LBRACE,
                 DiagnosticCode.E000,
                 "Expected '{' to start block",
@@ -711,7 +939,7 @@ public class Parser {
 
         List<StatementNode> statements = new ArrayList<>();
         while (!check(TokenType.RBRACE) && !isAtEnd()) {
-            statements.add(parseStatement());
+            statements.add(parseStatementOrRecover(this::parseStatement));
         }
 
         expect(TokenType.RBRACE,
@@ -749,7 +977,8 @@ public class Parser {
                     "Missing return type in function declaration",
                     "Explicitly declare the return type (e.g., void, integer)",
                     "Type",
-                    "@Use(\"" + use.target.getValue() + "\")\n " + access.toString().toLowerCase()
+                    "@Use(" + (use == null ? "\"java\"" : use.target.getValue()) + ")\n "
+                            + access.toString().toLowerCase()
                             + " void myFunction() { ... }",
                     returnType.getLine(),
                     returnType.getColumn(),
@@ -767,6 +996,8 @@ public class Parser {
                 "void myFunction()",
                 null);
 
+        declaring(name, true);
+
         expect(TokenType.LPAREN,
                 DiagnosticCode.E000,
                 "Expected '(' after function name",
@@ -817,6 +1048,18 @@ public class Parser {
                 "void myFunction()",
                 null);
 
+        if (deferBodies && check(TokenType.LBRACE)) {
+            int open = position;
+            int close = matchingBrace(open);
+
+            // An unclosed body is parsed now so the error is reported in order.
+            if (close != -1) {
+                position = close + 1;
+                return new FunctionDeclarationNode(access, new TypeReferenceNode(returnType, 0), name, parameters,
+                        () -> parseDeferredBody(open), use, returnType.getLine(), returnType.getColumn());
+            }
+        }
+
         functionDepth++;
         BlockStatementNode body = parseFunctionBody();
         functionDepth--;
@@ -825,6 +1068,38 @@ public class Parser {
                 returnType.getLine(), returnType.getColumn());
     }
 
+    /**
+     * Finds the brace that closes the one at {@code open}.
+     *
+     * @return the index of the closing brace, or {@code -1} if the input ends
+     *         first
+     */
+    private int matchingBrace(int open) {
+        int depth = 0;
+        for (int i = open; i < tokens.size(); i++) {
+            TokenType type = tokens.get(i).getType();
+            if (type == TokenType.LBRACE) {
+                depth++;
+            } else if (type == TokenType.RBRACE && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a body skipped by {@link #deferBodies}, with a fresh parser
+     * positioned at its opening brace so diagnostics match an eager parse.
+     */
+    private BlockStatementNode parseDeferredBody(int open) {
+        Parser parser = new Parser(tokens, filePath, sourceManager, maxNestingDepth);
+        parser.position = open;
+        parser.functionDepth = 1;
+        BlockStatementNode body = parser.parseFunctionBody();
+        parser.diagnostics.throwIfErrors();
+        return body;
+    }
+
     /**
      * Parses the body of a function, ensuring valid return statement placement.
      * * @return a block statement node representing the function body
@@ -848,7 +1123,7 @@ public class Parser {
                     Token current = current();
                     String example = "return result; // Only one return allowed at the end";
 
-                    parserException(
+                    parserError(
                             DiagnosticCode.E202,
                             "Multiple return statements found",
                             "Keep only one return statement at the end of the function scope",
@@ -860,7 +1135,7 @@ public class Parser {
                             current.getValue().length());
                 }
 
-                StatementNode ret = parseReturnStatement();
+                StatementNode ret = parseStatementOrRecover(this::parseReturnStatement);
                 statementNodes.add(ret);
                 seenReturn = true;
 
@@ -868,7 +1143,7 @@ public class Parser {
                     Token current = current();
                     String example = "...\n    return result; // Must be the last line\n}";
 
-                    parserException(
+                    parserError(
                             DiagnosticCode.E203,
                             "Return statement is not the last statement",
                             "Move the return statement to the end of the function body",
@@ -878,11 +1153,13 @@ public class Parser {
                             current.getColumn(),
                             "Code after the return statement is unreachable and invalid in this context.",
                             current.getValue().length());
+                    // Keep parsing the rest of the body for further errors
+                    continue;
                 }
                 break;
             }
 
-            StatementNode stmt = parseStatement();
+            StatementNode stmt = parseStatementOrRecover(this::parseStatement);
             statementNodes.add(stmt);
         }
 
@@ -895,11 +1172,12 @@ public class Parser {
                 "void func() { ... }",
                 null);
 
-        if (!seenReturn) {
+        // The return may be among the statements that failed to parse
+        if (!seenReturn && statementNodes.stream().noneMatch(ErrorStatementNode.class::isInstance)) {
             Token current = current();
             String example = "...\n    return result; // Explicit return required\n}";
 
-            parserException(
+            parserError(
                     DiagnosticCode.E205,
                     "Function is missing a return statement",
                     "Add a return statement at the end of the function",
@@ -984,7 +1262,7 @@ public class Parser {
             Token current = current();
             String example = "public integer myFunction(...) { ... }";
 
-            parserException(
+            parserError(
                     DiagnosticCode.E112,
                     "Missing access modifier in function declaration",
                     "Add an access modifier (public, protected, or internal)",
@@ -994,6 +1272,7 @@ public class Parser {
                     current.getColumn(),
                     "K requires explicit access modifiers.",
                     current.getValue().length());
+            return parseFunctionDeclaration(null);
         }
 
         UseAnnotationNode pendingUse = null;
@@ -1010,7 +1289,7 @@ public class Parser {
 
             if (!name.value.equals("Use")) {
                 Token current = current();
-                parserException(
+                parserError(
                         DiagnosticCode.E204,
                         "Unknown annotation '@" + name.getValue() + "'",
                         "Use a supported annotation (e.g., @Use)",
@@ -1057,7 +1336,7 @@ public class Parser {
                 Token current = current();
                 String example = "@Use(\"java\")\npublic void myFunction() { ... }";
 
-                parserException(
+                parserError(
                         DiagnosticCode.E113,
                         "Missing @Use annotation on function",
                         "Annotate the function with @Use to specify the context",
@@ -1088,7 +1367,7 @@ public class Parser {
             // Check: Return outside function
             if (functionDepth == 0) {
                 Token current = current();
-                parserException(
+                parserError(
                         DiagnosticCode.E203,
                         "Return statement found outside function body",
                         "Move return statement inside a function",
@@ -1105,7 +1384,7 @@ public class Parser {
                 Token current = current();
                 String example = "afterall {\n    result = x / y;\n}\nreturn result;";
 
-                parserException(
+                parserError(
                         DiagnosticCode.E203,
                         "Return must be in the main scope of the function",
                         "Move return out of control blocks (if/while) to the end of the function",
@@ -1120,6 +1399,10 @@ public class Parser {
             return parseReturnStatement();
         }
 
+        if (check(TokenType.CONSTANT)) {
+            return parseConstantDeclaration();
+        }
+
         // Declaration
         if (isType(current().getType())) {
             return parseValDecl();
@@ -1137,10 +1420,41 @@ public class Parser {
     // Utility do Parser
 
     public Parser(List<Token> tokens, Path path, SourceManager sourceManager) {
+        this(tokens, path, sourceManager, DEFAULT_MAX_NESTING_DEPTH);
+    }
+
+    /**
+     * @param maxNestingDepth How deeply expressions and blocks may nest before
+     *                        parsing fails with {@link DiagnosticCode#E114}.
+     */
+    public Parser(List<Token> tokens, Path path, SourceManager sourceManager, int maxNestingDepth) {
+        this(tokens, path, sourceManager, maxNestingDepth, false);
+    }
+
+    /**
+     * @param deferBodies Whether function bodies are parsed lazily, for
+     *                    consumers that only need signatures.
+     * @since 0.15
+     */
+    public Parser(List<Token> tokens, Path path, SourceManager sourceManager, int maxNestingDepth,
+            boolean deferBodies) {
+        this(tokens, path, sourceManager, maxNestingDepth, deferBodies, new DiagnosticCollector());
+    }
+
+    /**
+     * @param diagnostics Collector syntax errors are recorded in; its limit
+     *                    stops the parse.
+     * @since 0.15
+     */
+    public Parser(List<Token> tokens, Path path, SourceManager sourceManager, int maxNestingDepth,
+            boolean deferBodies, DiagnosticCollector diagnostics) {
+        this.diagnostics = diagnostics;
         this.tokens = tokens;
         this.filePath = path;
         this.sourceManager = sourceManager;
         this.fileName = filePath.getFileName().toString();
+        this.maxNestingDepth = maxNestingDepth;
+        this.deferBodies = deferBodies;
     }
 
     private boolean isAtEnd() {
@@ -1179,6 +1493,14 @@ public class Parser {
         return tokens.get(index);
     }
 
+    public boolean match(TokenType type) {
+        if (check(type)) {
+            consume();
+            return true;
+        }
+        return false;
+    }
+
     public boolean match(TokenType... types) {
         for (TokenType tokenType : types) {
             if (check(tokenType)) {
@@ -1210,12 +1532,10 @@ public class Parser {
                     int errorLine = prev.getLine();
                     int errorCol = prev.getColumn() + prev.getValue().length();
 
-                    System.out.println(prev.getColumn());
-
                     throw new ParserException(
                             code,
                             new SourceLocation(filePath.toString(), errorLine, errorCol),
-                            sourceManager.getContextLines(errorLine, 2),
+                            sourceManager,
                             cause,
                             fix,
                             expected,
@@ -1251,12 +1571,58 @@ public class Parser {
         return peek(i).getType() == TokenType.LPAREN;
     }
 
+    private void enterNesting() {
+        if (++nestingDepth > maxNestingDepth) {
+            Token current = current();
+            parserException(
+                    DiagnosticCode.E114,
+                    "Nesting exceeds the limit of " + maxNestingDepth + " levels",
+                    "Split the expression or block into smaller pieces using intermediate variables or functions",
+                    null,
+                    null,
+                    current.getLine(),
+                    current.getColumn(),
+                    "Deeply nested code is usually machine-generated; flatten it before compiling.",
+                    current.getValue().length());
+        }
+    }
+
+    /**
+     * Records a syntax error the parse can continue past, such as a misplaced
+     * {@code return}.
+     */
+    private void parserError(DiagnosticCode code, String cause, String fix, String expected, String example,
+            int line, int column, String note, int lenth) {
+        record(new ParserException(
+                code,
+                new SourceLocation(filePath.toString(), line, Math.max(column - 1, 0)),
+                sourceManager,
+                cause,
+                fix,
+                expected,
+                example,
+                note,
+                current().getValue().length()));
+    }
+
+    /**
+     * Records {@code error}, raised at the current token, unless an error was
+     * already recorded there.
+     */
+    private void record(ParserException error) {
+        if (position == lastErrorPosition) {
+            return;
+        }
+        lastErrorPosition = position;
+        diagnostics.report(error);
+    }
+
     private void parserException(DiagnosticCode code, String cause, String fix, String expected, String example,
             int line, int column, String note, int lenth) {
         throw new ParserException(
                 code,
                 new SourceLocation(filePath.toString(), line, Math.max(column - 1, 0)),
-                sourceManager.getContextLines(line, 2),
+                sourceManager,
                 cause,
                 fix,
                 expected,
@@ -1273,7 +1639,7 @@ public class Parser {
                 code,
                 new SourceLocation(filePath.toString(), tokenToBlame.getLine(),
                         Math.max(tokenToBlame.getColumn() - 1, 0)),
-                sourceManager.getContextLines(tokenToBlame.getLine(), 2),
+                sourceManager,
                 cause,
                 fix,
                 expected,
@@ -1286,18 +1652,6 @@ public class Parser {
         return Heddle.TYPES.contains(type);
     }
 
-    private boolean isComparisionOperator(TokenType type) {
-        return Heddle.COMPARISION_OPERATORS.contains(type);
-    }
-
-    private boolean isTermOperador(TokenType type) {
-        return Heddle.TERM_OPERATORS.contains(type);
-    }
-
-    private boolean isFactorOperator(TokenType type) {
-        return Heddle.FACTOR_OPERATORS.contains(type);
-    }
-
     private boolean isAccessModifier(TokenType type) {
         return Heddle.ACESS_MODIFIERS.contains(type);
     }
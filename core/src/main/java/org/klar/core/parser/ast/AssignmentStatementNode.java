@@ -1,6 +1,6 @@
 package org.klar.core.parser.ast;
 
-public class AssignmentStatementNode extends StatementNode {
+public final class AssignmentStatementNode extends StatementNode {
     public ExpressionNode name;
     public ExpressionNode value;
     
@@ -10,4 +10,9 @@ public class AssignmentStatementNode extends StatementNode {
         this.name = name;
         this.value = value;
     }
-} 
\ No newline at end of file
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitAssignment(this);
+    }
+}
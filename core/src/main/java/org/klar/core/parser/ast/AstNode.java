@@ -1,6 +1,6 @@
 package org.klar.core.parser.ast;
 
-public class AstNode {
+public abstract sealed class AstNode permits StatementNode, ExpressionNode {
     public final int line;    
     public final int column;
 
@@ -8,4 +8,9 @@ public class AstNode {
         this.line = line;
         this.column = column;
     }
+
+    /**
+     * Dispatches to the {@link AstVisitor} method of this node's concrete type.
+     */
+    public abstract <R> R accept(AstVisitor<R> visitor);
 }
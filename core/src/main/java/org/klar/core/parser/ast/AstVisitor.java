@@ -0,0 +1,56 @@
+package org.klar.core.parser.ast;
+
+/**
+ * Visitor over the sealed AST hierarchy.
+ * <p>
+ * Every concrete node type has exactly one method, so dispatch is a single
+ * virtual call through {@link AstNode#accept(AstVisitor)} and a pass that
+ * implements this interface cannot silently miss a node type. Passes that only
+ * compute values for expressions return {@code null} from statement visits.
+ * </p>
+ *
+ * @param <R> The result of a visit.
+ * @since 0.15
+ */
+public interface AstVisitor<R> {
+
+    // Statements
+    R visitAssignment(AssignmentStatementNode node);
+
+    R visitBlock(BlockStatementNode node);
+
+    R visitConstantDeclaration(ConstantDeclarationNode node);
+
+    R visitDecision(DecisionStatementNode node);
+
+    R visitErrorStatement(ErrorStatementNode node);
+
+    R visitExpressionStatement(ExpressionStatementNode node);
+
+    R visitFunctionDeclaration(FunctionDeclarationNode node);
+
+    R visitImportDeclaration(ImportDeclarationNode node);
+
+    R visitModuleDeclaration(ModuleDeclarationNode node);
+
+    R visitReturn(ReturnStatementNode node);
+
+    R visitVariableDeclaration(VariableDeclarationNode node);
+
+    R visitWhile(WhileStatementNode node);
+
+    // Expressions
+    R visitBinary(BinaryExpressionNode node);
+
+    R visitCall(CallExpressionNode node);
+
+    R visitErrorExpression(ErrorExpressionNode node);
+
+    R visitIndex(IndexExpressionNode node);
+
+    R visitLiteral(LiteralExpressionNode node);
+
+    R visitNewArray(NewArrayExpressionNode node);
+
+    R visitVariable(VariableExpressionNode node);
+}
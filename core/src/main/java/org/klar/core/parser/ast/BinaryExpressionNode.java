@@ -1,8 +1,11 @@
 package org.klar.core.parser.ast;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.klar.core.lexer.Token;
 
-public class BinaryExpressionNode extends ExpressionNode {
+public final class BinaryExpressionNode extends ExpressionNode {
     
     public ExpressionNode left;
     public Token operator;
@@ -15,4 +18,30 @@ public class BinaryExpressionNode extends ExpressionNode {
         this.operator = operator;
         this.right = right;
     }
+
+    /**
+     * Collects this node and the binary nodes along its left operand chain,
+     * outermost first.
+     * <p>
+     * Left-associative chains such as {@code a + b + c} nest to the left, one
+     * level per operator, so passes walk this list instead of recursing into
+     * {@link #left}.
+     * </p>
+     */
+    public List<BinaryExpressionNode> leftSpine() {
+        List<BinaryExpressionNode> spine = new ArrayList<>();
+        ExpressionNode node = this;
+
+        while (node instanceof BinaryExpressionNode b) {
+            spine.add(b);
+            node = b.left;
+        }
+
+        return spine;
+    }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitBinary(this);
+    }
 }
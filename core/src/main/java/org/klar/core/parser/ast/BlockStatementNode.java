@@ -2,7 +2,7 @@ package org.klar.core.parser.ast;
 
 import java.util.List;
 
-public class BlockStatementNode extends StatementNode {
+public final class BlockStatementNode extends StatementNode {
     public final List<StatementNode> statements;
     
     public BlockStatementNode(List<StatementNode> statements, int line, int column){
@@ -10,4 +10,9 @@ public class BlockStatementNode extends StatementNode {
 
         this.statements = statements;
     }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitBlock(this);
+    }
 }
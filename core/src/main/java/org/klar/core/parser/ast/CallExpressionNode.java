@@ -4,7 +4,7 @@ import java.util.List;
 
 import org.klar.core.lexer.Token;
 
-public class CallExpressionNode extends ExpressionNode {
+public final class CallExpressionNode extends ExpressionNode {
     public final Token callee;
     public final List<ExpressionNode> arguments;
     
@@ -14,5 +14,9 @@ public class CallExpressionNode extends ExpressionNode {
         this.callee = callee;
         this.arguments = argsuments;
     }
-    
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitCall(this);
+    }
 }
@@ -2,7 +2,7 @@ package org.klar.core.parser.ast;
 
 import org.klar.core.lexer.Token;
 
-public class ConstantDeclarationNode extends StatementNode {
+public final class ConstantDeclarationNode extends StatementNode {
     public final Token name;
     public final TypeReferenceNode type;
     public final ExpressionNode value;
@@ -19,4 +19,9 @@ public class ConstantDeclarationNode extends StatementNode {
         this.type = type;
         this.value = value;
     }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitConstantDeclaration(this);
+    }
 }
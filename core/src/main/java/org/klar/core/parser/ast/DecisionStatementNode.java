@@ -2,12 +2,16 @@ package org.klar.core.parser.ast;
 
 import java.util.List;
 
-public class DecisionStatementNode extends StatementNode {
+public final class DecisionStatementNode extends StatementNode {
     public final ExpressionNode condition;
     public final BlockStatementNode ifBlock;
 
     public final List<OtherwiseBranchNode> otherwiseBranches;
 
+    /**
+     * Empty for a declarative {@code afterall;}. Positioned at the
+     * {@code afterall} keyword.
+     */
     public final BlockStatementNode afterallBlock;
 
     public DecisionStatementNode(ExpressionNode condition, BlockStatementNode ifBlock, List<OtherwiseBranchNode> otherwiseBranches, BlockStatementNode afterallBlock, int line, int column){
@@ -18,4 +22,9 @@ public class DecisionStatementNode extends StatementNode {
         this.otherwiseBranches = otherwiseBranches;
         this.afterallBlock = afterallBlock;
     }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitDecision(this);
+    }
 }
@@ -0,0 +1,20 @@
+package org.klar.core.parser.ast;
+
+/**
+ * Placeholder for a missing or malformed expression. The syntax error was
+ * reported; the checker gives it the {@code UNKNOWN} type so it causes no
+ * further errors.
+ *
+ * @since 0.15
+ */
+public final class ErrorExpressionNode extends ExpressionNode {
+
+    public ErrorExpressionNode(int line, int column) {
+        super(line, column);
+    }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitErrorExpression(this);
+    }
+}
@@ -0,0 +1,38 @@
+package org.klar.core.parser.ast;
+
+import org.klar.core.lexer.Token;
+
+/**
+ * Placeholder for a statement the parser could not parse. The tokens up to
+ * the next synchronization point were skipped, and the syntax error was
+ * reported.
+ * <p>
+ * Later phases skip it, so the rest of a partial program can still be
+ * checked. When the statement was a declaration whose name was read before
+ * the error, the name is kept: the checker declares it with the
+ * {@code UNKNOWN} type, so its uses cause no further errors.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class ErrorStatementNode extends StatementNode {
+    /** Name the failed statement declared, or {@code null}. */
+    public final Token declaredName;
+    /** Whether {@link #declaredName} names a function rather than a variable. */
+    public final boolean declaresFunction;
+
+    public ErrorStatementNode(int line, int column) {
+        this(null, false, line, column);
+    }
+
+    public ErrorStatementNode(Token declaredName, boolean declaresFunction, int line, int column) {
+        super(line, column);
+        this.declaredName = declaredName;
+        this.declaresFunction = declaresFunction;
+    }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitErrorStatement(this);
+    }
+}
@@ -1,6 +1,8 @@
 package org.klar.core.parser.ast;
 
-public abstract class ExpressionNode extends AstNode {
+public abstract sealed class ExpressionNode extends AstNode
+        permits BinaryExpressionNode, CallExpressionNode, ErrorExpressionNode, IndexExpressionNode,
+        LiteralExpressionNode, NewArrayExpressionNode, VariableExpressionNode {
     public ExpressionNode(int line, int column) {
         super(line, column);
     }
@@ -1,6 +1,6 @@
 package org.klar.core.parser.ast;
 
-public class ExpressionStatementNode extends StatementNode{
+public final class ExpressionStatementNode extends StatementNode{
     public final ExpressionNode expression;
     
     public ExpressionStatementNode(ExpressionNode expression, int line, int column){
@@ -8,4 +8,9 @@ public class ExpressionStatementNode extends StatementNode{
 
         this.expression = expression;
     }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitExpressionStatement(this);
+    }
 }
@@ -1,16 +1,19 @@
 package org.klar.core.parser.ast;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.klar.core.lexer.Token;
 
-public class FunctionDeclarationNode extends StatementNode {
+public final class FunctionDeclarationNode extends StatementNode {
     public final UseAnnotationNode use;
     public final AccessModifier access;
     public final TypeReferenceNode returnType;
     public final Token name;
     public final List<ParameterNode> parameters;
-    public final BlockStatementNode body;
+
+    private volatile BlockStatementNode body;
+    private Supplier<BlockStatementNode> deferredBody;
     
     public FunctionDeclarationNode(AccessModifier access, TypeReferenceNode returnType, Token name, List<ParameterNode> parameters, BlockStatementNode body, UseAnnotationNode use, int line, int column){
         super(line, column);
@@ -21,4 +24,53 @@ public class FunctionDeclarationNode extends StatementNode {
         this.body = body;
         this.use = use;
     }
+
+    /**
+     * Creates a declaration whose body is parsed on the first call to
+     * {@link #body()}.
+     * <p>
+     * Errors in the body are therefore reported by that call rather than while
+     * the declaration itself is parsed.
+     * </p>
+     *
+     * @since 0.15
+     */
+    public FunctionDeclarationNode(AccessModifier access, TypeReferenceNode returnType, Token name, List<ParameterNode> parameters, Supplier<BlockStatementNode> deferredBody, UseAnnotationNode use, int line, int column){
+        this(access, returnType, name, parameters, (BlockStatementNode) null, use, line, column);
+        this.deferredBody = deferredBody;
+    }
+
+    /**
+     * The function body, parsed on demand if it was deferred.
+     *
+     * @return the body, or {@code null} for a signature without one
+     */
+    public BlockStatementNode body() {
+        BlockStatementNode parsed = body;
+        if (parsed != null) {
+            return parsed;
+        }
+
+        synchronized (this) {
+            if (body == null && deferredBody != null) {
+                body = deferredBody.get();
+                deferredBody = null;
+            }
+            return body;
+        }
+    }
+
+    /**
+     * @return {@code true} unless the body is deferred and has not been
+     *         requested yet
+     * @since 0.15
+     */
+    public synchronized boolean isBodyParsed() {
+        return deferredBody == null;
+    }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitFunctionDeclaration(this);
+    }
 }
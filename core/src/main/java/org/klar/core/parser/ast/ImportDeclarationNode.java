@@ -4,11 +4,16 @@ import java.util.List;
 
 import org.klar.core.lexer.Token;
 
-public class ImportDeclarationNode extends StatementNode {
+public final class ImportDeclarationNode extends StatementNode {
     public final List<Token> path;
 
     public ImportDeclarationNode(List<Token> path, int line, int column){
         super(line, column);
         this.path = path;
     }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitImportDeclaration(this);
+    }
 }
@@ -1,6 +1,6 @@
 package org.klar.core.parser.ast;
 
-public class IndexExpressionNode extends ExpressionNode {
+public final class IndexExpressionNode extends ExpressionNode {
     public final ExpressionNode target;
     public final ExpressionNode index;
     
@@ -10,4 +10,9 @@ public class IndexExpressionNode extends ExpressionNode {
         this.target = target;
         this.index = index;
     }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitIndex(this);
+    }
 }
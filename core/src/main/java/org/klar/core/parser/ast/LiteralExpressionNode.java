@@ -2,7 +2,7 @@ package org.klar.core.parser.ast;
 
 import org.klar.core.lexer.Token;
 
-public class LiteralExpressionNode extends ExpressionNode {
+public final class LiteralExpressionNode extends ExpressionNode {
     public final Token value;
     
     public LiteralExpressionNode(Token value, int line, int column){
@@ -10,4 +10,9 @@ public class LiteralExpressionNode extends ExpressionNode {
 
         this.value = value;
     }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitLiteral(this);
+    }
 }
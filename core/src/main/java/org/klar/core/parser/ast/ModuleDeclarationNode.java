@@ -2,12 +2,21 @@ package org.klar.core.parser.ast;
 
 import org.klar.core.lexer.Token;
 
-public class ModuleDeclarationNode extends StatementNode {
+public final class ModuleDeclarationNode extends StatementNode {
     
     private final Token name;
 
     public ModuleDeclarationNode(Token name, int line, int column){
         super(line, column);
         this.name = name;
-    }   
-}
\ No newline at end of file
+    }
+
+    public Token getName() {
+        return name;
+    }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitModuleDeclaration(this);
+    }
+}
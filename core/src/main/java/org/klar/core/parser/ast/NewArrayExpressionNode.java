@@ -2,7 +2,7 @@ package org.klar.core.parser.ast;
 
 import java.util.List;
 
-public class NewArrayExpressionNode extends ExpressionNode {
+public final class NewArrayExpressionNode extends ExpressionNode {
     public final TypeReferenceNode type;
     public final ExpressionNode size;
     public final List<ExpressionNode> initializer;
@@ -15,4 +15,9 @@ public class NewArrayExpressionNode extends ExpressionNode {
         this.initializer = initializer;
 
     }
-}
\ No newline at end of file
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitNewArray(this);
+    }
+}
@@ -1,6 +1,6 @@
 package org.klar.core.parser.ast;
 
-public class ReturnStatementNode extends StatementNode{
+public final class ReturnStatementNode extends StatementNode{
     public final ExpressionNode value;
     
     public ReturnStatementNode(ExpressionNode value, int line, int column){
@@ -8,4 +8,9 @@ public class ReturnStatementNode extends StatementNode{
 
         this.value = value;
     }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitReturn(this);
+    }
 }
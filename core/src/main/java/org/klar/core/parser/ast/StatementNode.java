@@ -1,6 +1,9 @@
 package org.klar.core.parser.ast;
 
-abstract public class StatementNode extends AstNode {
+abstract public sealed class StatementNode extends AstNode
+        permits AssignmentStatementNode, BlockStatementNode, ConstantDeclarationNode, DecisionStatementNode,
+        ErrorStatementNode, ExpressionStatementNode, FunctionDeclarationNode, ImportDeclarationNode,
+        ModuleDeclarationNode, ReturnStatementNode, VariableDeclarationNode, WhileStatementNode {
     public StatementNode(int line, int column){
         super(line, column);
     }        
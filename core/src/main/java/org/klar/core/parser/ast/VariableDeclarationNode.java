@@ -2,7 +2,7 @@ package org.klar.core.parser.ast;
 
 import org.klar.core.lexer.Token;
 
-public class VariableDeclarationNode extends StatementNode{
+public final class VariableDeclarationNode extends StatementNode{
     public final TypeReferenceNode type;
     public final Token name;
     public final ExpressionNode value;
@@ -13,4 +13,9 @@ public class VariableDeclarationNode extends StatementNode{
         this.name = name;
         this.value = value;
     }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitVariableDeclaration(this);
+    }
 }
@@ -2,12 +2,56 @@ package org.klar.core.parser.ast;
 
 import org.klar.core.lexer.Token;
 
-public class VariableExpressionNode extends ExpressionNode {
+public final class VariableExpressionNode extends ExpressionNode {
+    /** {@link #depth()} and {@link #slot()} of a variable that is not bound. */
+    public static final int UNRESOLVED = -1;
+
     public final Token name;
 
+    private int depth = UNRESOLVED;
+    private int slot = UNRESOLVED;
+
     public VariableExpressionNode(Token name, int line, int column){
         super(line, column);
         this.name = name;
     }
-    
+
+    /**
+     * Records the scope coordinate this variable refers to.
+     *
+     * @param depth Number of enclosing scopes between the use and the
+     *              declaration; {@code 0} is the innermost scope.
+     * @param slot  Index of the declaration within that scope.
+     * @since 0.15
+     */
+    public void bind(int depth, int slot) {
+        this.depth = depth;
+        this.slot = slot;
+    }
+
+    /**
+     * @since 0.15
+     */
+    public boolean isBound() {
+        return slot != UNRESOLVED;
+    }
+
+    /**
+     * @since 0.15
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * @since 0.15
+     */
+    public int slot() {
+        return slot;
+    }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitVariable(this);
+    }
 }
@@ -1,6 +1,6 @@
 package org.klar.core.parser.ast;
 
-public class WhileStatementNode extends StatementNode{
+public final class WhileStatementNode extends StatementNode{
     public final ExpressionNode condition;
     public final BlockStatementNode body;
     
@@ -10,4 +10,9 @@ public class WhileStatementNode extends StatementNode{
         this.condition = condition;
         this.body = body;
     }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitWhile(this);
+    }
 }
@@ -0,0 +1,788 @@
+package org.klar.core.parser.ast.flat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.klar.core.lexer.Token;
+import org.klar.core.lexer.TokenType;
+import org.klar.core.parser.ast.AccessModifier;
+import org.klar.core.parser.ast.AssignmentStatementNode;
+import org.klar.core.parser.ast.AstNode;
+import org.klar.core.parser.ast.AstVisitor;
+import org.klar.core.parser.ast.BinaryExpressionNode;
+import org.klar.core.parser.ast.BlockStatementNode;
+import org.klar.core.parser.ast.CallExpressionNode;
+import org.klar.core.parser.ast.ConstantDeclarationNode;
+import org.klar.core.parser.ast.DecisionStatementNode;
+import org.klar.core.parser.ast.ErrorExpressionNode;
+import org.klar.core.parser.ast.ErrorStatementNode;
+import org.klar.core.parser.ast.ExpressionNode;
+import org.klar.core.parser.ast.ExpressionStatementNode;
+import org.klar.core.parser.ast.FunctionDeclarationNode;
+import org.klar.core.parser.ast.ImportDeclarationNode;
+import org.klar.core.parser.ast.IndexExpressionNode;
+import org.klar.core.parser.ast.LiteralExpressionNode;
+import org.klar.core.parser.ast.ModuleDeclarationNode;
+import org.klar.core.parser.ast.NewArrayExpressionNode;
+import org.klar.core.parser.ast.OtherwiseBranchNode;
+import org.klar.core.parser.ast.ParameterNode;
+import org.klar.core.parser.ast.ProgramNode;
+import org.klar.core.parser.ast.ReturnStatementNode;
+import org.klar.core.parser.ast.StatementNode;
+import org.klar.core.parser.ast.TypeReferenceNode;
+import org.klar.core.parser.ast.UseAnnotationNode;
+import org.klar.core.parser.ast.VariableDeclarationNode;
+import org.klar.core.parser.ast.VariableExpressionNode;
+import org.klar.core.parser.ast.WhileStatementNode;
+
+/**
+ * Compact, read-only encoding of a parsed program, used as the format of the
+ * {@code .klast} parse cache.
+ * <p>
+ * Nodes are plain {@code int} indices into parallel primitive arrays instead of
+ * one object (plus child lists) per node, which {@link KlastFormat} writes and
+ * reads as columns:
+ * </p>
+ * <ul>
+ * <li><strong>kind:</strong> a {@link FlatNodeKind} ordinal.</li>
+ * <li><strong>firstChild / nextSibling:</strong> the tree links, or
+ * {@link #NONE}.</li>
+ * <li><strong>position:</strong> line and column packed into one
+ * {@code long}.</li>
+ * <li><strong>aux:</strong> a per-kind integer (array depth, access modifier,
+ * string index).</li>
+ * <li><strong>token:</strong> the type ordinal, the text as an index into the
+ * string table and the packed position of the token of the node. No
+ * {@link Token} is kept; {@link #token(int)} creates one on request.</li>
+ * </ul>
+ * <p>
+ * Nodes are stored in pre-order and node {@code 0} is the
+ * {@link FlatNodeKind#PROGRAM} root. Every distinct string is stored once, so
+ * a name used a thousand times costs one entry.
+ * </p>
+ * <p>
+ * Passes that only need declarations read the columns directly, as
+ * {@code ModuleSummary.of(String, String, FlatAst)} and the import list of a
+ * cached module do. It does not lower the heap of a build: a module that is
+ * checked is rebuilt as objects with {@link #program()}, since the type
+ * checker, the IR lowering and the transpiler share a {@code TypedProgram}
+ * keyed by node identity. Function bodies are only rebuilt when a pass reads
+ * them.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class FlatAst {
+
+    public static final int NONE = -1;
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    private byte[] kinds;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private long[] positions;
+    private int[] aux;
+
+    private byte[] tokenTypes;
+    private int[] tokenTexts;
+    private long[] tokenPositions;
+    private int size;
+
+    private final List<String> strings;
+
+    /** How {@link #function(int, Bodies)} rebuilds a body. */
+    private enum Bodies {
+        EAGER,
+        DEFERRED
+    }
+
+    private FlatAst(int expectedNodes) {
+        int capacity = Math.max(16, expectedNodes);
+
+        this.kinds = new byte[capacity];
+        this.firstChild = new int[capacity];
+        this.nextSibling = new int[capacity];
+        this.positions = new long[capacity];
+        this.aux = new int[capacity];
+        this.tokenTypes = new byte[capacity];
+        this.tokenTexts = new int[capacity];
+        this.tokenPositions = new long[capacity];
+        this.strings = new ArrayList<>();
+    }
+
+    /**
+     * Wraps decoded storage, see {@link KlastFormat}.
+     */
+    FlatAst(byte[] kinds, int[] firstChild, int[] nextSibling, long[] positions, int[] aux, byte[] tokenTypes,
+            int[] tokenTexts, long[] tokenPositions, List<String> strings) {
+        this.kinds = kinds;
+        this.firstChild = firstChild;
+        this.nextSibling = nextSibling;
+        this.positions = positions;
+        this.aux = aux;
+        this.tokenTypes = tokenTypes;
+        this.tokenTexts = tokenTexts;
+        this.tokenPositions = tokenPositions;
+        this.size = kinds.length;
+        this.strings = strings;
+    }
+
+    /**
+     * Encodes {@code program}, including the error nodes of a partially
+     * parsed one. The object tree can be dropped afterwards.
+     */
+    public static FlatAst encode(ProgramNode program) {
+        return new Encoder(program).encode();
+    }
+
+    // Read-only view
+
+    public int root() {
+        return 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public FlatNodeKind kind(int node) {
+        return FlatNodeKind.of(kinds[node]);
+    }
+
+    public int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    public int childCount(int node) {
+        int count = 0;
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            count++;
+        }
+        return count;
+    }
+
+    public int line(int node) {
+        return (int) (positions[node] >>> 32);
+    }
+
+    public int column(int node) {
+        return (int) positions[node];
+    }
+
+    public int aux(int node) {
+        return aux[node];
+    }
+
+    /**
+     * @return The string stored for {@code node} (e.g. an otherwise reason), or
+     *         {@code null}.
+     */
+    public String string(int node) {
+        int index = aux[node];
+        return index == NONE ? null : strings.get(index);
+    }
+
+    public boolean hasToken(int node) {
+        return tokenTypes[node] != NONE;
+    }
+
+    /**
+     * @return The type of the token of {@code node}, or {@code null} if its
+     *         kind has none.
+     */
+    public TokenType tokenType(int node) {
+        return hasToken(node) ? TOKEN_TYPES[tokenTypes[node]] : null;
+    }
+
+    /**
+     * @return The text of the token of {@code node}, shared with every other
+     *         token of the same text, or {@code null} if there is none.
+     */
+    public String text(int node) {
+        int index = tokenTexts[node];
+        return index == NONE ? null : strings.get(index);
+    }
+
+    public int tokenLine(int node) {
+        return (int) (tokenPositions[node] >>> 32);
+    }
+
+    public int tokenColumn(int node) {
+        return (int) tokenPositions[node];
+    }
+
+    /**
+     * Creates the token of {@code node}. The views above read the same fields
+     * without allocating.
+     *
+     * @return The token, or {@code null} if its kind has none.
+     */
+    public Token token(int node) {
+        if (!hasToken(node)) {
+            return null;
+        }
+        return new Token(tokenType(node), text(node), tokenLine(node), tokenColumn(node));
+    }
+
+    // Storage access for KlastFormat
+
+    int tokenTypeOrdinal(int node) {
+        return tokenTypes[node];
+    }
+
+    int textIndex(int node) {
+        return tokenTexts[node];
+    }
+
+    List<String> strings() {
+        return strings;
+    }
+
+    // Materialization
+
+    /**
+     * Rebuilds the whole program. Function bodies are deferred, so they are
+     * only materialized by the passes that call
+     * {@link FunctionDeclarationNode#body()}.
+     */
+    public ProgramNode program() {
+        List<StatementNode> statements = new ArrayList<>();
+        for (int child = firstChild[root()]; child != NONE; child = nextSibling[child]) {
+            statements.add(kind(child) == FlatNodeKind.FUNCTION
+                    ? function(child, Bodies.DEFERRED)
+                    : statement(child));
+        }
+        return new ProgramNode(statements);
+    }
+
+    /**
+     * Rebuilds the object form of a statement node and its subtree.
+     */
+    public StatementNode statement(int node) {
+        switch (kind(node)) {
+            case FUNCTION:
+                return function(node, Bodies.EAGER);
+            case MODULE:
+                return new ModuleDeclarationNode(token(node), line(node), column(node));
+            case IMPORT: {
+                List<Token> path = new ArrayList<>();
+                for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                    path.add(token(child));
+                }
+                return new ImportDeclarationNode(path, line(node), column(node));
+            }
+            case BLOCK:
+                return block(node);
+            case VARIABLE_DECLARATION: {
+                int type = firstChild[node];
+                int value = nextSibling[type];
+                return new VariableDeclarationNode(type(type), token(node),
+                        value == NONE ? null : expression(value), line(node), column(node));
+            }
+            case CONSTANT_DECLARATION: {
+                int type = firstChild[node];
+                int value = nextSibling[type];
+                return new ConstantDeclarationNode(token(node), type(type),
+                        value == NONE ? null : expression(value), line(node), column(node));
+            }
+            case ASSIGNMENT: {
+                int target = firstChild[node];
+                return new AssignmentStatementNode(expression(target), expression(nextSibling[target]),
+                        line(node), column(node));
+            }
+            case EXPRESSION_STATEMENT:
+                return new ExpressionStatementNode(expression(firstChild[node]), line(node), column(node));
+            case RETURN: {
+                int value = firstChild[node];
+                return new ReturnStatementNode(value == NONE ? null : expression(value), line(node), column(node));
+            }
+            case WHILE: {
+                int condition = firstChild[node];
+                return new WhileStatementNode(expression(condition), block(nextSibling[condition]),
+                        line(node), column(node));
+            }
+            case DECISION:
+                return decision(node);
+            case ERROR_STATEMENT:
+                return new ErrorStatementNode(token(node), aux[node] != 0, line(node), column(node));
+            default:
+                throw new IllegalArgumentException("Node " + node + " is not a statement: " + kind(node));
+        }
+    }
+
+    /**
+     * Rebuilds the object form of an expression node and its subtree.
+     */
+    public ExpressionNode expression(int node) {
+        switch (kind(node)) {
+            case LITERAL:
+                return new LiteralExpressionNode(token(node), line(node), column(node));
+            case VARIABLE:
+                return new VariableExpressionNode(token(node), line(node), column(node));
+            case BINARY:
+                return binary(node);
+            case CALL: {
+                List<ExpressionNode> arguments = new ArrayList<>();
+                for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                    arguments.add(expression(child));
+                }
+                return new CallExpressionNode(token(node), arguments, line(node), column(node));
+            }
+            case INDEX: {
+                int target = firstChild[node];
+                return new IndexExpressionNode(expression(target), expression(nextSibling[target]),
+                        line(node), column(node));
+            }
+            case NEW_ARRAY: {
+                int type = firstChild[node];
+                int size = nextSibling[type];
+                List<ExpressionNode> initializer = new ArrayList<>();
+                for (int child = nextSibling[size]; child != NONE; child = nextSibling[child]) {
+                    initializer.add(expression(child));
+                }
+                return new NewArrayExpressionNode(type(type), expression(size), initializer,
+                        line(node), column(node));
+            }
+            case ERROR_EXPRESSION:
+                return new ErrorExpressionNode(line(node), column(node));
+            default:
+                throw new IllegalArgumentException("Node " + node + " is not an expression: " + kind(node));
+        }
+    }
+
+    private FunctionDeclarationNode function(int node, Bodies bodies) {
+        int child = firstChild[node];
+        UseAnnotationNode use = null;
+
+        if (kind(child) == FlatNodeKind.USE) {
+            use = new UseAnnotationNode(token(child));
+            child = nextSibling[child];
+        }
+
+        TypeReferenceNode returnType = type(child);
+        child = nextSibling[child];
+
+        List<ParameterNode> parameters = new ArrayList<>();
+        while (child != NONE && kind(child) == FlatNodeKind.PARAMETER) {
+            parameters.add(new ParameterNode(type(firstChild[child]), token(child)));
+            child = nextSibling[child];
+        }
+
+        AccessModifier access = AccessModifier.values()[aux[node]];
+
+        if (child != NONE && bodies == Bodies.DEFERRED) {
+            int body = child;
+            return new FunctionDeclarationNode(access, returnType, token(node), parameters, () -> block(body), use,
+                    line(node), column(node));
+        }
+
+        BlockStatementNode body = child != NONE ? block(child) : null;
+
+        return new FunctionDeclarationNode(access, returnType, token(node), parameters, body, use, line(node),
+                column(node));
+    }
+
+    private BlockStatementNode block(int node) {
+        List<StatementNode> statements = new ArrayList<>();
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            statements.add(statement(child));
+        }
+        return new BlockStatementNode(statements, line(node), column(node));
+    }
+
+    private DecisionStatementNode decision(int node) {
+        int condition = firstChild[node];
+        int ifBlock = nextSibling[condition];
+
+        List<OtherwiseBranchNode> branches = new ArrayList<>();
+        BlockStatementNode afterall = null;
+
+        for (int child = nextSibling[ifBlock]; child != NONE; child = nextSibling[child]) {
+            if (kind(child) == FlatNodeKind.OTHERWISE) {
+                int branchCondition = firstChild[child];
+                branches.add(new OtherwiseBranchNode(expression(branchCondition), string(child),
+                        block(nextSibling[branchCondition])));
+            } else {
+                afterall = block(child);
+            }
+        }
+
+        return new DecisionStatementNode(expression(condition), block(ifBlock), branches, afterall,
+                line(node), column(node));
+    }
+
+    private TypeReferenceNode type(int node) {
+        return new TypeReferenceNode(token(node), aux[node]);
+    }
+
+    /**
+     * Rebuilds a binary chain bottom-up along its left spine, so long operator
+     * chains are not materialized recursively.
+     */
+    private ExpressionNode binary(int node) {
+        int[] spine = new int[8];
+        int depth = 0;
+
+        for (int current = node; kind(current) == FlatNodeKind.BINARY; current = firstChild[current]) {
+            if (depth == spine.length) {
+                spine = Arrays.copyOf(spine, depth * 2);
+            }
+            spine[depth++] = current;
+        }
+
+        ExpressionNode left = expression(firstChild[spine[depth - 1]]);
+
+        for (int i = depth - 1; i >= 0; i--) {
+            int operation = spine[i];
+            ExpressionNode right = expression(nextSibling[firstChild[operation]]);
+            left = new BinaryExpressionNode(left, token(operation), right, line(operation), column(operation));
+        }
+
+        return left;
+    }
+
+    // Storage
+
+    private int append(FlatNodeKind kind, Token token, int auxValue, int line, int column,
+            Map<String, Integer> stringIndices) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            aux = Arrays.copyOf(aux, capacity);
+            tokenTypes = Arrays.copyOf(tokenTypes, capacity);
+            tokenTexts = Arrays.copyOf(tokenTexts, capacity);
+            tokenPositions = Arrays.copyOf(tokenPositions, capacity);
+        }
+
+        int node = size++;
+        kinds[node] = (byte) kind.ordinal();
+        firstChild[node] = NONE;
+        nextSibling[node] = NONE;
+        positions[node] = pack(line, column);
+        aux[node] = auxValue;
+
+        if (token == null) {
+            tokenTypes[node] = NONE;
+            tokenTexts[node] = NONE;
+        } else {
+            tokenTypes[node] = (byte) token.type.ordinal();
+            tokenTexts[node] = addString(token.value, stringIndices);
+            tokenPositions[node] = pack(token.line, token.column);
+        }
+        return node;
+    }
+
+    /**
+     * @return the index of {@code value} in the string table, added if it is
+     *         not there yet, or {@link #NONE} for {@code null}
+     */
+    private int addString(String value, Map<String, Integer> stringIndices) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer index = stringIndices.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.add(value);
+            stringIndices.put(value, index);
+        }
+        return index;
+    }
+
+    static long pack(int line, int column) {
+        return ((long) line << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    private void trimToSize() {
+        kinds = Arrays.copyOf(kinds, size);
+        firstChild = Arrays.copyOf(firstChild, size);
+        nextSibling = Arrays.copyOf(nextSibling, size);
+        positions = Arrays.copyOf(positions, size);
+        aux = Arrays.copyOf(aux, size);
+        tokenTypes = Arrays.copyOf(tokenTypes, size);
+        tokenTexts = Arrays.copyOf(tokenTexts, size);
+        tokenPositions = Arrays.copyOf(tokenPositions, size);
+    }
+
+    /**
+     * Pre-order encoder driven by an explicit work stack, so neither long
+     * operator chains nor deep nesting recurse.
+     * <p>
+     * AST nodes are dispatched through {@link AstVisitor}, so a node type
+     * added to the hierarchy fails to compile here until it has a kind. The
+     * other stack entries are the parts of nodes this encoder pushes itself.
+     * </p>
+     */
+    private static final class Encoder implements AstVisitor<Void> {
+        private final ProgramNode program;
+        private final FlatAst ast;
+        private final Map<String, Integer> stringIndices = new HashMap<>();
+
+        private Object[] pending = new Object[64];
+        private int[] pendingParents = new int[64];
+        private int pendingCount;
+
+        private int[] lastChild;
+
+        /** Parent of the AST node being visited. */
+        private int parent;
+
+        Encoder(ProgramNode program) {
+            this.program = program;
+            this.ast = new FlatAst(program.statements.size() * 32);
+            this.lastChild = new int[ast.kinds.length];
+        }
+
+        FlatAst encode() {
+            int root = add(FlatNodeKind.PROGRAM, null, 0, 0, 0, NONE);
+            pushAll(program.statements, root);
+
+            while (pendingCount > 0) {
+                pendingCount--;
+                Object item = pending[pendingCount];
+                int itemParent = pendingParents[pendingCount];
+                pending[pendingCount] = null;
+
+                visit(item, itemParent);
+            }
+
+            ast.trimToSize();
+            return ast;
+        }
+
+        // Children are pushed in reverse so they are popped, and therefore
+        // appended, in source order.
+
+        private void visit(Object item, int itemParent) {
+            if (item instanceof AstNode n) {
+                parent = itemParent;
+                n.accept(this);
+            } else if (item instanceof ParameterNode p) {
+                int node = add(FlatNodeKind.PARAMETER, p.name, 0, p.name.getLine(), p.name.getColumn(),
+                        itemParent);
+                push(p.type, node);
+            } else if (item instanceof UseAnnotationNode u) {
+                add(FlatNodeKind.USE, u.target, 0, u.target.getLine(), u.target.getColumn(), itemParent);
+            } else if (item instanceof TypeReferenceNode t) {
+                Token base = t.getBaseType();
+                add(FlatNodeKind.TYPE, base, t.arrayDepth, base.getLine(), base.getColumn(), itemParent);
+            } else if (item instanceof Token t) {
+                add(FlatNodeKind.NAME, t, 0, t.getLine(), t.getColumn(), itemParent);
+            } else {
+                OtherwiseBranchNode o = (OtherwiseBranchNode) item;
+                int node = add(FlatNodeKind.OTHERWISE, null, ast.addString(o.reason, stringIndices),
+                        o.condition.line, o.condition.column, itemParent);
+                push(o.body, node);
+                push(o.condition, node);
+            }
+        }
+
+        // Statements
+
+        @Override
+        public Void visitAssignment(AssignmentStatementNode a) {
+            int node = add(FlatNodeKind.ASSIGNMENT, null, 0, a.line, a.column, parent);
+            push(a.value, node);
+            push(a.name, node);
+            return null;
+        }
+
+        @Override
+        public Void visitBlock(BlockStatementNode b) {
+            int node = add(FlatNodeKind.BLOCK, null, 0, b.line, b.column, parent);
+            pushAll(b.statements, node);
+            return null;
+        }
+
+        @Override
+        public Void visitConstantDeclaration(ConstantDeclarationNode c) {
+            int node = add(FlatNodeKind.CONSTANT_DECLARATION, c.name, 0, c.line, c.column, parent);
+            if (c.value != null) {
+                push(c.value, node);
+            }
+            push(c.type, node);
+            return null;
+        }
+
+        @Override
+        public Void visitDecision(DecisionStatementNode d) {
+            int node = add(FlatNodeKind.DECISION, null, 0, d.line, d.column, parent);
+            if (d.afterallBlock != null) {
+                push(d.afterallBlock, node);
+            }
+            pushAll(d.otherwiseBranches, node);
+            push(d.ifBlock, node);
+            push(d.condition, node);
+            return null;
+        }
+
+        @Override
+        public Void visitErrorStatement(ErrorStatementNode e) {
+            add(FlatNodeKind.ERROR_STATEMENT, e.declaredName, e.declaresFunction ? 1 : 0, e.line, e.column,
+                    parent);
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStatement(ExpressionStatementNode e) {
+            int node = add(FlatNodeKind.EXPRESSION_STATEMENT, null, 0, e.line, e.column, parent);
+            push(e.expression, node);
+            return null;
+        }
+
+        @Override
+        public Void visitFunctionDeclaration(FunctionDeclarationNode f) {
+            int node = add(FlatNodeKind.FUNCTION, f.name, f.access.ordinal(), f.line, f.column, parent);
+            BlockStatementNode body = f.body();
+            if (body != null) {
+                push(body, node);
+            }
+            pushAll(f.parameters, node);
+            push(f.returnType, node);
+            if (f.use != null) {
+                push(f.use, node);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitImportDeclaration(ImportDeclarationNode i) {
+            int node = add(FlatNodeKind.IMPORT, null, 0, i.line, i.column, parent);
+            pushAll(i.path, node);
+            return null;
+        }
+
+        @Override
+        public Void visitModuleDeclaration(ModuleDeclarationNode m) {
+            add(FlatNodeKind.MODULE, m.getName(), 0, m.line, m.column, parent);
+            return null;
+        }
+
+        @Override
+        public Void visitReturn(ReturnStatementNode r) {
+            int node = add(FlatNodeKind.RETURN, null, 0, r.line, r.column, parent);
+            if (r.value != null) {
+                push(r.value, node);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitVariableDeclaration(VariableDeclarationNode v) {
+            int node = add(FlatNodeKind.VARIABLE_DECLARATION, v.name, 0, v.line, v.column, parent);
+            if (v.value != null) {
+                push(v.value, node);
+            }
+            push(v.type, node);
+            return null;
+        }
+
+        @Override
+        public Void visitWhile(WhileStatementNode w) {
+            int node = add(FlatNodeKind.WHILE, null, 0, w.line, w.column, parent);
+            push(w.body, node);
+            push(w.condition, node);
+            return null;
+        }
+
+        // Expressions
+
+        @Override
+        public Void visitBinary(BinaryExpressionNode b) {
+            int node = add(FlatNodeKind.BINARY, b.operator, 0, b.line, b.column, parent);
+            push(b.right, node);
+            push(b.left, node);
+            return null;
+        }
+
+        @Override
+        public Void visitCall(CallExpressionNode c) {
+            int node = add(FlatNodeKind.CALL, c.callee, 0, c.line, c.column, parent);
+            pushAll(c.arguments, node);
+            return null;
+        }
+
+        @Override
+        public Void visitErrorExpression(ErrorExpressionNode e) {
+            add(FlatNodeKind.ERROR_EXPRESSION, null, 0, e.line, e.column, parent);
+            return null;
+        }
+
+        @Override
+        public Void visitIndex(IndexExpressionNode i) {
+            int node = add(FlatNodeKind.INDEX, null, 0, i.line, i.column, parent);
+            push(i.index, node);
+            push(i.target, node);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteral(LiteralExpressionNode l) {
+            add(FlatNodeKind.LITERAL, l.value, 0, l.line, l.column, parent);
+            return null;
+        }
+
+        @Override
+        public Void visitNewArray(NewArrayExpressionNode n) {
+            int node = add(FlatNodeKind.NEW_ARRAY, null, 0, n.line, n.column, parent);
+            pushAll(n.initializer, node);
+            push(n.size, node);
+            push(n.type, node);
+            return null;
+        }
+
+        @Override
+        public Void visitVariable(VariableExpressionNode v) {
+            add(FlatNodeKind.VARIABLE, v.name, 0, v.line, v.column, parent);
+            return null;
+        }
+
+        private int add(FlatNodeKind kind, Token token, int auxValue, int line, int column, int nodeParent) {
+            int node = ast.append(kind, token, auxValue, line, column, stringIndices);
+
+            if (node == lastChild.length) {
+                lastChild = Arrays.copyOf(lastChild, node * 2);
+            }
+            lastChild[node] = NONE;
+
+            if (nodeParent != NONE) {
+                int previous = lastChild[nodeParent];
+                if (previous == NONE) {
+                    ast.firstChild[nodeParent] = node;
+                } else {
+                    ast.nextSibling[previous] = node;
+                }
+                lastChild[nodeParent] = node;
+            }
+
+            return node;
+        }
+
+        private void push(Object item, int itemParent) {
+            if (pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, pendingCount * 2);
+                pendingParents = Arrays.copyOf(pendingParents, pendingCount * 2);
+            }
+            pending[pendingCount] = item;
+            pendingParents[pendingCount] = itemParent;
+            pendingCount++;
+        }
+
+        private void pushAll(List<?> items, int itemParent) {
+            for (int i = items.size() - 1; i >= 0; i--) {
+                push(items.get(i), itemParent);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.klar.core.parser.ast.flat;
+
+/**
+ * Node kinds of a {@link FlatAst}, stored by ordinal.
+ * <p>
+ * Each kind documents its token, its {@code aux} value and the order of its
+ * children; optional children are told apart by their kind.
+ * </p>
+ *
+ * @since 0.15
+ */
+public enum FlatNodeKind {
+    /** Children: top-level statements. */
+    PROGRAM,
+
+    // Declarations
+
+    /**
+     * Token: name. Aux: {@code AccessModifier} ordinal. Children: optional
+     * {@link #USE}, {@link #TYPE} (return type), {@link #PARAMETER}s,
+     * {@link #BLOCK} (body).
+     */
+    FUNCTION,
+    /** Token: name. Children: {@link #TYPE}. */
+    PARAMETER,
+    /** Token: target string. */
+    USE,
+    /** Token: base type. Aux: array depth. */
+    TYPE,
+    /** Token: module name. */
+    MODULE,
+    /** Children: one {@link #NAME} per path segment. */
+    IMPORT,
+    /** Token: identifier. */
+    NAME,
+
+    // Statements
+
+    /** Children: statements. */
+    BLOCK,
+    /** Token: name. Children: {@link #TYPE}, optional initializer. */
+    VARIABLE_DECLARATION,
+    /** Token: name. Children: {@link #TYPE}, value. */
+    CONSTANT_DECLARATION,
+    /** Children: target, value. */
+    ASSIGNMENT,
+    /** Children: expression. */
+    EXPRESSION_STATEMENT,
+    /** Children: optional value. */
+    RETURN,
+    /** Children: condition, {@link #BLOCK}. */
+    WHILE,
+    /**
+     * Children: condition, {@link #BLOCK}, {@link #OTHERWISE}s, optional
+     * {@link #BLOCK} (afterall).
+     */
+    DECISION,
+    /** Aux: reason string index, or {@link FlatAst#NONE}. Children: condition, {@link #BLOCK}. */
+    OTHERWISE,
+    /**
+     * Token: declared name, if any. Aux: {@code 1} if the name is a
+     * function's.
+     */
+    ERROR_STATEMENT,
+
+    // Expressions
+
+    /** Token: literal. */
+    LITERAL,
+    /** Token: name. */
+    VARIABLE,
+    /** Token: operator. Children: left, right. */
+    BINARY,
+    /** Token: callee. Children: arguments. */
+    CALL,
+    /** Children: target, index. */
+    INDEX,
+    /** Children: {@link #TYPE}, size, initializer values. */
+    NEW_ARRAY,
+    /** A missing or malformed expression. */
+    ERROR_EXPRESSION;
+
+    private static final FlatNodeKind[] VALUES = values();
+
+    static FlatNodeKind of(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,389 @@
+package org.klar.core.parser.ast.flat;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.klar.core.lexer.TokenType;
+
+/**
+ * Binary {@code .klast} form of a {@link FlatAst}, used to cache parsed
+ * programs between builds.
+ * <p>
+ * All integers are unsigned LEB128 varints; signed values (line deltas,
+ * {@code aux}) are zigzag encoded first. The layout is:
+ * </p>
+ * <ul>
+ * <li><strong>header:</strong> the bytes {@code KAST}, {@link #VERSION}, a
+ * fingerprint of the {@link TokenType} and {@link FlatNodeKind} constants, and
+ * the hash of the source the tree was parsed from.</li>
+ * <li><strong>strings:</strong> the string table of the tree, token texts
+ * and node strings alike, as UTF-8. A node string is found through its
+ * {@code aux} index.</li>
+ * <li><strong>nodes:</strong> in pre-order, a tag ({@code kind * 4} plus one
+ * of the {@code TOKEN_*} constants), child count, {@code aux}, line delta and
+ * column. A node with a token follows with its type ordinal and text (string
+ * index plus one, or {@code 0} for none), and with the token position
+ * relative to the node only when the two differ. The tree links are rebuilt
+ * from the child counts.</li>
+ * <li><strong>trailer:</strong> a CRC-32 of everything before it, as four
+ * big-endian bytes.</li>
+ * </ul>
+ * <p>
+ * A file is only accepted when its header matches the running compiler and
+ * the given source hash; anything else, including a truncated file, reads as
+ * a cache miss.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class KlastFormat {
+    public static final String EXTENSION = ".klast";
+
+    /** Bumped whenever the layout above changes. */
+    public static final int VERSION = 2;
+
+    private static final byte[] MAGIC = { 'K', 'A', 'S', 'T' };
+
+    private static final int TOKEN_NONE = 0;
+    private static final int TOKEN_AT_NODE = 1;
+    private static final int TOKEN_ELSEWHERE = 2;
+
+    /**
+     * Changes whenever a token type or node kind is added, removed or
+     * reordered, since both are stored by ordinal.
+     */
+    private static final int SCHEMA = schemaFingerprint();
+
+    private KlastFormat() {
+    }
+
+    /**
+     * Writes {@code ast} to {@code file}, replacing it atomically.
+     *
+     * @param sourceHash Hash of the source {@code ast} was parsed from.
+     */
+    public static void write(FlatAst ast, byte[] sourceHash, Path file) throws IOException {
+        Output out = new Output(ast.size() * 6 + 64);
+        out.bytes(MAGIC);
+        out.varint(VERSION);
+        out.varint(SCHEMA);
+        out.varint(sourceHash.length);
+        out.bytes(sourceHash);
+
+        out.varint(ast.strings().size());
+        for (String value : ast.strings()) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            out.varint(utf8.length);
+            out.bytes(utf8);
+        }
+
+        int line = 0;
+        out.varint(ast.size());
+        for (int node = 0; node < ast.size(); node++) {
+            int nodeLine = ast.line(node);
+            int nodeColumn = ast.column(node);
+
+            int tokenLine = ast.tokenLine(node);
+            int tokenColumn = ast.tokenColumn(node);
+            int placement = !ast.hasToken(node) ? TOKEN_NONE
+                    : tokenLine == nodeLine && tokenColumn == nodeColumn ? TOKEN_AT_NODE
+                    : TOKEN_ELSEWHERE;
+
+            out.varint(ast.kind(node).ordinal() * 4 + placement);
+            out.varint(ast.childCount(node));
+            out.signed(ast.aux(node));
+            out.signed(nodeLine - line);
+            out.signed(nodeColumn);
+            line = nodeLine;
+
+            if (placement == TOKEN_NONE) {
+                continue;
+            }
+            out.varint(ast.tokenTypeOrdinal(node));
+            out.varint(ast.textIndex(node) + 1);
+            if (placement == TOKEN_ELSEWHERE) {
+                out.signed(tokenLine - nodeLine);
+                out.signed(tokenColumn - nodeColumn);
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(out.buffer, 0, out.size);
+        out.int32((int) crc.getValue());
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, out.toByteArray());
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps {@code file} and decodes it.
+     *
+     * @param sourceHash Hash of the current source.
+     * @return the cached tree, or {@code null} if the file is missing, stale or
+     *         unreadable
+     */
+    public static FlatAst read(Path file, byte[] sourceHash) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer, sourceHash);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decodes a {@code .klast} image.
+     *
+     * @return the tree, or {@code null} if the image does not match
+     *         {@code sourceHash} or this compiler, or is malformed
+     */
+    public static FlatAst decode(ByteBuffer buffer, byte[] sourceHash) {
+        try {
+            if (!checksumMatches(buffer)) {
+                return null;
+            }
+
+            Input in = new Input(buffer);
+            if (!Arrays.equals(in.bytes(MAGIC.length), MAGIC)
+                    || in.varint() != VERSION
+                    || in.varint() != SCHEMA
+                    || !Arrays.equals(in.bytes(in.varint()), sourceHash)) {
+                return null;
+            }
+
+            int stringCount = in.count();
+            List<String> strings = new ArrayList<>(stringCount);
+            for (int i = 0; i < stringCount; i++) {
+                strings.add(new String(in.bytes(in.varint()), StandardCharsets.UTF_8));
+            }
+
+            int tokenTypeCount = TokenType.values().length;
+            int otherwise = FlatNodeKind.OTHERWISE.ordinal();
+            int size = in.count();
+            int kindCount = FlatNodeKind.values().length;
+            byte[] kinds = new byte[size];
+            int[] firstChild = new int[size];
+            int[] nextSibling = new int[size];
+            long[] positions = new long[size];
+            int[] aux = new int[size];
+            byte[] tokenTypes = new byte[size];
+            int[] tokenTexts = new int[size];
+            long[] tokenPositions = new long[size];
+
+            // Open parents, each with the number of children still to come
+            // and its last child so far.
+            int[] parents = new int[64];
+            int[] remaining = new int[64];
+            int[] lastChild = new int[64];
+            int depth = 0;
+
+            int line = 0;
+            for (int node = 0; node < size; node++) {
+                int tag = in.varint();
+                int kind = tag / 4;
+                int placement = tag % 4;
+                if (kind >= kindCount || placement > TOKEN_ELSEWHERE) {
+                    return null;
+                }
+                int children = in.varint();
+                kinds[node] = (byte) kind;
+                firstChild[node] = FlatAst.NONE;
+                nextSibling[node] = FlatAst.NONE;
+                aux[node] = in.signed();
+                if (kind == otherwise && (aux[node] < FlatAst.NONE || aux[node] >= stringCount)) {
+                    return null;
+                }
+                line += in.signed();
+                int column = in.signed();
+                positions[node] = FlatAst.pack(line, column);
+
+                if (placement == TOKEN_NONE) {
+                    tokenTypes[node] = FlatAst.NONE;
+                    tokenTexts[node] = FlatAst.NONE;
+                } else {
+                    int type = in.varint();
+                    int text = in.varint() - 1;
+                    if (type >= tokenTypeCount || text < FlatAst.NONE || text >= stringCount) {
+                        return null;
+                    }
+                    int tokenLine = line;
+                    int tokenColumn = column;
+                    if (placement == TOKEN_ELSEWHERE) {
+                        tokenLine += in.signed();
+                        tokenColumn += in.signed();
+                    }
+                    tokenTypes[node] = (byte) type;
+                    tokenTexts[node] = text;
+                    tokenPositions[node] = FlatAst.pack(tokenLine, tokenColumn);
+                }
+
+                if (depth > 0) {
+                    int parent = depth - 1;
+                    if (lastChild[parent] == FlatAst.NONE) {
+                        firstChild[parents[parent]] = node;
+                    } else {
+                        nextSibling[lastChild[parent]] = node;
+                    }
+                    lastChild[parent] = node;
+                    remaining[parent]--;
+                } else if (node != 0) {
+                    return null;
+                }
+
+                if (children > 0) {
+                    if (depth == parents.length) {
+                        parents = Arrays.copyOf(parents, depth * 2);
+                        remaining = Arrays.copyOf(remaining, depth * 2);
+                        lastChild = Arrays.copyOf(lastChild, depth * 2);
+                    }
+                    parents[depth] = node;
+                    remaining[depth] = children;
+                    lastChild[depth] = FlatAst.NONE;
+                    depth++;
+                }
+
+                while (depth > 0 && remaining[depth - 1] == 0) {
+                    depth--;
+                }
+            }
+
+            if (depth != 0 || size == 0 || in.buffer.remaining() != 4) {
+                return null;
+            }
+            return new FlatAst(kinds, firstChild, nextSibling, positions, aux, tokenTypes, tokenTexts,
+                    tokenPositions, strings);
+
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            return null;
+        }
+    }
+
+    private static boolean checksumMatches(ByteBuffer buffer) {
+        int end = buffer.limit() - 4;
+        if (end < buffer.position()) {
+            return false;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().limit(end));
+        return (int) crc.getValue() == buffer.getInt(end);
+    }
+
+    private static int schemaFingerprint() {
+        int hash = 1;
+        for (TokenType type : TokenType.values()) {
+            hash = 31 * hash + type.name().hashCode();
+        }
+        for (FlatNodeKind kind : FlatNodeKind.values()) {
+            hash = 31 * hash + kind.name().hashCode();
+        }
+        // Stored as an unsigned varint.
+        return hash & 0x7FFFFFFF;
+    }
+
+    private static final class Output {
+        private byte[] buffer;
+        private int size;
+
+        Output(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void varint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void signed(int value) {
+            varint((value << 1) ^ (value >> 31));
+        }
+
+        void int32(int value) {
+            ensure(4);
+            buffer[size++] = (byte) (value >>> 24);
+            buffer[size++] = (byte) (value >>> 16);
+            buffer[size++] = (byte) (value >>> 8);
+            buffer[size++] = (byte) value;
+        }
+
+        void bytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+
+    private static final class Input {
+        private final ByteBuffer buffer;
+
+        Input(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IndexOutOfBoundsException("Malformed varint");
+        }
+
+        /**
+         * Reads an element count, rejecting counts that cannot fit in the rest
+         * of the buffer (every element takes at least one byte).
+         */
+        int count() {
+            int count = varint();
+            if (count < 0 || count > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            return count;
+        }
+
+        int signed() {
+            int value = varint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        byte[] bytes(int length) {
+            if (length > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+}
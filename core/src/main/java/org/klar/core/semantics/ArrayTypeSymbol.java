@@ -2,19 +2,38 @@ package org.klar.core.semantics;
 
 import org.klar.core.Heddle;
 
+/**
+ * An array of a primitive element type.
+ * <p>
+ * Instances are canonical, one per element type, see {@link #of(Type)}.
+ * </p>
+ */
 public final class ArrayTypeSymbol implements TypeSymbol {
+    private static final ArrayTypeSymbol[] CANONICAL = new ArrayTypeSymbol[Type.values().length];
+
+    static {
+        for (Type type : Type.values()) {
+            CANONICAL[type.ordinal()] = new ArrayTypeSymbol(type);
+        }
+    }
+
     public final Type elementType;
 
-    public ArrayTypeSymbol(Type elementType) {
+    private ArrayTypeSymbol(Type elementType) {
         this.elementType = elementType;
     }
 
+    /**
+     * @return the canonical array symbol for {@code elementType}
+     * @since 0.15
+     */
+    public static ArrayTypeSymbol of(Type elementType) {
+        return CANONICAL[elementType.ordinal()];
+    }
+
     @Override
     public boolean isAssignableFrom(TypeSymbol other) {
-        if (other instanceof ArrayTypeSymbol arr) {
-            return arr.elementType == this.elementType;
-        }
-        return false;
+        return other == this;
     }
 
     @Override
@@ -0,0 +1,170 @@
+package org.klar.core.semantics;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.klar.core.lexer.TokenType;
+import org.klar.core.parser.ast.BinaryExpressionNode;
+import org.klar.core.parser.ast.ExpressionNode;
+import org.klar.core.parser.ast.LiteralExpressionNode;
+import org.klar.core.parser.ast.VariableExpressionNode;
+
+/**
+ * Evaluates expressions made only of literals and operators.
+ * <p>
+ * Values follow Java semantics, since that is what the generated code would
+ * compute: {@code integer} is a 32-bit {@link Integer} that wraps on overflow,
+ * {@code double} is a {@link Double}, and mixing the two widens to
+ * {@code double}. Strings are kept in source form, without the quotes and with
+ * escape sequences as written, so concatenated values can be emitted as a
+ * literal again.
+ * </p>
+ * <p>
+ * An expression has no value when it uses anything but literals and named
+ * constants, or when evaluating it would fail at run time (integer division by
+ * zero).
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class ConstantEvaluator {
+
+    private ConstantEvaluator() {
+    }
+
+    /**
+     * @return the value of {@code node} as an {@link Integer}, {@link Double},
+     *         {@link Boolean} or {@link String}, or {@code null} if it has none
+     */
+    public static Object evaluate(ExpressionNode node) {
+        return evaluate(node, name -> null);
+    }
+
+    /**
+     * @param constants Value of the constant with a given name, or
+     *                  {@code null} if there is none or it is not known.
+     * @return the value of {@code node} as an {@link Integer}, {@link Double},
+     *         {@link Boolean} or {@link String}, or {@code null} if it has none
+     */
+    public static Object evaluate(ExpressionNode node, Function<String, Object> constants) {
+        if (node instanceof LiteralExpressionNode literal) {
+            return literal(literal);
+        }
+        if (node instanceof VariableExpressionNode variable) {
+            return constants.apply(variable.name.getValue());
+        }
+        if (!(node instanceof BinaryExpressionNode binary)) {
+            return null;
+        }
+
+        // Walk the left spine so long chains do not recurse per operand.
+        List<BinaryExpressionNode> spine = binary.leftSpine();
+        Object left = evaluate(spine.get(spine.size() - 1).left, constants);
+
+        for (int i = spine.size() - 1; i >= 0 && left != null; i--) {
+            BinaryExpressionNode operation = spine.get(i);
+            Object right = evaluate(operation.right, constants);
+            left = right == null ? null : apply(operation.operator.getType(), left, right);
+        }
+
+        return left;
+    }
+
+    static Object literal(LiteralExpressionNode node) {
+        String text = node.value.getValue();
+        try {
+            return switch (node.value.getType()) {
+                case INTEGER_LITERAL -> Integer.parseInt(text);
+                case DOUBLE_LITERAL -> Double.parseDouble(text);
+                case TRUE -> Boolean.TRUE;
+                case FALSE -> Boolean.FALSE;
+                case STRING_LITERAL -> text.length() >= 2 ? text.substring(1, text.length() - 1) : null;
+                default -> null;
+            };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Applies a binary operator, or returns {@code null} if the operands do not
+     * fit it.
+     */
+    static Object apply(TokenType operator, Object left, Object right) {
+        if (operator == TokenType.PLUS && (left instanceof String || right instanceof String)) {
+            return text(left) + text(right);
+        }
+
+        if (left instanceof Boolean a && right instanceof Boolean b) {
+            return switch (operator) {
+                case AND -> a && b;
+                case OR -> a || b;
+                case DOUBLEEQUAL -> a.equals(b);
+                case NOTEQUAL -> !a.equals(b);
+                default -> null;
+            };
+        }
+
+        if (left instanceof String a && right instanceof String b) {
+            return switch (operator) {
+                case DOUBLEEQUAL -> a.equals(b);
+                case NOTEQUAL -> !a.equals(b);
+                default -> null;
+            };
+        }
+
+        if (left instanceof Integer a && right instanceof Integer b) {
+            return switch (operator) {
+                case PLUS -> a + b;
+                case MINUS -> a - b;
+                case MULTIPLY -> a * b;
+                case DIVISION -> b == 0 ? null : a / b;
+                case REMAINDER -> b == 0 ? null : a % b;
+                case LT -> a < b;
+                case GT -> a > b;
+                case LTE -> a <= b;
+                case GTE -> a >= b;
+                case DOUBLEEQUAL -> a.intValue() == b.intValue();
+                case NOTEQUAL -> a.intValue() != b.intValue();
+                default -> null;
+            };
+        }
+
+        if (left instanceof Number a && right instanceof Number b) {
+            double x = a.doubleValue();
+            double y = b.doubleValue();
+            return switch (operator) {
+                case PLUS -> x + y;
+                case MINUS -> x - y;
+                case MULTIPLY -> x * y;
+                case DIVISION -> x / y;
+                case REMAINDER -> x % y;
+                case LT -> x < y;
+                case GT -> x > y;
+                case LTE -> x <= y;
+                case GTE -> x >= y;
+                case DOUBLEEQUAL -> x == y;
+                case NOTEQUAL -> x != y;
+                default -> null;
+            };
+        }
+
+        return null;
+    }
+
+    /**
+     * Converts a value to the declared type of the constant holding it, so an
+     * {@code integer} initializer of a {@code double} constant becomes a
+     * {@link Double}.
+     */
+    public static Object coerce(Object value, TypeSymbol type) {
+        if (value instanceof Integer i && PrimitiveTypeSymbol.isOf(type, Type.DOUBLE)) {
+            return i.doubleValue();
+        }
+        return value;
+    }
+
+    private static String text(Object value) {
+        return String.valueOf(value);
+    }
+}
@@ -3,8 +3,26 @@ package org.klar.core.semantics;
 public final class ConstantSymbol implements TypeSymbol {
     public final TypeSymbol type;
 
+    /**
+     * Compile-time value of the constant, or {@code null} if it is not known.
+     * Uses of the constant are replaced by it.
+     *
+     * @since 0.15
+     */
+    public final Object value;
+
     public ConstantSymbol(TypeSymbol type) {
+        this(type, null);
+    }
+
+    /**
+     * @param value Value as computed by {@link ConstantEvaluator}, or
+     *              {@code null}.
+     * @since 0.15
+     */
+    public ConstantSymbol(TypeSymbol type, Object value) {
         this.type = type;  // Fixed: was calling super() instead
+        this.value = value;
     }
 
     @Override
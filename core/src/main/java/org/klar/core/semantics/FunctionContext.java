@@ -0,0 +1,24 @@
+package org.klar.core.semantics;
+
+import org.klar.core.parser.ast.FunctionDeclarationNode;
+
+/**
+ * State of the function whose body is being checked.
+ * <p>
+ * It is attached to the parameter scope of the function and inherited by
+ * every scope nested in it, see {@link TypeContext#function()}, so checking
+ * a statement needs nothing outside its {@link TypeContext}. This is what lets
+ * {@link TypeChecker} check bodies concurrently.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class FunctionContext {
+    public final FunctionDeclarationNode declaration;
+    public final TypeSymbol returnType;
+
+    public FunctionContext(FunctionDeclarationNode declaration, TypeSymbol returnType) {
+        this.declaration = declaration;
+        this.returnType = returnType;
+    }
+}
@@ -8,21 +8,33 @@ public class FunctionSymbol {
     public final TypeSymbol returnType;
     public final List<TypeSymbol> parameters;
 
+    /**
+     * Java class of the module that declares the function, or {@code null}
+     * for functions of the module being compiled and for built-ins.
+     *
+     * @since 0.15
+     */
+    public final String owner;
+
     public FunctionSymbol(String name, TypeSymbol returnType, List<TypeSymbol> parameters) {
-        this.name = name;
-        this.returnType = returnType;
-        this.parameters = parameters;
+        this(name, returnType, parameters, null);
     }
 
     public FunctionSymbol(String name, PrimitiveTypeSymbol returnType, List<TypeSymbol> parameters) {
-        this.name = name;
-        this.returnType = returnType;
-        this.parameters = parameters;
+        this(name, returnType, parameters, null);
     }
 
     public FunctionSymbol(String name, ArrayTypeSymbol returnType, List<TypeSymbol> parameters) {
+        this(name, returnType, parameters, null);
+    }
+
+    /**
+     * @since 0.15
+     */
+    public FunctionSymbol(String name, TypeSymbol returnType, List<TypeSymbol> parameters, String owner) {
         this.name = name;
         this.returnType = returnType;
         this.parameters = parameters;
+        this.owner = owner;
     }
 }
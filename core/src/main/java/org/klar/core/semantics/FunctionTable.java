@@ -5,13 +5,17 @@ import java.util.List;
 import java.util.Map;
 
 public class FunctionTable {
-    private final Map<String, FunctionSymbol> functions = new HashMap<>(20);
+    private final Map<String, FunctionSymbol> functions;
+    private final boolean frozen;
 
     public FunctionTable(){
+        this.functions = new HashMap<>(20);
+        this.frozen = false;
+
         // Define 'void' e 'any' (UNKNOWN)
-        TypeSymbol returnVoid = new PrimitiveTypeSymbol(Type.VOID, false);
+        TypeSymbol returnVoid = PrimitiveTypeSymbol.of(Type.VOID, false);
         // UNKNOWN aqui funciona como um "Object" ou "Any", aceitando qualquer coisa
-        List<TypeSymbol> argsAny = List.of(new PrimitiveTypeSymbol(Type.UNKNOWN, false));
+        List<TypeSymbol> argsAny = List.of(PrimitiveTypeSymbol.of(Type.UNKNOWN, false));
 
         // Registra funções nativas
         internalDeclare(new FunctionSymbol("println", returnVoid, argsAny));
@@ -19,6 +23,21 @@ public class FunctionTable {
         internalDeclare(new FunctionSymbol("printf", returnVoid, argsAny));
     }
 
+    private FunctionTable(Map<String, FunctionSymbol> functions) {
+        this.functions = Map.copyOf(functions);
+        this.frozen = true;
+    }
+
+    /**
+     * Copies the table into an immutable one, safe to read from several
+     * threads. Declaring in the copy throws {@link IllegalStateException}.
+     *
+     * @since 0.15
+     */
+    public FunctionTable freeze() {
+        return frozen ? this : new FunctionTable(functions);
+    }
+
     /**
      * Declaração interna para o construtor (sem verificações)
      */
@@ -31,6 +50,9 @@ public class FunctionTable {
      * @return true se declarou, false se já existia (colisão).
      */
     public boolean declare(FunctionSymbol fn){
+        if (frozen) {
+            throw new IllegalStateException("Function table is frozen");
+        }
         if (functions.containsKey(fn.name)){
             return false;
         }
@@ -2,27 +2,60 @@ package org.klar.core.semantics;
 
 import org.klar.core.Heddle;
 
+/**
+ * A primitive type, optionally marked as coming from a literal.
+ * <p>
+ * Instances are canonical: {@link #of(Type, boolean)} returns the same object
+ * for the same arguments, so symbols compare by identity and checking an
+ * expression allocates no type objects.
+ * </p>
+ */
 public final class PrimitiveTypeSymbol implements TypeSymbol {
+    private static final PrimitiveTypeSymbol[] CANONICAL = new PrimitiveTypeSymbol[Type.values().length * 2];
+
+    static {
+        for (Type type : Type.values()) {
+            PrimitiveTypeSymbol plain = new PrimitiveTypeSymbol(type, false);
+            PrimitiveTypeSymbol literal = new PrimitiveTypeSymbol(type, true);
+            plain.twin = literal;
+            literal.twin = plain;
+            CANONICAL[type.ordinal() * 2] = plain;
+            CANONICAL[type.ordinal() * 2 + 1] = literal;
+        }
+    }
+
     public final Type type;
-    public boolean isLiteral;
+    public final boolean isLiteral;
 
-    public PrimitiveTypeSymbol(Type type, boolean isLiteral) {
+    /** The instance of the same type with the other literal flag. */
+    private PrimitiveTypeSymbol twin;
+
+    private PrimitiveTypeSymbol(Type type, boolean isLiteral) {
         this.type = type;
         this.isLiteral = isLiteral;
     }
 
+    /**
+     * @return the canonical symbol for {@code type} and {@code isLiteral}
+     * @since 0.15
+     */
+    public static PrimitiveTypeSymbol of(Type type, boolean isLiteral) {
+        return CANONICAL[type.ordinal() * 2 + (isLiteral ? 1 : 0)];
+    }
+
+    /**
+     * @return whether {@code symbol} is a primitive of {@code type}, literal or
+     *         not; {@code false} for {@code null}
+     * @since 0.15
+     */
+    public static boolean isOf(TypeSymbol symbol, Type type) {
+        int index = type.ordinal() * 2;
+        return symbol == CANONICAL[index] || symbol == CANONICAL[index + 1];
+    }
+
     @Override
     public boolean isAssignableFrom(TypeSymbol other) {
-        if (other instanceof PrimitiveTypeSymbol p) {
-            return p.type == this.type;
-        }
-
-        if (other instanceof PrimitiveTypeSymbol p
-            && p.type == Type.NULL
-            && type == Type.STRING) {
-            return true;
-        }
-        return false;
+        return other == this || other == twin;
     }
 
     @Override
@@ -0,0 +1,245 @@
+package org.klar.core.semantics;
+
+import java.util.List;
+
+import org.klar.core.parser.ast.*;
+
+/**
+ * Binds every variable use to the scope coordinate of its declaration.
+ * <p>
+ * The resolver opens a scope wherever {@link TypeChecker} does: one for the
+ * program, one for the parameters of each function and one per block.
+ * Declarations are entered in source order, so a use is bound to the
+ * declaration the checker would see at that point. The binding is stored on
+ * the {@link VariableExpressionNode}:
+ * </p>
+ * <ul>
+ * <li><strong>depth:</strong> how many scopes to walk up from the use.</li>
+ * <li><strong>slot:</strong> the index of the declaration in that scope.</li>
+ * </ul>
+ * <p>
+ * Uses with no visible declaration are left unbound; reporting them is up to
+ * the checker.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class ScopeResolver implements AstVisitor<Void> {
+
+    private final TypeContext global;
+    private TypeContext scope;
+
+    public ScopeResolver() {
+        this(new TypeContext(null));
+    }
+
+    /**
+     * @param global Program scope to resolve against. Only its names are read,
+     *               so the scope of a {@link TypeChecker} can be passed
+     *               directly.
+     */
+    public ScopeResolver(TypeContext global) {
+        this.global = global;
+        this.scope = global;
+    }
+
+    /**
+     * Resolves every top-level statement of {@code program}, in order.
+     */
+    public void resolve(ProgramNode program) {
+        for (StatementNode statement : program.statements) {
+            resolve(statement);
+        }
+    }
+
+    /**
+     * Resolves one top-level statement. Its declarations stay visible to the
+     * statements resolved after it.
+     */
+    public void resolve(StatementNode statement) {
+        scope = global;
+        statement.accept(this);
+    }
+
+    private void resolveAll(List<? extends AstNode> nodes) {
+        for (AstNode node : nodes) {
+            node.accept(this);
+        }
+    }
+
+    private void enter() {
+        scope = new TypeContext(scope);
+    }
+
+    private void exit() {
+        scope = scope.parent();
+    }
+
+    // Statements
+
+    @Override
+    public Void visitFunctionDeclaration(FunctionDeclarationNode f) {
+        enter();
+        for (ParameterNode parameter : f.parameters) {
+            scope.declare(parameter.name.getValue(), null);
+        }
+
+        BlockStatementNode body = f.body();
+        if (body != null) {
+            body.accept(this);
+        }
+        exit();
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(BlockStatementNode b) {
+        enter();
+        resolveAll(b.statements);
+        exit();
+        return null;
+    }
+
+    @Override
+    public Void visitVariableDeclaration(VariableDeclarationNode v) {
+        if (v.value != null) {
+            v.value.accept(this);
+        }
+        scope.declare(v.name.getValue(), null);
+        return null;
+    }
+
+    @Override
+    public Void visitConstantDeclaration(ConstantDeclarationNode c) {
+        if (c.value != null) {
+            c.value.accept(this);
+        }
+        scope.declare(c.name.getValue(), null);
+        return null;
+    }
+
+    @Override
+    public Void visitAssignment(AssignmentStatementNode a) {
+        a.name.accept(this);
+        a.value.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(ExpressionStatementNode e) {
+        e.expression.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(ReturnStatementNode r) {
+        if (r.value != null) {
+            r.value.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(WhileStatementNode w) {
+        w.condition.accept(this);
+        w.body.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitDecision(DecisionStatementNode d) {
+        d.condition.accept(this);
+        d.ifBlock.accept(this);
+
+        for (OtherwiseBranchNode o : d.otherwiseBranches) {
+            o.condition.accept(this);
+            o.body.accept(this);
+        }
+
+        if (d.afterallBlock != null) {
+            d.afterallBlock.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitErrorStatement(ErrorStatementNode e) {
+        // The checker declares what a failed declaration named
+        if (e.declaredName != null && !e.declaresFunction) {
+            scope.declare(e.declaredName.getValue(), null);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitModuleDeclaration(ModuleDeclarationNode m) {
+        return null;
+    }
+
+    @Override
+    public Void visitImportDeclaration(ImportDeclarationNode i) {
+        return null;
+    }
+
+    // Expressions
+
+    @Override
+    public Void visitVariable(VariableExpressionNode v) {
+        String name = v.name.getValue();
+        int depth = 0;
+
+        for (TypeContext ctx = scope; ctx != null; ctx = ctx.parent(), depth++) {
+            int slot = ctx.slotOf(name);
+            if (slot != -1) {
+                v.bind(depth, slot);
+                return null;
+            }
+        }
+
+        v.bind(VariableExpressionNode.UNRESOLVED, VariableExpressionNode.UNRESOLVED);
+        return null;
+    }
+
+    @Override
+    public Void visitBinary(BinaryExpressionNode b) {
+        List<BinaryExpressionNode> spine = b.leftSpine();
+        spine.get(spine.size() - 1).left.accept(this);
+
+        for (int i = spine.size() - 1; i >= 0; i--) {
+            spine.get(i).right.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitCall(CallExpressionNode c) {
+        resolveAll(c.arguments);
+        return null;
+    }
+
+    @Override
+    public Void visitErrorExpression(ErrorExpressionNode e) {
+        return null;
+    }
+
+    @Override
+    public Void visitIndex(IndexExpressionNode i) {
+        i.target.accept(this);
+        i.index.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteral(LiteralExpressionNode l) {
+        return null;
+    }
+
+    @Override
+    public Void visitNewArray(NewArrayExpressionNode n) {
+        if (n.size != null) {
+            n.size.accept(this);
+        }
+        resolveAll(n.initializer);
+        return null;
+    }
+}
@@ -2,15 +2,29 @@ package org.klar.core.semantics;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.klar.core.diagnostics.DiagnosticCode;
+import org.klar.core.diagnostics.DiagnosticCollector;
+import org.klar.core.errors.CompilationFailedException;
+import org.klar.core.errors.KException;
 import org.klar.core.errors.SemanticException;
 import org.klar.core.errors.SourceLocation;
 import org.klar.core.errors.SourceManager;
 import org.klar.core.lexer.Token;
 import org.klar.core.lexer.TokenType;
+import org.klar.core.modules.ModuleResolver;
+import org.klar.core.modules.ModuleSummary;
 import org.klar.core.parser.ast.*;
+import org.klar.core.semantics.flow.ReachabilityAnalyzer;
 
 /**
  * Semantic Analyzer (Type Checker) for Klar.
@@ -26,41 +40,364 @@ import org.klar.core.parser.ast.*;
  * <li><strong>Verification:</strong> Traverses function bodies and statements
  * to check types.</li>
  * </ol>
+ * <p>
+ * Errors do not stop the check: each one is collected, the offending
+ * expression gets the {@code UNKNOWN} type so it does not cause further
+ * errors, and checking continues until the error limit is reached. All
+ * collected errors are then thrown together as a
+ * {@link CompilationFailedException}.
+ * </p>
+ * <p>
+ * After the collection pass the function table is frozen, and function bodies
+ * of large programs are checked in parallel. Errors are still reported in
+ * source order.
+ * </p>
  * * @author Lucas Paulino Da Silva (~K')
  * 
  * @since 0.2
  */
-public class TypeChecker {
+public class TypeChecker implements AstVisitor<TypeSymbol> {
+    /**
+     * Below this many function declarations bodies are checked sequentially.
+     * The same happens when the pool has a single worker.
+     */
+    private static final int MIN_PARALLEL_FUNCTIONS = 16;
+
+    /** Ranges of functions handed to each worker, per unit of pool parallelism. */
+    private static final int TASKS_PER_WORKER = 4;
 
     private final SourceManager sourceManager;
     private final String filePath;
+    private final ForkJoinPool pool;
+    private DiagnosticCollector diagnostics;
 
-    private TypeSymbol currentReturnType = null;
-    private final FunctionTable functions = new FunctionTable();
+    // Arguments of the node being visited
+    private TypeContext scope;
+    private ExpressionContext expressionContext;
+
+    private FunctionTable functions = new FunctionTable();
+    /** Functions whose declaration failed to parse; calls to them are not checked. */
+    private Set<String> failedFunctions = new HashSet<>();
+    private final Map<String, ModuleSummary> modules = new HashMap<>();
+    /** Constants of the imported modules; the program scope starts as a copy. */
+    private TypeContext imports = new TypeContext(null);
+
+    // Facts recorded for the TypedProgram of the current check(ProgramNode)
+    private IdentityHashMap<Object, TypeSymbol> nodeTypes = new IdentityHashMap<>();
+    private IdentityHashMap<AstNode, FunctionSymbol> functionSymbols = new IdentityHashMap<>();
+    private IdentityHashMap<AstNode, Object> constantValues = new IdentityHashMap<>();
 
     public TypeChecker(SourceManager sourceManager, Path filePath) {
+        this(sourceManager, filePath, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool Pool that checks function bodies.
+     * @since 0.15
+     */
+    public TypeChecker(SourceManager sourceManager, Path filePath, ForkJoinPool pool) {
+        this(sourceManager, filePath, pool, DiagnosticCollector.DEFAULT_MAX_ERRORS);
+    }
+
+    /**
+     * @param pool      Pool that checks function bodies.
+     * @param maxErrors Number of errors after which checking stops.
+     * @since 0.15
+     */
+    public TypeChecker(SourceManager sourceManager, Path filePath, ForkJoinPool pool, int maxErrors) {
+        this(sourceManager, filePath, pool, new DiagnosticCollector(maxErrors));
+    }
+
+    /**
+     * @param pool        Pool that checks function bodies.
+     * @param diagnostics Collector errors are added to, e.g. the one holding
+     *                    the syntax errors of a partially parsed program. Its
+     *                    limit also bounds this checker.
+     * @since 0.15
+     */
+    public TypeChecker(SourceManager sourceManager, Path filePath, ForkJoinPool pool,
+            DiagnosticCollector diagnostics) {
         this.sourceManager = sourceManager;
         this.filePath = filePath.toString();
+        this.pool = pool;
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Worker that checks a range of function bodies against the frozen table
+     * of {@code parent}, recording into maps of its own.
+     */
+    private TypeChecker(TypeChecker parent) {
+        this.sourceManager = parent.sourceManager;
+        this.filePath = parent.filePath;
+        this.pool = parent.pool;
+        this.diagnostics = new DiagnosticCollector(parent.diagnostics.maxErrors());
+        this.functions = parent.functions;
+        this.failedFunctions = parent.failedFunctions;
     }
 
     /**
      * Executes the type checking process on the AST.
+     * <p>
+     * Once the program is free of errors, code that can never run is added to
+     * the collector as warnings, see {@link ReachabilityAnalyzer}.
+     * </p>
      * 
      * @param program The root node of the AST.
-     * @throws SemanticException if any rule is violated.
+     * @return the types, functions and constant values derived for
+     *         {@code program}
+     * @throws CompilationFailedException with every violated rule found, and
+     *                                    any error already in the collector.
      */
-    public void check(ProgramNode program) {
+    public TypedProgram check(ProgramNode program) {
+        nodeTypes = new IdentityHashMap<>();
+        functionSymbols = new IdentityHashMap<>();
+        constantValues = new IdentityHashMap<>();
+        imports = new TypeContext(null);
+
         // Pass 1: Collect signatures
+        int functionCount = 0;
         for (StatementNode node : program.statements) {
             if (node instanceof FunctionDeclarationNode f) {
                 collectFunction(f);
+                functionCount++;
+            } else if (node instanceof ImportDeclarationNode i) {
+                importModule(i);
+            } else if (node instanceof ErrorStatementNode e && e.declaresFunction) {
+                failedFunctions.add(e.declaredName.getValue());
             }
         }
+        functions = functions.freeze();
 
-        // Pass 2: Check bodies
-        TypeContext global = new TypeContext(null);
-        for (StatementNode stmt : program.statements) {
-            checkStatement(stmt, global);
+        // Pass 2: Bind variables and check bodies
+        if (functionCount < MIN_PARALLEL_FUNCTIONS || pool.getParallelism() < 2) {
+            ScopeResolver resolver = new ScopeResolver(imports.snapshot());
+            TypeContext global = imports.snapshot();
+            for (StatementNode stmt : program.statements) {
+                resolver.resolve(stmt);
+                checkStatement(stmt, global);
+            }
+        } else {
+            checkInParallel(program.statements, functionCount);
+        }
+
+        diagnostics.throwIfErrors();
+        TypedProgram typed = new TypedProgram(program, nodeTypes, functionSymbols, constantValues);
+        new ReachabilityAnalyzer(sourceManager, filePath, diagnostics).analyze(typed);
+        return typed;
+    }
+
+    /**
+     * Pass 2 with function bodies checked on {@link #pool}.
+     * <p>
+     * Other top-level statements are checked here, in order, since they may
+     * declare globals. Each function is checked against a snapshot of the
+     * globals declared before it, which is what the sequential pass would see.
+     * Errors are collected per statement and reported in source order, so the
+     * error limit cuts them off where the sequential pass would.
+     * </p>
+     */
+    private void checkInParallel(List<StatementNode> statements, int functionCount) {
+        FunctionDeclarationNode[] bodies = new FunctionDeclarationNode[functionCount];
+        TypeContext[] globals = new TypeContext[functionCount];
+        int[] positions = new int[functionCount];
+        int count = 0;
+
+        // Slots are only set, never added, so workers can fill them concurrently
+        List<List<KException>> errors = new ArrayList<>(Collections.nCopies(statements.size(), null));
+        List<List<KException>> bodyErrors = new ArrayList<>(Collections.nCopies(functionCount, null));
+
+        // Pass 1 errors come first; statements are collected separately.
+        DiagnosticCollector collected = diagnostics;
+        diagnostics = new DiagnosticCollector(collected.maxErrors());
+
+        ScopeResolver resolver = new ScopeResolver(imports.snapshot());
+        TypeContext global = imports.snapshot();
+        TypeContext snapshot = null;
+        RuntimeException error = null;
+        int errorPosition = statements.size();
+
+        for (int i = 0; i < statements.size(); i++) {
+            StatementNode stmt = statements.get(i);
+            if (stmt instanceof FunctionDeclarationNode f) {
+                if (snapshot == null) {
+                    snapshot = global.snapshot();
+                }
+                bodies[count] = f;
+                globals[count] = snapshot;
+                positions[count] = i;
+                count++;
+                continue;
+            }
+
+            int before = diagnostics.errorCount();
+            try {
+                resolver.resolve(stmt);
+                checkStatement(stmt, global);
+            } catch (CompilationFailedException e) {
+                // The limit is reached here; later statements cannot come first.
+                errors.set(i, errorsSince(before));
+                break;
+            } catch (RuntimeException e) {
+                // Functions before this statement may still fail first.
+                error = e;
+                errorPosition = i;
+                break;
+            }
+            errors.set(i, errorsSince(before));
+            snapshot = null;
+        }
+
+        int tasks = Math.max(1, Math.min(count, pool.getParallelism() * TASKS_PER_WORKER));
+        BodyTask[] leaves = new BodyTask[tasks];
+        pool.invoke(new BodyTask(bodies, globals, bodyErrors, count, tasks, 0, tasks, leaves));
+
+        for (BodyTask leaf : leaves) {
+            if (leaf.error != null && positions[leaf.errorIndex] < errorPosition) {
+                error = leaf.error;
+                errorPosition = positions[leaf.errorIndex];
+            }
+            nodeTypes.putAll(leaf.worker.nodeTypes);
+            functionSymbols.putAll(leaf.worker.functionSymbols);
+            constantValues.putAll(leaf.worker.constantValues);
+        }
+        for (int i = 0; i < count; i++) {
+            errors.set(positions[i], bodyErrors.get(i));
+        }
+
+        diagnostics = collected;
+        for (int i = 0; i < statements.size(); i++) {
+            if (i == errorPosition) {
+                throw error;
+            }
+            if (errors.get(i) != null) {
+                for (KException e : errors.get(i)) {
+                    diagnostics.report(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the errors reported since {@link #diagnostics} held
+     *         {@code before} of them, or {@code null} if there are none
+     */
+    private List<KException> errorsSince(int before) {
+        int after = diagnostics.errorCount();
+        return before == after ? null : List.copyOf(diagnostics.errors().subList(before, after));
+    }
+
+    /**
+     * Checks the bodies of tasks {@code [from, to)}, splitting in half until a
+     * single task remains. A leaf stops once its own errors reach the limit,
+     * or at an unexpected failure, since later bodies in its range cannot fail
+     * earlier in source order.
+     */
+    private final class BodyTask extends RecursiveAction {
+        private final FunctionDeclarationNode[] bodies;
+        private final TypeContext[] globals;
+        private final List<List<KException>> bodyErrors;
+        private final int count;
+        private final int tasks;
+        private final int from;
+        private final int to;
+        private final BodyTask[] leaves;
+
+        private TypeChecker worker;
+        private RuntimeException error;
+        private int errorIndex;
+
+        BodyTask(FunctionDeclarationNode[] bodies, TypeContext[] globals, List<List<KException>> bodyErrors,
+                int count, int tasks, int from, int to, BodyTask[] leaves) {
+            this.bodies = bodies;
+            this.globals = globals;
+            this.bodyErrors = bodyErrors;
+            this.count = count;
+            this.tasks = tasks;
+            this.from = from;
+            this.to = to;
+            this.leaves = leaves;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new BodyTask(bodies, globals, bodyErrors, count, tasks, from, middle, leaves),
+                        new BodyTask(bodies, globals, bodyErrors, count, tasks, middle, to, leaves));
+                return;
+            }
+
+            leaves[from] = this;
+            worker = new TypeChecker(TypeChecker.this);
+            int first = (int) ((long) count * from / tasks);
+            int last = (int) ((long) count * to / tasks);
+
+            for (int i = first; i < last; i++) {
+                int before = worker.diagnostics.errorCount();
+                try {
+                    new ScopeResolver(globals[i]).resolve(bodies[i]);
+                    worker.checkStatement(bodies[i], globals[i]);
+                } catch (CompilationFailedException e) {
+                    bodyErrors.set(i, worker.errorsSince(before));
+                    return;
+                } catch (RuntimeException e) {
+                    error = e;
+                    errorIndex = i;
+                    return;
+                }
+                bodyErrors.set(i, worker.errorsSince(before));
+            }
+        }
+    }
+
+    /**
+     * Makes the exports of a module available to {@code import} declarations
+     * of the checked program. Must be called before {@code check}.
+     *
+     * @since 0.15
+     */
+    public void addModule(ModuleSummary summary) {
+        modules.put(summary.name(), summary);
+    }
+
+    /**
+     * Declares the functions and constants exported by an imported module.
+     * Uses of an imported constant are replaced by its value, like those of a
+     * constant of the program.
+     *
+     * @since 0.15
+     */
+    public void importModule(ImportDeclarationNode node) {
+        String name = ModuleResolver.qualifiedName(node);
+        ModuleSummary summary = modules.get(name);
+        if (summary == null) {
+            semanticError(DiagnosticCode.E218, "Module '" + name + "' not found",
+                    "Check the import path", null, node);
+            return;
+        }
+
+        for (FunctionSymbol fn : summary.functions()) {
+            if (!functions.declare(fn)) {
+                semanticError(
+                        DiagnosticCode.E206,
+                        "Function '" + fn.name + "' imported from '" + name + "' is already defined",
+                        "Rename one of the functions",
+                        null,
+                        node);
+            }
+        }
+
+        for (ModuleSummary.Constant constant : summary.constants()) {
+            if (!imports.declare(constant.name(), new ConstantSymbol(constant.type(), constant.value()))) {
+                semanticError(
+                        DiagnosticCode.E206,
+                        "Constant '" + constant.name() + "' imported from '" + name + "' is already defined",
+                        "Rename one of the constants",
+                        null,
+                        node);
+            }
         }
     }
 
@@ -77,6 +414,7 @@ public class TypeChecker {
                     "Rename your function to something unique.",
                     null,
                     fn);
+            return;
         }
 
         TypeSymbol returnType = resolveTypeSymbol(fn.returnType);
@@ -85,7 +423,9 @@ public class TypeChecker {
             params.add(resolveTypeSymbol(p.type));
         }
 
-        functions.declare(new FunctionSymbol(name, returnType, params));
+        FunctionSymbol symbol = new FunctionSymbol(name, returnType, params);
+        functions.declare(symbol);
+        functionSymbols.put(fn, symbol);
     }
 
     /**
@@ -96,11 +436,17 @@ public class TypeChecker {
         String funcName = node.callee.getValue();
 
         if (!functions.contains(funcName)) {
-            semanticError(DiagnosticCode.E217, "Undefined function '" + funcName + "'",
-                    "Import module or check spelling", null, node.callee);
+            if (!failedFunctions.contains(funcName))
+                semanticError(DiagnosticCode.E217, "Undefined function '" + funcName + "'",
+                        "Import module or check spelling", null, node.callee);
+            for (ExpressionNode argument : node.arguments) {
+                checkExpression(argument, ctx, ExpressionContext.ARGUMENT);
+            }
+            return unknown();
         }
 
         FunctionSymbol fn = functions.resolve(funcName);
+        functionSymbols.put(node, fn);
 
         if (node.arguments.size() != fn.parameters.size()) {
             semanticError(DiagnosticCode.E208, "Argument count mismatch",
@@ -109,6 +455,9 @@ public class TypeChecker {
 
         for (int i = 0; i < node.arguments.size(); i++) {
             TypeSymbol arg = checkExpression(node.arguments.get(i), ctx, ExpressionContext.ARGUMENT);
+            if (i >= fn.parameters.size()) {
+                continue;
+            }
             TypeSymbol param = fn.parameters.get(i);
 
             if (!isAssignable(arg, param)) {
@@ -124,111 +473,165 @@ public class TypeChecker {
      * Validates a statement. Dispatches to specific handlers based on node type.
      */
     public void checkStatement(StatementNode node, TypeContext ctx) {
-        if (node instanceof ConstantDeclarationNode c) {
-            TypeSymbol declared = resolveTypeSymbol(c.type);
-            TypeSymbol value = checkExpression(c.value, ctx, ExpressionContext.ASSIGNMENT);
-            if (!isAssignable(value, declared))
-                semanticError(DiagnosticCode.E207, "Type mismatch",
-                        "Cannot assign " + value + " to constant " + declared, null, node);
-            if (!isCompileTimeConstant(c.value))
-                semanticError(DiagnosticCode.E213, "Constant must be evaluable at compile-time", "Use literals", null,
-                        node);
-            ctx.declare(c.name.getValue(), new ConstantSymbol(declared));
-            return;
+        TypeContext saved = scope;
+        scope = ctx;
+        try {
+            node.accept(this);
+        } finally {
+            scope = saved;
         }
-        if (node instanceof VariableDeclarationNode v) {
-            TypeSymbol declared = resolveTypeSymbol(v.type);
-            TypeSymbol value = checkExpression(v.value, ctx, ExpressionContext.ASSIGNMENT);
-            if (!isAssignable(value, declared)) {
+    }
 
-                semanticError(DiagnosticCode.E207, "Type mismatch", "Cannot assign " + value + " to " + declared, null,
-                        node);
-            }
-            ctx.declare(v.name.getValue(), declared);
-            return;
-        }
-        if (node instanceof AssignmentStatementNode a) {
-            TypeSymbol target = resolveTarget(a.name, ctx);
-            if (target instanceof ConstantSymbol)
-                semanticError(DiagnosticCode.E209, "Cannot assign to constant", "Remove assignment", null, node);
-            TypeSymbol value = checkExpression(a.value, ctx, ExpressionContext.ASSIGNMENT);
-            if (!isAssignable(value, target))
-                semanticError(DiagnosticCode.E207, "Type mismatch", "Expected " + target + ", got " + value, null,
-                        node);
-            return;
-        }
-        if (node instanceof BlockStatementNode b) {
-            TypeContext local = new TypeContext(ctx);
-            for (StatementNode stmt : b.statements)
-                checkStatement(stmt, local);
-            return;
-        }
-        if (node instanceof ExpressionStatementNode e) {
-            checkExpression(e.expression, ctx, ExpressionContext.GENERAL);
-            return;
-        }
-        if (node instanceof FunctionDeclarationNode f) {
-            checkFunctionDeclaration(f, ctx);
-            return;
-        }
-        if (node instanceof ReturnStatementNode r) {
-            checkReturn(r, ctx);
-            return;
-        }
-        if (node instanceof DecisionStatementNode d) {
-            checkDecision(d, ctx);
-            return;
-        }
-        if (node instanceof WhileStatementNode w) {
-            TypeSymbol c = checkExpression(w.condition, ctx, ExpressionContext.CONDITION);
-            if (!isBoolean(c))
-                semanticError(DiagnosticCode.E211, "Condition must be boolean", null, null, w);
-            checkStatement(w.body, new TypeContext(ctx));
-            return;
+    @Override
+    public TypeSymbol visitConstantDeclaration(ConstantDeclarationNode c) {
+        TypeContext ctx = scope;
+        TypeSymbol declared = resolveTypeSymbol(c.type);
+        TypeSymbol value = checkExpression(c.value, ctx, ExpressionContext.ASSIGNMENT);
+        if (!isAssignable(value, declared))
+            semanticError(DiagnosticCode.E207, "Type mismatch",
+                    "Cannot assign " + value + " to constant " + declared, null, c);
+        // A value that failed to check was already reported
+        if (!isUnknown(value) && !isCompileTimeConstant(c.value))
+            semanticError(DiagnosticCode.E213, "Constant must be evaluable at compile-time", "Use literals", null,
+                    c);
+        nodeTypes.put(c, declared);
+        Object constant = ConstantEvaluator.coerce(constantValue(c.value), declared);
+        if (constant != null)
+            constantValues.put(c, constant);
+        if (!ctx.declare(c.name.getValue(), new ConstantSymbol(declared, constant)))
+            semanticError(DiagnosticCode.E206, "'" + c.name.getValue() + "' is already defined",
+                    "Rename the constant", null, c);
+        return null;
+    }
+
+    @Override
+    public TypeSymbol visitVariableDeclaration(VariableDeclarationNode v) {
+        TypeContext ctx = scope;
+        TypeSymbol declared = resolveTypeSymbol(v.type);
+        TypeSymbol value = checkExpression(v.value, ctx, ExpressionContext.ASSIGNMENT);
+        if (!isAssignable(value, declared)) {
+
+            semanticError(DiagnosticCode.E207, "Type mismatch", "Cannot assign " + value + " to " + declared, null,
+                    v);
         }
-        if (node instanceof ModuleDeclarationNode || node instanceof ImportDeclarationNode)
-            return;
+        nodeTypes.put(v, declared);
+        if (!ctx.declare(v.name.getValue(), declared))
+            semanticError(DiagnosticCode.E206, "'" + v.name.getValue() + "' is already defined",
+                    "Rename the variable", null, v);
+        return null;
+    }
+
+    @Override
+    public TypeSymbol visitAssignment(AssignmentStatementNode a) {
+        TypeContext ctx = scope;
+        TypeSymbol target = resolveTarget(a.name, ctx);
+        if (target instanceof ConstantSymbol)
+            semanticError(DiagnosticCode.E209, "Cannot assign to constant", "Remove assignment", null, a);
+        TypeSymbol value = checkExpression(a.value, ctx, ExpressionContext.ASSIGNMENT);
+        if (!isAssignable(value, target))
+            semanticError(DiagnosticCode.E207, "Type mismatch", "Expected " + target + ", got " + value, null,
+                    a);
+        return null;
+    }
+
+    @Override
+    public TypeSymbol visitBlock(BlockStatementNode b) {
+        TypeContext local = new TypeContext(scope);
+        for (StatementNode stmt : b.statements)
+            checkStatement(stmt, local);
+        return null;
+    }
+
+    @Override
+    public TypeSymbol visitExpressionStatement(ExpressionStatementNode e) {
+        checkExpression(e.expression, scope, ExpressionContext.GENERAL);
+        return null;
+    }
+
+    @Override
+    public TypeSymbol visitFunctionDeclaration(FunctionDeclarationNode f) {
+        checkFunctionDeclaration(f, scope);
+        return null;
+    }
 
-        throw new RuntimeException("Unchecked statement: " + node.getClass().getSimpleName());
+    @Override
+    public TypeSymbol visitReturn(ReturnStatementNode r) {
+        checkReturn(r, scope);
+        return null;
+    }
+
+    @Override
+    public TypeSymbol visitDecision(DecisionStatementNode d) {
+        checkDecision(d, scope);
+        return null;
+    }
+
+    @Override
+    public TypeSymbol visitWhile(WhileStatementNode w) {
+        TypeContext ctx = scope;
+        TypeSymbol c = checkExpression(w.condition, ctx, ExpressionContext.CONDITION);
+        if (!isBoolean(c) && !isUnknown(c))
+            semanticError(DiagnosticCode.E211, "Condition must be boolean", null, null, w);
+        checkStatement(w.body, ctx);
+        return null;
+    }
+
+    @Override
+    public TypeSymbol visitErrorStatement(ErrorStatementNode e) {
+        // Uses of what it failed to declare are not errors of their own
+        if (e.declaredName != null && !e.declaresFunction)
+            scope.declare(e.declaredName.getValue(), unknown());
+        return null;
+    }
+
+    @Override
+    public TypeSymbol visitModuleDeclaration(ModuleDeclarationNode m) {
+        return null;
+    }
+
+    @Override
+    public TypeSymbol visitImportDeclaration(ImportDeclarationNode i) {
+        return null;
     }
 
     public void checkDecision(DecisionStatementNode d, TypeContext ctx) {
         TypeSymbol c = checkExpression(d.condition, ctx, ExpressionContext.CONDITION);
-        if (!isBoolean(c))
+        if (!isBoolean(c) && !isUnknown(c))
             semanticError(DiagnosticCode.E211, "If condition must be boolean", null, null, d);
-        checkStatement(d.ifBlock, new TypeContext(ctx));
+        checkStatement(d.ifBlock, ctx);
 
         for (OtherwiseBranchNode o : d.otherwiseBranches) {
             TypeSymbol oc = checkExpression(o.condition, ctx, ExpressionContext.CONDITION);
-            if (!isBoolean(oc)) {
+            if (!isBoolean(oc) && !isUnknown(oc)) {
                 semanticError(DiagnosticCode.E211, "Otherwise condition must be boolean", null, null, o);
             }
-            checkStatement(o.body, new TypeContext(ctx));
+            checkStatement(o.body, ctx);
         }
         if (d.afterallBlock != null)
-            checkStatement(d.afterallBlock, new TypeContext(ctx));
+            checkStatement(d.afterallBlock, ctx);
     }
 
     public void checkFunctionDeclaration(FunctionDeclarationNode node, TypeContext ctx) {
+        // The signature's types were resolved, and reported, by collectFunction
+        TypeSymbol returnType = declaredType(node.returnType);
         if (node.name.getValue().equals("main")) {
             if (!node.parameters.isEmpty())
                 semanticError(DiagnosticCode.E210, "Main cannot have parameters", null, null, node);
-            TypeSymbol ret = resolveTypeSymbol(node.returnType);
-            if (!(ret instanceof PrimitiveTypeSymbol p && p.type == Type.VOID))
+            if (!PrimitiveTypeSymbol.isOf(returnType, Type.VOID) && !isUnknown(returnType))
                 semanticError(DiagnosticCode.E210, "Main must return void", null, null, node);
         }
-        currentReturnType = resolveTypeSymbol(node.returnType);
-        TypeContext local = new TypeContext(ctx);
+        TypeContext local = new TypeContext(ctx, new FunctionContext(node, returnType));
         for (ParameterNode param : node.parameters)
-            local.declare(param.name.getValue(), resolveTypeSymbol(param.type));
-        checkStatement(node.body, local);
-        currentReturnType = null;
+            local.declare(param.name.getValue(), declaredType(param.type));
+        checkStatement(node.body(), local);
     }
 
     public void checkReturn(ReturnStatementNode node, TypeContext ctx) {
-        if (currentReturnType == null)
+        FunctionContext function = ctx.function();
+        if (function == null)
             return;
-        if (currentReturnType instanceof PrimitiveTypeSymbol p && p.type == Type.VOID) {
+        TypeSymbol currentReturnType = function.returnType;
+        if (PrimitiveTypeSymbol.isOf(currentReturnType, Type.VOID)) {
             // Se a função é void, só aceita return sem valor OU return null
 
             if (node.value == null) {
@@ -236,7 +639,7 @@ public class TypeChecker {
             }
 
             TypeSymbol returnedValue = checkExpression(node.value, ctx, ExpressionContext.RETURN);
-            if (returnedValue instanceof PrimitiveTypeSymbol pv && pv.type == Type.NULL) {
+            if (PrimitiveTypeSymbol.isOf(returnedValue, Type.NULL)) {
                 return; // return null; é válido em void
             }
 
@@ -244,8 +647,10 @@ public class TypeChecker {
             return;
         }
 
-        if (node.value == null)
+        if (node.value == null) {
             semanticError(DiagnosticCode.E205, "Must return a value", null, null, node);
+            return;
+        }
         TypeSymbol val = checkExpression(node.value, ctx, ExpressionContext.RETURN);
         if (!isAssignable(val, currentReturnType))
             semanticError(DiagnosticCode.E207, "Return type mismatch", "Expected " + currentReturnType, null,
@@ -258,68 +663,139 @@ public class TypeChecker {
      * @param context Used to determine if Magic Numbers are allowed.
      */
     public TypeSymbol checkExpression(ExpressionNode node, TypeContext ctx, ExpressionContext context) {
-        if (node instanceof LiteralExpressionNode l) {
-            if (l.value.getType() == TokenType.INTEGER_LITERAL) {
-                String v = l.value.getValue();
-                boolean isAllowed = context == ExpressionContext.ASSIGNMENT || context == ExpressionContext.GENERAL
-                        || v.equals("0") || v.equals("1");
-                if (!isAllowed)
-                    semanticError(DiagnosticCode.E212, "Magic Number '" + v + "' violation",
-                            "Assign this to a named variable", null,
-                            node);
-                return new PrimitiveTypeSymbol(Type.INTEGER, true);
-            }
-            if (l.value.getType() == TokenType.DOUBLE_LITERAL) {
-                if (context != ExpressionContext.ASSIGNMENT && context != ExpressionContext.RETURN)
-                    semanticError(DiagnosticCode.E212, "Decimal literal context error", "Assign to variable", null,
-                            node);
-                return new PrimitiveTypeSymbol(Type.DOUBLE, true);
-            }
-            return resolveLiteral(l.value);
-        }
-        if (node instanceof VariableExpressionNode v) {
-            TypeSymbol s = ctx.resolve(v.name.getValue());
-            if (s == null) {
-                semanticError(DiagnosticCode.E217, "The variable '" + v.name.getValue() + "' does not exist",
-                        "Remove it or create it",
-                        null, v);
-            }
-            return s;
+        TypeContext savedScope = scope;
+        ExpressionContext savedContext = expressionContext;
+        scope = ctx;
+        expressionContext = context;
+        try {
+            TypeSymbol type = node.accept(this);
+            if (type != null)
+                nodeTypes.put(node, type);
+            return type;
+        } finally {
+            scope = savedScope;
+            expressionContext = savedContext;
         }
-        if (node instanceof BinaryExpressionNode b)
-            return checkBinary(b, ctx);
-        if (node instanceof CallExpressionNode c)
-            return checkCallExpression(c, ctx);
-        if (node instanceof IndexExpressionNode i) {
-            TypeSymbol t = checkExpression(i.target, ctx, ExpressionContext.INDEX);
-            TypeSymbol idx = checkExpression(i.index, ctx, ExpressionContext.INDEX);
-            if (!(t instanceof ArrayTypeSymbol a)) {
-                semanticError(DiagnosticCode.E215, "Not an array", null, null, i.target);
-                return null;
+    }
+
+    @Override
+    public TypeSymbol visitLiteral(LiteralExpressionNode l) {
+        ExpressionContext context = expressionContext;
+        if (l.value.getType() == TokenType.INTEGER_LITERAL) {
+            String v = l.value.getValue();
+            boolean isAllowed = context == ExpressionContext.ASSIGNMENT || context == ExpressionContext.GENERAL
+                    || v.equals("0") || v.equals("1");
+            if (!isAllowed)
+                semanticError(DiagnosticCode.E212, "Magic Number '" + v + "' violation",
+                        "Assign this to a named variable", null,
+                        l);
+            return PrimitiveTypeSymbol.of(Type.INTEGER, true);
+        }
+        if (l.value.getType() == TokenType.DOUBLE_LITERAL) {
+            if (context != ExpressionContext.ASSIGNMENT && context != ExpressionContext.RETURN)
+                semanticError(DiagnosticCode.E212, "Decimal literal context error", "Assign to variable", null,
+                        l);
+            return PrimitiveTypeSymbol.of(Type.DOUBLE, true);
+        }
+        return resolveLiteral(l.value);
+    }
+
+    @Override
+    public TypeSymbol visitVariable(VariableExpressionNode v) {
+        return variableType(v, scope);
+    }
+
+    private TypeSymbol variableType(VariableExpressionNode v, TypeContext ctx) {
+        TypeSymbol s = lookupVariable(v, ctx);
+        if (s == null) {
+            semanticError(DiagnosticCode.E217, "The variable '" + v.name.getValue() + "' does not exist",
+                    "Remove it or create it",
+                    null, v);
+            return unknown();
+        }
+        if (s instanceof ConstantSymbol c) {
+            if (c.value != null) {
+                constantValues.put(v, c.value);
             }
-            if (!(idx instanceof PrimitiveTypeSymbol p && p.type == Type.INTEGER))
-                semanticError(DiagnosticCode.E207, "Index must be integer", null, null, i.index);
-            return new PrimitiveTypeSymbol(a.elementType, false);
+            // Reading a constant yields a plain value of its type
+            return c.type;
         }
-        if (node instanceof NewArrayExpressionNode n) {
-            // ... (Array validation logic identical to previous code, omitted for brevity)
-            // ...
-            // Assuming full logic from previous turn is placed here
-            TypeSymbol base = resolveTypeSymbol(n.type);
-            return base;
+        return s;
+    }
+
+    @Override
+    public TypeSymbol visitBinary(BinaryExpressionNode b) {
+        return checkBinary(b, scope);
+    }
+
+    @Override
+    public TypeSymbol visitCall(CallExpressionNode c) {
+        return checkCallExpression(c, scope);
+    }
+
+    @Override
+    public TypeSymbol visitErrorExpression(ErrorExpressionNode e) {
+        // Already reported by the parser
+        return unknown();
+    }
+
+    @Override
+    public TypeSymbol visitIndex(IndexExpressionNode i) {
+        TypeContext ctx = scope;
+        TypeSymbol t = checkExpression(i.target, ctx, ExpressionContext.INDEX);
+        TypeSymbol idx = checkExpression(i.index, ctx, ExpressionContext.INDEX);
+        if (!(t instanceof ArrayTypeSymbol a)) {
+            if (!isUnknown(t))
+                semanticError(DiagnosticCode.E215, "Not an array", null, null, i.target);
+            return unknown();
         }
-        return new PrimitiveTypeSymbol(Type.UNKNOWN, false);
+        if (!PrimitiveTypeSymbol.isOf(idx, Type.INTEGER) && !isUnknown(idx))
+            semanticError(DiagnosticCode.E207, "Index must be integer", null, null, i.index);
+        return PrimitiveTypeSymbol.of(a.elementType, false);
+    }
+
+    @Override
+    public TypeSymbol visitNewArray(NewArrayExpressionNode n) {
+        // ... (Array validation logic identical to previous code, omitted for brevity)
+        // ...
+        // Assuming full logic from previous turn is placed here
+        TypeSymbol base = resolveTypeSymbol(n.type);
+        return base;
     }
 
     public TypeSymbol checkBinary(BinaryExpressionNode node, TypeContext ctx) {
-        TypeSymbol left = checkExpression(node.left, ctx, ExpressionContext.GENERAL);
-        TypeSymbol right = checkExpression(node.right, ctx, ExpressionContext.GENERAL);
+        // Fold the left spine in a loop: long chains like a + b + c + ... nest to
+        // the left and would otherwise take one stack frame per operand.
+        List<BinaryExpressionNode> spine = node.leftSpine();
+        ExpressionNode first = spine.get(spine.size() - 1).left;
+        TypeSymbol left = checkExpression(first, ctx, ExpressionContext.GENERAL);
+        Object leftValue = constantValue(first);
+
+        for (int i = spine.size() - 1; i >= 0; i--) {
+            BinaryExpressionNode operation = spine.get(i);
+            TypeSymbol right = checkExpression(operation.right, ctx, ExpressionContext.GENERAL);
+            left = checkBinaryOperation(operation, left, right);
+            nodeTypes.put(operation, left);
+
+            // Operands are checked before their operation, so their values are
+            // already recorded and folding stays linear in the chain length.
+            Object rightValue = constantValue(operation.right);
+            leftValue = leftValue == null || rightValue == null || isUnknown(left) ? null
+                    : ConstantEvaluator.apply(operation.operator.getType(), leftValue, rightValue);
+            if (leftValue != null) {
+                constantValues.put(operation, leftValue);
+            }
+        }
 
+        return left;
+    }
+
+    private TypeSymbol checkBinaryOperation(BinaryExpressionNode node, TypeSymbol left, TypeSymbol right) {
         // If one of the sides is already unknown (previous error), we return UNKNOWN to
         // avoid cascade
-        if ((left instanceof PrimitiveTypeSymbol p && p.type == Type.UNKNOWN) ||
-                (right instanceof PrimitiveTypeSymbol p2 && p2.type == Type.UNKNOWN)) {
-            return new PrimitiveTypeSymbol(Type.UNKNOWN, false);
+        if (PrimitiveTypeSymbol.isOf(left, Type.UNKNOWN) ||
+                PrimitiveTypeSymbol.isOf(right, Type.UNKNOWN)) {
+            return PrimitiveTypeSymbol.of(Type.UNKNOWN, false);
         }
 
         switch (node.operator.getType()) {
@@ -332,18 +808,18 @@ public class TypeChecker {
                             "Invalid operation '+' between " + left + " and " + right,
                             "Operands must be numbers or strings",
                             null, node);
-                    return new PrimitiveTypeSymbol(Type.UNKNOWN, false);
+                    return PrimitiveTypeSymbol.of(Type.UNKNOWN, false);
                 }
 
                 if (isStringConcat) {
-                    return new PrimitiveTypeSymbol(Type.STRING, true);
+                    return PrimitiveTypeSymbol.of(Type.STRING, true);
                 }
 
                 if (left.isDouble() || right.isDouble()) {
-                    return new PrimitiveTypeSymbol(Type.DOUBLE, true);
+                    return PrimitiveTypeSymbol.of(Type.DOUBLE, true);
                 }
 
-                return new PrimitiveTypeSymbol(Type.INTEGER, true);
+                return PrimitiveTypeSymbol.of(Type.INTEGER, true);
             }
 
             case MINUS:
@@ -355,13 +831,13 @@ public class TypeChecker {
                             "Operator '" + node.operator.getType() + "' requires numeric operands",
                             "Got " + left + " and " + right,
                             null, node);
-                    return new PrimitiveTypeSymbol(Type.UNKNOWN, false);
+                    return PrimitiveTypeSymbol.of(Type.UNKNOWN, false);
                 }
 
                 if (left.isDouble() || right.isDouble()) {
-                    return new PrimitiveTypeSymbol(Type.DOUBLE, true);
+                    return PrimitiveTypeSymbol.of(Type.DOUBLE, true);
                 }
-                return new PrimitiveTypeSymbol(Type.INTEGER, true);
+                return PrimitiveTypeSymbol.of(Type.INTEGER, true);
             }
 
             case DOUBLEEQUAL:
@@ -371,9 +847,9 @@ public class TypeChecker {
                             "Cannot compare incompatible types " + left + " and " + right,
                             "Ensure types are comparable",
                             null, node);
-                    return new PrimitiveTypeSymbol(Type.UNKNOWN, false);
+                    return PrimitiveTypeSymbol.of(Type.UNKNOWN, false);
                 }
-                return new PrimitiveTypeSymbol(Type.BOOLEAN, true);
+                return PrimitiveTypeSymbol.of(Type.BOOLEAN, true);
             }
 
             case GT:
@@ -385,9 +861,9 @@ public class TypeChecker {
                             "Comparison operator requires numeric operands",
                             "Got " + left + " and " + right,
                             null, node);
-                    return new PrimitiveTypeSymbol(Type.UNKNOWN, false);
+                    return PrimitiveTypeSymbol.of(Type.UNKNOWN, false);
                 }
-                return new PrimitiveTypeSymbol(Type.BOOLEAN, true);
+                return PrimitiveTypeSymbol.of(Type.BOOLEAN, true);
             }
 
             case AND:
@@ -397,32 +873,57 @@ public class TypeChecker {
                             "Logical operator requires boolean operands",
                             "Got " + left + " and " + right,
                             null, node);
-                    return new PrimitiveTypeSymbol(Type.UNKNOWN, false);
+                    return PrimitiveTypeSymbol.of(Type.UNKNOWN, false);
                 }
-                return new PrimitiveTypeSymbol(Type.BOOLEAN, true);
+                return PrimitiveTypeSymbol.of(Type.BOOLEAN, true);
             }
 
             default: {
                 semanticError(DiagnosticCode.E214, "Invalid operator", null, null, node);
-                return new PrimitiveTypeSymbol(Type.UNKNOWN, false);
+                return PrimitiveTypeSymbol.of(Type.UNKNOWN, false);
             }
         }
     }
 
     public TypeSymbol resolveLiteral(Token token) {
         return switch (token.getType()) {
-            case INTEGER_LITERAL -> new PrimitiveTypeSymbol(Type.INTEGER, true);
-            case DOUBLE_LITERAL -> new PrimitiveTypeSymbol(Type.DOUBLE, true);
-            case TRUE, FALSE -> new PrimitiveTypeSymbol(Type.BOOLEAN, true);
-            case STRING_LITERAL -> new PrimitiveTypeSymbol(Type.STRING, true);
-            case CHARACTER_LITERAL -> new PrimitiveTypeSymbol(Type.CHARACTER, true);
-            case NULL -> new PrimitiveTypeSymbol(Type.NULL, false);
-            default -> new PrimitiveTypeSymbol(Type.UNKNOWN, false);
+            case INTEGER_LITERAL -> PrimitiveTypeSymbol.of(Type.INTEGER, true);
+            case DOUBLE_LITERAL -> PrimitiveTypeSymbol.of(Type.DOUBLE, true);
+            case TRUE, FALSE -> PrimitiveTypeSymbol.of(Type.BOOLEAN, true);
+            case STRING_LITERAL -> PrimitiveTypeSymbol.of(Type.STRING, true);
+            case CHARACTER_LITERAL -> PrimitiveTypeSymbol.of(Type.CHARACTER, true);
+            case NULL -> PrimitiveTypeSymbol.of(Type.NULL, false);
+            default -> PrimitiveTypeSymbol.of(Type.UNKNOWN, false);
         };
     }
 
     public TypeSymbol resolveTypeSymbol(TypeReferenceNode node) {
-        Type base = switch (node.getBaseType().getType()) {
+        TypeSymbol type = declaredType(node);
+        if (PrimitiveTypeSymbol.isOf(type, Type.UNKNOWN))
+            semanticError(DiagnosticCode.E201, "Unknown type", null, null, node);
+        nodeTypes.put(node, type);
+        return type;
+    }
+
+    /**
+     * Maps a type reference to its symbol without reporting anything.
+     *
+     * @return the symbol written by {@code node}, or the {@code UNKNOWN}
+     *         primitive if its base type is not a type
+     * @since 0.15
+     */
+    public static TypeSymbol declaredType(TypeReferenceNode node) {
+        return declaredType(node.getBaseType().getType(), node.arrayDepth);
+    }
+
+    /**
+     * Maps a base type token and array depth to their symbol, as
+     * {@link #declaredType(TypeReferenceNode)} does.
+     *
+     * @since 0.15
+     */
+    public static TypeSymbol declaredType(TokenType baseType, int arrayDepth) {
+        Type base = switch (baseType) {
             case INTEGER_TYPE -> Type.INTEGER;
             case DOUBLE_TYPE -> Type.DOUBLE;
             case BOOLEAN_TYPE -> Type.BOOLEAN;
@@ -432,14 +933,14 @@ public class TypeChecker {
             default -> Type.UNKNOWN;
         };
         if (base == Type.UNKNOWN)
-            semanticError(DiagnosticCode.E201, "Unknown type", null, null, node);
-        return node.isArray() ? new ArrayTypeSymbol(base) : new PrimitiveTypeSymbol(base, true);
+            return PrimitiveTypeSymbol.of(Type.UNKNOWN, true);
+        return arrayDepth != 0 ? ArrayTypeSymbol.of(base) : PrimitiveTypeSymbol.of(base, true);
     }
 
     public boolean isAssignable(TypeSymbol from, TypeSymbol to) {
-        if (to instanceof PrimitiveTypeSymbol p && p.type == Type.UNKNOWN)
+        if (PrimitiveTypeSymbol.isOf(to, Type.UNKNOWN))
             return true;
-        if (from instanceof PrimitiveTypeSymbol p && p.type == Type.UNKNOWN)
+        if (PrimitiveTypeSymbol.isOf(from, Type.UNKNOWN))
             return true;
         if (from.isInteger() && to.isDouble())
             return true;
@@ -447,73 +948,133 @@ public class TypeChecker {
     }
 
     private boolean isBoolean(TypeSymbol t) {
-        return t instanceof PrimitiveTypeSymbol p && p.type == Type.BOOLEAN;
+        if (t instanceof ConstantSymbol c) {
+            return isBoolean(c.type);
+        }
+        return PrimitiveTypeSymbol.isOf(t, Type.BOOLEAN);
+    }
+
+    /**
+     * Whether {@code t} stands for an expression that already failed, and
+     * so must not be reported again.
+     */
+    private static boolean isUnknown(TypeSymbol t) {
+        return PrimitiveTypeSymbol.isOf(t, Type.UNKNOWN);
+    }
+
+    private static TypeSymbol unknown() {
+        return PrimitiveTypeSymbol.of(Type.UNKNOWN, false);
+    }
+
+    /**
+     * Value folded for an already checked expression: a literal, a reference
+     * to a constant with a known value, or an operation on those.
+     *
+     * @return the value, or {@code null} if it is not known at compile time
+     */
+    private Object constantValue(ExpressionNode node) {
+        if (node instanceof LiteralExpressionNode l) {
+            return ConstantEvaluator.literal(l);
+        }
+        return constantValues.get(node);
     }
 
     private boolean isCompileTimeConstant(ExpressionNode node) {
-        return node instanceof LiteralExpressionNode || (node instanceof BinaryExpressionNode b
-                && isCompileTimeConstant(b.left) && isCompileTimeConstant(b.right));
+        if (!(node instanceof BinaryExpressionNode b)) {
+            return node instanceof LiteralExpressionNode
+                    || node instanceof VariableExpressionNode && constantValues.containsKey(node);
+        }
+
+        List<BinaryExpressionNode> spine = b.leftSpine();
+        if (!isCompileTimeConstant(spine.get(spine.size() - 1).left)) {
+            return false;
+        }
+
+        for (BinaryExpressionNode operation : spine) {
+            if (!isCompileTimeConstant(operation.right)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads a variable through the binding set by {@link ScopeResolver}, or by
+     * name when the node was not resolved.
+     */
+    private TypeSymbol lookupVariable(VariableExpressionNode v, TypeContext ctx) {
+        if (v.isBound()) {
+            return ctx.lookup(v.depth(), v.slot());
+        }
+        return ctx.resolve(v.name.getValue());
     }
 
     private TypeSymbol resolveTarget(ExpressionNode node, TypeContext ctx) {
         if (node instanceof VariableExpressionNode v)
-            return ctx.resolve(v.name.getValue());
+            return variableType(v, ctx);
         if (node instanceof IndexExpressionNode i) {
             checkExpression(i, ctx, ExpressionContext.ASSIGNMENT);
-            return new PrimitiveTypeSymbol(Type.UNKNOWN, true);
+            return PrimitiveTypeSymbol.of(Type.UNKNOWN, true);
         }
         semanticError(DiagnosticCode.E209, "Invalid assignment target", null, null, node);
-        return null;
+        return unknown();
     }
 
+    /**
+     * Reports an error at {@code node}. Checking continues, so callers return
+     * a type that lets the surrounding expression be checked.
+     *
+     * @throws CompilationFailedException if the error limit is reached
+     */
     public void semanticError(DiagnosticCode code, String cause, String fix, String example, AstNode node) {
-        throw new SemanticException(
+        diagnostics.report(new SemanticException(
                 code,
                 new SourceLocation(filePath, node.line, node.column),
-                sourceManager.getContextLines(node.line, 2),
+                sourceManager,
                 cause,
                 fix,
                 example,
                 null,
-                1);
+                1));
     }
 
     public void semanticError(DiagnosticCode code, String cause, String fix, String example, TypeReferenceNode node) {
-        throw new SemanticException(
+        diagnostics.report(new SemanticException(
                 code,
                 new SourceLocation(filePath, node.baseType.line, node.baseType.column),
-                sourceManager.getContextLines(node.baseType.line, 2),
+                sourceManager,
                 cause,
                 fix,
                 example,
                 null,
                 1 // Default length
-        );
+        ));
     }
 
     public void semanticError(DiagnosticCode code, String cause, String fix, String example, Token node) {
-        throw new SemanticException(
+        diagnostics.report(new SemanticException(
                 code,
                 new SourceLocation(filePath, node.line, node.column),
-                sourceManager.getContextLines(node.line, 2),
+                sourceManager,
                 cause,
                 fix,
                 example,
                 null,
                 1 // Default length
-        );
+        ));
     }
 
     public void semanticError(DiagnosticCode code, String cause, String fix, String example, OtherwiseBranchNode node) {
-        throw new SemanticException(
+        diagnostics.report(new SemanticException(
                 code,
                 new SourceLocation(filePath, node.condition.line, node.condition.line),
-                sourceManager.getContextLines(node.condition.line, 2),
+                sourceManager,
                 cause,
                 fix,
                 example,
                 null,
                 1 // Default length
-        );
+        ));
     }
 }
\ No newline at end of file
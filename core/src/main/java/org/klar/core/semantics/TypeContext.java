@@ -1,15 +1,62 @@
 package org.klar.core.semantics;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * One lexical scope: the variables it declares, in declaration order, and the
+ * enclosing scope.
+ * <p>
+ * A declaration is addressed by its slot in the frame, so a use resolved by
+ * {@link ScopeResolver} is read with {@link #lookup(int, int)} instead of a
+ * name search. The arrays are only allocated by the first declaration, since
+ * most blocks declare nothing. A frame that grows past {@value #INDEXED_SIZE}
+ * names, like the globals of a generated file, also indexes them by name so
+ * declaring and finding a name stays constant time.
+ * </p>
+ * <p>
+ * The index is only written by {@link #declare} and {@link #snapshot}, so
+ * frames shared by parallel checks are read without locking.
+ * </p>
+ */
 public class TypeContext {
 
+    private static final int INDEXED_SIZE = 8;
+
     private final TypeContext parent;
-    private final Map<String, TypeSymbol> symbols = new HashMap<>();
+    private final FunctionContext function;
+    private String[] names;
+    private TypeSymbol[] symbols;
+    private int size;
+    private Map<String, Integer> index;
 
     public TypeContext(TypeContext parent) {
+        this(parent, parent != null ? parent.function : null);
+    }
+
+    /**
+     * Opens the scope of a function body; nested scopes inherit
+     * {@code function}.
+     *
+     * @since 0.15
+     */
+    public TypeContext(TypeContext parent, FunctionContext function) {
         this.parent = parent;
+        this.function = function;
+    }
+
+    private TypeContext(TypeContext source, int size) {
+        this.parent = source.parent;
+        this.function = source.function;
+        if (size > 0) {
+            this.names = Arrays.copyOf(source.names, size);
+            this.symbols = Arrays.copyOf(source.symbols, size);
+        }
+        if (source.index != null) {
+            this.index = new HashMap<>(source.index);
+        }
+        this.size = size;
     }
 
     /**
@@ -17,10 +64,30 @@ public class TypeContext {
      * tratar o erro).
      */
     public boolean declare(String name, TypeSymbol type) {
-        if (symbols.containsKey(name)) {
+        if (slotOf(name) != -1) {
             return false;
         }
-        symbols.put(name, type);
+
+        if (names == null) {
+            names = new String[4];
+            symbols = new TypeSymbol[4];
+        } else if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            symbols = Arrays.copyOf(symbols, size * 2);
+        }
+
+        names[size] = name;
+        symbols[size] = type;
+        size++;
+
+        if (index != null) {
+            index.put(name, size - 1);
+        } else if (size > INDEXED_SIZE) {
+            index = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                index.put(names[i], i);
+            }
+        }
         return true;
     }
 
@@ -28,12 +95,75 @@ public class TypeContext {
      * Busca uma variável. Retorna NULL se não achar (não lança exceção).
      */
     public TypeSymbol resolve(String name) {
-        if (symbols.containsKey(name)) {
-            return symbols.get(name);
-        }
-        if (parent != null) {
-            return parent.resolve(name);
+        for (TypeContext ctx = this; ctx != null; ctx = ctx.parent) {
+            int slot = ctx.slotOf(name);
+            if (slot != -1) {
+                return ctx.symbols[slot];
+            }
         }
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads the variable at a coordinate assigned by {@link ScopeResolver}.
+     *
+     * @param depth Number of parent scopes to walk up.
+     * @param slot  Index of the declaration in that scope.
+     * @return the declared symbol, or {@code null} if the coordinate is not
+     *         declared (yet)
+     * @since 0.15
+     */
+    public TypeSymbol lookup(int depth, int slot) {
+        TypeContext ctx = this;
+        for (int i = 0; i < depth && ctx != null; i++) {
+            ctx = ctx.parent;
+        }
+        if (ctx == null || slot >= ctx.size) {
+            return null;
+        }
+        return ctx.symbols[slot];
+    }
+
+    /**
+     * @return the slot of {@code name} in this scope only, or {@code -1}
+     * @since 0.15
+     */
+    public int slotOf(String name) {
+        if (index != null) {
+            Integer slot = index.get(name);
+            return slot != null ? slot : -1;
+        }
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @since 0.15
+     */
+    public TypeContext parent() {
+        return parent;
+    }
+
+    /**
+     * @return the function this scope belongs to, or {@code null} outside
+     *         function bodies
+     * @since 0.15
+     */
+    public FunctionContext function() {
+        return function;
+    }
+
+    /**
+     * Copies the declarations made so far. The copy shares the parent, and
+     * declaring in either frame afterwards does not affect the other.
+     *
+     * @since 0.15
+     */
+    public TypeContext snapshot() {
+        return new TypeContext(this, size);
+    }
+}
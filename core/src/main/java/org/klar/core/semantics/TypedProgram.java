@@ -0,0 +1,119 @@
+package org.klar.core.semantics;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.klar.core.parser.ast.AstNode;
+import org.klar.core.parser.ast.CallExpressionNode;
+import org.klar.core.parser.ast.ConstantDeclarationNode;
+import org.klar.core.parser.ast.ExpressionNode;
+import org.klar.core.parser.ast.FunctionDeclarationNode;
+import org.klar.core.parser.ast.ProgramNode;
+import org.klar.core.parser.ast.TypeReferenceNode;
+
+/**
+ * Result of {@link TypeChecker#check(ProgramNode)}: the facts the checker
+ * derived, for backends to read instead of deriving them again.
+ * <p>
+ * Entries are keyed by node identity and cover:
+ * </p>
+ * <ul>
+ * <li><strong>types:</strong> every checked expression, every declaration
+ * (its declared symbol) and every resolved {@link TypeReferenceNode}.</li>
+ * <li><strong>functions:</strong> the {@link FunctionSymbol} of each function
+ * declaration and the one each call resolved to.</li>
+ * <li><strong>constants:</strong> the value of each constant declaration whose
+ * initializer could be evaluated, and of each expression folded at compile
+ * time: an operation on literals and constants, or a use of a constant. See
+ * {@link ConstantEvaluator}.</li>
+ * </ul>
+ * <p>
+ * Instances are immutable and hold on to the nodes of the checked program, so
+ * they are only valid for that tree.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class TypedProgram {
+    private final ProgramNode program;
+    private final Map<Object, TypeSymbol> types;
+    private final Map<AstNode, FunctionSymbol> functions;
+    private final Map<AstNode, Object> constants;
+
+    TypedProgram(ProgramNode program, IdentityHashMap<Object, TypeSymbol> types,
+            IdentityHashMap<AstNode, FunctionSymbol> functions,
+            IdentityHashMap<AstNode, Object> constants) {
+        this.program = program;
+        this.types = Collections.unmodifiableMap(types);
+        this.functions = Collections.unmodifiableMap(functions);
+        this.constants = Collections.unmodifiableMap(constants);
+    }
+
+    public ProgramNode program() {
+        return program;
+    }
+
+    /**
+     * @return the type of an expression or the declared type of a declaration,
+     *         or {@code null} if the checker did not visit {@code node}
+     */
+    public TypeSymbol typeOf(AstNode node) {
+        return types.get(node);
+    }
+
+    /**
+     * @return the symbol {@code type} resolved to, or {@code null}
+     */
+    public TypeSymbol typeOf(TypeReferenceNode type) {
+        return types.get(type);
+    }
+
+    /**
+     * @return the function {@code call} resolved to, or {@code null}
+     */
+    public FunctionSymbol functionOf(CallExpressionNode call) {
+        return functions.get(call);
+    }
+
+    /**
+     * @return the symbol declared by {@code function}, or {@code null}
+     */
+    public FunctionSymbol functionOf(FunctionDeclarationNode function) {
+        return functions.get(function);
+    }
+
+    /**
+     * @return whether the value of {@code constant} is known at compile time
+     */
+    public boolean hasConstantValue(ConstantDeclarationNode constant) {
+        return constants.containsKey(constant);
+    }
+
+    /**
+     * @return the value of {@code constant} as an {@link Integer},
+     *         {@link Double}, {@link Boolean} or {@link String}, or
+     *         {@code null} if it is not known
+     */
+    public Object constantValue(ConstantDeclarationNode constant) {
+        return constants.get(constant);
+    }
+
+    /**
+     * @return whether {@code expression} was folded to a value, in which case
+     *         it can be emitted as that value
+     * @since 0.15
+     */
+    public boolean hasConstantValue(ExpressionNode expression) {
+        return constants.containsKey(expression);
+    }
+
+    /**
+     * @return the folded value of {@code expression}, or {@code null} if it
+     *         has none
+     * @since 0.15
+     */
+    public Object constantValue(ExpressionNode expression) {
+        return constants.get(expression);
+    }
+}
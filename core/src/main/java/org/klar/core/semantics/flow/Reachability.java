@@ -0,0 +1,231 @@
+package org.klar.core.semantics.flow;
+
+import org.klar.core.parser.ast.AssignmentStatementNode;
+import org.klar.core.parser.ast.AstVisitor;
+import org.klar.core.parser.ast.BinaryExpressionNode;
+import org.klar.core.parser.ast.BlockStatementNode;
+import org.klar.core.parser.ast.CallExpressionNode;
+import org.klar.core.parser.ast.ConstantDeclarationNode;
+import org.klar.core.parser.ast.DecisionStatementNode;
+import org.klar.core.parser.ast.ErrorExpressionNode;
+import org.klar.core.parser.ast.ErrorStatementNode;
+import org.klar.core.parser.ast.ExpressionNode;
+import org.klar.core.parser.ast.ExpressionStatementNode;
+import org.klar.core.parser.ast.FunctionDeclarationNode;
+import org.klar.core.parser.ast.ImportDeclarationNode;
+import org.klar.core.parser.ast.IndexExpressionNode;
+import org.klar.core.parser.ast.LiteralExpressionNode;
+import org.klar.core.parser.ast.ModuleDeclarationNode;
+import org.klar.core.parser.ast.NewArrayExpressionNode;
+import org.klar.core.parser.ast.OtherwiseBranchNode;
+import org.klar.core.parser.ast.ReturnStatementNode;
+import org.klar.core.parser.ast.StatementNode;
+import org.klar.core.parser.ast.VariableDeclarationNode;
+import org.klar.core.parser.ast.VariableExpressionNode;
+import org.klar.core.parser.ast.WhileStatementNode;
+import org.klar.core.semantics.ConstantEvaluator;
+import org.klar.core.semantics.TypedProgram;
+
+/**
+ * The reachability rules of Klar, shared by the {@link ReachabilityAnalyzer}
+ * and the {@code JavaTranspiler} at {@code -O0}.
+ * <p>
+ * A visit returns whether control can leave the node. They follow the rules
+ * javac applies to constant conditions: a {@code while} whose condition folds
+ * to {@code true} never ends, since Klar has no {@code break}, and a branch
+ * whose condition folds to {@code false} never runs. Code found to never run
+ * is passed to the hooks, which do nothing unless overridden.
+ * </p>
+ *
+ * @since 0.15
+ */
+public class Reachability implements AstVisitor<Boolean> {
+    private final TypedProgram types;
+
+    /**
+     * @param types Checked program the conditions were folded in, or
+     *              {@code null} to only read boolean literals.
+     */
+    public Reachability(TypedProgram types) {
+        this.types = types;
+    }
+
+    /**
+     * @return the value of a condition that is a boolean literal or was folded
+     *         by the checker, else {@code null}
+     */
+    public static Boolean constantCondition(TypedProgram types, ExpressionNode condition) {
+        Object value = types != null && types.hasConstantValue(condition)
+                ? types.constantValue(condition)
+                : condition instanceof LiteralExpressionNode l ? ConstantEvaluator.evaluate(l) : null;
+        return value instanceof Boolean b ? b : null;
+    }
+
+    /**
+     * Called for the first statement after one that never completes; the
+     * rest of the block is not visited.
+     */
+    protected void unreachableStatement(StatementNode statement) {
+    }
+
+    /**
+     * Called for a {@code while} whose condition folds to {@code false}.
+     */
+    protected void loopNeverRuns(WhileStatementNode loop) {
+    }
+
+    /**
+     * Called for a branch of {@code decision} that never runs. An empty
+     * {@code afterall} is required by the language, so it is never passed.
+     *
+     * @param shadowed Whether an earlier condition folds to {@code true}, rather
+     *                 than the condition of the branch to {@code false}.
+     */
+    protected void branchNeverRuns(DecisionStatementNode decision, BlockStatementNode body, boolean shadowed) {
+    }
+
+    // Statements
+
+    @Override
+    public Boolean visitBlock(BlockStatementNode b) {
+        boolean reachable = true;
+        for (StatementNode statement : b.statements) {
+            if (!reachable) {
+                unreachableStatement(statement);
+                return false;
+            }
+            reachable = statement.accept(this);
+        }
+        return reachable;
+    }
+
+    @Override
+    public Boolean visitWhile(WhileStatementNode w) {
+        Boolean condition = constantCondition(types, w.condition);
+        if (Boolean.FALSE.equals(condition)) {
+            loopNeverRuns(w);
+            return true;
+        }
+        w.body.accept(this);
+        return !Boolean.TRUE.equals(condition);
+    }
+
+    @Override
+    public Boolean visitDecision(DecisionStatementNode d) {
+        Boolean condition = constantCondition(types, d.condition);
+        boolean leaves = branch(d, condition, d.ifBlock);
+        boolean decided = Boolean.TRUE.equals(condition);
+
+        for (OtherwiseBranchNode o : d.otherwiseBranches) {
+            if (decided) {
+                branchNeverRuns(d, o.body, true);
+                continue;
+            }
+            condition = constantCondition(types, o.condition);
+            leaves |= branch(d, condition, o.body);
+            decided = Boolean.TRUE.equals(condition);
+        }
+
+        if (d.afterallBlock == null) {
+            return leaves || !decided;
+        }
+        if (decided) {
+            if (!d.afterallBlock.statements.isEmpty()) {
+                branchNeverRuns(d, d.afterallBlock, true);
+            }
+            return leaves;
+        }
+        return d.afterallBlock.accept(this) || leaves;
+    }
+
+    private boolean branch(DecisionStatementNode d, Boolean condition, BlockStatementNode body) {
+        if (Boolean.FALSE.equals(condition)) {
+            branchNeverRuns(d, body, false);
+            return false;
+        }
+        return body.accept(this);
+    }
+
+    @Override
+    public Boolean visitFunctionDeclaration(FunctionDeclarationNode f) {
+        f.body().accept(this);
+        return true;
+    }
+
+    @Override
+    public Boolean visitAssignment(AssignmentStatementNode a) {
+        return true;
+    }
+
+    @Override
+    public Boolean visitConstantDeclaration(ConstantDeclarationNode c) {
+        return true;
+    }
+
+    @Override
+    public Boolean visitErrorStatement(ErrorStatementNode e) {
+        return true;
+    }
+
+    @Override
+    public Boolean visitExpressionStatement(ExpressionStatementNode e) {
+        return true;
+    }
+
+    @Override
+    public Boolean visitImportDeclaration(ImportDeclarationNode i) {
+        return true;
+    }
+
+    @Override
+    public Boolean visitModuleDeclaration(ModuleDeclarationNode m) {
+        return true;
+    }
+
+    @Override
+    public Boolean visitReturn(ReturnStatementNode r) {
+        return true;
+    }
+
+    @Override
+    public Boolean visitVariableDeclaration(VariableDeclarationNode v) {
+        return true;
+    }
+
+    // Expressions always complete
+
+    @Override
+    public Boolean visitBinary(BinaryExpressionNode b) {
+        return true;
+    }
+
+    @Override
+    public Boolean visitCall(CallExpressionNode c) {
+        return true;
+    }
+
+    @Override
+    public Boolean visitErrorExpression(ErrorExpressionNode e) {
+        return true;
+    }
+
+    @Override
+    public Boolean visitIndex(IndexExpressionNode i) {
+        return true;
+    }
+
+    @Override
+    public Boolean visitLiteral(LiteralExpressionNode l) {
+        return true;
+    }
+
+    @Override
+    public Boolean visitNewArray(NewArrayExpressionNode n) {
+        return true;
+    }
+
+    @Override
+    public Boolean visitVariable(VariableExpressionNode v) {
+        return true;
+    }
+}
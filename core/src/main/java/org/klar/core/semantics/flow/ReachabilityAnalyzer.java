@@ -0,0 +1,328 @@
+package org.klar.core.semantics.flow;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.klar.core.diagnostics.DiagnosticCode;
+import org.klar.core.diagnostics.DiagnosticCollector;
+import org.klar.core.errors.SemanticException;
+import org.klar.core.errors.SourceLocation;
+import org.klar.core.errors.SourceManager;
+import org.klar.core.parser.ast.AccessModifier;
+import org.klar.core.parser.ast.AssignmentStatementNode;
+import org.klar.core.parser.ast.AstNode;
+import org.klar.core.parser.ast.AstVisitor;
+import org.klar.core.parser.ast.BinaryExpressionNode;
+import org.klar.core.parser.ast.BlockStatementNode;
+import org.klar.core.parser.ast.CallExpressionNode;
+import org.klar.core.parser.ast.ConstantDeclarationNode;
+import org.klar.core.parser.ast.DecisionStatementNode;
+import org.klar.core.parser.ast.ErrorExpressionNode;
+import org.klar.core.parser.ast.ErrorStatementNode;
+import org.klar.core.parser.ast.ExpressionStatementNode;
+import org.klar.core.parser.ast.FunctionDeclarationNode;
+import org.klar.core.parser.ast.ImportDeclarationNode;
+import org.klar.core.parser.ast.IndexExpressionNode;
+import org.klar.core.parser.ast.LiteralExpressionNode;
+import org.klar.core.parser.ast.ModuleDeclarationNode;
+import org.klar.core.parser.ast.NewArrayExpressionNode;
+import org.klar.core.parser.ast.OtherwiseBranchNode;
+import org.klar.core.parser.ast.ReturnStatementNode;
+import org.klar.core.parser.ast.StatementNode;
+import org.klar.core.parser.ast.VariableDeclarationNode;
+import org.klar.core.parser.ast.VariableExpressionNode;
+import org.klar.core.parser.ast.WhileStatementNode;
+import org.klar.core.semantics.TypedProgram;
+
+/**
+ * Reports code of a checked program that can never run, as warnings.
+ * <ul>
+ * <li><strong>{@code W501}:</strong> a branch whose condition folds to
+ * {@code false}, the branches after one whose condition folds to
+ * {@code true}, the body of a {@code while} whose condition folds to
+ * {@code false}, and the statements after a {@code while} whose condition
+ * folds to {@code true}, since Klar has no {@code break}.</li>
+ * <li><strong>{@code W502}:</strong> a function that is not public and that
+ * neither {@code main} nor a public function calls, directly or through other
+ * functions.</li>
+ * </ul>
+ * <p>
+ * The rules for {@code W501} are those of {@link Reachability}. The same code
+ * is left out of the generated Java: by
+ * {@code org.klar.core.IR.DeadCodeElimination} when the IR passes run, and by
+ * the {@code JavaTranspiler} at {@code -O0}, through {@link Reachability}.
+ * </p>
+ *
+ * @since 0.15
+ */
+public final class ReachabilityAnalyzer {
+    private final SourceManager sourceManager;
+    private final String filePath;
+    private final DiagnosticCollector diagnostics;
+
+    /**
+     * @param diagnostics Collector the warnings are added to.
+     */
+    public ReachabilityAnalyzer(SourceManager sourceManager, String filePath, DiagnosticCollector diagnostics) {
+        this.sourceManager = sourceManager;
+        this.filePath = filePath;
+        this.diagnostics = diagnostics;
+    }
+
+    public void analyze(TypedProgram types) {
+        Reachability reachability = new DeadCodeReporter(types);
+
+        Map<String, FunctionDeclarationNode> functions = new LinkedHashMap<>();
+        Map<String, Set<String>> callees = new HashMap<>();
+        Deque<String> pending = new ArrayDeque<>();
+        Set<String> globalCalls = new HashSet<>();
+
+        for (StatementNode statement : types.program().statements) {
+            if (!(statement instanceof FunctionDeclarationNode f)) {
+                statement.accept(new CallCollector(globalCalls));
+                continue;
+            }
+            String name = f.name.getValue();
+            functions.put(name, f);
+            Set<String> calls = new HashSet<>();
+            f.body().accept(new CallCollector(calls));
+            callees.put(name, calls);
+            if (name.equals("main") || f.access == AccessModifier.PUBLIC) {
+                pending.add(name);
+            }
+
+            f.accept(reachability);
+        }
+
+        // Globals are initialized whenever the module is used
+        pending.addAll(globalCalls);
+        Set<String> reached = new HashSet<>();
+        while (!pending.isEmpty()) {
+            String name = pending.pop();
+            if (functions.containsKey(name) && reached.add(name)) {
+                pending.addAll(callees.get(name));
+            }
+        }
+
+        for (FunctionDeclarationNode f : functions.values()) {
+            if (!reached.contains(f.name.getValue())) {
+                warn(DiagnosticCode.W502, "Function '" + f.name.getValue() + "' is never called",
+                        "Call it from main or a public function, or remove it", f.name.line, f.name.column);
+            }
+        }
+    }
+
+    /**
+     * Reports the code {@link Reachability} finds to never run as
+     * {@code W501}.
+     */
+    private final class DeadCodeReporter extends Reachability {
+        DeadCodeReporter(TypedProgram types) {
+            super(types);
+        }
+
+        @Override
+        protected void unreachableStatement(StatementNode statement) {
+            // One warning covers the rest of the block
+            warn(DiagnosticCode.W501, "This statement never runs: the loop above it never ends",
+                    "Remove the statement, or give the loop a condition that can become false", statement);
+        }
+
+        @Override
+        protected void loopNeverRuns(WhileStatementNode loop) {
+            warn(DiagnosticCode.W501, "The loop condition is always false, so its body never runs",
+                    "Remove the loop", loop.body);
+        }
+
+        @Override
+        protected void branchNeverRuns(DecisionStatementNode decision, BlockStatementNode body, boolean shadowed) {
+            if (!shadowed) {
+                warn(DiagnosticCode.W501, "The condition is always false, so this branch never runs",
+                        "Remove the branch", body);
+            } else if (body == decision.afterallBlock) {
+                warn(DiagnosticCode.W501, "An earlier condition is always true, so this branch never runs",
+                        "Remove the statements of the afterall block", body);
+            } else {
+                warn(DiagnosticCode.W501, "An earlier condition is always true, so this branch never runs",
+                        "Remove the branch", body);
+            }
+        }
+    }
+
+    private void warn(DiagnosticCode code, String cause, String fix, AstNode node) {
+        warn(code, cause, fix, node.line, node.column);
+    }
+
+    private void warn(DiagnosticCode code, String cause, String fix, int line, int column) {
+        diagnostics.warn(new SemanticException(
+                code,
+                new SourceLocation(filePath, line, column),
+                sourceManager,
+                cause,
+                fix,
+                null,
+                null,
+                1));
+    }
+
+    /**
+     * Adds the names of the functions a subtree calls to a set. Binary chains
+     * are walked along {@link BinaryExpressionNode#leftSpine()}, so long
+     * expressions do not deepen the stack.
+     */
+    private static final class CallCollector implements AstVisitor<Void> {
+        private final Set<String> calls;
+
+        CallCollector(Set<String> calls) {
+            this.calls = calls;
+        }
+
+        private void visitAll(List<? extends AstNode> nodes) {
+            if (nodes != null) {
+                for (AstNode node : nodes) {
+                    node.accept(this);
+                }
+            }
+        }
+
+        private void visitOptional(AstNode node) {
+            if (node != null) {
+                node.accept(this);
+            }
+        }
+
+        // Statements
+
+        @Override
+        public Void visitAssignment(AssignmentStatementNode a) {
+            a.name.accept(this);
+            a.value.accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitBlock(BlockStatementNode b) {
+            visitAll(b.statements);
+            return null;
+        }
+
+        @Override
+        public Void visitConstantDeclaration(ConstantDeclarationNode c) {
+            visitOptional(c.value);
+            return null;
+        }
+
+        @Override
+        public Void visitDecision(DecisionStatementNode d) {
+            d.condition.accept(this);
+            d.ifBlock.accept(this);
+            for (OtherwiseBranchNode o : d.otherwiseBranches) {
+                o.condition.accept(this);
+                o.body.accept(this);
+            }
+            visitOptional(d.afterallBlock);
+            return null;
+        }
+
+        @Override
+        public Void visitErrorStatement(ErrorStatementNode e) {
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStatement(ExpressionStatementNode e) {
+            e.expression.accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitFunctionDeclaration(FunctionDeclarationNode f) {
+            // Each function is collected on its own
+            return null;
+        }
+
+        @Override
+        public Void visitImportDeclaration(ImportDeclarationNode i) {
+            return null;
+        }
+
+        @Override
+        public Void visitModuleDeclaration(ModuleDeclarationNode m) {
+            return null;
+        }
+
+        @Override
+        public Void visitReturn(ReturnStatementNode r) {
+            visitOptional(r.value);
+            return null;
+        }
+
+        @Override
+        public Void visitVariableDeclaration(VariableDeclarationNode v) {
+            visitOptional(v.value);
+            return null;
+        }
+
+        @Override
+        public Void visitWhile(WhileStatementNode w) {
+            w.condition.accept(this);
+            w.body.accept(this);
+            return null;
+        }
+
+        // Expressions
+
+        @Override
+        public Void visitBinary(BinaryExpressionNode b) {
+            List<BinaryExpressionNode> spine = b.leftSpine();
+            spine.get(spine.size() - 1).left.accept(this);
+
+            for (int i = spine.size() - 1; i >= 0; i--) {
+                spine.get(i).right.accept(this);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitCall(CallExpressionNode c) {
+            calls.add(c.callee.getValue());
+            visitAll(c.arguments);
+            return null;
+        }
+
+        @Override
+        public Void visitErrorExpression(ErrorExpressionNode e) {
+            return null;
+        }
+
+        @Override
+        public Void visitIndex(IndexExpressionNode i) {
+            i.target.accept(this);
+            i.index.accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteral(LiteralExpressionNode l) {
+            return null;
+        }
+
+        @Override
+        public Void visitNewArray(NewArrayExpressionNode n) {
+            visitOptional(n.size);
+            visitAll(n.initializer);
+            return null;
+        }
+
+        @Override
+        public Void visitVariable(VariableExpressionNode v) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,844 @@
+package org.klar.core.transpilers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.klar.core.IR.BasicBlock;
+import org.klar.core.IR.ControlFlow;
+import org.klar.core.IR.IrConstant;
+import org.klar.core.IR.IrFunction;
+import org.klar.core.IR.IrGlobal;
+import org.klar.core.IR.IrInstruction;
+import org.klar.core.IR.IrProgram;
+import org.klar.core.IR.IrTerminator;
+import org.klar.core.IR.IrValue;
+import org.klar.core.IR.IrVariable;
+import org.klar.core.semantics.ArrayTypeSymbol;
+import org.klar.core.semantics.PrimitiveTypeSymbol;
+import org.klar.core.semantics.Type;
+import org.klar.core.semantics.TypeSymbol;
+
+/**
+ * Emits Java source from the IR, for {@link JavaTranspiler#transpile(IrProgram)}.
+ * <p>
+ * Two things turn three-address code back into readable Java:
+ * </p>
+ * <ul>
+ * <li><strong>expressions:</strong> a temporary that is written once and read
+ * once, later in the same block, is not declared; its expression is written
+ * where it is read. Pending expressions are kept on a stack and only consumed
+ * in the order they were computed, so evaluation order is unchanged; any
+ * other statement writes them out first.</li>
+ * <li><strong>control flow:</strong> structured statements are rebuilt from
+ * the dominator tree, after Ramsey's "Beyond Relooper". A block with several
+ * forward predecessors is placed after a labeled block its predecessors
+ * {@code break} out of, and a loop header becomes a {@code while} that back
+ * edges {@code continue}. A loop left for a single block is followed by that
+ * block. Labels nobody refers to are removed again.</li>
+ * </ul>
+ * <p>
+ * Variables are declared where they are first written if that is at the top
+ * level of the method and nothing mentioned them before, and at the start of
+ * the method otherwise.
+ * </p>
+ *
+ * @since 0.15
+ */
+final class JavaIrEmitter {
+    private static final int ATOM = 100;
+
+    private final List<Line> lines = new ArrayList<>();
+
+    /**
+     * One line of output.
+     *
+     * @param target   Local variable the line assigns, if it is a plain
+     *                 assignment; it may become its declaration.
+     * @param mentions Local variables the line reads.
+     */
+    private record Line(int depth, String text, IrVariable target, Set<IrVariable> mentions) {
+        Line(int depth, String text) {
+            this(depth, text, null, Set.of());
+        }
+
+        Line withDepth(int newDepth) {
+            return new Line(newDepth, text, target, mentions);
+        }
+
+        Line withText(String newText) {
+            return new Line(depth, newText, target, mentions);
+        }
+    }
+
+    String emit(IrProgram program, String className) {
+        lines.add(new Line(0, "public class " + className + "{"));
+
+        for (IrGlobal global : program.globals()) {
+            IrVariable variable = global.variable();
+            String value = global.value() != null
+                    ? literal(global.value())
+                    : global.initializer().name() + "()";
+            lines.add(new Line(1, "private static " + (global.constant() ? "final " : "")
+                    + javaType(variable.type()) + " " + variable.name() + " = " + value + ";"));
+        }
+
+        for (IrGlobal global : program.globals()) {
+            if (global.initializer() != null) {
+                lines.add(new Line(0, ""));
+                new FunctionWriter(global.initializer(), "private static").write();
+            }
+        }
+
+        for (IrFunction function : program.functions()) {
+            lines.add(new Line(0, ""));
+            new FunctionWriter(function, "public static").write();
+        }
+
+        lines.add(new Line(0, "}"));
+
+        StringBuilder sb = new StringBuilder();
+        for (Line line : lines) {
+            if (!line.text().isEmpty()) {
+                sb.append("    ".repeat(line.depth())).append(line.text());
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * State of writing one function.
+     */
+    private final class FunctionWriter {
+        private static final int BODY = 2;
+
+        private final IrFunction function;
+        private final String modifiers;
+        private final ControlFlow cfg;
+
+        private final Map<IrVariable, String> names = new HashMap<>();
+        private final Map<IrVariable, Integer> uses = new HashMap<>();
+        private final Map<IrVariable, Integer> definitions = new HashMap<>();
+        private final Map<IrVariable, BasicBlock> definedIn = new HashMap<>();
+
+        /** Variables rendered since the last line was added. */
+        private final Set<IrVariable> mentioned = new LinkedHashSet<>();
+
+        private final Deque<Pending> pending = new ArrayDeque<>();
+        private final Deque<Construct> enclosing = new ArrayDeque<>();
+        private final Set<String> usedLabels = new HashSet<>();
+        private int depth = BODY;
+
+        /** An expression computed into a temporary that is not written out yet. */
+        private record Pending(IrVariable variable, Operand value) {
+        }
+
+        /**
+         * A statement control can leave with {@code break} or
+         * {@code continue}.
+         *
+         * @param target Block a labeled block is followed by, or the header of
+         *               a loop.
+         * @param follow Block a loop is followed by, if it has one.
+         */
+        private record Construct(boolean loop, BasicBlock target, BasicBlock follow, String label) {
+        }
+
+        FunctionWriter(IrFunction function, String modifiers) {
+            this.function = function;
+            this.modifiers = modifiers;
+            this.cfg = new ControlFlow(function);
+        }
+
+        void write() {
+            countUses();
+            nameVariables();
+
+            lines.add(new Line(1, modifiers + " " + signature() + "{"));
+            int body = lines.size();
+
+            doTree(function.entry(), null);
+            declare(body);
+
+            lines.add(new Line(1, "}"));
+        }
+
+        private String signature() {
+            if (function.isMain()) {
+                return "void main(String[] args)";
+            }
+            return javaType(function.returnType()) + " " + function.name() + "("
+                    + function.parameters().stream()
+                            .map(p -> javaType(p.type()) + " " + names.get(p))
+                            .collect(Collectors.joining(", "))
+                    + ")";
+        }
+
+        private void countUses() {
+            for (BasicBlock block : cfg.order()) {
+                for (IrInstruction instruction : block.instructions()) {
+                    for (IrValue operand : instruction.operands()) {
+                        use(operand);
+                    }
+                    IrVariable result = instruction.result();
+                    if (result != null) {
+                        definitions.merge(result, 1, Integer::sum);
+                        definedIn.put(result, block);
+                    }
+                }
+                IrTerminator terminator = block.terminator();
+                if (terminator instanceof IrTerminator.Branch b) {
+                    use(b.condition());
+                } else if (terminator instanceof IrTerminator.Return r && r.value() != null) {
+                    use(r.value());
+                }
+            }
+        }
+
+        private void use(IrValue value) {
+            if (value instanceof IrVariable v) {
+                uses.merge(v, 1, Integer::sum);
+            }
+        }
+
+        private void nameVariables() {
+            Set<String> taken = new HashSet<>();
+            if (function.isMain()) {
+                taken.add("args");
+            }
+            for (IrVariable parameter : function.parameters()) {
+                names.put(parameter, parameter.name());
+                taken.add(parameter.name());
+            }
+            for (IrVariable variable : function.variables()) {
+                String name = variable.isTemporary() ? "$t" + variable.id() : variable.name();
+                for (int n = 2; !taken.add(name); n++) {
+                    name = variable.name() + "$" + n;
+                }
+                names.put(variable, name);
+            }
+        }
+
+        /**
+         * Declares every local the body mentions: on the line that first
+         * assigns it when that line is directly in the method body and
+         * nothing mentioned the variable before, at the start otherwise.
+         */
+        private void declare(int body) {
+            Set<IrVariable> seen = new HashSet<>();
+            Set<IrVariable> declared = new HashSet<>();
+
+            for (int i = body; i < lines.size(); i++) {
+                Line line = lines.get(i);
+                IrVariable target = line.target();
+                if (target != null && line.depth() == BODY && !seen.contains(target)
+                        && !line.mentions().contains(target)) {
+                    lines.set(i, line.withText(javaType(target.type()) + " " + line.text()));
+                    declared.add(target);
+                }
+                seen.addAll(line.mentions());
+                if (target != null) {
+                    seen.add(target);
+                }
+            }
+
+            List<Line> hoisted = new ArrayList<>();
+            for (IrVariable variable : function.variables()) {
+                if (seen.contains(variable) && !declared.contains(variable)) {
+                    hoisted.add(new Line(BODY, javaType(variable.type()) + " " + names.get(variable) + " = "
+                            + defaultValue(variable.type()) + ";"));
+                }
+            }
+            lines.addAll(body, hoisted);
+        }
+
+        private void add(String text) {
+            add(text, null);
+        }
+
+        private void add(String text, IrVariable target) {
+            lines.add(new Line(depth, text, target, drainMentions()));
+        }
+
+        private Set<IrVariable> drainMentions() {
+            Set<IrVariable> drained = Set.copyOf(mentioned);
+            mentioned.clear();
+            return drained;
+        }
+
+        /**
+         * Whether the value of a temporary can be written into the one place
+         * that reads it.
+         */
+        private boolean isInlined(IrVariable variable, BasicBlock block) {
+            return variable.isTemporary()
+                    && uses.getOrDefault(variable, 0) == 1
+                    && definitions.getOrDefault(variable, 0) == 1
+                    && definedIn.get(variable) == block;
+        }
+
+        // Control flow
+
+        private void doTree(BasicBlock block, BasicBlock fall) {
+            List<BasicBlock> merges = new ArrayList<>();
+            for (BasicBlock child : cfg.dominatedChildren(block)) {
+                if (isMerge(child) && !isLoopFollow(child)) {
+                    merges.add(child);
+                }
+            }
+            // The block placed last in the code goes outermost
+            merges.sort((a, b) -> Integer.compare(cfg.indexOf(b), cfg.indexOf(a)));
+
+            if (cfg.isLoopHeader(block)) {
+                writeLoop(block, merges, fall);
+            } else {
+                nodeWithin(block, merges, 0, fall);
+            }
+        }
+
+        private boolean isMerge(BasicBlock block) {
+            return cfg.forwardPredecessors(block) >= 2;
+        }
+
+        private void nodeWithin(BasicBlock block, List<BasicBlock> merges, int next, BasicBlock fall) {
+            if (next == merges.size()) {
+                writeBlock(block, fall);
+                return;
+            }
+
+            BasicBlock merge = merges.get(next);
+            String label = "block" + merge.id();
+            int open = lines.size();
+            add(label + ": {");
+            depth++;
+            enclosing.push(new Construct(false, merge, null, label));
+            nodeWithin(block, merges, next + 1, merge);
+            enclosing.pop();
+            depth--;
+
+            if (usedLabels.contains(label)) {
+                add("}");
+            } else {
+                // Nothing breaks out of it: unwrap
+                Line opening = lines.remove(open);
+                for (int i = open; i < lines.size(); i++) {
+                    lines.set(i, lines.get(i).withDepth(lines.get(i).depth() - 1));
+                }
+                mentioned.addAll(opening.mentions());
+            }
+
+            doTree(merge, fall);
+        }
+
+        private void writeLoop(BasicBlock header, List<BasicBlock> merges, BasicBlock fall) {
+            BasicBlock follow = loopFollow(header);
+            String label = "loop" + header.id();
+            int start = lines.size();
+
+            enclosing.push(new Construct(true, header, follow, label));
+            if (follow == null || !writeTestedLoop(header, follow, merges)) {
+                add("while (true) {");
+                depth++;
+                nodeWithin(header, merges, 0, header);
+                depth--;
+            }
+            enclosing.pop();
+            add("}");
+
+            if (usedLabels.contains(label)) {
+                lines.set(start, lines.get(start).withText(label + ": " + lines.get(start).text()));
+            }
+            if (follow != null) {
+                doTree(follow, fall);
+            }
+        }
+
+        /**
+         * @return the only block control goes to when it leaves the loop of
+         *         {@code header}, if the loop dominates it, else {@code null}
+         */
+        private BasicBlock loopFollow(BasicBlock header) {
+            Set<BasicBlock> loop = cfg.loop(header);
+            BasicBlock follow = null;
+            for (BasicBlock block : loop) {
+                for (BasicBlock successor : block.successors()) {
+                    if (loop.contains(successor)) {
+                        continue;
+                    }
+                    if (follow != null && follow != successor) {
+                        return null;
+                    }
+                    follow = successor;
+                }
+            }
+            return follow != null && cfg.dominates(header, follow) ? follow : null;
+        }
+
+        /**
+         * Writes a loop whose header tests whether to leave it as
+         * {@code while (condition)}, or as {@code while (true)} starting with
+         * the test if the header computes more than the condition.
+         *
+         * @return whether the loop had that shape and was written
+         */
+        private boolean writeTestedLoop(BasicBlock header, BasicBlock follow, List<BasicBlock> merges) {
+            if (!merges.isEmpty()
+                    || !(header.terminator() instanceof IrTerminator.Branch branch)
+                    || branch.condition() instanceof IrConstant
+                    || branch.whenTrue() == branch.whenFalse()) {
+                return false;
+            }
+            boolean exitWhenTrue = branch.whenTrue() == follow;
+            if (!exitWhenTrue && branch.whenFalse() != follow) {
+                return false;
+            }
+            BasicBlock body = exitWhenTrue ? branch.whenFalse() : branch.whenTrue();
+
+            int open = lines.size();
+            add("while (true) {");
+            depth++;
+            writeInstructions(header);
+            String condition = operand(branch.condition());
+            flush();
+            if (lines.size() == open + 1) {
+                Set<IrVariable> reads = new HashSet<>(lines.get(open).mentions());
+                reads.addAll(drainMentions());
+                String test = exitWhenTrue ? negate(condition) : condition;
+                lines.set(open, new Line(depth - 1, "while (" + test + ") {", null, reads));
+            } else {
+                add("if (" + (exitWhenTrue ? condition : negate(condition)) + ") {");
+                depth++;
+                add("break;");
+                depth--;
+                add("}");
+            }
+            branchTo(header, body, header);
+            depth--;
+            return true;
+        }
+
+        private void writeBlock(BasicBlock block, BasicBlock fall) {
+            writeInstructions(block);
+            IrTerminator terminator = block.terminator();
+
+            if (terminator instanceof IrTerminator.Return r) {
+                String value = r.value() != null ? " " + operand(r.value()) : "";
+                flush();
+                add("return" + value + ";");
+            } else if (terminator instanceof IrTerminator.Jump j) {
+                flush();
+                branchTo(block, j.target(), fall);
+            } else {
+                IrTerminator.Branch b = (IrTerminator.Branch) terminator;
+                String condition = operand(b.condition());
+                flush();
+                writeIf(block, condition, b.whenTrue(), b.whenFalse(), fall);
+            }
+        }
+
+        private void writeIf(BasicBlock block, String condition, BasicBlock whenTrue, BasicBlock whenFalse,
+                BasicBlock fall) {
+            int open = lines.size();
+            add("if (" + condition + ") {");
+            depth++;
+            branchTo(block, whenTrue, fall);
+            List<Line> then = cut(open + 1);
+            branchTo(block, whenFalse, fall);
+            List<Line> otherwise = cut(open + 1);
+            depth--;
+
+            if (otherwise.isEmpty()) {
+                lines.addAll(then);
+                add("}");
+            } else if (then.isEmpty() || (leaves(otherwise) && !leaves(then))) {
+                // Test the opposite and let the then-branch follow
+                lines.set(open, lines.get(open).withText("if (" + negate(condition) + ") {"));
+                lines.addAll(otherwise);
+                add("}");
+                then.forEach(line -> lines.add(line.withDepth(line.depth() - 1)));
+            } else if (leaves(then)) {
+                lines.addAll(then);
+                add("}");
+                otherwise.forEach(line -> lines.add(line.withDepth(line.depth() - 1)));
+            } else if (isSingleIf(otherwise)) {
+                lines.addAll(then);
+                Line nested = otherwise.get(0);
+                lines.add(new Line(depth, "} else " + nested.text(), null, nested.mentions()));
+                otherwise.subList(1, otherwise.size())
+                        .forEach(line -> lines.add(line.withDepth(line.depth() - 1)));
+            } else {
+                lines.addAll(then);
+                add("} else {");
+                lines.addAll(otherwise);
+                add("}");
+            }
+        }
+
+        private List<Line> cut(int from) {
+            List<Line> tail = lines.subList(from, lines.size());
+            List<Line> copy = new ArrayList<>(tail);
+            tail.clear();
+            return copy;
+        }
+
+        /**
+         * Whether a branch body, one level deeper than the current depth,
+         * never completes normally because it ends with a jump.
+         */
+        private boolean leaves(List<Line> block) {
+            if (block.isEmpty()) {
+                return false;
+            }
+            Line last = block.get(block.size() - 1);
+            String text = last.text();
+            return last.depth() == depth + 1
+                    && (text.startsWith("return") || text.startsWith("break") || text.startsWith("continue"));
+        }
+
+        /**
+         * Whether a branch body, one level deeper than the current depth, is
+         * exactly one {@code if} statement.
+         */
+        private boolean isSingleIf(List<Line> block) {
+            int inner = depth + 1;
+            if (!block.get(0).text().startsWith("if (") || block.get(0).depth() != inner) {
+                return false;
+            }
+            for (Line line : block.subList(1, block.size())) {
+                if (line.depth() == inner && !line.text().startsWith("}")) {
+                    return false;
+                }
+            }
+            return block.get(block.size() - 1).text().equals("}");
+        }
+
+        private void branchTo(BasicBlock from, BasicBlock target, BasicBlock fall) {
+            if (target == fall) {
+                return;
+            }
+
+            if (cfg.isBackEdge(from, target)) {
+                add("continue" + labelFor(target, true) + ";");
+            } else if (isMerge(target) || isLoopFollow(target)) {
+                add("break" + labelFor(target, false) + ";");
+            } else {
+                doTree(target, fall);
+            }
+        }
+
+        private boolean isLoopFollow(BasicBlock block) {
+            for (Construct construct : enclosing) {
+                if (construct.loop() && construct.follow() == block) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return the label to add to a {@code continue} or {@code break} that
+         *         goes to {@code target}, or nothing if the innermost loop is
+         *         meant
+         */
+        private String labelFor(BasicBlock target, boolean toHeader) {
+            Construct innermostLoop = null;
+            for (Construct construct : enclosing) {
+                if (construct.loop() && innermostLoop == null) {
+                    innermostLoop = construct;
+                }
+                boolean matches = toHeader
+                        ? construct.loop() && construct.target() == target
+                        : construct.loop() ? construct.follow() == target : construct.target() == target;
+                if (matches) {
+                    if (construct == innermostLoop) {
+                        return "";
+                    }
+                    usedLabels.add(construct.label());
+                    return " " + construct.label();
+                }
+            }
+            throw new IllegalStateException("No enclosing statement continues in " + target);
+        }
+
+        // Instructions
+
+        private void writeInstructions(BasicBlock block) {
+            for (IrInstruction instruction : block.instructions()) {
+                writeInstruction(block, instruction);
+            }
+        }
+        private void writeInstruction(BasicBlock block, IrInstruction instruction) {
+            IrVariable result = instruction.result();
+            List<Operand> operands = operands(instruction.operands());
+
+            if (result != null && isInlined(result, block)) {
+                pending.push(new Pending(result, expression(instruction, operands)));
+                return;
+            }
+
+            if (result != null && result.isTemporary() && uses.getOrDefault(result, 0) == 0) {
+                // Unused result: keep the call, drop pure computations
+                if (instruction instanceof IrInstruction.Call) {
+                    flush();
+                    add(expression(instruction, operands).text() + ";");
+                } else if (instruction.hasSideEffects()) {
+                    flush();
+                    assign(result, expression(instruction, operands).text());
+                }
+                return;
+            }
+
+            flush();
+            if (result == null) {
+                add(expression(instruction, operands).text() + ";");
+            } else {
+                assign(result, expression(instruction, operands).text());
+            }
+        }
+
+        /**
+         * Renders the operands of an instruction. Inlined temporaries are
+         * taken from the pending stack when they are on top of it in operand
+         * order; otherwise everything pending is written out first.
+         */
+        private List<Operand> operands(List<IrValue> values) {
+            List<IrVariable> inlined = new ArrayList<>();
+            for (IrValue value : values) {
+                if (value instanceof IrVariable v && isPending(v)) {
+                    inlined.add(v);
+                }
+            }
+
+            boolean inOrder = inlined.size() <= pending.size();
+            if (inOrder) {
+                int i = inlined.size() - 1;
+                for (Pending p : pending) {
+                    if (i < 0) {
+                        break;
+                    }
+                    if (p.variable() != inlined.get(i--)) {
+                        inOrder = false;
+                        break;
+                    }
+                }
+            }
+            if (!inOrder) {
+                flush();
+            }
+
+            Map<IrVariable, Operand> taken = new HashMap<>();
+            for (int i = 0; i < inlined.size() && inOrder; i++) {
+                Pending p = pending.pop();
+                taken.put(p.variable(), p.value());
+            }
+
+            List<Operand> rendered = new ArrayList<>(values.size());
+            for (IrValue value : values) {
+                Operand inlinedValue = value instanceof IrVariable v ? taken.get(v) : null;
+                rendered.add(inlinedValue != null ? inlinedValue : Operand.atom(render(value)));
+            }
+            return rendered;
+        }
+
+        private boolean isPending(IrVariable variable) {
+            for (Pending p : pending) {
+                if (p.variable() == variable) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Renders a single operand, such as a condition or returned value.
+         */
+        private String operand(IrValue value) {
+            return operands(List.of(value)).get(0).text().toString();
+        }
+
+        /**
+         * Writes out every pending expression into its temporary.
+         */
+        private void flush() {
+            List<Pending> order = new ArrayList<>(pending);
+            pending.clear();
+            for (int i = order.size() - 1; i >= 0; i--) {
+                assign(order.get(i).variable(), order.get(i).value().text());
+            }
+        }
+
+        private void assign(IrVariable variable, CharSequence value) {
+            String text = name(variable) + " = " + value + ";";
+            add(text, isLocal(variable) ? variable : null);
+        }
+
+        private String render(IrValue value) {
+            if (value instanceof IrConstant c) {
+                return literal(c);
+            }
+            IrVariable variable = (IrVariable) value;
+            if (isLocal(variable)) {
+                mentioned.add(variable);
+            }
+            return name(variable);
+        }
+
+        /** Globals keep their source name. */
+        private String name(IrVariable variable) {
+            return names.getOrDefault(variable, variable.name());
+        }
+
+        private boolean isLocal(IrVariable variable) {
+            return variable.kind() == IrVariable.Kind.LOCAL || variable.kind() == IrVariable.Kind.TEMPORARY;
+        }
+
+        /**
+         * Renders an instruction as a Java expression. A binary expression
+         * extends the text of its left operand in place, so long chains of
+         * operations take linear time.
+         */
+        private Operand expression(IrInstruction instruction, List<Operand> operands) {
+            if (instruction instanceof IrInstruction.Assign) {
+                return operands.get(0);
+            }
+            if (instruction instanceof IrInstruction.Binary b) {
+                int precedence = precedence(b);
+                StringBuilder text = operands.get(0).within(precedence, false)
+                        .append(' ').append(b.op().symbol).append(' ')
+                        .append(operands.get(1).within(precedence, true));
+                return new Operand(text, precedence);
+            }
+
+            StringBuilder text = new StringBuilder();
+            if (instruction instanceof IrInstruction.Call c) {
+                text.append(callee(c)).append('(').append(join(operands)).append(')');
+            } else if (instruction instanceof IrInstruction.NewArray n) {
+                text.append("new ").append(javaType(n.elementType())).append('[').append(operands.get(0).text())
+                        .append(']');
+            } else if (instruction instanceof IrInstruction.ArrayLiteral a) {
+                text.append("new ").append(javaType(a.elementType())).append("[]{").append(join(operands))
+                        .append('}');
+            } else if (instruction instanceof IrInstruction.Load) {
+                text.append(operands.get(0).within(ATOM, false)).append('[').append(operands.get(1).text())
+                        .append(']');
+            } else {
+                text.append(operands.get(0).within(ATOM, false)).append('[').append(operands.get(1).text())
+                        .append("] = ").append(operands.get(2).text());
+            }
+            return Operand.atom(text);
+        }
+
+        private String join(List<Operand> operands) {
+            return operands.stream().map(o -> o.text().toString()).collect(Collectors.joining(", "));
+        }
+
+        private String callee(IrInstruction.Call call) {
+            if (call.owner() != null) {
+                return call.owner() + "." + call.function();
+            }
+            return switch (call.function()) {
+                case "println" -> "System.out.println";
+                case "print" -> "System.out.print";
+                case "printf" -> "System.out.printf";
+                default -> call.function();
+            };
+        }
+    }
+
+    /**
+     * A rendered expression and the precedence of its outermost operator.
+     */
+    private record Operand(StringBuilder text, int precedence) {
+        static Operand atom(CharSequence text) {
+            return new Operand(new StringBuilder(text), ATOM);
+        }
+
+        /**
+         * @return the text, parenthesized if it binds looser than the
+         *         operator it is an operand of; on the right, equal
+         *         precedence needs parentheses too
+         */
+        StringBuilder within(int context, boolean right) {
+            boolean parenthesize = right ? precedence <= context : precedence < context;
+            return parenthesize ? text.insert(0, '(').append(')') : text;
+        }
+    }
+
+    private static int precedence(IrInstruction.Binary b) {
+        return switch (b.op()) {
+            case OR -> 1;
+            case AND -> 2;
+            case EQUAL, NOT_EQUAL -> 3;
+            case LESS, GREATER, LESS_EQUAL, GREATER_EQUAL -> 4;
+            case ADD, SUBTRACT -> 5;
+            case MULTIPLY, DIVIDE, REMAINDER -> 6;
+        };
+    }
+
+    private static String negate(String condition) {
+        if (condition.matches("[A-Za-z_$][A-Za-z0-9_$]*")) {
+            return "!" + condition;
+        }
+        return "!(" + condition + ")";
+    }
+
+    static String literal(IrConstant constant) {
+        Object value = constant.value();
+        return switch (constant.kind()) {
+            case STRING -> "\"" + value + "\"";
+            case CHARACTER -> "'" + value + "'";
+            case NULL -> "null";
+            case DOUBLE -> {
+                double d = (Double) value;
+                if (Double.isNaN(d)) {
+                    yield "Double.NaN";
+                }
+                if (Double.isInfinite(d)) {
+                    yield d > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+                }
+                yield Double.toString(d);
+            }
+            default -> String.valueOf(value);
+        };
+    }
+
+    private static String javaType(TypeSymbol type) {
+        if (type instanceof ArrayTypeSymbol a) {
+            return javaType(a.elementType) + "[]";
+        }
+        return javaType(((PrimitiveTypeSymbol) type).type);
+    }
+
+    private static String javaType(Type type) {
+        return switch (type) {
+            case INTEGER -> "int";
+            case DOUBLE -> "double";
+            case BOOLEAN -> "boolean";
+            case STRING -> "String";
+            case CHARACTER -> "char";
+            case VOID -> "void";
+            default -> throw new IllegalStateException("No Java type for " + type);
+        };
+    }
+
+    private static String defaultValue(TypeSymbol type) {
+        if (!(type instanceof PrimitiveTypeSymbol p)) {
+            return "null";
+        }
+        return switch (p.type) {
+            case INTEGER -> "0";
+            case DOUBLE -> "0.0";
+            case BOOLEAN -> "false";
+            case CHARACTER -> "'\\0'";
+            default -> "null";
+        };
+    }
+}
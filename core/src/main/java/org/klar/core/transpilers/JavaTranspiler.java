@@ -2,22 +2,29 @@ package org.klar.core.transpilers;
 
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 
+import org.klar.core.IR.IrProgram;
 import org.klar.core.errors.SourceManager;
 import org.klar.core.lexer.Token;
 import org.klar.core.parser.ast.AssignmentStatementNode;
-import org.klar.core.parser.ast.AstNode;
+import org.klar.core.parser.ast.AstVisitor;
 import org.klar.core.parser.ast.BinaryExpressionNode;
 import org.klar.core.parser.ast.BlockStatementNode;
 import org.klar.core.parser.ast.CallExpressionNode;
 import org.klar.core.parser.ast.ConstantDeclarationNode;
 import org.klar.core.parser.ast.DecisionStatementNode;
+import org.klar.core.parser.ast.ErrorExpressionNode;
+import org.klar.core.parser.ast.ErrorStatementNode;
 import org.klar.core.parser.ast.ExpressionNode;
 import org.klar.core.parser.ast.ExpressionStatementNode;
 import org.klar.core.parser.ast.FunctionDeclarationNode;
+import org.klar.core.parser.ast.ImportDeclarationNode;
 import org.klar.core.parser.ast.IndexExpressionNode;
 import org.klar.core.parser.ast.LiteralExpressionNode;
+import org.klar.core.parser.ast.ModuleDeclarationNode;
 import org.klar.core.parser.ast.NewArrayExpressionNode;
 import org.klar.core.parser.ast.OtherwiseBranchNode;
 import org.klar.core.parser.ast.ParameterNode;
@@ -28,112 +35,174 @@ import org.klar.core.parser.ast.TypeReferenceNode;
 import org.klar.core.parser.ast.VariableDeclarationNode;
 import org.klar.core.parser.ast.VariableExpressionNode;
 import org.klar.core.parser.ast.WhileStatementNode;
+import org.klar.core.semantics.FunctionSymbol;
 import org.klar.core.semantics.TypeChecker;
 import org.klar.core.semantics.TypeSymbol;
+import org.klar.core.semantics.TypedProgram;
+import org.klar.core.semantics.ConstantEvaluator;
 import org.klar.core.semantics.ArrayTypeSymbol;
 import org.klar.core.semantics.PrimitiveTypeSymbol;
 import org.klar.core.semantics.Type;
+import org.klar.core.semantics.flow.Reachability;
 
-public class JavaTranspiler {
+public class JavaTranspiler implements AstVisitor<String> {
     private final SourceManager sm;
     private final Path path;
     private final JavaEmitter out = new JavaEmitter();
     private final JavaContext context = new JavaContext();
-    private final TypeChecker t;;
+    private final TypedProgram types;
+    private final Reachability reachability;
     private final String fileName;
 
     public JavaTranspiler(String fileName, SourceManager sm, Path path){
+        this(fileName, sm, path, null);
+    }
+
+    /**
+     * @param types Result of checking the program that will be transpiled;
+     *              declared types are read from it. When {@code null}, they
+     *              are mapped from the type references instead.
+     * @since 0.15
+     */
+    public JavaTranspiler(String fileName, SourceManager sm, Path path, TypedProgram types){
         this.fileName = fileName;
         this.sm = sm;
         this.path = path;
-
-        this.t = new TypeChecker(sm, path);
+        this.types = types;
+        this.reachability = new Reachability(types);
     }
 
     public String transpile(ProgramNode program){
         emitHeader();
 
         for (StatementNode stmt : program.statements) {
-            transpileStatement(stmt);
+            transpileTopLevel(stmt);
         }
 
         out.closeBlock();
         return out.result();
     }
 
+    /**
+     * Transpiles a program lowered to the IR, rebuilding structured control
+     * flow from its blocks.
+     *
+     * @since 0.15
+     */
+    public String transpile(IrProgram program){
+        return new JavaIrEmitter().emit(program, fileName);
+    }
+
     public void emitHeader(){
         out.emit("public class " + fileName);
         out.openBlock();
     }
 
-    private void transpileStatement(AstNode stmt){
-        if (stmt instanceof FunctionDeclarationNode f) {
-            out.newLine();
-            transpileFunction(f);
-            return;
-        }
+    private void transpileStatement(StatementNode stmt){
+        stmt.accept(this);
+    }
 
-        if (stmt instanceof ConstantDeclarationNode c){
-            transpileConstantDecl(c);
+    /**
+     * Top-level constants become {@code static final} fields of the class, so
+     * javac inlines their values.
+     */
+    private void transpileTopLevel(StatementNode stmt){
+        if (stmt instanceof ConstantDeclarationNode c) {
+            out.emitLine("private static " + constantDecl(c));
             return;
         }
+        transpileStatement(stmt);
+    }
 
-        if (stmt instanceof VariableDeclarationNode v) {
-            transpileVarDecl(v);
-            return;
-        }
+    @Override
+    public String visitFunctionDeclaration(FunctionDeclarationNode f){
+        out.newLine();
+        transpileFunction(f);
+        return null;
+    }
 
-        if (stmt instanceof DecisionStatementNode d){
-            out.newLine();
-            transpileDecision(d);
-            return;
-        }
+    @Override
+    public String visitConstantDeclaration(ConstantDeclarationNode c){
+        transpileConstantDecl(c);
+        return null;
+    }
 
-        if (stmt instanceof WhileStatementNode w){
-            transpileWhile(w);
-            return;
-        }
+    @Override
+    public String visitVariableDeclaration(VariableDeclarationNode v){
+        transpileVarDecl(v);
+        return null;
+    }
 
-        if (stmt instanceof AssignmentStatementNode a) {
-            transpileAssigment(a);            
-            return;
-        }
+    @Override
+    public String visitDecision(DecisionStatementNode d){
+        out.newLine();
+        transpileDecision(d);
+        return null;
+    }
 
-        if (stmt instanceof ExpressionStatementNode e) {
-            out.emitLine(transpileExpression(e.expression) + out.semicollon());
-            return;
-        }
+    @Override
+    public String visitErrorStatement(ErrorStatementNode e){
+        throw new RuntimeException("Cannot transpile a statement that failed to parse");
+    }
 
-        if (stmt instanceof ReturnStatementNode r) {
-            out.newLine();
-            transpileReturn(r);
-            return;
-        }
+    @Override
+    public String visitWhile(WhileStatementNode w){
+        transpileWhile(w);
+        return null;
+    }
 
-        if (stmt instanceof NewArrayExpressionNode n){
-            transpileArrayDecl(n);
-            return;
-        }
+    @Override
+    public String visitAssignment(AssignmentStatementNode a){
+        transpileAssigment(a);
+        return null;
+    }
 
-        throw new RuntimeException(
-            "Unsupported top-level statement: " + stmt.getClass().getSimpleName()
-        );
+    @Override
+    public String visitExpressionStatement(ExpressionStatementNode e){
+        out.emitLine(transpileExpression(e.expression) + out.semicollon());
+        return null;
     }
 
-    private void transpileArrayDecl(NewArrayExpressionNode n){
-        String baseType = javaType(n.type);
+    @Override
+    public String visitReturn(ReturnStatementNode r){
+        out.newLine();
+        transpileReturn(r);
+        return null;
+    }
+
+    @Override
+    public String visitBlock(BlockStatementNode b){
+        out.indent();
+        out.openBlock();
+        transpileBlock(b);
+        out.closeBlock();
+        return null;
+    }
 
-        baseType = baseType.replace("[]", "");
+    @Override
+    public String visitModuleDeclaration(ModuleDeclarationNode m){
+        return null;
+    }
 
-        out.emitLine("new " + baseType + "[" + transpileExpression(n.size) + "]");
+    @Override
+    public String visitImportDeclaration(ImportDeclarationNode i){
+        return null;
     }
 
     private void transpileConstantDecl(ConstantDeclarationNode c){
-        out.emitLine(
-            "final " + javaType(c.type) + " " + c.name.getValue() + " = " + transpileExpression(c.value) + out.semicollon());
+        out.emitLine(constantDecl(c));
+    }
+
+    private String constantDecl(ConstantDeclarationNode c){
+        return "final " + javaType(c.type) + " " + c.name.getValue() + " = " + transpileExpression(c.value) + out.semicollon();
     }
 
     private void transpileWhile(WhileStatementNode w){
+        // javac rejects the body of a while (false) as unreachable
+        if (Boolean.FALSE.equals(constantCondition(w.condition))) {
+            return;
+        }
+
         out.indent();
         out.emit("while (");
         out.emit(transpileExpression(w.condition));
@@ -146,40 +215,82 @@ public class JavaTranspiler {
         return;
     }
 
+    /**
+     * Emits the branches that can run: branches whose condition folds to
+     * {@code false} are dropped, and a branch whose condition folds to
+     * {@code true} becomes the {@code else} of the ones before it.
+     */
     private void transpileDecision(DecisionStatementNode d){
-        out.indent();
-        out.emit("if (");
-        out.emit(transpileExpression(d.condition));
-        out.emit(")");
-        out.openBlock();
+        List<Branch> branches = liveBranches(d);
+        if (branches.isEmpty()) {
+            return;
+        }
 
-        transpileBlock(d.ifBlock);
-        out.closeBlock();
+        Branch first = branches.get(0);
+        if (first.condition() == null) {
+            out.indent();
+            out.openBlock();
+            transpileBlock(first.body());
+            out.closeBlock();
+            return;
+        }
 
-        for (OtherwiseBranchNode o : d.otherwiseBranches){
+        for (int i = 0; i < branches.size(); i++){
+            Branch b = branches.get(i);
             out.indent();
-            out.emit("else if (");
-            out.emit(transpileExpression(o.condition));
-            out.emit(")");
+            if (b.condition() == null) {
+                out.emit("else ");
+            } else {
+                out.emit(i == 0 ? "if (" : "else if (");
+                out.emit(transpileExpression(b.condition()));
+                out.emit(")");
+            }
 
-            if (o.reason != null){
-                out.openBlockWith(" // " + o.reason + "\n");
+            if (b.reason() != null){
+                out.openBlockWith(" // " + b.reason() + "\n");
             } else {
                 out.openBlock();
             }
 
-            transpileBlock(o.body);
+            transpileBlock(b.body());
             out.closeBlock();
         }
+    }
 
+    /**
+     * One branch of a decision; {@code condition} is {@code null} for the
+     * branch taken when no other is.
+     */
+    private record Branch(ExpressionNode condition, String reason, BlockStatementNode body) {}
+
+    private List<Branch> liveBranches(DecisionStatementNode d){
+        List<Branch> branches = new ArrayList<>();
+        if (addBranch(branches, d.condition, null, d.ifBlock)) {
+            return branches;
+        }
+        for (OtherwiseBranchNode o : d.otherwiseBranches){
+            if (addBranch(branches, o.condition, o.reason, o.body)) {
+                return branches;
+            }
+        }
         if (d.afterallBlock != null){
-            out.indent();
+            branches.add(new Branch(null, null, d.afterallBlock));
+        }
+        return branches;
+    }
 
-            out.emit("else ");
-            out.openBlock();
-            transpileBlock(d.afterallBlock);
-            out.closeBlock();
+    /**
+     * @return whether the branch is always taken, so the ones after it
+     *         never run
+     */
+    private boolean addBranch(List<Branch> branches, ExpressionNode condition, String reason, BlockStatementNode body){
+        Boolean value = constantCondition(condition);
+        if (Boolean.FALSE.equals(value)) {
+            return false;
         }
+        boolean taken = Boolean.TRUE.equals(value);
+        branches.add(new Branch(taken ? null : condition, reason, body));
+        return taken;
     }
 
     private void transpileFunction(FunctionDeclarationNode fn){
@@ -208,13 +319,17 @@ public class JavaTranspiler {
             
         out.emit(")");
         out.openBlock();
-        transpileBlock(fn.body);
+        transpileBlock(fn.body());
         out.closeBlock();
     }
 
     private void transpileBlock(BlockStatementNode block){
         for (StatementNode stmt : block.statements){
             transpileStatement(stmt);
+            // javac rejects statements after a loop that never ends
+            if (!stmt.accept(reachability)) {
+                return;
+            }
         }
     }
 
@@ -240,71 +355,197 @@ public class JavaTranspiler {
     }
 
     private String transpileExpression(ExpressionNode e){
-        if (e instanceof LiteralExpressionNode l) {
-            return switch (l.value.getType()) {
-                case TRUE -> "true";
-                case FALSE -> "false";
-                case STRING_LITERAL -> l.value.getValue();
-                case INTEGER_LITERAL, DOUBLE_LITERAL -> l.value.getValue();
-                case NULL -> "null";
-                default -> throw new RuntimeException(
-                    "Unsupported literal: " + l.value.getType()
-                );
-            };
+        if (isFolded(e)) {
+            return javaLiteral(types.constantValue(e));
         }
+        return e.accept(this);
+    }
 
-        if (e instanceof IndexExpressionNode i) {
-            return transpileExpression(i.target) + "[" + transpileExpression(i.index) + "]";
+    private boolean isFolded(ExpressionNode e){
+        return types != null && types.hasConstantValue(e);
+    }
+
+    private Boolean constantCondition(ExpressionNode condition){
+        return Reachability.constantCondition(types, condition);
+    }
+
+    /**
+     * Renders a value folded by the checker as a Java literal. Strings are
+     * kept in source form by {@link ConstantEvaluator}, so they only need
+     * their quotes back.
+     */
+    private String javaLiteral(Object value){
+        if (value instanceof String s) {
+            return "\"" + s + "\"";
         }
+        if (value instanceof Double d) {
+            if (d.isNaN()) {
+                return "Double.NaN";
+            }
+            if (d.isInfinite()) {
+                return d > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+            }
+        }
+        return String.valueOf(value);
+    }
 
-        if (e instanceof VariableExpressionNode v ){
-            return v.name.getValue();
+    @Override
+    public String visitLiteral(LiteralExpressionNode l){
+        return switch (l.value.getType()) {
+            case TRUE -> "true";
+            case FALSE -> "false";
+            case STRING_LITERAL -> l.value.getValue();
+            case INTEGER_LITERAL, DOUBLE_LITERAL -> l.value.getValue();
+            case NULL -> "null";
+            default -> throw new RuntimeException(
+                "Unsupported literal: " + l.value.getType()
+            );
+        };
+    }
+
+    @Override
+    public String visitIndex(IndexExpressionNode i){
+        return transpileExpression(i.target) + "[" + transpileExpression(i.index) + "]";
+    }
+
+    @Override
+    public String visitVariable(VariableExpressionNode v){
+        return v.name.getValue();
+    }
+
+    @Override
+    public String visitBinary(BinaryExpressionNode b){
+        StringBuilder sb = new StringBuilder();
+        appendBinary(b, sb);
+        return sb.toString();
+    }
+
+    @Override
+    public String visitCall(CallExpressionNode ce){
+        if (ce.callee.getValue().equals("println")) {
+            return "System.out.println(" + transpileExpression(ce.arguments.get(0)) + ")";
+        }
+        
+        if (ce.callee.getValue().equals("print")) {
+            return "System.out.print(" + transpileExpression(ce.arguments.get(0)) + ")";
         }
 
-        if (e instanceof BinaryExpressionNode b ){
-            return transpileExpression(b.left) + " " + javaOperator(b.operator) + " " + transpileExpression(b.right);
+        if (ce.callee.getValue().equals("printf")) {
+            return "System.out.printf(" + transpileExpression(ce.arguments.get(0)) + ")";
         }
 
-        if (e instanceof CallExpressionNode ce ){
-            if (ce.callee.getValue().equals("println")) {
-                return "System.out.println(" + transpileExpression(ce.arguments.get(0)) + ")";
-            }
-            
-            if (ce.callee.getValue().equals("print")) {
-                return "System.out.print(" + transpileExpression(ce.arguments.get(0)) + ")";
+        String args = ce.arguments.stream()
+        .map(this::transpileExpression)
+        .collect(Collectors.joining(", "));
+
+        // Functions of imported modules live in the module's class
+        FunctionSymbol fn = types != null ? types.functionOf(ce) : null;
+        String owner = fn != null && fn.owner != null ? fn.owner + "." : "";
+
+        return owner + ce.callee.getValue() + "(" + args + ")";
+    }
+
+    @Override
+    public String visitErrorExpression(ErrorExpressionNode e){
+        throw new RuntimeException("Cannot transpile an expression that failed to parse");
+    }
+
+    @Override
+    public String visitNewArray(NewArrayExpressionNode n){
+        String baseType = javaType(n.type).replace("[]", "");
+
+        if (n.initializer.isEmpty()) {
+            return "new " + baseType + "[" + transpileExpression(n.size) + "]";
+        }
+
+        String values = n.initializer.stream()
+        .map(this::transpileExpression)
+        .collect(Collectors.joining(", "));
+
+        return "new " + baseType + "[]{" + values + "}";
+    }
+
+    /**
+     * Emits a binary expression, walking its left spine in a loop so long
+     * operator chains do not recurse once per operand. Parentheses are added
+     * wherever Java precedence would otherwise regroup the tree.
+     */
+    private void appendBinary(BinaryExpressionNode node, StringBuilder sb) {
+        List<BinaryExpressionNode> spine = node.leftSpine();
+        int last = spine.size() - 1;
+
+        // A folded operand ends the spine; it is emitted as a single literal.
+        for (int i = 1; i < spine.size(); i++) {
+            if (isFolded(spine.get(i))) {
+                last = i - 1;
+                break;
             }
+        }
 
-            if (ce.callee.getValue().equals("printf")) {
-                return "System.out.printf(" + transpileExpression(ce.arguments.get(0)) + ")";
+        // Every left operand that binds looser than its parent opens here and
+        // closes right after its own right operand.
+        for (int i = 0; i < last; i++) {
+            if (javaPrecedence(spine.get(i + 1)) < javaPrecedence(spine.get(i))) {
+                sb.append('(');
             }
+        }
 
-            String args = ce.arguments.stream()
-            .map(this::transpileExpression)
-            .collect(Collectors.joining(", "));
+        sb.append(transpileExpression(spine.get(last).left));
+
+        for (int i = last; i >= 0; i--) {
+            BinaryExpressionNode operation = spine.get(i);
+            sb.append(' ').append(javaOperator(operation.operator)).append(' ');
+
+            if (operation.right instanceof BinaryExpressionNode right && !isFolded(right)
+                    && javaPrecedence(right) <= javaPrecedence(operation)) {
+                sb.append('(');
+                appendBinary(right, sb);
+                sb.append(')');
+            } else {
+                sb.append(transpileExpression(operation.right));
+            }
 
-            return ce.callee.getValue() + "(" + args + ")";
+            if (i > 0 && javaPrecedence(operation) < javaPrecedence(spine.get(i - 1))) {
+                sb.append(')');
+            }
         }
+    }
 
-        throw new RuntimeException("Unsupported expression in transpiler");
+    private int javaPrecedence(BinaryExpressionNode node) {
+        return switch (node.operator.getType()) {
+            case OR -> 1;
+            case AND -> 2;
+            case DOUBLEEQUAL, NOTEQUAL -> 3;
+            case LT, GT, LTE, GTE -> 4;
+            case PLUS, MINUS -> 5;
+            case MULTIPLY, DIVISION, REMAINDER -> 6;
+            default -> throw new RuntimeException(
+                "Unsupported operator: " + node.operator.getType()
+            );
+        };
     }
 
     private String javaType(TypeReferenceNode type){
-        String base = switch (type.getBaseType().getType()) {
-            case INTEGER_TYPE -> "int";
-            case DOUBLE_TYPE -> "double";
-            case BOOLEAN_TYPE -> "boolean";
-            case STRING_TYPE -> "String";
-            case CHARACTER_TYPE -> "char";
-            case VOID -> "void";
-
-            default -> throw new RuntimeException("Unsupproted type '" + type.getBaseType().getType() + "'");
-        };
+        TypeSymbol symbol = typeOf(type);
 
-        if (type.isArray()){
-            return base + "[]";
+        if (symbol instanceof ArrayTypeSymbol a){
+            return javaType(a.elementType, type) + "[]";
         }
 
-        return base;
+        return javaType(mapType(type), type);
+    }
+
+    private String javaType(Type type, TypeReferenceNode node){
+        return switch (type) {
+            case INTEGER -> "int";
+            case DOUBLE -> "double";
+            case BOOLEAN -> "boolean";
+            case STRING -> "String";
+            case CHARACTER -> "char";
+            case VOID -> "void";
+
+            default -> throw new RuntimeException("Unsupproted type '" + node.getBaseType().getType() + "'");
+        };
     }
 
     private String javaOperator(Token op) {
@@ -322,14 +563,22 @@ public class JavaTranspiler {
             case LTE -> "<=";
             case GTE -> ">=";
 
+            case AND -> "&&";
+            case OR -> "||";
+
             default -> throw new RuntimeException(
                 "Unsupported operator: " + op.getType()
             );
         };
     }
 
+    private TypeSymbol typeOf(TypeReferenceNode tk){
+        TypeSymbol type = types != null ? types.typeOf(tk) : null;
+        return type != null ? type : TypeChecker.declaredType(tk);
+    }
+
     private Type mapType(TypeReferenceNode tk){
-        TypeSymbol type = t.resolveTypeSymbol(tk);
+        TypeSymbol type = typeOf(tk);
 
         if (type instanceof PrimitiveTypeSymbol p){
             return p.type;
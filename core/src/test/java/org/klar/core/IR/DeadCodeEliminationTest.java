@@ -0,0 +1,112 @@
+package org.klar.core.IR;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.klar.core.Programs;
+
+class DeadCodeEliminationTest {
+    private static final String SOURCE = """
+            constant boolean DEBUG = false;
+
+            @Use("java")
+            public integer unused(integer n) {
+                return n;
+            }
+
+            @Use("java")
+            public integer helper(integer n) {
+                integer twice = n + n;
+                integer ignored = n * 3;
+                return twice;
+            }
+
+            @Use("java")
+            public void main() {
+                integer x = 4;
+                if (DEBUG) {
+                    println("debug");
+                } afterall;
+                while (false) {
+                    x = x + 1;
+                }
+                integer r = helper(x);
+                println(helper(x));
+                return;
+            }
+            """;
+
+    @Test
+    void dropsWhatNeverRuns() {
+        IrProgram program = Programs.lower(SOURCE);
+        assertEquals("""
+                function public void main() {
+                b0:
+                    x = 4
+                    branch false, b1, b2
+                b1:
+                    call println("debug")
+                    jump b3
+                b2:
+                    jump b3
+                b3:
+                    jump b4
+                b4:
+                    branch false, b5, b6
+                b5:
+                    x = x + 1
+                    jump b4
+                b6:
+                    r = call helper(x)
+                    %2 = call helper(x)
+                    call println(%2)
+                    return
+                }
+                """, IrPrinter.print(program.function("main")));
+
+        assertTrue(new DeadCodeElimination().run(program));
+
+        // Calls are kept even when their result is unused
+        assertEquals("""
+                function public void main() {
+                b0:
+                    x = 4
+                    jump b2
+                b2:
+                    jump b3
+                b3:
+                    jump b4
+                b4:
+                    jump b6
+                b6:
+                    r = call helper(x)
+                    %2 = call helper(x)
+                    call println(%2)
+                    return
+                }
+                """, IrPrinter.print(program.function("main")));
+        assertEquals("""
+                function public integer helper(integer n) {
+                b0:
+                    twice = n + n
+                    return twice
+                }
+                """, IrPrinter.print(program.function("helper")));
+        assertNull(program.function("unused"));
+
+        assertFalse(new DeadCodeElimination().run(program));
+    }
+
+    @Test
+    void keepsPublicFunctionsOfImportedModules() {
+        IrProgram program = Programs.lower(SOURCE);
+        program.setEntry(false);
+
+        assertTrue(new DeadCodeElimination().run(program));
+        assertNotNull(program.function("unused"));
+    }
+}
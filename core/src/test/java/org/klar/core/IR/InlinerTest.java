@@ -0,0 +1,109 @@
+package org.klar.core.IR;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.klar.core.Programs;
+
+class InlinerTest {
+
+    @Test
+    void inlinesSmallFunctions() {
+        IrProgram program = Programs.lower("""
+                @Use("java")
+                public integer square(integer n) {
+                    integer s = n * n;
+                    return s;
+                }
+
+                @Use("java")
+                public void main() {
+                    integer x = 3;
+                    println(square(x) + square(x + 1));
+                    return;
+                }
+                """);
+        assertEquals("""
+                function public void main() {
+                b0:
+                    x = 3
+                    %1 = call square(x)
+                    %2 = x + 1
+                    %3 = call square(%2)
+                    %4 = %1 + %3
+                    call println(%4)
+                    return
+                }
+                """, IrPrinter.print(program.function("main")));
+
+        assertTrue(new Inliner().run(program));
+        assertEquals("""
+                function public void main() {
+                b0:
+                    x = 3
+                    s = x * x
+                    %1 = s
+                    %2 = x + 1
+                    s = %2 * %2
+                    %3 = s
+                    %4 = %1 + %3
+                    call println(%4)
+                    return
+                }
+                """, IrPrinter.print(program.function("main")));
+    }
+
+    @Test
+    void keepsRecursiveCalls() {
+        IrProgram program = Programs.lower("""
+                @Use("java")
+                public integer countdown(integer n) {
+                    integer left = n - 1;
+                    integer again = countdown(left);
+                    return again;
+                }
+
+                @Use("java")
+                public void main() {
+                    integer start = 3;
+                    println(countdown(start));
+                    return;
+                }
+                """);
+        String before = IrPrinter.print(program);
+
+        assertFalse(new Inliner().run(program));
+        assertEquals(before, IrPrinter.print(program));
+    }
+
+    @Test
+    void keepsLargeFunctions() {
+        IrProgram program = Programs.lower("""
+                @Use("java")
+                public integer mix(integer n) {
+                    integer a = n + 1;
+                    integer b = a * n;
+                    integer c = b - a;
+                    integer d = c * c;
+                    integer e = d + b;
+                    integer f = e - n;
+                    integer g = f * a;
+                    integer h = g + c;
+                    integer i = h - d;
+                    return i;
+                }
+
+                @Use("java")
+                public void main() {
+                    integer start = 3;
+                    println(mix(start));
+                    return;
+                }
+                """);
+
+        assertFalse(new Inliner().run(program));
+        assertTrue(IrPrinter.print(program.function("main")).contains("call mix(start)"));
+    }
+}
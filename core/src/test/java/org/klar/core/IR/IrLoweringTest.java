@@ -0,0 +1,119 @@
+package org.klar.core.IR;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.klar.core.Programs;
+
+class IrLoweringTest {
+    private static final String COUNT = """
+            @Use("java")
+            public integer count(integer n, boolean strict) {
+                integer i = 0;
+                integer hits = 0;
+                while (i < n) {
+                    if (strict and i % 2 == 0) {
+                        hits = hits + 1;
+                    } otherwise (i > 10) because "late values count twice" {
+                        hits = hits + 2;
+                    } afterall;
+                    i = i + 1;
+                }
+                return hits;
+            }
+            """;
+
+    @Test
+    void lowersControlFlowToBlocks() {
+        IrFunction count = Programs.lower(COUNT).function("count");
+        assertEquals("""
+                function public integer count(integer n, boolean strict) {
+                b0:
+                    i = 0
+                    hits = 0
+                    jump b1
+                b1:
+                    %4 = i < n
+                    branch %4, b2, b10
+                b2:
+                    %7 = strict
+                    branch %7, b3, b4
+                b3:
+                    %5 = i % 2
+                    %6 = %5 == 0
+                    %7 = %6
+                    jump b4
+                b4:
+                    branch %7, b5, b6
+                b5:
+                    hits = hits + 1
+                    jump b9
+                b6:
+                    %8 = i > 10
+                    branch %8, b7, b8
+                b7:
+                    hits = hits + 2
+                    jump b9
+                b8:
+                    jump b9
+                b9:
+                    i = i + 1
+                    jump b1
+                b10:
+                    return hits
+                }
+                """, IrPrinter.print(count));
+    }
+
+    @Test
+    void findsTheLoop() {
+        IrFunction count = Programs.lower(COUNT).function("count");
+        ControlFlow flow = new ControlFlow(count);
+        List<BasicBlock> blocks = count.blocks();
+        BasicBlock header = blocks.get(1);
+        BasicBlock exit = blocks.get(blocks.size() - 1);
+
+        assertTrue(flow.isLoopHeader(header));
+        assertFalse(flow.isLoopHeader(exit));
+        assertTrue(flow.isBackEdge(blocks.get(9), header));
+
+        Set<BasicBlock> loop = flow.loop(header);
+        assertEquals(9, loop.size());
+        assertFalse(loop.contains(exit));
+        for (BasicBlock block : blocks) {
+            assertTrue(flow.dominates(count.entry(), block));
+        }
+        assertEquals(header, flow.immediateDominator(exit));
+    }
+
+    @Test
+    void lowersTopLevelDeclarationsToGlobals() {
+        IrProgram program = Programs.lower("""
+                constant integer LIMIT = 2 * 5;
+                integer calls = LIMIT;
+
+                @Use("java")
+                public void main() {
+                    calls = calls + LIMIT;
+                    println(calls);
+                    return;
+                }
+                """);
+        assertEquals(2, program.globals().size());
+        assertEquals("""
+                function public void main() {
+                b0:
+                    %0 = calls
+                    calls = %0 + 10
+                    %1 = calls
+                    call println(%1)
+                    return
+                }
+                """, IrPrinter.print(program.function("main")));
+    }
+}
@@ -0,0 +1,109 @@
+package org.klar.core.IR;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.klar.core.Programs;
+import org.klar.core.errors.SourceManager;
+import org.klar.core.parser.ast.ProgramNode;
+import org.klar.core.semantics.TypeChecker;
+import org.klar.core.semantics.TypedProgram;
+import org.klar.core.transpilers.JavaTranspiler;
+
+/**
+ * Every program in {@code examples/ok} must print the same at every
+ * optimization level.
+ */
+class OptimizedOutputTest {
+    private static final Path EXAMPLES = Path.of("../examples/ok");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void examplesPrintTheSameAtEveryLevel() throws Exception {
+        List<Path> examples;
+        try (Stream<Path> files = Files.list(EXAMPLES)) {
+            examples = files.filter(f -> f.toString().endsWith(".kl")).sorted().toList();
+        }
+        assertFalse(examples.isEmpty());
+
+        for (Path example : examples) {
+            String source = Files.readString(example);
+            String expected = run(example, OptimizationLevel.O0, source);
+            assertFalse(expected.isEmpty(), example + " prints nothing");
+
+            for (OptimizationLevel level : List.of(OptimizationLevel.O1, OptimizationLevel.O2)) {
+                assertEquals(expected, run(example, level, source), example + " at " + level);
+            }
+        }
+    }
+
+    /**
+     * Transpiles {@code source} at {@code level}, compiles the Java and runs
+     * its {@code main}.
+     *
+     * @return what it printed
+     */
+    private String run(Path example, OptimizationLevel level, String source) throws Exception {
+        SourceManager sourceManager = new SourceManager(source);
+        ProgramNode program = Programs.parse(source);
+        TypedProgram types = new TypeChecker(sourceManager, example).check(program);
+        JavaTranspiler transpiler = new JavaTranspiler("Example", sourceManager, example, types);
+
+        String java;
+        if (level == OptimizationLevel.O0) {
+            java = transpiler.transpile(program);
+        } else {
+            IrProgram ir = IrLowering.lower("Example", types);
+            ir.setEntry(true);
+            PassManager.forLevel(level).run(ir, printed -> {
+            });
+            java = transpiler.transpile(ir);
+        }
+
+        Path out = dir.resolve(example.getFileName() + "-" + level);
+        Files.createDirectories(out);
+        Path file = out.resolve("Example.java");
+        Files.writeString(file, java);
+        compile(file, out, java);
+
+        PrintStream saved = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { out.toUri().toURL() }, null)) {
+            Method main = loader.loadClass("Example").getMethod("main", String[].class);
+            System.setOut(new PrintStream(printed, true, StandardCharsets.UTF_8));
+            main.invoke(null, (Object) new String[0]);
+        } finally {
+            System.setOut(saved);
+        }
+        return printed.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void compile(Path file, Path out, String java) throws IOException {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        assertNotNull(javac, "Tests need a JDK");
+
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        int status = javac.run(null, null, errors, "-d", out.toString(), file.toString());
+        assertEquals(0, status, () -> errors.toString(StandardCharsets.UTF_8) + "\n" + java);
+    }
+}
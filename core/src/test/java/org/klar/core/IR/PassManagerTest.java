@@ -0,0 +1,88 @@
+package org.klar.core.IR;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PassManagerTest {
+
+    @Test
+    void levelsAddTheirPasses() {
+        assertEquals(List.of(), PassManager.forLevel(OptimizationLevel.O0).pipeline());
+        assertEquals(List.of("dce", "tail-calls", "simplify-cfg"),
+                PassManager.forLevel(OptimizationLevel.O1).pipeline());
+        assertEquals(List.of("inline", "dce", "tail-calls", "simplify-cfg"),
+                PassManager.forLevel(OptimizationLevel.O2).pipeline());
+    }
+
+    @Test
+    void schedulesDependenciesFirst() {
+        List<String> ran = new ArrayList<>();
+        PassManager manager = new PassManager()
+                .register(new FakePass("c", List.of("a", "b"), ran))
+                .register(new FakePass("b", List.of("a"), ran))
+                .register(new FakePass("a", List.of(), ran))
+                .add("c")
+                .add("a");
+        assertEquals(List.of("a", "b", "c"), manager.pipeline());
+
+        List<PassManager.PassTiming> timings = manager.run(new IrProgram("Test"), printed -> {
+        });
+        assertEquals(List.of("a", "b", "c"), ran);
+        assertEquals(List.of("a", "b", "c"), timings.stream().map(PassManager.PassTiming::pass).toList());
+        assertTrue(timings.get(0).changed());
+        assertFalse(timings.get(1).changed());
+    }
+
+    @Test
+    void rejectsBadPipelines() {
+        List<String> ran = new ArrayList<>();
+        PassManager manager = new PassManager()
+                .register(new FakePass("a", List.of("b"), ran))
+                .register(new FakePass("b", List.of("a"), ran))
+                .register(new FakePass("c", List.of("missing"), ran));
+
+        assertThrows(IllegalArgumentException.class, () -> manager.add("a"));
+        assertThrows(IllegalArgumentException.class, () -> manager.add("c"));
+        assertThrows(IllegalArgumentException.class, () -> manager.add("unknown"));
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.register(new FakePass("a", List.of(), ran)));
+        assertThrows(IllegalArgumentException.class,
+                () -> PassManager.forLevel(OptimizationLevel.O1).printAfter(Inliner.NAME));
+    }
+
+    @Test
+    void printsAfterSelectedPasses() {
+        List<String> ran = new ArrayList<>();
+        PassManager manager = new PassManager()
+                .register(new FakePass("a", List.of(), ran))
+                .register(new FakePass("b", List.of(), ran))
+                .add("a")
+                .add("b")
+                .printAfter(PassManager.LOWER)
+                .printAfter("b");
+
+        List<String> printed = new ArrayList<>();
+        manager.run(new IrProgram("Test"), printed::add);
+        assertEquals(2, printed.size());
+        assertTrue(printed.get(0).startsWith("; IR of Test after lower\n"));
+        assertTrue(printed.get(1).startsWith("; IR of Test after b\n"));
+    }
+
+    /**
+     * Records that it ran; only the pass named {@code a} reports a change.
+     */
+    private record FakePass(String name, List<String> dependencies, List<String> ran) implements IrPass {
+        @Override
+        public boolean run(IrProgram program) {
+            ran.add(name);
+            return name.equals("a");
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.klar.core.IR;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.klar.core.Programs;
+
+class SimplifyControlFlowTest {
+
+    @Test
+    void skipsBlocksThatOnlyJump() {
+        IrProgram program = Programs.lower("""
+                @Use("java")
+                public integer larger(integer x, integer y) {
+                    integer result = y;
+                    if (x > y) {
+                        result = x;
+                    } afterall;
+                    return result;
+                }
+                """);
+        assertEquals("""
+                function public integer larger(integer x, integer y) {
+                b0:
+                    result = y
+                    %3 = x > y
+                    branch %3, b1, b2
+                b1:
+                    result = x
+                    jump b3
+                b2:
+                    jump b3
+                b3:
+                    return result
+                }
+                """, IrPrinter.print(program.function("larger")));
+
+        assertTrue(new SimplifyControlFlow().run(program));
+        assertEquals("""
+                function public integer larger(integer x, integer y) {
+                b0:
+                    result = y
+                    %3 = x > y
+                    branch %3, b1, b3
+                b1:
+                    result = x
+                    jump b3
+                b3:
+                    return result
+                }
+                """, IrPrinter.print(program.function("larger")));
+    }
+
+    @Test
+    void foldsBranchesWithOneTarget() {
+        IrProgram program = Programs.lower("""
+                @Use("java")
+                public integer steps(integer x) {
+                    integer result = x;
+                    if (x > 0) {
+                    } afterall;
+                    while (result > 100) {
+                        result = result - x;
+                    }
+                    return result;
+                }
+                """);
+
+        assertTrue(new SimplifyControlFlow().run(program));
+        assertEquals("""
+                function public integer steps(integer x) {
+                b0:
+                    result = x
+                    %2 = x > 0
+                    jump b4
+                b4:
+                    %3 = result > 100
+                    branch %3, b5, b6
+                b5:
+                    result = result - x
+                    jump b4
+                b6:
+                    return result
+                }
+                """, IrPrinter.print(program.function("steps")));
+
+        // The result is already as simple as it gets
+        assertFalse(new SimplifyControlFlow().run(program));
+    }
+}
@@ -0,0 +1,117 @@
+package org.klar.core.IR;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.klar.core.Programs;
+
+class TailCallEliminationTest {
+
+    @Test
+    void loopsBackInsteadOfCalling() {
+        IrProgram program = Programs.lower("""
+                @Use("java")
+                public integer gcd(integer a, integer b) {
+                    integer result = a;
+                    if (b != 0) {
+                        result = gcd(b, a % b);
+                    } afterall;
+                    return result;
+                }
+                """);
+        assertEquals("""
+                function public integer gcd(integer a, integer b) {
+                b0:
+                    result = a
+                    %3 = b != 0
+                    branch %3, b1, b2
+                b1:
+                    %4 = a % b
+                    result = call gcd(b, %4)
+                    jump b3
+                b2:
+                    jump b3
+                b3:
+                    return result
+                }
+                """, IrPrinter.print(program.function("gcd")));
+
+        assertTrue(new TailCallElimination().run(program));
+        assertEquals("""
+                function public integer gcd(integer a, integer b) {
+                b4:
+                    jump b0
+                b0:
+                    result = a
+                    %3 = b != 0
+                    branch %3, b1, b2
+                b1:
+                    %4 = a % b
+                    a = b
+                    b = %4
+                    jump b0
+                b2:
+                    jump b3
+                b3:
+                    return result
+                }
+                """, IrPrinter.print(program.function("gcd")));
+    }
+
+    @Test
+    void savesParametersReadByLaterArguments() {
+        IrProgram program = Programs.lower("""
+                @Use("java")
+                public integer flip(integer a, integer b, integer n) {
+                    integer result = a - b;
+                    if (n > 0) {
+                        result = flip(b, a, n - 1);
+                    } afterall;
+                    return result;
+                }
+                """);
+
+        assertTrue(new TailCallElimination().run(program));
+        assertEquals("""
+                function public integer flip(integer a, integer b, integer n) {
+                b4:
+                    jump b0
+                b0:
+                    result = a - b
+                    %4 = n > 0
+                    branch %4, b1, b2
+                b1:
+                    %5 = n - 1
+                    %6 = a
+                    a = b
+                    b = %6
+                    n = %5
+                    jump b0
+                b2:
+                    jump b3
+                b3:
+                    return result
+                }
+                """, IrPrinter.print(program.function("flip")));
+    }
+
+    @Test
+    void keepsCallsWhoseResultIsUsed() {
+        IrProgram program = Programs.lower("""
+                @Use("java")
+                public integer fact(integer n) {
+                    integer result = 1;
+                    if (n > 1) {
+                        result = n * fact(n - 1);
+                    } afterall;
+                    return result;
+                }
+                """);
+        String before = IrPrinter.print(program);
+
+        assertFalse(new TailCallElimination().run(program));
+        assertEquals(before, IrPrinter.print(program));
+    }
+}
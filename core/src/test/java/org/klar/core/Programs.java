@@ -0,0 +1,63 @@
+package org.klar.core;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.klar.core.IR.IrLowering;
+import org.klar.core.IR.IrProgram;
+import org.klar.core.errors.SourceManager;
+import org.klar.core.lexer.Lexer;
+import org.klar.core.parser.Parser;
+import org.klar.core.parser.ast.ProgramNode;
+import org.klar.core.semantics.TypeChecker;
+import org.klar.core.semantics.TypedProgram;
+
+/**
+ * Runs the front end on source text held in a test.
+ */
+public final class Programs {
+    public static final Path PATH = Path.of("Test.kl");
+
+    private Programs() {
+    }
+
+    /**
+     * @throws org.klar.core.errors.KException at the first syntax error
+     */
+    public static ProgramNode parse(String source) {
+        SourceManager sourceManager = new SourceManager(source);
+        Lexer lexer = new Lexer(source, PATH.toString(), sourceManager);
+        return new Parser(lexer.tokenizeSourceCode(), PATH, sourceManager).parseProgram();
+    }
+
+    /**
+     * @throws org.klar.core.errors.KException if the program does not parse or
+     *                                         check
+     */
+    public static TypedProgram check(String source) {
+        return new TypeChecker(new SourceManager(source), PATH).check(parse(source));
+    }
+
+    /**
+     * Lowers {@code source} as the file being built, whose {@code main} is the
+     * entry point.
+     */
+    public static IrProgram lower(String source) {
+        IrProgram program = IrLowering.lower("Test", check(source));
+        program.setEntry(true);
+        return program;
+    }
+
+    /**
+     * @return the SHA-256 of {@code source}, as the build hashes files
+     */
+    public static byte[] hash(String source) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
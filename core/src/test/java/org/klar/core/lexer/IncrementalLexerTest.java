@@ -0,0 +1,162 @@
+package org.klar.core.lexer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.klar.core.errors.LexicalException;
+import org.klar.core.errors.LineIndex;
+import org.klar.core.errors.SourceManager;
+
+/**
+ * Relexing after an edit must produce the buffer a full scan of the edited text
+ * produces. The edits are random but seeded, and favour the ones that change
+ * how neighbouring text is read: line breaks, {@code =} to {@code ==},
+ * {@code 1.} to {@code 1.5}, comment delimiters and string quotes.
+ */
+class IncrementalLexerTest {
+    private static final String PATH = "Test.kl";
+    private static final int SEEDS = 20;
+    private static final int EDITS = 500;
+
+    private static final String SOURCE = """
+            // Counts down from a limit
+            constant integer LIMIT = 10;
+            double ratio = 1.25;
+
+            /* Reads the
+               limit */
+            @Use("java")
+            public integer countdown(integer start){
+                integer n = start;
+                while (n > 0) {
+                    n = n - 1;
+                }
+                if (n == 0) {
+                    println("done: \\"zero\\"");
+                } otherwise (n >= LIMIT) because "too large" {
+                    println("large");
+                } afterall {
+                    println(ratio * 2.0);
+                }
+                return n;
+            }
+            """;
+
+    private static final String[] INSERTIONS = {
+            "\n", "\n\n", "=", "==", ".", "5", ".5", "/*", "*/", "//", "\"", " ", "n", "(", ")", "{", "}",
+            "+", "-", "*", "/", ">", "<", "!", "1", "0.", "integer x = 1;\n"
+    };
+
+    @Test
+    void matchesAFullScanAfterEveryEdit() {
+        IncrementalLexer incremental = new IncrementalLexer(PATH, null);
+
+        for (int seed = 0; seed < SEEDS; seed++) {
+            Random random = new Random(seed);
+            String source = SOURCE;
+            LineIndex lines = LineIndex.of(source);
+            List<Token> tokens = fullScan(source);
+
+            for (int i = 0; i < EDITS; i++) {
+                TextEdit edit = randomEdit(random, source);
+                String edited = edit.applyTo(source);
+                String context = "seed " + seed + ", edit " + i + " " + edit;
+
+                List<Token> expected;
+                try {
+                    expected = fullScan(edited);
+                } catch (LexicalException e) {
+                    // Invalid text is rejected either way; keep the last valid text
+                    String previousSource = source;
+                    LineIndex previousLines = lines;
+                    List<Token> previousTokens = tokens;
+                    assertThrows(LexicalException.class,
+                            () -> incremental.relex(previousSource, previousLines, previousTokens, edit), context);
+                    continue;
+                }
+
+                IncrementalLexer.Result result = incremental.relex(source, lines, tokens, edit);
+                assertEquals(edited, result.source(), context);
+                assertSameTokens(expected, result.tokens(), context);
+
+                source = result.source();
+                lines = result.lines();
+                tokens = result.tokens();
+            }
+        }
+    }
+
+    @Test
+    void relexesOnlyNearTheEdit() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            source.append("integer v").append(i).append(" = ").append(i).append(";\n");
+        }
+        String text = source.toString();
+        int offset = text.indexOf("v500 = ") + "v500 ".length();
+
+        IncrementalLexer.Result result = new IncrementalLexer(PATH, null)
+                .relex(text, LineIndex.of(text), fullScan(text), new TextEdit(offset, 0, "="));
+
+        assertSameTokens(fullScan(result.source()), result.tokens(), "== inserted");
+        assertTrue(result.relexedTokens() < 10, "relexed " + result.relexedTokens());
+    }
+
+    /**
+     * Picks one of: an insertion from {@link #INSERTIONS}, an insertion right
+     * after a {@code =} or digit, or a short deletion.
+     */
+    private static TextEdit randomEdit(Random random, String source) {
+        int offset = random.nextInt(source.length() + 1);
+
+        switch (random.nextInt(4)) {
+            case 0:
+                int equals = source.indexOf('=', offset);
+                if (equals != -1) {
+                    return new TextEdit(equals + 1, 0, "=");
+                }
+                break;
+            case 1:
+                for (int i = offset; i < source.length(); i++) {
+                    if (Character.isDigit(source.charAt(i))) {
+                        return new TextEdit(i + 1, 0, random.nextBoolean() ? "." : ".5");
+                    }
+                }
+                break;
+            case 2:
+                int removed = Math.min(source.length() - offset, 1 + random.nextInt(3));
+                return new TextEdit(offset, removed, "");
+            default:
+                break;
+        }
+
+        return new TextEdit(offset, 0, INSERTIONS[random.nextInt(INSERTIONS.length)]);
+    }
+
+    private static List<Token> fullScan(String source) {
+        return new Lexer(source, PATH, new SourceManager(source)).tokenizeSourceCode();
+    }
+
+    private static void assertSameTokens(List<Token> expected, List<Token> actual, String context) {
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            Token e = expected.get(i);
+            Token a = actual.get(i);
+            if (e.getType() != a.getType() || !Objects.equals(e.getValue(), a.getValue())
+                    || e.getLine() != a.getLine() || e.getColumn() != a.getColumn()) {
+                fail(context + ": token " + i + " is " + describe(a) + ", expected " + describe(e));
+            }
+        }
+        assertEquals(expected.size(), actual.size(), context + ": token count");
+    }
+
+    private static String describe(Token token) {
+        return token.getType() + " '" + token.getValue() + "' at " + token.getLine() + ":" + token.getColumn();
+    }
+}
@@ -0,0 +1,136 @@
+package org.klar.core.modules;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.klar.core.Programs;
+import org.klar.core.parser.ast.ProgramNode;
+import org.klar.core.parser.ast.flat.FlatAst;
+import org.klar.core.semantics.FunctionSymbol;
+
+class KliFormatTest {
+    private static final String SOURCE = """
+            import net.limits;
+            import util;
+
+            constant integer RETRIES = 3;
+            constant double RATIO = RETRIES / 2.0;
+            constant boolean VERBOSE = true;
+            constant String GREETING = "olá";
+
+            @Use("java")
+            public double scale(integer n, double by) {
+                double result = n * by;
+                return result;
+            }
+
+            @Use("java")
+            public void log(String message) {
+                println(message);
+                return;
+            }
+
+            @Use("java")
+            internal integer hidden(integer n) {
+                return n;
+            }
+            """;
+
+    private static final byte[] HASH = Programs.hash(SOURCE);
+    private static final List<String> IMPORTS = List.of("net.limits", "util");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripKeepsTheInterface() throws IOException {
+        ModuleSummary summary = summary();
+        Path file = dir.resolve("m.kli");
+        KliFormat.write(summary, IMPORTS, HASH, file);
+
+        ModuleInterface read = KliFormat.read(file, HASH);
+        assertNotNull(read);
+        assertEquals(IMPORTS, read.imports());
+        assertEquals("m", read.summary().name());
+        assertEquals("m_class", read.summary().owner());
+        assertArrayEquals(summary.signatureHash(), read.summary().signatureHash());
+
+        assertEquals(List.of("scale", "log"), read.summary().functions().stream().map(f -> f.name).toList());
+        for (FunctionSymbol function : read.summary().functions()) {
+            assertEquals("m_class", function.owner);
+        }
+        assertEquals(List.of(3, 1.5, true, "olá"),
+                read.summary().constants().stream().map(ModuleSummary.Constant::value).toList());
+    }
+
+    @Test
+    void flatTreeGivesTheSameSummary() {
+        ProgramNode program = Programs.parse(SOURCE);
+        ModuleSummary flat = ModuleSummary.of("m", "m_class", FlatAst.encode(program));
+        assertTrue(flat.hasSignatureHash(ModuleSummary.of("m", "m_class", program).signatureHash()));
+    }
+
+    @Test
+    void missingFileIsAMiss() throws IOException {
+        assertNull(KliFormat.read(dir.resolve("missing.kli"), HASH));
+    }
+
+    @Test
+    void rejectsAnotherSource() throws IOException {
+        assertNull(KliFormat.decode(ByteBuffer.wrap(image()), Programs.hash(SOURCE + " ")));
+    }
+
+    @Test
+    void rejectsAnotherVersion() throws IOException {
+        byte[] image = image();
+        assertNotNull(KliFormat.decode(ByteBuffer.wrap(withChecksum(image)), HASH));
+
+        // The version is a big-endian int right after the magic
+        ByteBuffer header = ByteBuffer.wrap(image);
+        assertEquals(KliFormat.VERSION, header.getInt(4));
+        header.putInt(4, KliFormat.VERSION + 1);
+        assertNull(KliFormat.decode(ByteBuffer.wrap(withChecksum(image)), HASH));
+    }
+
+    @Test
+    void rejectsDamagedFile() throws IOException {
+        byte[] image = image();
+        image[image.length / 2] ^= 1;
+        assertNull(KliFormat.decode(ByteBuffer.wrap(image), HASH));
+    }
+
+    private static ModuleSummary summary() {
+        return ModuleSummary.of("m", "m_class", Programs.parse(SOURCE));
+    }
+
+    private byte[] image() throws IOException {
+        Path file = dir.resolve("image.kli");
+        KliFormat.write(summary(), IMPORTS, HASH, file);
+        return Files.readAllBytes(file);
+    }
+
+    /**
+     * Recomputes the CRC-32 trailer, so a change to the body is not rejected
+     * as damage.
+     */
+    private static byte[] withChecksum(byte[] image) {
+        CRC32 crc = new CRC32();
+        crc.update(image, 0, image.length - 4);
+        return ByteBuffer.allocate(image.length)
+                .put(image, 0, image.length - 4)
+                .putInt((int) crc.getValue())
+                .array();
+    }
+}
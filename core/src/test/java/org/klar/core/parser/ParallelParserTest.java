@@ -0,0 +1,159 @@
+package org.klar.core.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.klar.core.Programs;
+import org.klar.core.diagnostics.DiagnosticCollector;
+import org.klar.core.errors.CompilationFailedException;
+import org.klar.core.errors.KException;
+import org.klar.core.errors.SourceManager;
+import org.klar.core.lexer.Lexer;
+import org.klar.core.lexer.Token;
+import org.klar.core.parser.ast.ErrorStatementNode;
+import org.klar.core.parser.ast.FunctionDeclarationNode;
+import org.klar.core.parser.ast.ProgramNode;
+import org.klar.core.parser.ast.StatementNode;
+
+/**
+ * Programs of 16 declarations or more are parsed in parallel; the tree and the
+ * syntax errors must be those of the sequential parse.
+ */
+class ParallelParserTest {
+    private static final int FUNCTIONS = 40;
+    private static final int PARALLELISM = 4;
+
+    @Test
+    void buildsTheSameTree() {
+        String source = program("");
+        Parse sequential = parse(source, 1, 20);
+        assertEquals(FUNCTIONS, sequential.statements.size());
+        assertEquals(sequential, parse(source, PARALLELISM, 20));
+    }
+
+    @Test
+    void reportsTheSameErrorsInTheSameOrder() {
+        String source = program("    integer y = ;\n");
+        Parse sequential = parse(source, 1, 100);
+        assertEquals(14, sequential.errors.size());
+        assertEquals(sequential, parse(source, PARALLELISM, 100));
+    }
+
+    @Test
+    void stopsAtTheSameError() {
+        String source = program("    integer y = ;\n");
+        List<String> sequential = failure(source, 1, 5);
+        assertEquals(5, sequential.size());
+        assertEquals(sequential, failure(source, PARALLELISM, 5));
+    }
+
+    @Test
+    void recoversAtTheNextDeclarationLikeTheSequentialParse() {
+        // Each constant misses its ";" and fails at the "@" of the next
+        // function, which may also start the next range
+        StringBuilder source = new StringBuilder();
+        for (String function : program("").split("\n\n")) {
+            source.append(function).append("\n\nconstant integer C").append(source.length()).append(" = 1\n");
+        }
+        Parse sequential = parse(source.toString(), 1, 100);
+        assertEquals(FUNCTIONS, sequential.errors.size());
+        assertEquals(sequential, parse(source.toString(), PARALLELISM, 100));
+    }
+
+    @Test
+    void parseProgramThrowsEverySyntaxError() {
+        String source = program("    integer y = ;\n");
+        SourceManager sourceManager = new SourceManager(source);
+        List<Token> tokens = new Lexer(source, Programs.PATH.toString(), sourceManager).tokenizeSourceCode();
+        ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try {
+            CompilationFailedException failure = assertThrows(CompilationFailedException.class,
+                    () -> new ParallelParser(tokens, Programs.PATH, sourceManager, Parser.DEFAULT_MAX_NESTING_DEPTH,
+                            pool).parseProgram());
+            assertEquals(14, failure.errors().size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @param broken Line added to every third function.
+     */
+    private static String program(String broken) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < FUNCTIONS; i++) {
+            sb.append("@Use(\"java\")\n")
+                    .append("public integer f").append(i).append("(integer n) {\n")
+                    .append("    integer x = n;\n");
+            if (i % 3 == 0) {
+                sb.append(broken);
+            }
+            sb.append("    x = x + n * n;\n")
+                    .append("    return x;\n")
+                    .append("}\n\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The shape of a parse: each top-level statement and where it starts, and
+     * the syntax errors.
+     */
+    private record Parse(List<String> statements, List<String> errors) {
+    }
+
+    private static Parse parse(String source, int parallelism, int maxErrors) {
+        DiagnosticCollector diagnostics = new DiagnosticCollector(maxErrors);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        ProgramNode program;
+        try {
+            program = parallelParser(source, pool, diagnostics).parsePartialProgram();
+        } finally {
+            pool.shutdown();
+        }
+
+        List<String> statements = new ArrayList<>();
+        for (StatementNode statement : program.statements) {
+            String name = statement instanceof FunctionDeclarationNode f ? f.name.getValue()
+                    : statement instanceof ErrorStatementNode e && e.declaredName != null
+                            ? e.declaredName.getValue()
+                            : "";
+            statements.add(statement.getClass().getSimpleName() + " " + name + " at " + statement.line + ":"
+                    + statement.column);
+        }
+        return new Parse(statements, messages(diagnostics.errors()));
+    }
+
+    private static List<String> failure(String source, int parallelism, int maxErrors) {
+        DiagnosticCollector diagnostics = new DiagnosticCollector(maxErrors);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            CompilationFailedException failure = assertThrows(CompilationFailedException.class,
+                    () -> parallelParser(source, pool, diagnostics).parsePartialProgram());
+            return messages(failure.errors());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static ParallelParser parallelParser(String source, ForkJoinPool pool, DiagnosticCollector diagnostics) {
+        SourceManager sourceManager = new SourceManager(source);
+        List<Token> tokens = new Lexer(source, Programs.PATH.toString(), sourceManager).tokenizeSourceCode();
+        return new ParallelParser(tokens, Programs.PATH, sourceManager, Parser.DEFAULT_MAX_NESTING_DEPTH, pool,
+                diagnostics);
+    }
+
+    private static List<String> messages(List<KException> errors) {
+        List<String> messages = new ArrayList<>();
+        for (KException error : errors) {
+            messages.add(error.getMessage());
+        }
+        return messages;
+    }
+}
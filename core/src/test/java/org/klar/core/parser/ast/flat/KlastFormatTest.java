@@ -0,0 +1,118 @@
+package org.klar.core.parser.ast.flat;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.klar.core.Programs;
+import org.klar.core.parser.ast.ProgramNode;
+
+class KlastFormatTest {
+    private static final String SOURCE = """
+            import net.limits;
+
+            constant integer LIMIT = 10;
+            constant String LABEL = "limite: ação";
+
+            @Use("java")
+            public integer clamp(integer n) {
+                integer result = n;
+                if (n > LIMIT) {
+                    result = LIMIT;
+                } otherwise (n < 0) because "negative input" {
+                    result = 0;
+                } afterall;
+                return result;
+            }
+
+            @Use("java")
+            public void main() {
+                integer i = 0;
+                while (i < LIMIT and true) {
+                    i = i + clamp(i) * 2 - 1;
+                }
+                println(LABEL + i);
+                return;
+            }
+            """;
+
+    private static final byte[] HASH = Programs.hash(SOURCE);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripKeepsTheTree() throws IOException {
+        ProgramNode program = Programs.parse(SOURCE);
+        Path file = dir.resolve("Test.klast");
+        KlastFormat.write(FlatAst.encode(program), HASH, file);
+
+        FlatAst read = KlastFormat.read(file, HASH);
+        assertNotNull(read);
+        assertEquals(program.statements.size(), read.program().statements.size());
+
+        // The rebuilt tree encodes to the same bytes
+        Path again = dir.resolve("Again.klast");
+        KlastFormat.write(FlatAst.encode(read.program()), HASH, again);
+        assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(again));
+    }
+
+    @Test
+    void missingFileIsAMiss() throws IOException {
+        assertNull(KlastFormat.read(dir.resolve("Missing.klast"), HASH));
+    }
+
+    @Test
+    void rejectsAnotherSource() throws IOException {
+        assertNull(KlastFormat.decode(ByteBuffer.wrap(image()), Programs.hash(SOURCE + " ")));
+    }
+
+    @Test
+    void rejectsAnotherVersion() throws IOException {
+        byte[] image = image();
+        assertNotNull(KlastFormat.decode(ByteBuffer.wrap(withChecksum(image)), HASH));
+
+        // The version is a one-byte varint right after the magic
+        assertEquals(KlastFormat.VERSION, image[4]);
+        image[4] = (byte) (KlastFormat.VERSION + 1);
+        assertNull(KlastFormat.decode(ByteBuffer.wrap(withChecksum(image)), HASH));
+    }
+
+    @Test
+    void rejectsDamagedFile() throws IOException {
+        byte[] image = image();
+        assertNull(KlastFormat.decode(ByteBuffer.wrap(Arrays.copyOf(image, image.length - 8)), HASH));
+
+        image[image.length / 2] ^= 1;
+        assertNull(KlastFormat.decode(ByteBuffer.wrap(image), HASH));
+    }
+
+    private byte[] image() throws IOException {
+        Path file = dir.resolve("Image.klast");
+        KlastFormat.write(FlatAst.encode(Programs.parse(SOURCE)), HASH, file);
+        return Files.readAllBytes(file);
+    }
+
+    /**
+     * Recomputes the CRC-32 trailer, so a change to the body is not rejected
+     * as damage.
+     */
+    private static byte[] withChecksum(byte[] image) {
+        CRC32 crc = new CRC32();
+        crc.update(image, 0, image.length - 4);
+        return ByteBuffer.allocate(image.length)
+                .put(image, 0, image.length - 4)
+                .putInt((int) crc.getValue())
+                .array();
+    }
+}
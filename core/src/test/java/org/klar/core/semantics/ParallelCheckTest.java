@@ -0,0 +1,113 @@
+package org.klar.core.semantics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.klar.core.Programs;
+import org.klar.core.errors.CompilationFailedException;
+import org.klar.core.errors.KException;
+import org.klar.core.errors.SourceManager;
+import org.klar.core.parser.ast.FunctionDeclarationNode;
+import org.klar.core.parser.ast.ProgramNode;
+import org.klar.core.parser.ast.StatementNode;
+import org.klar.core.transpilers.JavaTranspiler;
+
+/**
+ * Function bodies are checked in parallel from 16 functions up; the result
+ * must not depend on it.
+ */
+class ParallelCheckTest {
+    private static final int FUNCTIONS = 40;
+
+    @Test
+    void reportsTheSameErrorsInTheSameOrder() {
+        String source = program(true);
+        List<String> sequential = errors(source, 1, 20);
+        assertEquals(14, sequential.size());
+        assertEquals(sequential, errors(source, 4, 20));
+    }
+
+    @Test
+    void stopsAtTheSameError() {
+        String source = program(true);
+        List<String> sequential = errors(source, 1, 5);
+        assertEquals(5, sequential.size());
+        assertEquals(sequential, errors(source, 4, 5));
+    }
+
+    @Test
+    void derivesTheSameTypes() {
+        String source = program(false);
+        assertEquals(java(source, 1), java(source, 4));
+    }
+
+    @Test
+    void functionsSeeOnlyTheGlobalsAboveThem() {
+        // UNDECLARED is declared after the function that reads it
+        String source = program(false).replace("integer x = n;", "integer x = UNDECLARED;")
+                + "constant integer UNDECLARED = 1;\n";
+        List<String> sequential = errors(source, 1, 100);
+        assertTrue(sequential.size() >= FUNCTIONS);
+        assertEquals(sequential, errors(source, 4, 100));
+    }
+
+    /**
+     * @param broken Whether every third function assigns a string to an
+     *               integer.
+     */
+    private static String program(boolean broken) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < FUNCTIONS; i++) {
+            sb.append("@Use(\"java\")\n")
+                    .append("public integer f").append(i).append("(integer n) {\n")
+                    .append("    integer x = n;\n");
+            if (broken && i % 3 == 0) {
+                sb.append("    integer y = \"text\";\n");
+            }
+            sb.append("    x = x + n * n;\n")
+                    .append("    return x;\n")
+                    .append("}\n\n");
+        }
+        return sb.toString();
+    }
+
+    private static List<String> errors(String source, int parallelism, int maxErrors) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            TypeChecker checker = new TypeChecker(new SourceManager(source), Programs.PATH, pool, maxErrors);
+            CompilationFailedException failure = assertThrows(CompilationFailedException.class,
+                    () -> checker.check(Programs.parse(source)));
+
+            List<String> messages = new ArrayList<>();
+            for (KException error : failure.errors()) {
+                messages.add(error.getMessage());
+            }
+            return messages;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static String java(String source, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            SourceManager sourceManager = new SourceManager(source);
+            ProgramNode program = Programs.parse(source);
+            TypedProgram types = new TypeChecker(sourceManager, Programs.PATH, pool).check(program);
+
+            for (StatementNode statement : program.statements) {
+                FunctionDeclarationNode f = (FunctionDeclarationNode) statement;
+                assertTrue(PrimitiveTypeSymbol.isOf(types.functionOf(f).returnType, Type.INTEGER));
+            }
+            return new JavaTranspiler("Test", sourceManager, Programs.PATH, types).transpile(program);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
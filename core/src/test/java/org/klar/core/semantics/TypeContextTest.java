@@ -0,0 +1,69 @@
+package org.klar.core.semantics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Small frames search their names, large ones index them; both must address
+ * a name by the slot it was declared in.
+ */
+class TypeContextTest {
+    private static final int NAMES = 1000;
+    private static final TypeSymbol INTEGER = PrimitiveTypeSymbol.of(Type.INTEGER, false);
+    private static final TypeSymbol STRING = PrimitiveTypeSymbol.of(Type.STRING, false);
+
+    @Test
+    void findsEveryNameAtItsSlot() {
+        TypeContext frame = frame(NAMES);
+        for (int i = 0; i < NAMES; i++) {
+            assertEquals(i, frame.slotOf("n" + i));
+            assertSame(INTEGER, frame.lookup(0, i));
+        }
+        assertEquals(-1, frame.slotOf("missing"));
+    }
+
+    @Test
+    void rejectsARedeclarationInSmallAndLargeFrames() {
+        for (int size : new int[] {3, NAMES}) {
+            TypeContext frame = frame(size);
+            assertFalse(frame.declare("n0", STRING));
+            assertFalse(frame.declare("n" + (size - 1), STRING));
+            assertSame(INTEGER, frame.resolve("n0"));
+        }
+    }
+
+    @Test
+    void resolvesThroughTheParentOfALargeFrame() {
+        TypeContext local = new TypeContext(frame(NAMES));
+        local.declare("n5", STRING);
+        assertSame(STRING, local.resolve("n5"));
+        assertSame(INTEGER, local.resolve("n6"));
+        assertNull(local.resolve("missing"));
+    }
+
+    @Test
+    void snapshotsKeepTheirOwnIndex() {
+        TypeContext frame = frame(NAMES);
+        TypeContext snapshot = frame.snapshot();
+        assertTrue(frame.declare("later", STRING));
+        assertTrue(snapshot.declare("other", STRING));
+
+        assertEquals(NAMES, frame.slotOf("later"));
+        assertEquals(-1, snapshot.slotOf("later"));
+        assertEquals(NAMES, snapshot.slotOf("other"));
+        assertEquals(-1, frame.slotOf("other"));
+    }
+
+    private static TypeContext frame(int size) {
+        TypeContext frame = new TypeContext(null);
+        for (int i = 0; i < size; i++) {
+            assertTrue(frame.declare("n" + i, INTEGER));
+        }
+        return frame;
+    }
+}